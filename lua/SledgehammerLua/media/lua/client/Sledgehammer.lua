@@ -44,10 +44,15 @@ SledgeHammer = class(function(o)
 	 o.delayStartSeconds = 1;
 	 o.delayStart = false;
 	 o.handshakeAttempt = 1;
+	 -- The Lua bundle last sent by the server, and the hash identifying its version.
+	 o.luaBundle = nil;
+	 o.luaHash = nil;
 	-- List of SledgeHammer Player LuaObjects, identified via ID.
 	o.players = {};
 	-- Map of SledgeHammer Player LuaObjects, identified via string (username).
 	o.playersByName = {};
+	 -- Flag set while waiting for the server to resend Players after a delta could not be applied.
+	 o.resyncing = false;
 	 -- Player Object for the player running this engine.
 	 o.self = nil;
 end);
@@ -114,7 +119,12 @@ function SledgeHammer:doHandshake()
 			print("Handshake failed. ErrorCode: "..tostring(error));
 		end
 	end
-	local handshake = Request("sledgehammer.module.core", "handshake", nil, handshakeSuccess, handshakeFailure);
+	-- Send the hash of the Lua bundle already received, so the server can skip sending it again.
+	local args = nil;
+	if self.luaHash ~= nil then
+		args = {lua_hash = self.luaHash};
+	end
+	local handshake = Request("sledgehammer.module.core", "handshake", args, handshakeSuccess, handshakeFailure);
 	handshake:send();
 end
 
@@ -340,26 +350,34 @@ function SledgeHammer:onClientCommand(mod, command, args)
 				self.handshake   = false;
 				self:doHandshake();
 			elseif command == "sendLua" then
-				local func = load_function(args.lua);
+				local lua = args.lua;
+				if lua == nil then
+					-- The server only sent the hash, as the bundle has not changed.
+					if args.hash == nil or args.hash ~= self.luaHash then
+						-- The bundle is missing. Handshake again without a hash.
+						self.luaHash = nil;
+						self:doHandshake();
+						return;
+					end
+					lua = self.luaBundle;
+				else
+					-- Keep the bundle to run again on the next handshake.
+					self.luaBundle = lua;
+					self.luaHash   = args.hash;
+				end
+				local func = load_function(lua);
 				func();
 				return;
-			elseif command == "sendSelf" then
-				-- Grab the Player and the information.
-				local player = args.player    ;
-				local id     = player.id      ;
-				local name   = player.username;
-				-- Set the Player object in the maps.
-				self.players[id]         = player;
-				self.playersByName[name] = player;
-				self.self                = player;
-			elseif command == "sendPlayer" then
-				-- Grab the Player and the information.
-				local player = args.player    ;
-				local id     = player.id      ;
-				local name   = player.username;
-				-- Set the Player object in the maps.
-				self.players[id]         = player;
-				self.playersByName[name] = player;
+			elseif command == "sendSelf" or command == "sendPlayer" then
+				local player = self:receivePlayer(args.player);
+				if player == nil then
+					return;
+				end
+				-- Pass the full Player object on to the modules.
+				args.player = player;
+				if command == "sendSelf" then
+					self.self = player;
+				end
 			end
 		end
 		-- Grab the module being commanded.
@@ -374,6 +392,51 @@ function SledgeHammer:onClientCommand(mod, command, args)
 	end
 end
 
+----------------------------------------------------------------
+-- Stores a Player object sent by the server. Players are sent as
+-- deltas of the copy last received.
+--
+-- @table player 	The Player object, or delta, sent.
+-- @return 			Returns the stored Player object. If the delta
+--                  cannot be applied, nil is returned and the server
+--                  is asked to send all Players again.
+----------------------------------------------------------------
+function SledgeHammer:receivePlayer(player)
+	local id = player.id;
+	if player.__delta then
+		local stored = self.players[id];
+		local nameOld = nil;
+		if stored ~= nil then
+			nameOld = stored.username;
+		end
+		if not tApplyDelta(stored, player) then
+			if not self.resyncing then
+				self.resyncing = true;
+				self:sendCommand("sledgehammer.module.core", "resync", nil);
+			end
+			return nil;
+		end
+		-- Re-map the Player if the username changed.
+		if nameOld ~= nil and nameOld ~= stored.username then
+			self.playersByName[nameOld] = nil;
+		end
+		player = stored;
+	else
+		self.resyncing = false;
+		local stored = self.players[id];
+		if stored ~= nil and stored.username ~= player.username then
+			self.playersByName[stored.username] = nil;
+		end
+		if self.self ~= nil and self.self.id == id then
+			self.self = player;
+		end
+	end
+	-- Set the Player object in the maps.
+	self.players[id]                    = player;
+	self.playersByName[player.username] = player;
+	return player;
+end
+
 ----------------------------------------------------------------
 -- Registers a Module.
 ----------------------------------------------------------------
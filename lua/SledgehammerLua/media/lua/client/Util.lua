@@ -171,6 +171,34 @@ function tContainsKey(T, nam)
 	return false;
 end
 
+----------------------------------------------------------------
+-- Applies a delta of a LuaTable sent by the server to the copy
+-- last received of it. Deltas are flagged with '__delta', and
+-- only apply on top of the version they were computed against,
+-- given as '__base'.
+--
+-- @table T 		The copy of the table being patched.
+-- @table delta 	The delta sent by the server.
+-- @return 		Returns true if the delta was applied. If the copy
+--              is missing or on another version, false is returned.
+----------------------------------------------------------------
+function tApplyDelta(T, delta)
+	if T == nil or T.__version ~= delta.__base then
+		return false;
+	end
+	for key, value in pairs(delta) do
+		if key ~= "__delta" and key ~= "__base" and key ~= "__removed" then
+			T[key] = value;
+		end
+	end
+	if delta.__removed ~= nil then
+		for _, key in pairs(delta.__removed) do
+			T[key] = nil;
+		end
+	end
+	return true;
+end
+
 ----------------------------------------------------------------
 -- @string s 		The String being examined.
 -- @UIFont font 	The font being used to draw the string.
@@ -64,7 +64,25 @@ public class MainWindow {
         convertButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                SQLiteToMongo.instance.run();
+                // Convert off of the event thread, so that the progress can be shown while converting.
+                convertButton.setEnabled(false);
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            SQLiteToMongo.instance.run();
+                        } finally {
+                            SwingUtilities.invokeLater(new Runnable() {
+                                @Override
+                                public void run() {
+                                    convertButton.setEnabled(true);
+                                }
+                            });
+                        }
+                    }
+                }, "Conversion");
+                thread.setDaemon(true);
+                thread.start();
             }
         });
         scrollPane1 = new JScrollPane(textAreaLog,
@@ -9,9 +9,14 @@ import java.io.*;
 import java.lang.reflect.Field;
 import java.net.URI;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Properties;
+import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -20,17 +25,24 @@ public class SQLiteToMongo {
 
     public static SQLiteToMongo instance;
 
+    /**
+     * The amount of rows read from SQLite per page. Each page is written to MongoDB as one unordered bulk insert,
+     * after which the checkpoint is saved.
+     */
+    private static final int PAGE_SIZE = 1000;
+
     private Connection sql;
     private MongoClient client;
     private DBCollection collectionMongoPlayers;
     private DBCollection collectionBans;
-    private List<SQLPlayer> listSQLPlayers;
-    private List<SQLBanIP> listBannedIPs;
-    private List<SQLBanID> listBannedIDs;
-    private List<DBObject> listMongoPlayers;
-    private List<DBObject> listMongoBans;
-    private List<DBObject> listPlayersToInsert;
-    private List<DBObject> listBansToInsert;
+    /** The lower-case user-names of the players in MongoDB, including the ones converted so far. */
+    private Set<String> setMongoUsernames;
+    /** The lower-case IDs of the bans in MongoDB, including the ones converted so far. */
+    private Set<String> setMongoBanIds;
+    /** The last SQLite row converted for each table, by the table name. */
+    private Properties checkpoint;
+    private File fileCheckpoint;
+    private File fileDB;
     private JFrame jFrame;
     private MainWindow mainWindow;
     private ConsoleTextArea console;
@@ -90,7 +102,9 @@ public class SQLiteToMongo {
             long timeStarted = System.currentTimeMillis();
             loadSQLite();
             loadMongoDB();
+            loadCheckpoint();
             convert();
+            deleteCheckpoint();
             long timeFinished = System.currentTimeMillis();
             double seconds = (timeFinished - timeStarted) / 1000.0D;
             console.println(testCompl, "", "Done! Took " + seconds + " Seconds.");
@@ -98,17 +112,18 @@ public class SQLiteToMongo {
             console.println(testError);
             console.printStackTrace(e);
             e.printStackTrace();
+            if (fileCheckpoint != null && fileCheckpoint.exists()) {
+                console.println("", "Progress has been saved. Run the conversion again to resume.");
+            }
         }
         freeResources();
     }
 
     private void loadSQLite() throws SQLException {
-        Statement s;
-        ResultSet rs;
         if (filePath == null || filePath.isEmpty()) {
             throw new IllegalArgumentException("SQLite DB file not set.");
         }
-        File fileDB = new File(filePath);
+        fileDB = new File(filePath);
         if (!fileDB.exists()) {
             throw new IllegalArgumentException("SQLite DB file does not exist.");
         }
@@ -119,74 +134,10 @@ public class SQLiteToMongo {
             throw new IllegalArgumentException("SQLite DB file given is not a valid DB file. "
                     + "SQLite DB files end with a '.db' extension.");
         }
-        listSQLPlayers = new ArrayList<>();
-        listBannedIPs = new ArrayList<>();
-        listBannedIDs = new ArrayList<>();
         sql = connect(fileDB);
-        console.println("Loading SQLite Players from the whitelist...");
-        s = sql.createStatement();
-        rs = s.executeQuery("SELECT * FROM whitelist");
-        while (rs.next()) {
-            // @formatter:off
-            String username       = rs.getString("username"      );
-            boolean encrypted     = rs.getString("encryptedPwd"  ).equalsIgnoreCase("true");
-            String password       = rs.getString("password"      );
-            boolean administrator = rs.getString("admin"         ).equalsIgnoreCase("true");
-            boolean banned        = rs.getString("banned"        ).equalsIgnoreCase("true");
-            String steamID        = rs.getString("steamid"       );
-            String ownerID        = rs.getString("ownerid"       );
-            String lastConnection = rs.getString("lastConnection");
-            // @formatter:on
-            // Make sure not to load the admin account. Sledgehammer deals with that already.
-            if (username.equalsIgnoreCase("admin")) continue;
-            console.println("Loaded player: " + username);
-            SQLPlayer player = new SQLPlayer(username, password, encrypted);
-            player.setAdministrator(administrator);
-            player.setBanned(banned);
-            player.setSteamId(steamID);
-            player.setOwnerId(ownerID);
-            player.setLastConnection(lastConnection);
-            listSQLPlayers.add(player);
-        }
-        rs.close();
-        s.close();
-        console.println("Loaded " + listSQLPlayers.size() + " player" + (listSQLPlayers.size() == 1 ? "" : "s")
-                + ".", "");
-        console.println("Loading IP bans...");
-        s = sql.createStatement();
-        rs = s.executeQuery("SELECT * FROM bannedip");
-        while (rs.next()) {
-            // @formatter:off
-            String ip       = rs.getString("ip"      );
-            String username = rs.getString("username");
-            String reason   = rs.getString("reason"  );
-            // @formatter:on
-            console.println("Loaded IP Ban: " + ip + " (Username: " + username + ").");
-            SQLBanIP ban = new SQLBanIP(ip, username, reason);
-            listBannedIPs.add(ban);
+        if (sql == null) {
+            throw new IllegalStateException("Could not connect to the SQLite DB file.");
         }
-        rs.close();
-        s.close();
-        console.println("Loaded " + listBannedIPs.size() + " IP ban" + (listBannedIPs.size() == 1 ? "" : "s")
-                + ".", "");
-        console.println("Loading Steam ID bans...");
-        s = sql.createStatement();
-        rs = s.executeQuery("SELECT * FROM bannedid");
-        while (rs.next()) {
-            // @formatter:off
-            String steamid  = rs.getString("steamid" );
-            String username = rs.getString("username");
-            String reason   = rs.getString("reason"  );
-            // @formatter:on
-            console.println("Loaded Steam ID Ban: " + steamid + " (Username: " + username + ").");
-            SQLBanID ban = new SQLBanID(steamid, username, reason);
-            listBannedIDs.add(ban);
-        }
-        rs.close();
-        s.close();
-        console.println("Loaded " + listBannedIDs.size() + " Steam ID ban" + (listBannedIPs.size() == 1 ? "" : "s")
-                + ".", "");
-        sql.close();
     }
 
     @SuppressWarnings({"deprecated"})
@@ -194,136 +145,283 @@ public class SQLiteToMongo {
         loadMongoClient();
         DB db = client.getDB(mainWindow.getDatabaseDatabase());
         collectionMongoPlayers = db.getCollection("sledgehammer_players");
-        listMongoPlayers = new ArrayList<>();
-        console.println("Players already in MongoDB:");
-        DBCursor cursor = collectionMongoPlayers.find();
-        while (cursor.hasNext()) {
-            DBObject object = cursor.next();
-            listMongoPlayers.add(object);
-            console.println(object.get("username"));
-        }
-        cursor.close();
-        console.println("Loaded " + listMongoPlayers.size() + " MongoDB Player entr" +
-                (listMongoPlayers.size() == 1 ? "y" : "ies") + ".", "");
+        setMongoUsernames = loadKeys(collectionMongoPlayers, "username");
+        console.println("Loaded " + setMongoUsernames.size() + " MongoDB Player entr" +
+                (setMongoUsernames.size() == 1 ? "y" : "ies") + ".", "");
         collectionBans = db.getCollection("sledgehammer_bans");
-        listMongoBans = new ArrayList<>();
-        cursor = collectionBans.find();
-        while (cursor.hasNext()) {
-            listMongoBans.add(cursor.next());
-        }
-        cursor.close();
-        console.println("Loaded " + listMongoBans.size() + " MongoDB Ban entr" +
-                (listMongoBans.size() == 1 ? "y" : "ies") + ".", "");
+        setMongoBanIds = loadKeys(collectionBans, "id");
+        console.println("Loaded " + setMongoBanIds.size() + " MongoDB Ban entr" +
+                (setMongoBanIds.size() == 1 ? "y" : "ies") + ".", "");
     }
 
-    private void convert() {
-        listPlayersToInsert = new ArrayList<>();
-        listBansToInsert = new ArrayList<>();
-        console.println("Converting players to MongoDB...");
-        for (SQLPlayer player : listSQLPlayers) {
-            String sqlPlayerUsername = player.getUsername();
-            boolean exists = false;
-            for (DBObject objectPlayer : listMongoPlayers) {
-                String mongoPlayerUsername = (String) objectPlayer.get("username");
-                exists = sqlPlayerUsername.equalsIgnoreCase(mongoPlayerUsername);
-                if (exists) {
-                    break;
+    /**
+     * (Private Method)
+     * <p>
+     * Loads only the given field of every document in the collection, for existence checks.
+     *
+     * @param collection The collection to load.
+     * @param field      The field to load.
+     * @return Returns a Set of the values of the field, in lower-case.
+     */
+    private Set<String> loadKeys(DBCollection collection, String field) {
+        Set<String> set = new HashSet<>();
+        DBObject projection = new BasicDBObject(field, 1).append("_id", 0);
+        DBCursor cursor = collection.find(new BasicDBObject(), projection).batchSize(PAGE_SIZE);
+        try {
+            while (cursor.hasNext()) {
+                Object value = cursor.next().get(field);
+                if (value != null) {
+                    set.add(value.toString().toLowerCase());
                 }
             }
-            if (exists) {
-                console.println("Player already exists in the MongoDB server: \"" + player.getUsername() + "\".");
-                continue;
-            }
-            String ownerId = player.getOwnerId() == null ? "-1" : player.getOwnerId();
-            DBObject object = new BasicDBObject();
-            // @formatter:off
-            object.put("id"               , UUID.randomUUID()                   );
-            object.put("username"         , player.getUsername()                );
-            object.put("passwordEncrypted", player.getEncryptedPassword()       );
-            object.put("admin"            , player.isAdministrator() ? "1" : "0");
-            object.put("banned"           , player.isBanned() ? "1" : "0"       );
-            object.put("timeConnectedLast", player.getLastConnection() + ""  );
-            object.put("steamID"          , player.getSteamId()                 );
-            object.put("steamIDOwner"     , ownerId                             );
-            object.put("metadata"         , new BasicDBObject()                 );
-            listPlayersToInsert.add(object);
-            // @formatter:on
+        } finally {
+            cursor.close();
         }
-        insertDocuments(collectionMongoPlayers, listPlayersToInsert);
-        console.println("Converted " + listPlayersToInsert.size() + " player" +
-                (listPlayersToInsert.size() == 1 ? "" : "s") + " to MongoDB.", "");
+        return set;
+    }
+
+    private void convert() throws SQLException, IOException {
+        console.println("Converting players to MongoDB...");
+        convertTable("whitelist", "Player", collectionMongoPlayers, setMongoUsernames, new RowConverter() {
+            @Override
+            public DBObject convert(ResultSet rs) throws SQLException {
+                // @formatter:off
+                String username       = rs.getString("username"      );
+                boolean encrypted     = rs.getString("encryptedPwd"  ).equalsIgnoreCase("true");
+                String password       = rs.getString("password"      );
+                boolean administrator = rs.getString("admin"         ).equalsIgnoreCase("true");
+                boolean banned        = rs.getString("banned"        ).equalsIgnoreCase("true");
+                String steamID        = rs.getString("steamid"       );
+                String ownerID        = rs.getString("ownerid"       );
+                String lastConnection = rs.getString("lastConnection");
+                // @formatter:on
+                // Make sure not to load the admin account. Sledgehammer deals with that already.
+                if (username == null || username.equalsIgnoreCase("admin")) return null;
+                SQLPlayer player = new SQLPlayer(username, password, encrypted);
+                player.setAdministrator(administrator);
+                player.setBanned(banned);
+                player.setSteamId(steamID);
+                player.setOwnerId(ownerID);
+                player.setLastConnection(lastConnection);
+                String ownerId = player.getOwnerId() == null ? "-1" : player.getOwnerId();
+                DBObject object = new BasicDBObject();
+                // @formatter:off
+                object.put("id"               , UUID.randomUUID()                   );
+                object.put("username"         , player.getUsername()                );
+                object.put("passwordEncrypted", player.getEncryptedPassword()       );
+                object.put("admin"            , player.isAdministrator() ? "1" : "0");
+                object.put("banned"           , player.isBanned() ? "1" : "0"       );
+                object.put("timeConnectedLast", player.getLastConnection()          );
+                object.put("steamID"          , player.getSteamId()                 );
+                object.put("steamIDOwner"     , ownerId                             );
+                object.put("metadata"         , new BasicDBObject()                 );
+                // @formatter:on
+                return object;
+            }
 
+            @Override
+            public String getKey(DBObject object) {
+                return (String) object.get("username");
+            }
+        });
         console.println("Converting IP Bans to MongoDB format...");
-        for (SQLBanIP ban : listBannedIPs) {
-            boolean exists = false;
-            for (DBObject o : listMongoBans) {
-                exists = ban.getIP().equalsIgnoreCase((String) o.get("id"));
-                if (exists) {
-                    break;
-                }
+        convertTable("bannedip", "IP Ban", collectionBans, setMongoBanIds, new RowConverter() {
+            @Override
+            public DBObject convert(ResultSet rs) throws SQLException {
+                // @formatter:off
+                String ip       = rs.getString("ip"      );
+                String username = rs.getString("username");
+                String reason   = rs.getString("reason"  );
+                // @formatter:on
+                if (ip == null) return null;
+                SQLBanIP ban = new SQLBanIP(ip, username, reason);
+                DBObject object = new BasicDBObject();
+                // @formatter:off
+                object.put("id"      , ban.getIP()      );
+                object.put("username", ban.getUsername());
+                object.put("steam"   , false            );
+                object.put("reason"  , ban.getReason()  );
+                object.put("banned"  , true             );
+                // @formatter:on
+                return object;
             }
-            if (exists) {
-                console.println("Skipping IP Ban (Conflict in MongoDB): " + ban.toString());
-                continue;
+
+            @Override
+            public String getKey(DBObject object) {
+                return (String) object.get("id");
             }
-            DBObject object = new BasicDBObject();
-            // @formatter:off
-            object.put("id"      , ban.getIP()      );
-            object.put("username", ban.getUsername());
-            object.put("steam"   , false         );
-            object.put("reason"  , ban.getReason()  );
-            object.put("banned"  , true          );
-            // @formatter:on
-            listBansToInsert.add(object);
-            console.println("Added Ban: " + ban.toString());
-        }
-        int size = listBansToInsert.size();
-        console.println("Converted " + size + " IP Ban" + (size == 1 ? "" : "s") + ".", "");
+        });
         console.println("Converting SteamID Bans to MongoDB format...");
-        for (SQLBanID ban : listBannedIDs) {
-            boolean exists = false;
-            for (DBObject o : listMongoBans) {
-                exists = ban.getID().equalsIgnoreCase((String) o.get("id"));
-                if (exists) {
-                    break;
-                }
+        convertTable("bannedid", "SteamID Ban", collectionBans, setMongoBanIds, new RowConverter() {
+            @Override
+            public DBObject convert(ResultSet rs) throws SQLException {
+                // @formatter:off
+                String steamid  = rs.getString("steamid" );
+                String username = rs.getString("username");
+                String reason   = rs.getString("reason"  );
+                // @formatter:on
+                if (steamid == null) return null;
+                SQLBanID ban = new SQLBanID(steamid, username, reason);
+                DBObject object = new BasicDBObject();
+                // @formatter:off
+                object.put("id"      , ban.getID()      );
+                object.put("username", ban.getUsername());
+                object.put("steam"   , true             );
+                object.put("reason"  , ban.getReason()  );
+                object.put("banned"  , true             );
+                // @formatter:on
+                return object;
             }
-            if (exists) {
-                console.println("Skipping SteamID Ban (Conflict in MongoDB): " + ban.toString());
-                continue;
+
+            @Override
+            public String getKey(DBObject object) {
+                return (String) object.get("id");
             }
-            DBObject object = new BasicDBObject();
-            // @formatter:off
-            object.put("id"      , ban.getID()      );
-            object.put("username", ban.getUsername());
-            object.put("steam"   , true          );
-            object.put("reason"  , ban.getReason()  );
-            object.put("banned"  , true          );
-            // @formatter:on
-            listBansToInsert.add(object);
-            console.println("Added Ban: " + ban.toString());
-        }
-        size = listBansToInsert.size() - size;
-        console.println("Converted " + size + " SteamID Ban" + (size == 1 ? "" : "s") + ".", "");
-        console.println("Saving MongoDB bans...");
-        // Insert the SQL Bans into the MongoDB Collection.
-        insertDocuments(collectionBans, listBansToInsert);
-        console.println("Saved MongoDB bans.", "");
-        // Add IP & ID Bans
+        });
         console.println("Conversion completed.");
-        client.close();
+    }
+
+    /**
+     * (Private Method)
+     * <p>
+     * Streams a SQLite table into a MongoDB collection. The table is read in pages ordered by rowid, starting
+     * after the last row recorded in the checkpoint. Rows whose key already exists in MongoDB are skipped.
+     *
+     * @param table      The name of the SQLite table.
+     * @param label      The name of the converted entries, used for progress messages.
+     * @param collection The MongoDB collection to insert into.
+     * @param setKeys    The lower-case keys already in the collection. Converted keys are added to it.
+     * @param converter  The converter of rows to documents.
+     * @throws SQLException Thrown when reading the SQLite table fails.
+     * @throws IOException  Thrown when saving the checkpoint fails.
+     */
+    private void convertTable(String table, String label, DBCollection collection, Set<String> setKeys,
+                              RowConverter converter) throws SQLException, IOException {
+        long rowId = getCheckpoint(table);
+        int total = countRows(table, rowId);
+        if (rowId != Long.MIN_VALUE) {
+            console.println("Resuming " + table + " after row " + rowId + ". (" + total + " remaining)");
+        }
+        long timeStarted = System.currentTimeMillis();
+        int read = 0;
+        int inserted = 0;
+        int skipped = 0;
+        List<DBObject> listDocuments = new ArrayList<>(PAGE_SIZE);
+        PreparedStatement statement = sql.prepareStatement(
+                "SELECT rowid, * FROM " + table + " WHERE rowid > ? ORDER BY rowid LIMIT " + PAGE_SIZE);
+        try {
+            int rows;
+            do {
+                rows = 0;
+                statement.setLong(1, rowId);
+                ResultSet rs = statement.executeQuery();
+                try {
+                    while (rs.next()) {
+                        rows++;
+                        rowId = rs.getLong(1);
+                        DBObject object = converter.convert(rs);
+                        // Adding the key also skips duplicates inside of the SQLite table.
+                        if (object == null || !setKeys.add(converter.getKey(object).toLowerCase())) {
+                            skipped++;
+                            continue;
+                        }
+                        listDocuments.add(object);
+                    }
+                } finally {
+                    rs.close();
+                }
+                read += rows;
+                inserted += insertDocuments(collection, listDocuments);
+                listDocuments.clear();
+                if (rows > 0) {
+                    saveCheckpoint(table, rowId);
+                    console.println(label + "s: " + read + "/" + total + " read, " + inserted + " inserted, "
+                            + skipped + " skipped.");
+                }
+            } while (rows == PAGE_SIZE);
+        } finally {
+            statement.close();
+        }
+        double seconds = (System.currentTimeMillis() - timeStarted) / 1000.0D;
+        console.println("Converted " + inserted + " " + label + (inserted == 1 ? "" : "s") + " to MongoDB in "
+                + seconds + " Seconds. (" + skipped + " skipped)", "");
+    }
+
+    private int countRows(String table, long rowId) throws SQLException {
+        PreparedStatement statement = sql.prepareStatement("SELECT COUNT(*) FROM " + table + " WHERE rowid > ?");
+        try {
+            statement.setLong(1, rowId);
+            ResultSet rs = statement.executeQuery();
+            try {
+                return rs.next() ? rs.getInt(1) : 0;
+            } finally {
+                rs.close();
+            }
+        } finally {
+            statement.close();
+        }
+    }
+
+    private void loadCheckpoint() throws IOException {
+        checkpoint = new Properties();
+        fileCheckpoint = new File(fileDB.getAbsolutePath() + ".conversion");
+        if (!fileCheckpoint.exists()) {
+            return;
+        }
+        Properties properties = new Properties();
+        InputStream is = new FileInputStream(fileCheckpoint);
+        try {
+            properties.load(is);
+        } finally {
+            is.close();
+        }
+        // A checkpoint only applies to the MongoDB database it was written for.
+        if (!getCheckpointTarget().equals(properties.getProperty("target"))) {
+            console.println("Ignoring checkpoint of a conversion to another MongoDB database.");
+            return;
+        }
+        checkpoint = properties;
+        console.println("Found checkpoint: " + fileCheckpoint.getName(), "");
+    }
+
+    private long getCheckpoint(String table) {
+        String value = checkpoint.getProperty(table);
+        return value != null ? Long.parseLong(value) : Long.MIN_VALUE;
+    }
+
+    private void saveCheckpoint(String table, long rowId) throws IOException {
+        checkpoint.setProperty("target", getCheckpointTarget());
+        checkpoint.setProperty(table, Long.toString(rowId));
+        // Write to a temporary file first, so that an interrupted write never corrupts the checkpoint.
+        File fileTemp = new File(fileCheckpoint.getAbsolutePath() + ".tmp");
+        OutputStream os = new FileOutputStream(fileTemp);
+        try {
+            checkpoint.store(os, "Sledgehammer Database Conversion Checkpoint");
+        } finally {
+            os.close();
+        }
+        Files.move(fileTemp.toPath(), fileCheckpoint.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void deleteCheckpoint() {
+        if (fileCheckpoint != null && fileCheckpoint.exists() && !fileCheckpoint.delete()) {
+            console.println("Failed to delete checkpoint: " + fileCheckpoint.getAbsolutePath());
+        }
+    }
+
+    private String getCheckpointTarget() {
+        return mainWindow.getDatabaseURL() + ":" + mainWindow.getDatabasePort() + "/"
+                + mainWindow.getDatabaseDatabase();
     }
 
     private void freeResources() {
         console.println("Attempting to free resources...");
         // Clear all of the fields. @formatter:off
-        listSQLPlayers      = null;
-        listBannedIDs       = null;
-        listBannedIPs       = null;
-        listBansToInsert    = null;
-        listPlayersToInsert = null;
-        listMongoPlayers    = null;
-        listMongoBans       = null;
+        setMongoUsernames = null;
+        setMongoBanIds    = null;
+        checkpoint        = null;
+        fileCheckpoint    = null;
+        fileDB            = null;
         // @formatter:on
         try {
             if (sql != null && !sql.isClosed()) {
@@ -343,13 +441,31 @@ public class SQLiteToMongo {
         }
     }
 
-    private void insertDocuments(DBCollection collection, List<DBObject> listDocuments) {
-        if (listDocuments.size() > 0) {
-            DBObject objects[] = new DBObject[listDocuments.size()];
-            for (int index = 0; index < listDocuments.size(); index++) {
-                objects[index] = listDocuments.get(index);
+    /**
+     * (Private Method)
+     * <p>
+     * Inserts documents with an unordered bulk insert. Documents that fail to insert are reported without
+     * stopping the rest of the batch.
+     *
+     * @param collection    The collection to insert into.
+     * @param listDocuments The documents to insert.
+     * @return Returns the amount of documents inserted.
+     */
+    private int insertDocuments(DBCollection collection, List<DBObject> listDocuments) {
+        if (listDocuments.isEmpty()) {
+            return 0;
+        }
+        BulkWriteOperation bulk = collection.initializeUnorderedBulkOperation();
+        for (DBObject document : listDocuments) {
+            bulk.insert(document);
+        }
+        try {
+            return bulk.execute().getInsertedCount();
+        } catch (BulkWriteException e) {
+            for (BulkWriteError error : e.getWriteErrors()) {
+                console.println("Failed to insert document: " + error.getMessage());
             }
-            collection.insert(objects);
+            return e.getWriteResult().getInsertedCount();
         }
     }
 
@@ -415,4 +531,23 @@ public class SQLiteToMongo {
     private static InputStream getStream(File jar, String source) throws IOException {
         return new URL("jar:file:" + jar.getAbsolutePath() + "!/" + source).openStream();
     }
+
+    /**
+     * Converts SQLite rows to MongoDB documents.
+     */
+    private interface RowConverter {
+
+        /**
+         * @param rs The ResultSet, positioned at the row to convert.
+         * @return Returns the converted document, or null if the row is to be skipped.
+         * @throws SQLException Thrown when reading the row fails.
+         */
+        DBObject convert(ResultSet rs) throws SQLException;
+
+        /**
+         * @param object The converted document.
+         * @return Returns the key to check for existing documents.
+         */
+        String getKey(DBObject object);
+    }
 }
\ No newline at end of file
@@ -1,9 +1,14 @@
 package se.krka.kahlua.j2se;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -17,7 +22,38 @@ import zombie.Lua.LuaManager.GlobalObject;
 import zombie.core.Core;
 import zombie.ui.UIManager;
 
+/**
+ * KahluaTable implementation with a dense array part for the integer keys 1..n, and an
+ * open-addressing hash part for every other key.
+ *
+ * <p>Integer keys inside of the array part are only ever stored there, so reading them is a single
+ * array access. Other keys are found with a single probe sequence. Removed hash entries are left
+ * as tombstones until the next rehash, so that assigning nil to fields during an iteration is safe,
+ * as Lua allows.
+ *
+ * <p>The array and hash parts require a single writer, so they are only used by tables confined to
+ * the thread building them, like the tables exported by Sledgehammer before they are sent. A table
+ * created with a Map stores every entry in the Map instead. J2SEPlatform.newTable() backs its
+ * tables with a NonBlockingHashMap, as the tables of the Lua runtime are written by several of the
+ * game's threads.
+ */
 public class KahluaTableImpl implements KahluaTable {
+  private static final Object[] EMPTY = new Object[0];
+  /** Marks a removed entry of the hash part. */
+  private static final Object TOMBSTONE = new Object();
+  private static final int MINIMUM_ARRAY_CAPACITY = 4;
+  private static final int MINIMUM_HASH_CAPACITY = 4;
+  /** The values for the keys 1..array.length, stored at key - 1. */
+  private Object[] array = EMPTY;
+  /** The count of non-nil values in the array part. */
+  private int arrayCount;
+  /** The hash part, storing each key at an even index followed by its value. */
+  private Object[] hash = EMPTY;
+  /** The count of entries in the hash part. */
+  private int hashCount;
+  /** The count of entries and tombstones in the hash part. */
+  private int hashUsed;
+  /** The Map storing every entry, if the table was created with one. */
   private final Map delegate;
   private KahluaTable metatable;
   private KahluaTable reloadReplace;
@@ -27,6 +63,17 @@ public class KahluaTableImpl implements KahluaTable {
   private static final byte SBYT_TABLE = 2;
   private static final byte SBYT_BOOLEAN = 3;
 
+  /** Creates a table for a single writer, stored in an array part and a hash part. */
+  public KahluaTableImpl() {
+    this.delegate = null;
+  }
+
+  /**
+   * Creates a table storing its entries in the given Map. A concurrent Map allows several threads
+   * to write to the table.
+   *
+   * @param delegate The Map to store the entries in.
+   */
   public KahluaTableImpl(Map delegate) {
     this.delegate = delegate;
   }
@@ -40,7 +87,10 @@ public class KahluaTableImpl implements KahluaTable {
   }
 
   public int size() {
-    return this.delegate.size();
+    if (this.delegate != null) {
+      return this.delegate.size();
+    }
+    return this.arrayCount + this.hashCount;
   }
 
   public void rawset(Object key, Object value) {
@@ -63,7 +113,7 @@ public class KahluaTableImpl implements KahluaTable {
         UIManager.debugBreakpoint(LuaManager.thread.currentfile, (long) LuaManager.thread.lastLine);
       }
 
-      this.delegate.remove(key);
+      this.remove(key);
     } else {
       if (Core.bDebug
           && LuaManager.thread != null
@@ -81,7 +131,7 @@ public class KahluaTableImpl implements KahluaTable {
                     - 1));
       }
 
-      this.delegate.put(key, value);
+      this.put(key, value);
     }
   }
 
@@ -106,14 +156,26 @@ public class KahluaTableImpl implements KahluaTable {
                     - 1));
       }
 
-      return !this.delegate.containsKey(key) && this.metatable != null
-          ? this.metatable.rawget(key)
-          : this.delegate.get(key);
+      // Values are never nil, so a single lookup tells whether the key is present.
+      Object value = this.get(key);
+      return value == null && this.metatable != null ? this.metatable.rawget(key) : value;
     }
   }
 
   public void rawset(int key, Object value) {
-    this.rawset(KahluaUtil.toDouble((long) key), value);
+    if (this.delegate != null || this.reloadReplace != null || Core.bDebug) {
+      this.rawset(KahluaUtil.toDouble((long) key), value);
+    } else if (value == null) {
+      if (key > 0 && key <= this.array.length) {
+        this.removeIndex(key);
+      } else {
+        this.removeHash(KahluaUtil.toDouble((long) key));
+      }
+    } else if (key > 0 && key <= this.array.length + 1) {
+      this.putIndex(key, value);
+    } else {
+      this.putHash(KahluaUtil.toDouble((long) key), value);
+    }
   }
 
   public String rawgetStr(Object key) {
@@ -121,22 +183,113 @@ public class KahluaTableImpl implements KahluaTable {
   }
 
   public int rawgetInt(Object key) {
-    return this.rawget(key) != null ? ((Double) this.rawget(key)).intValue() : -1;
+    Object value = this.rawget(key);
+    return value != null ? ((Double) value).intValue() : -1;
   }
 
   public boolean rawgetBool(Object key) {
-    return this.rawget(key) != null ? ((Boolean) this.rawget(key)).booleanValue() : false;
+    Object value = this.rawget(key);
+    return value != null ? ((Boolean) value).booleanValue() : false;
   }
 
   public Object rawget(int key) {
-    return this.rawget(KahluaUtil.toDouble((long) key));
+    if (this.delegate != null || this.reloadReplace != null || Core.bDebug) {
+      return this.rawget(KahluaUtil.toDouble((long) key));
+    }
+    Object[] array = this.array;
+    Object value;
+    if (key > 0 && key <= array.length) {
+      value = array[key - 1];
+    } else {
+      value = this.getNumber(key);
+    }
+    return value == null && this.metatable != null
+        ? this.metatable.rawget(KahluaUtil.toDouble((long) key))
+        : value;
   }
 
   public int len() {
-    return KahluaUtil.len(this, 0, 2 * this.delegate.size());
+    if (this.delegate != null) {
+      return KahluaUtil.len(this, 0, 2 * this.delegate.size());
+    }
+    Object[] array = this.array;
+    int length = array.length;
+    if (length > 0 && array[length - 1] == null) {
+      // Binary search for a border inside of the array part. array[high - 1] is always nil, and
+      // array[low - 1] is never nil unless low is 0.
+      int low = 0;
+      int high = length;
+      while (high - low > 1) {
+        int middle = (low + high) >>> 1;
+        if (array[middle - 1] == null) {
+          high = middle;
+        } else {
+          low = middle;
+        }
+      }
+      return low;
+    }
+    // The array part is full. The sequence can continue in the hash part.
+    int border = length;
+    if (this.hashCount > 0) {
+      while (this.getNumber(border + 1) != null) {
+        ++border;
+      }
+    }
+    return border;
   }
 
   public KahluaTableIterator iterator() {
+    if (this.delegate != null) {
+      return this.delegateIterator();
+    }
+    final Object[] array = this.array;
+    final Object[] hash = this.hash;
+    return new KahluaTableIterator() {
+      private int index;
+      private Object curKey;
+      private Object curValue;
+
+      public int call(LuaCallFrame callFrame, int nArguments) {
+        return this.advance() ? callFrame.push(this.getKey(), this.getValue()) : 0;
+      }
+
+      public boolean advance() {
+        while (this.index < array.length) {
+          int next = this.index++;
+          Object value = array[next];
+          if (value != null) {
+            this.curKey = KahluaUtil.toDouble((long) (next + 1));
+            this.curValue = value;
+            return true;
+          }
+        }
+        while (this.index < array.length + (hash.length >> 1)) {
+          int slot = (this.index++ - array.length) << 1;
+          Object key = hash[slot];
+          Object value = hash[slot + 1];
+          if (key != null && key != TOMBSTONE && value != null) {
+            this.curKey = key;
+            this.curValue = value;
+            return true;
+          }
+        }
+        this.curKey = null;
+        this.curValue = null;
+        return false;
+      }
+
+      public Object getKey() {
+        return this.curKey;
+      }
+
+      public Object getValue() {
+        return this.curValue;
+      }
+    };
+  }
+
+  private KahluaTableIterator delegateIterator() {
     final Iterator iterator = this.delegate.entrySet().iterator();
     return new KahluaTableIterator() {
       private Object curKey;
@@ -170,44 +323,322 @@ public class KahluaTableImpl implements KahluaTable {
   }
 
   public boolean isEmpty() {
-    return this.delegate.isEmpty();
+    if (this.delegate != null) {
+      return this.delegate.isEmpty();
+    }
+    return this.arrayCount + this.hashCount == 0;
   }
 
   public void wipe() {
-    this.delegate.clear();
+    if (this.delegate != null) {
+      this.delegate.clear();
+      return;
+    }
+    this.array = EMPTY;
+    this.arrayCount = 0;
+    this.hash = EMPTY;
+    this.hashCount = 0;
+    this.hashUsed = 0;
+  }
+
+  /**
+   * @param key The key, which is not null.
+   * @return Returns the value stored for the key, or null if the key is not present.
+   */
+  private Object get(Object key) {
+    if (this.delegate != null) {
+      return this.delegate.get(key);
+    }
+    if (key instanceof Double) {
+      double d = ((Double) key).doubleValue();
+      int index = (int) d;
+      if (index == d && index > 0) {
+        Object[] array = this.array;
+        if (index <= array.length) {
+          return array[index - 1];
+        }
+      }
+    }
+    Object[] hash = this.hash;
+    int slot = find(hash, key);
+    return slot < 0 ? null : hash[slot + 1];
+  }
+
+  /**
+   * Looks up a number key in the hash part without boxing it.
+   *
+   * @param d The number key.
+   * @return Returns the value stored for the key, or null if the key is not present.
+   */
+  private Object getNumber(double d) {
+    Object[] hash = this.hash;
+    if (hash.length == 0) {
+      return null;
+    }
+    long bits = Double.doubleToLongBits(d);
+    int mask = (hash.length >> 1) - 1;
+    int index = spread((int) (bits ^ (bits >>> 32))) & mask;
+    while (true) {
+      Object key = hash[index << 1];
+      if (key == null) {
+        return null;
+      }
+      if (key instanceof Double && Double.doubleToLongBits(((Double) key).doubleValue()) == bits) {
+        return hash[(index << 1) + 1];
+      }
+      index = (index + 1) & mask;
+    }
+  }
+
+  private void put(Object key, Object value) {
+    if (this.delegate != null) {
+      this.delegate.put(key, value);
+      return;
+    }
+    if (key instanceof Double) {
+      double d = ((Double) key).doubleValue();
+      int index = (int) d;
+      if (index == d && index > 0 && index <= this.array.length + 1) {
+        this.putIndex(index, value);
+        return;
+      }
+    }
+    this.putHash(key, value);
+  }
+
+  private void remove(Object key) {
+    if (this.delegate != null) {
+      this.delegate.remove(key);
+      return;
+    }
+    if (key instanceof Double) {
+      double d = ((Double) key).doubleValue();
+      int index = (int) d;
+      if (index == d && index > 0 && index <= this.array.length) {
+        this.removeIndex(index);
+        return;
+      }
+    }
+    this.removeHash(key);
+  }
+
+  /**
+   * Stores a value in the array part. Appending right past the end of the array part grows it.
+   *
+   * @param index The key, between 1 and the length of the array part + 1.
+   * @param value The value, which is not null.
+   */
+  private void putIndex(int index, Object value) {
+    if (index > this.array.length) {
+      this.growArray();
+    }
+    Object[] array = this.array;
+    if (array[index - 1] == null) {
+      ++this.arrayCount;
+    }
+    array[index - 1] = value;
+  }
+
+  private void removeIndex(int index) {
+    Object[] array = this.array;
+    if (array[index - 1] != null) {
+      array[index - 1] = null;
+      --this.arrayCount;
+    }
+  }
+
+  /**
+   * Doubles the array part, and moves the integer keys now covered by it out of the hash part.
+   */
+  private void growArray() {
+    Object[] array = this.array;
+    int length = array.length;
+    Object[] arrayNew = new Object[Math.max(MINIMUM_ARRAY_CAPACITY, length << 1)];
+    System.arraycopy(array, 0, arrayNew, 0, length);
+    if (this.hashCount > 0) {
+      for (int index = length + 1; index <= arrayNew.length; index++) {
+        Double key = KahluaUtil.toDouble((long) index);
+        Object[] hash = this.hash;
+        int slot = find(hash, key);
+        if (slot >= 0) {
+          arrayNew[index - 1] = hash[slot + 1];
+          ++this.arrayCount;
+          hash[slot + 1] = null;
+          hash[slot] = TOMBSTONE;
+          --this.hashCount;
+        }
+      }
+    }
+    this.array = arrayNew;
+  }
+
+  private void putHash(Object key, Object value) {
+    Object[] hash = this.hash;
+    int slot = find(hash, key);
+    if (slot >= 0) {
+      hash[slot + 1] = value;
+      return;
+    }
+    // Keep at least a quarter of the slots empty, so that every probe sequence terminates.
+    if ((this.hashUsed + 1) << 2 > (hash.length >> 1) * 3) {
+      this.rehash(this.hashCount + 1);
+      hash = this.hash;
+    }
+    int mask = (hash.length >> 1) - 1;
+    int index = spread(key.hashCode()) & mask;
+    while (true) {
+      Object next = hash[index << 1];
+      if (next == null || next == TOMBSTONE) {
+        if (next == null) {
+          ++this.hashUsed;
+        }
+        // Set the value first, so that a concurrent reader never finds the key without it.
+        hash[(index << 1) + 1] = value;
+        hash[index << 1] = key;
+        ++this.hashCount;
+        return;
+      }
+      index = (index + 1) & mask;
+    }
+  }
+
+  private void removeHash(Object key) {
+    Object[] hash = this.hash;
+    int slot = find(hash, key);
+    if (slot >= 0) {
+      hash[slot + 1] = null;
+      hash[slot] = TOMBSTONE;
+      --this.hashCount;
+    }
+  }
+
+  /**
+   * Rebuilds the hash part without tombstones, sized for the given count of entries.
+   *
+   * @param count The count of entries to size the hash part for.
+   */
+  private void rehash(int count) {
+    int capacity = MINIMUM_HASH_CAPACITY;
+    while (capacity < count << 1) {
+      capacity <<= 1;
+    }
+    Object[] hash = this.hash;
+    Object[] hashNew = new Object[capacity << 1];
+    int mask = capacity - 1;
+    for (int slot = 0; slot < hash.length; slot += 2) {
+      Object key = hash[slot];
+      if (key != null && key != TOMBSTONE) {
+        int index = spread(key.hashCode()) & mask;
+        while (hashNew[index << 1] != null) {
+          index = (index + 1) & mask;
+        }
+        hashNew[index << 1] = key;
+        hashNew[(index << 1) + 1] = hash[slot + 1];
+      }
+    }
+    this.hashUsed = this.hashCount;
+    this.hash = hashNew;
+  }
+
+  /**
+   * @param hash The hash part to search.
+   * @param key The key, which is not null.
+   * @return Returns the index of the key in the hash part, or -1 if the key is not present.
+   */
+  private static int find(Object[] hash, Object key) {
+    if (hash.length == 0) {
+      return -1;
+    }
+    int mask = (hash.length >> 1) - 1;
+    int index = spread(key.hashCode()) & mask;
+    while (true) {
+      Object next = hash[index << 1];
+      if (next == null) {
+        return -1;
+      }
+      if (next == key || (next != TOMBSTONE && next.equals(key))) {
+        return index << 1;
+      }
+      index = (index + 1) & mask;
+    }
+  }
+
+  /**
+   * Mixes the bits of a hash code. Double keys, the most common keys, only vary in their high bits.
+   */
+  private static int spread(int h) {
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    h *= 0xC2B2AE35;
+    return h ^ (h >>> 16);
   }
 
   public String toString() {
     return "table 0x" + System.identityHashCode(this);
   }
 
+  /**
+   * Saves the table in a single pass. The count of entries is written as a placeholder first, and
+   * back-patched once the entries are written.
+   */
   public void save(ByteBuffer output) {
-    KahluaTableIterator it = this.iterator();
+    int position = output.position();
+    output.putInt(0);
     int count = 0;
-
-    while (it.advance()) {
-      if (canSave(it.getKey(), it.getValue())) {
+    Object[] array = this.array;
+    for (int index = 0; index < array.length; index++) {
+      Object value = array[index];
+      byte valueByte = getValueByte(value);
+      if (valueByte != -1) {
+        output.put(SBYT_DOUBLE);
+        output.putDouble((double) (index + 1));
+        this.save(output, valueByte, value);
         ++count;
       }
     }
-
-    it = this.iterator();
-    output.putInt(count);
-
-    while (it.advance()) {
-      byte keyByte = getKeyByte(it.getKey());
-      byte valueByte = getValueByte(it.getValue());
-      if (keyByte != -1 && valueByte != -1) {
-        this.save(output, keyByte, it.getKey());
-        this.save(output, valueByte, it.getValue());
+    Object[] hash = this.hash;
+    for (int slot = 0; slot < hash.length; slot += 2) {
+      if (this.saveEntry(output, hash[slot], hash[slot + 1])) {
+        ++count;
+      }
+    }
+    if (this.delegate != null) {
+      for (Object o : this.delegate.entrySet()) {
+        Entry entry = (Entry) o;
+        if (this.saveEntry(output, entry.getKey(), entry.getValue())) {
+          ++count;
+        }
       }
     }
+    output.putInt(position, count);
+  }
+
+  /**
+   * Saves an entry of the table, if the types of its key and value can be saved.
+   *
+   * @return Returns true if the entry was saved.
+   */
+  private boolean saveEntry(ByteBuffer output, Object key, Object value) {
+    byte keyByte = getKeyByte(key);
+    byte valueByte = getValueByte(value);
+    if (keyByte == -1 || valueByte == -1) {
+      return false;
+    }
+    if (keyByte == SBYT_STRING) {
+      output.put(SBYT_STRING);
+      StringCodec.writeKey(output, (String) key);
+    } else {
+      this.save(output, keyByte, key);
+    }
+    this.save(output, valueByte, value);
+    return true;
   }
 
   private void save(ByteBuffer output, byte sbyt, Object o) throws RuntimeException {
     output.put(sbyt);
     if (sbyt == 0) {
-      GameWindow.WriteString(output, (String) o);
+      StringCodec.write(output, (String) o);
     } else if (sbyt == 1) {
       output.putDouble(((Double) o).doubleValue());
     } else if (sbyt == 3) {
@@ -221,7 +652,34 @@ public class KahluaTableImpl implements KahluaTable {
     }
   }
 
+  /**
+   * Saves the table to a stream. The table is written in a single pass to a buffer reused by the
+   * thread, and the buffer is then written to the stream. If the buffer is too small, it is doubled
+   * and the table is written again. The larger buffer is kept, so this only happens while the
+   * buffer grows to fit the largest tables saved.
+   */
   public void save(DataOutputStream output) throws IOException {
+    if (!StringCodec.isStreamCompatible()) {
+      this.saveCounted(output);
+      return;
+    }
+    ByteBuffer buffer = StringCodec.getBuffer(0);
+    while (true) {
+      try {
+        this.save(buffer);
+        break;
+      } catch (BufferOverflowException e) {
+        buffer = StringCodec.getBuffer(buffer.capacity() * 2);
+      }
+    }
+    output.write(buffer.array(), buffer.arrayOffset(), buffer.position());
+  }
+
+  /**
+   * Saves the table to a stream, counting the entries before writing them. This is only used if
+   * Strings written to streams by GameWindow differ from Strings written to buffers.
+   */
+  private void saveCounted(DataOutputStream output) throws IOException {
     KahluaTableIterator it = this.iterator();
     int count = 0;
 
@@ -258,7 +716,7 @@ public class KahluaTableImpl implements KahluaTable {
         throw new RuntimeException("invalid lua table type " + sbyt);
       }
 
-      ((KahluaTableImpl) o).save(output);
+      ((KahluaTableImpl) o).saveCounted(output);
     }
   }
 
@@ -270,7 +728,12 @@ public class KahluaTableImpl implements KahluaTable {
     if (WorldVersion >= 25) {
       for (n = 0; n < count; ++n) {
         valueByte = input.get();
-        Object key = this.load(input, WorldVersion, valueByte);
+        Object key;
+        if (valueByte == SBYT_STRING) {
+          key = StringCodec.readKey(input);
+        } else {
+          key = this.load(input, WorldVersion, valueByte);
+        }
         byte value = input.get();
         Object value1 = this.load(input, WorldVersion, value);
         this.rawset(key, value1);
@@ -278,7 +741,7 @@ public class KahluaTableImpl implements KahluaTable {
     } else {
       for (n = 0; n < count; ++n) {
         valueByte = input.get();
-        String var9 = GameWindow.ReadString(input);
+        String var9 = StringCodec.readKey(input);
         Object var10 = this.load(input, WorldVersion, valueByte);
         this.rawset(var9, var10);
       }
@@ -287,7 +750,7 @@ public class KahluaTableImpl implements KahluaTable {
 
   public Object load(ByteBuffer input, int WorldVersion, byte sbyt) throws RuntimeException {
     if (sbyt == 0) {
-      return GameWindow.ReadString(input);
+      return StringCodec.read(input);
     } else if (sbyt == 1) {
       return Double.valueOf(input.getDouble());
     } else if (sbyt == 3) {
@@ -373,4 +836,203 @@ public class KahluaTableImpl implements KahluaTable {
   public static boolean canSave(Object key, Object value) {
     return getKeyByte(key) != -1 && getValueByte(value) != -1;
   }
+
+  /**
+   * Encodes and decodes Strings in the format GameWindow uses for them: a short byte length,
+   * followed by the UTF-8 bytes. Keys, which repeat across tables, are kept encoded for saving, and
+   * are loaded without building a new String when they were seen before.
+   *
+   * <p>The format is verified against GameWindow on first use. If it differs, every String is
+   * written and read through GameWindow.
+   */
+  private static final class StringCodec {
+    /** The longest key, in bytes, to cache. */
+    private static final int MAXIMUM_CACHED_LENGTH = 64;
+    /** The size of each cache. Must be a power of 2. */
+    private static final int CACHE_SIZE = 1024;
+    /** The largest save buffer kept for reuse by each thread. */
+    private static final int MAXIMUM_RETAINED_BUFFER = 1 << 20;
+    /**
+     * Keys by their String hash, and by the hash of their bytes. The caches are direct-mapped, and
+     * entries are immutable, so they are shared between threads without locking.
+     */
+    private static final CachedString[] cacheEncoded = new CachedString[CACHE_SIZE];
+    private static final CachedString[] cacheDecoded = new CachedString[CACHE_SIZE];
+    private static final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>();
+    private static final boolean compatible;
+    private static final boolean streamCompatible;
+
+    static {
+      boolean checkBuffer = false;
+      boolean checkStream = false;
+      try {
+        checkBuffer = checkBuffer("") && checkBuffer("sledgehammer_\u00e9\u4e2d");
+        checkStream = checkBuffer && checkStream("") && checkStream("sledgehammer_\u00e9\u4e2d");
+      } catch (Exception e) {
+        checkBuffer = false;
+        checkStream = false;
+      }
+      compatible = checkBuffer;
+      streamCompatible = checkStream;
+    }
+
+    /**
+     * @return Returns true if tables saved to a buffer can be copied to a stream, and loaded from
+     *     it by GameWindow.
+     */
+    static boolean isStreamCompatible() {
+      return streamCompatible;
+    }
+
+    static void write(ByteBuffer output, String value) {
+      if (!compatible) {
+        GameWindow.WriteString(output, value);
+        return;
+      }
+      write(output, value, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static void writeKey(ByteBuffer output, String key) {
+      if (!compatible) {
+        GameWindow.WriteString(output, key);
+        return;
+      }
+      int slot = spread(key.hashCode()) & (CACHE_SIZE - 1);
+      CachedString cached = cacheEncoded[slot];
+      byte[] bytes;
+      if (cached != null && cached.value.equals(key)) {
+        bytes = cached.bytes;
+      } else {
+        bytes = key.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAXIMUM_CACHED_LENGTH) {
+          cacheEncoded[slot] = new CachedString(key, bytes);
+        }
+      }
+      write(output, key, bytes);
+    }
+
+    private static void write(ByteBuffer output, String value, byte[] bytes) {
+      if (bytes.length > Short.MAX_VALUE) {
+        GameWindow.WriteString(output, value);
+        return;
+      }
+      output.putShort((short) bytes.length);
+      output.put(bytes);
+    }
+
+    static String read(ByteBuffer input) {
+      int position = input.position();
+      int length;
+      if (!compatible || (length = input.getShort(position)) < 0) {
+        return GameWindow.ReadString(input);
+      }
+      String value;
+      if (input.hasArray()) {
+        // Decode straight from the backing array.
+        value =
+            new String(
+                input.array(), input.arrayOffset() + position + 2, length, StandardCharsets.UTF_8);
+      } else {
+        byte[] bytes = new byte[length];
+        for (int index = 0; index < length; index++) {
+          bytes[index] = input.get(position + 2 + index);
+        }
+        value = new String(bytes, StandardCharsets.UTF_8);
+      }
+      input.position(position + 2 + length);
+      return value;
+    }
+
+    static String readKey(ByteBuffer input) {
+      int position = input.position();
+      int length;
+      if (!compatible || (length = input.getShort(position)) < 0) {
+        return GameWindow.ReadString(input);
+      }
+      if (length > MAXIMUM_CACHED_LENGTH) {
+        return read(input);
+      }
+      int offset = position + 2;
+      int hash = 1;
+      for (int index = 0; index < length; index++) {
+        hash = 31 * hash + input.get(offset + index);
+      }
+      int slot = spread(hash) & (CACHE_SIZE - 1);
+      CachedString cached = cacheDecoded[slot];
+      if (cached != null && cached.bytes.length == length) {
+        byte[] bytes = cached.bytes;
+        int index = 0;
+        while (index < length && bytes[index] == input.get(offset + index)) {
+          ++index;
+        }
+        if (index == length) {
+          input.position(offset + length);
+          return cached.value;
+        }
+      }
+      byte[] bytes = new byte[length];
+      for (int index = 0; index < length; index++) {
+        bytes[index] = input.get(offset + index);
+      }
+      String value = new String(bytes, StandardCharsets.UTF_8);
+      cacheDecoded[slot] = new CachedString(value, bytes);
+      input.position(offset + length);
+      return value;
+    }
+
+    /**
+     * @param size The size in bytes needed.
+     * @return Returns a cleared heap buffer of at least the given size, reused by the thread when
+     *     possible.
+     */
+    static ByteBuffer getBuffer(int size) {
+      ByteBuffer buffer = buffers.get();
+      if (buffer == null || buffer.capacity() < size) {
+        buffer = ByteBuffer.allocate(Math.max(size, 4096));
+        if (buffer.capacity() <= MAXIMUM_RETAINED_BUFFER) {
+          buffers.set(buffer);
+        }
+      }
+      buffer.clear();
+      return buffer;
+    }
+
+    private static boolean checkBuffer(String value) {
+      ByteBuffer expected = ByteBuffer.allocate(256);
+      write(expected, value, value.getBytes(StandardCharsets.UTF_8));
+      ByteBuffer actual = ByteBuffer.allocate(256);
+      GameWindow.WriteString(actual, value);
+      if (!Arrays.equals(
+          Arrays.copyOf(expected.array(), expected.position()),
+          Arrays.copyOf(actual.array(), actual.position()))) {
+        return false;
+      }
+      expected.flip();
+      return value.equals(GameWindow.ReadString(expected)) && !expected.hasRemaining();
+    }
+
+    private static boolean checkStream(String value) throws IOException {
+      ByteBuffer expected = ByteBuffer.allocate(256);
+      write(expected, value, value.getBytes(StandardCharsets.UTF_8));
+      byte[] bytesExpected = Arrays.copyOf(expected.array(), expected.position());
+      ByteArrayOutputStream actual = new ByteArrayOutputStream();
+      GameWindow.WriteString(new DataOutputStream(actual), value);
+      if (!Arrays.equals(bytesExpected, actual.toByteArray())) {
+        return false;
+      }
+      DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytesExpected));
+      return value.equals(GameWindow.ReadString(input)) && input.available() == 0;
+    }
+
+    /** A String key with its encoded bytes. */
+    private static final class CachedString {
+      final String value;
+      final byte[] bytes;
+
+      CachedString(String value, byte[] bytes) {
+        this.value = value;
+        this.bytes = bytes;
+      }
+    }
+  }
 }
@@ -22,6 +22,7 @@ package sledgehammer;
 
 import java.io.*;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
@@ -161,6 +162,16 @@ public class SledgeHammer extends Printable {
     getPluginManager().onStart();
     getPlayerManager().onStart();
     getTaskManager().onStart();
+    // Load the player documents of the online roster with one query.
+    List<String> listUsernames = new ArrayList<>();
+    for (Player player : getPlayers()) {
+      if (player.getMongoDocument() == null) {
+        listUsernames.add(player.getUsername());
+      }
+    }
+    if (!listUsernames.isEmpty()) {
+      getDatabase().preloadMongoPlayers(listUsernames);
+    }
     for (Player player : getPlayers()) {
       PlayerCreatedEvent event = new PlayerCreatedEvent(player);
       SledgeHammer.instance.handle(event);
@@ -180,6 +191,8 @@ public class SledgeHammer extends Printable {
     try {
       synchronized (this) {
         managerTask.onUpdate();
+        managerEvent.onUpdate();
+        managerPlayer.onUpdate();
         managerPlugin.onUpdate();
       }
     } catch (Exception e) {
@@ -318,36 +331,7 @@ public class SledgeHammer extends Printable {
    *     returned.
    */
   public Player getPlayerDirty(String nameFragment) {
-    // Search by user-name.
-    Player player = getPlayerByUsername(nameFragment);
-    // Search by nickname.
-    if (player == null) {
-      player = getPlayerByNickname(nameFragment);
-    }
-    // Search dirty for user-name.
-    if (player == null) {
-      for (Player nextPlayer : getPlayers()) {
-        if (nextPlayer.getUsername().toLowerCase().contains(nameFragment.toLowerCase())) {
-          player = nextPlayer;
-          break;
-        }
-      }
-    }
-    // Search dirty for nickname.
-    if (player == null) {
-      // Go through each Player.
-      for (Player playerNext : getPlayers()) {
-        // Grab and format the next Player's nickname.
-        String playerNextNickname = playerNext.getNickname().toLowerCase();
-        // If the next Player in the list contains part of the
-        if (playerNextNickname.contains(nameFragment.toLowerCase())) {
-          player = playerNext;
-          break;
-        }
-      }
-    }
-    // Return the result Player.
-    return player;
+    return getPlayerManager().getPlayerDirty(nameFragment);
   }
 
   /**
@@ -359,36 +343,40 @@ public class SledgeHammer extends Printable {
   public void send(Send send, Player player) {
     // Make sure the Player is online before attempting to send to the Player.
     if (!isReloading() && player.isConnected()) {
-      if (DEBUG) {
-        println("Sending to player: " + player + ", send=" + send);
+      KahluaTable table = send.isDeltaExport() ? send.exportDelta(player) : send.export();
+      if (table != null) {
+        sendExported(send, table, player);
       }
-      // Send the packet using the native packet code.
-      GameServer.sendServerCommand(
-          "sledgehammer.module." + send.getModule(),
-          send.getCommand(),
-          send.export(),
-          player.getConnection());
     }
   }
 
+  /**
+   * Sends an already exported Send to a Player. The exported KahluaTable is only read when the
+   * packet is written, so one export can be shared by every recipient of a broadcast.
+   *
+   * @param send The Send LuaTable being sent.
+   * @param table The KahluaTable exported from the Send.
+   * @param player The Player being sent the Send.
+   */
+  private void sendExported(Send send, KahluaTable table, Player player) {
+    if (DEBUG) {
+      println("Sending to player: " + player + ", send=" + send);
+    }
+    // Send the packet using the native packet code.
+    GameServer.sendServerCommand(
+        "sledgehammer.module." + send.getModule(),
+        send.getCommand(),
+        table,
+        player.getConnection());
+  }
+
   /**
    * @param nickname The nickname of the Player.
    * @return Returns a Player with a given String nickname. If no online Players have this nickname,
    *     then null is returned.
    */
   public Player getPlayerByNickname(String nickname) {
-    // The Player to returned.
-    Player returned = null;
-    // Go through each online Player.
-    for (Player player : getPlayers()) {
-      if (player.getNickname().equalsIgnoreCase(nickname)) {
-        // Set the returned Player and break out of the loop to save computation.
-        returned = player;
-        break;
-      }
-    }
-    // Return the result.
-    return returned;
+    return getPlayerManager().getPlayerByNickname(nickname);
   }
 
   /**
@@ -397,19 +385,7 @@ public class SledgeHammer extends Printable {
    *     nickname, then null is returned.
    */
   public Player getPlayerByUsername(String username) {
-    // The Player to return.
-    Player returned = null;
-    // Go through each online Player.
-    for (Player player : getPlayers()) {
-      // If the Player's registered username matches the one given,
-      if (player.getUsername().equalsIgnoreCase(username)) {
-        // Set the returned Player and break out of the loop to save computation.
-        returned = player;
-        break;
-      }
-    }
-    // Return the result.
-    return returned;
+    return getPlayerManager().getPlayer(username);
   }
 
   /**
@@ -489,24 +465,37 @@ public class SledgeHammer extends Printable {
    * @param send The Send LuaTable being sent.
    */
   public void send(Send send) {
-    if (!isReloading()) {
-      for (Player player : getPlayers()) {
-        send(send, player);
-      }
-    }
+    send(send, getPlayers());
   }
 
   /**
-   * Sends a Send LuaTable Object to a Collection of Players.
+   * Sends a Send LuaTable Object to a Collection of Players. The Send is exported once and the
+   * resulting KahluaTable is shared by every recipient, unless the Send is exported as deltas, in
+   * which case each recipient is sent only what changed since it last received it.
    *
    * @param send The Send LuaTable Object being sent.
    * @param players The Collection of Players being sent the Send Object.
    */
   public void send(Send send, Collection<Player> players) {
-    if (!isReloading()) {
+    if (isReloading()) {
+      return;
+    }
+    if (send.isDeltaExport()) {
       for (Player player : players) {
         send(send, player);
       }
+      return;
+    }
+    // Export the Send once, and only if at least one recipient is online.
+    KahluaTable table = null;
+    for (Player player : players) {
+      if (!player.isConnected()) {
+        continue;
+      }
+      if (table == null) {
+        table = send.export();
+      }
+      sendExported(send, table, player);
     }
   }
 
@@ -656,6 +645,18 @@ public class SledgeHammer extends Printable {
     return getEventManager().handleEvent(event, true);
   }
 
+  /**
+   * Checks if any EventHandlers handle a given Event class. This can be used to avoid constructing
+   * an Event that nothing listens to.
+   *
+   * @param classEvent The Class of the Event.
+   * @return Returns true if any EventHandlers handle the Event, including EventHandlers registered
+   *     for super-classes and interfaces of the Event.
+   */
+  public boolean hasEventHandlers(Class<? extends Event> classEvent) {
+    return getEventManager().hasEventHandlers(classEvent);
+  }
+
   public void handle(Throwable throwable) {
     getEventManager().handleThrown(throwable);
   }
@@ -847,6 +848,10 @@ public class SledgeHammer extends Printable {
    */
   public void addPlayer(Player player) {
     getPlayerManager().addPlayer(player);
+    MongoPlayer mongoPlayer = player.getMongoDocument();
+    if (mongoPlayer != null) {
+      getDatabase().pinMongoPlayer(mongoPlayer);
+    }
   }
 
   /** @return Returns a List of online Players. */
@@ -872,6 +877,19 @@ public class SledgeHammer extends Printable {
     return getPlayerManager().getPlayer(uniqueId);
   }
 
+  /**
+   * @param connection The native UdpConnection of a Player.
+   * @return Returns a Player with the given UdpConnection. If no Player has this UdpConnection,
+   *     null is returned.
+   */
+  public Player getPlayerByConnection(UdpConnection connection) {
+    Player player = getPlayerManager().getPlayerByConnection(connection);
+    if (player == null) {
+      player = getPlayerManager().getPlayer(connection.username);
+    }
+    return player;
+  }
+
   /** @return Returns the File Object for the LanguagePackage directory. */
   public File getLanguageDirectory() {
     return this.directoryLang;
@@ -99,4 +99,14 @@ public @interface EventHandler {
    * @return Returns an empty String by default.
    */
   String id() default "";
+
+  /**
+   * Set this to true if the EventHandler should be invoked off of the game server thread. This is
+   * intended for EventHandlers that perform blocking I/O. Asynchronous EventHandlers of the same
+   * Listener are invoked in the order the Events are fired. They are invoked after the synchronous
+   * EventHandlers, and cannot cancel the Event for other EventHandlers.
+   *
+   * @return Returns false by default.
+   */
+  boolean async() default false;
 }
@@ -88,7 +88,12 @@ public class CommandHandlerContainer {
   private MethodHandle methodHandle;
   private MethodType methodType;
   private Listener container;
-  private Object[] methodArgumentsCache;
+  /**
+   * The MethodHandle adapted to the exact type (Command, Response)void, with the container bound
+   * for virtual methods. This is invoked with invokeExact(), which avoids boxing the arguments into
+   * an array and holds no mutable state, making dispatch safe from multiple threads.
+   */
+  private MethodHandle invoker;
   private String methodName;
   private boolean isStatic;
   private boolean isEnabled;
@@ -176,26 +181,14 @@ public class CommandHandlerContainer {
       methodHandle = lookup.unreflect(method);
     } catch (IllegalAccessException e) {
       e.printStackTrace();
+      return;
     }
-    // If the handler method is static, the parameter cache does not require an instance
-    // of the declaring class or anonymous class to invoke.
-    if (isStatic) {
-      // In this case, the handler will require 2 parameter:
-      // [0] -> Command
-      // [1] -> Response
-      methodArgumentsCache = new Object[2];
-    }
-    // We will setup the parameter cache for a non-static (invokeVirtual) method. These
-    // methods are what is expected to be used as handlers.
-    else {
-      // In this case, the handler will require 3 parameters:
-      // [0] -> self
-      // [1] -> Command
-      // [2] -> Response
-      methodArgumentsCache = new Object[3];
-      // Set the self instance as the Container.
-      methodArgumentsCache[0] = getContainer();
-    }
+    // If the handler method is not static, bind the declaring class instance so that the handle
+    // only requires the Command and Response to invoke.
+    MethodHandle handle = isStatic ? methodHandle : methodHandle.bindTo(getContainer());
+    // Adapt the handle to the exact type used by handleCommand() so that it can be invoked with
+    // invokeExact(). Any return value is dropped.
+    invoker = handle.asType(MethodType.methodType(void.class, Command.class, Response.class));
     // We are now good to start invoking the handler. Let the EventManager know this.
     setEnabled(true);
   }
@@ -219,31 +212,9 @@ public class CommandHandlerContainer {
     if (response.isHandled() && !this.ignoreHandled()) {
       return;
     }
-    // Grab the parameter cache for the EventHandler.
-    Object[] parameters = getMethodParameters();
-    // If the method is static, we do not need to reference the instance of the declaring class.
-    if (isStatic()) {
-      // The method is static, so we need to only pass the Event instance being handled.
-      methodArgumentsCache[0] = command;
-      methodArgumentsCache[1] = response;
-      // Finally, invoke the method.
-      methodHandle.invokeWithArguments(methodArgumentsCache);
-      // Clear the cache of references to the arguments given.
-      methodArgumentsCache[0] = null;
-      methodArgumentsCache[1] = null;
-    }
-    // The method is dynamic, so we need to pass the instance of the declaring class.
-    else {
-      // The declaring class instance is already defined in the first index of the
-      // parameter array. All we need to do is assign the Event instance being handled.
-      methodArgumentsCache[1] = command;
-      methodArgumentsCache[2] = response;
-      // Finally, invoke the method.
-      methodHandle.invokeWithArguments(methodArgumentsCache);
-      // Clear the cache of references to the arguments given.
-      methodArgumentsCache[1] = null;
-      methodArgumentsCache[2] = null;
-    }
+    // Invoke the method. The declaring class instance is already bound to the handle for
+    // non-static methods.
+    invoker.invokeExact(command, response);
   }
 
   /**
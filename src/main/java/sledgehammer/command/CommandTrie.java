@@ -0,0 +1,373 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+
+package sledgehammer.command;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CommandTrie is a character trie of registered command paths, such as "faction invite" or
+ * "permissions group set". Raw command input is routed with a single left-to-right walk that
+ * returns the longest registered command path at a word boundary, without splitting or building
+ * substrings of the input. The trie also supports prefix completion of command paths.
+ *
+ * <p>Command paths are case-insensitive, and whitespace between words is collapsed. Quotation marks
+ * in the input are ignored, and a leading '/' or '!' is skipped.
+ *
+ * @author Jab
+ */
+public class CommandTrie {
+
+  /** The root Node of the trie. */
+  private Node root = new Node(0);
+  /** The Comparator to order the handlers of a command path. */
+  private Comparator<CommandHandlerContainer> comparator;
+
+  /**
+   * Main constructor.
+   *
+   * @param comparator The Comparator to order the handlers of a command path.
+   */
+  public CommandTrie(Comparator<CommandHandlerContainer> comparator) {
+    this.comparator = comparator;
+  }
+
+  /**
+   * Adds a handler for a command path.
+   *
+   * @param command The String command path.
+   * @param container The CommandHandlerContainer to add.
+   * @return Returns true if the handler is added. Returns false if the handler is already
+   *     registered for the command path, or the command path is empty.
+   */
+  public boolean add(String command, CommandHandlerContainer container) {
+    String path = normalize(command);
+    if (path.isEmpty()) {
+      return false;
+    }
+    Node node = root;
+    int depth = 1;
+    for (int index = 0; index < path.length(); index++) {
+      char c = path.charAt(index);
+      if (c == ' ') {
+        depth++;
+      }
+      Node child = node.children.get(c);
+      if (child == null) {
+        child = new Node(depth);
+        node.children.put(c, child);
+      }
+      node = child;
+    }
+    node.command = path;
+    return node.add(container, comparator);
+  }
+
+  /**
+   * Removes a handler from a command path.
+   *
+   * @param command The String command path.
+   * @param container The CommandHandlerContainer to remove.
+   * @return Returns true if the handler is removed.
+   */
+  public boolean remove(String command, CommandHandlerContainer container) {
+    Node node = getNode(normalize(command));
+    return node != null && node.remove(container);
+  }
+
+  /**
+   * Routes raw command input to the longest registered command path.
+   *
+   * @param input The raw String input.
+   * @return Returns the Node of the longest command path matching the input at a word boundary.
+   *     Returns null if no command path matches.
+   */
+  public Node match(String input) {
+    return match(input, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Routes raw command input to the longest registered command path with no more words than the
+   * limit given. This is used to fall back to shorter command paths when the handlers of a longer
+   * command path are disabled.
+   *
+   * @param input The raw String input.
+   * @param maximumDepth The maximum amount of words in the command path.
+   * @return Returns the Node of the longest command path matching the input at a word boundary.
+   *     Returns null if no command path matches.
+   */
+  public Node match(String input, int maximumDepth) {
+    Node node = root;
+    Node matched = null;
+    boolean pendingSpace = false;
+    int length = input.length();
+    int index = 0;
+    // Skip leading whitespace and command prefixes.
+    while (index < length) {
+      char c = input.charAt(index);
+      if (!Character.isWhitespace(c) && c != '/' && c != '!') {
+        break;
+      }
+      index++;
+    }
+    for (; index < length; index++) {
+      char c = input.charAt(index);
+      if (c == '"') {
+        continue;
+      }
+      if (Character.isWhitespace(c)) {
+        if (!pendingSpace) {
+          // A word boundary is reached.
+          if (node.isRegistered() && node.depth <= maximumDepth) {
+            matched = node;
+          }
+          pendingSpace = true;
+        }
+        continue;
+      }
+      if (pendingSpace) {
+        node = node.children.get(' ');
+        if (node == null) {
+          return matched;
+        }
+        pendingSpace = false;
+      }
+      node = node.children.get(Character.toLowerCase(c));
+      if (node == null) {
+        return matched;
+      }
+    }
+    // The end of the input is a word boundary.
+    if (node.isRegistered() && node.depth <= maximumDepth) {
+      matched = node;
+    }
+    return matched;
+  }
+
+  /**
+   * Completes a partial command path.
+   *
+   * @param prefix The String partial command path.
+   * @param limit The maximum amount of completions to return.
+   * @return Returns a sorted List of registered command paths starting with the prefix given.
+   */
+  public List<String> complete(String prefix, int limit) {
+    List<String> listCompletions = new ArrayList<>();
+    Node node = getNode(normalize(prefix));
+    if (node != null && limit > 0) {
+      collect(node, listCompletions, limit);
+    }
+    return listCompletions;
+  }
+
+  /**
+   * @param command The String command path.
+   * @return Returns the priority-sorted array of handlers registered for the command path. The
+   *     array returned must not be modified.
+   */
+  public CommandHandlerContainer[] getContainers(String command) {
+    Node node = getNode(normalize(command));
+    return node != null ? node.containers : Node.EMPTY;
+  }
+
+  /** @return Returns a sorted List of all registered command paths. */
+  public List<String> getCommands() {
+    List<String> listCommands = new ArrayList<>();
+    collect(root, listCommands, Integer.MAX_VALUE);
+    return listCommands;
+  }
+
+  /** Removes all command paths from the trie. */
+  public void clear() {
+    root = new Node(0);
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param path The normalized String command path.
+   * @return Returns the Node for the path. If no Node exists for the path, null is returned.
+   */
+  private Node getNode(String path) {
+    Node node = root;
+    for (int index = 0; index < path.length() && node != null; index++) {
+      node = node.children.get(path.charAt(index));
+    }
+    return node;
+  }
+
+  /**
+   * (Private Static Method)
+   *
+   * <p>Collects the command paths of the Node given and its descendants in sorted order. The
+   * children of each Node are walked in character order, and a command path is collected before
+   * the longer paths that extend it, so the List stops at the first command paths in order.
+   *
+   * @param node The Node to collect.
+   * @param listCommands The List to add the command paths to.
+   * @param limit The maximum size of the List.
+   */
+  private static void collect(Node node, List<String> listCommands, int limit) {
+    if (listCommands.size() >= limit) {
+      return;
+    }
+    if (node.isRegistered()) {
+      listCommands.add(node.command);
+    }
+    List<Character> listKeys = new ArrayList<>(node.children.keySet());
+    Collections.sort(listKeys);
+    for (Character key : listKeys) {
+      if (listCommands.size() >= limit) {
+        return;
+      }
+      collect(node.children.get(key), listCommands, limit);
+    }
+  }
+
+  /**
+   * (Private Static Method)
+   *
+   * @param command The String command path to normalize.
+   * @return Returns the command path in lower-case, with a leading '/' or '!' removed, quotation
+   *     marks removed, and whitespace collapsed into single spaces.
+   */
+  private static String normalize(String command) {
+    StringBuilder stringBuilder = new StringBuilder(command.length());
+    boolean pendingSpace = false;
+    for (int index = 0; index < command.length(); index++) {
+      char c = command.charAt(index);
+      if (c == '"') {
+        continue;
+      }
+      if (Character.isWhitespace(c)) {
+        pendingSpace = stringBuilder.length() > 0;
+        continue;
+      }
+      if (stringBuilder.length() == 0 && (c == '/' || c == '!')) {
+        continue;
+      }
+      if (pendingSpace) {
+        stringBuilder.append(' ');
+        pendingSpace = false;
+      }
+      stringBuilder.append(Character.toLowerCase(c));
+    }
+    return stringBuilder.toString();
+  }
+
+  /**
+   * A Node in the CommandTrie. Nodes that end a registered command path store the handlers for the
+   * path as an immutable, priority-sorted array.
+   *
+   * @author Jab
+   */
+  public static class Node {
+
+    private static final CommandHandlerContainer[] EMPTY = new CommandHandlerContainer[0];
+
+    private final Map<Character, Node> children = new HashMap<>();
+    private final int depth;
+    private String command;
+    private CommandHandlerContainer[] containers = EMPTY;
+
+    /**
+     * Main constructor.
+     *
+     * @param depth The amount of words in the path of the Node.
+     */
+    private Node(int depth) {
+      this.depth = depth;
+    }
+
+    /** @return Returns true if the Node ends a command path with handlers registered. */
+    private boolean isRegistered() {
+      return command != null && containers.length > 0;
+    }
+
+    /**
+     * (Private Method)
+     *
+     * <p>Adds a handler to the Node, keeping the handlers sorted.
+     *
+     * @param container The CommandHandlerContainer to add.
+     * @param comparator The Comparator to order the handlers.
+     * @return Returns true if the handler is added.
+     */
+    private boolean add(
+        CommandHandlerContainer container, Comparator<CommandHandlerContainer> comparator) {
+      List<CommandHandlerContainer> listContainers = new ArrayList<>(containers.length + 1);
+      for (CommandHandlerContainer next : containers) {
+        if (next == container) {
+          return false;
+        }
+        listContainers.add(next);
+      }
+      listContainers.add(container);
+      Collections.sort(listContainers, comparator);
+      containers = listContainers.toArray(new CommandHandlerContainer[listContainers.size()]);
+      return true;
+    }
+
+    /**
+     * (Private Method)
+     *
+     * <p>Removes a handler from the Node.
+     *
+     * @param container The CommandHandlerContainer to remove.
+     * @return Returns true if the handler is removed.
+     */
+    private boolean remove(CommandHandlerContainer container) {
+      List<CommandHandlerContainer> listContainers = new ArrayList<>(containers.length);
+      for (CommandHandlerContainer next : containers) {
+        if (next != container) {
+          listContainers.add(next);
+        }
+      }
+      if (listContainers.size() == containers.length) {
+        return false;
+      }
+      containers = listContainers.toArray(new CommandHandlerContainer[listContainers.size()]);
+      return true;
+    }
+
+    /** @return Returns the String command path of the Node. */
+    public String getCommand() {
+      return this.command;
+    }
+
+    /** @return Returns the amount of words in the command path of the Node. */
+    public int getDepth() {
+      return this.depth;
+    }
+
+    /**
+     * @return Returns the priority-sorted array of handlers for the command path. The array
+     *     returned must not be modified.
+     */
+    public CommandHandlerContainer[] getContainers() {
+      return this.containers;
+    }
+  }
+}
@@ -20,11 +20,17 @@
 
 package sledgehammer.database;
 
+import java.util.List;
+
+import com.mongodb.AggregationOptions;
+import com.mongodb.BasicDBObject;
+import com.mongodb.Cursor;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
 
 import sledgehammer.database.transaction.MongoDocumentTransactionDelete;
+import sledgehammer.database.transaction.MongoDocumentTransactionInsert;
 import sledgehammer.database.transaction.MongoDocumentTransactionUpsert;
 
 /**
@@ -56,6 +62,33 @@ public class MongoCollection {
     getDatabase().addTransaction(upsert);
   }
 
+  /**
+   * Upserts the fields of a document, and unsets the fields given.
+   *
+   * @param objectSet The DBObject containing the fields to set.
+   * @param objectUnset The DBObject containing the fields to unset. This can be null.
+   * @param field The String field identifying the document.
+   * @param lock The Object requesting the upsert.
+   */
+  public void upsert(DBObject objectSet, DBObject objectUnset, String field, Object lock) {
+    MongoDocumentTransactionUpsert upsert =
+        new MongoDocumentTransactionUpsert(this, objectSet, objectUnset, field, lock);
+    getDatabase().addTransaction(upsert);
+  }
+
+  /**
+   * Inserts a new document. This is for documents that are written once and are not stored yet.
+   *
+   * @param object The DBObject of the document to insert.
+   * @param field The String field identifying the document.
+   * @param lock The Object requesting the insert.
+   */
+  public void insert(DBObject object, String field, Object lock) {
+    MongoDocumentTransactionInsert insert =
+        new MongoDocumentTransactionInsert(this, object, field, lock);
+    getDatabase().addTransaction(insert);
+  }
+
   public void delete(String field, Object value) {
     MongoDocumentTransactionDelete delete = new MongoDocumentTransactionDelete(this, field, value);
     getDatabase().addTransaction(delete);
@@ -69,6 +102,86 @@ public class MongoCollection {
     return getDBCollection().find(query);
   }
 
+  /**
+   * Creates an ascending index on a field of the collection, if the index does not already exist.
+   *
+   * @param field The String field to index.
+   */
+  public void createIndex(String field) {
+    getDBCollection().createIndex(new BasicDBObject(field, 1));
+  }
+
+  /**
+   * Creates a compound index on the fields of the collection, if the index does not already
+   * exist.
+   *
+   * @param keys The DBObject of the String fields to index, with 1 for ascending and -1 for
+   *     descending order.
+   */
+  public void createIndex(DBObject keys) {
+    getDBCollection().createIndex(keys);
+  }
+
+  /**
+   * Runs an aggregation pipeline on the collection. Stages that run out of memory are allowed to
+   * use temporary files on the server.
+   *
+   * @param pipeline The List of stages of the pipeline.
+   * @return Returns a Cursor over the result documents. The Cursor has to be closed.
+   */
+  public Cursor aggregate(List<DBObject> pipeline) {
+    AggregationOptions options =
+        AggregationOptions.builder()
+            .outputMode(AggregationOptions.OutputMode.CURSOR)
+            .allowDiskUse(true)
+            .build();
+    return getDBCollection().aggregate(pipeline, options);
+  }
+
+  /**
+   * Sets how long documents are kept in the collection, with a TTL index on a date field. The
+   * server removes documents once the date in the field is older than the time given. Documents
+   * without the field are kept.
+   *
+   * @param field The String field storing the date of the documents.
+   * @param seconds The time in seconds to keep documents. If this is 0 or less, the TTL index is
+   *     removed and documents are kept.
+   */
+  public void setTimeToLive(String field, long seconds) {
+    DBCollection dbCollection = getDBCollection();
+    BasicDBObject keys = new BasicDBObject(field, 1);
+    DBObject index = null;
+    for (DBObject indexNext : dbCollection.getIndexInfo()) {
+      DBObject key = (DBObject) indexNext.get("key");
+      if (key.keySet().size() == 1 && key.containsField(field)) {
+        index = indexNext;
+        break;
+      }
+    }
+    Object oExpireAfterSeconds = index != null ? index.get("expireAfterSeconds") : null;
+    if (seconds <= 0L) {
+      if (oExpireAfterSeconds != null) {
+        dbCollection.dropIndex(index.get("name").toString());
+      }
+      return;
+    }
+    if (index != null && oExpireAfterSeconds == null) {
+      // A plain index on the field cannot be changed to a TTL index, so it is replaced.
+      dbCollection.dropIndex(index.get("name").toString());
+      index = null;
+    }
+    if (index == null) {
+      dbCollection.createIndex(keys, new BasicDBObject("expireAfterSeconds", seconds));
+    } else if (((Number) oExpireAfterSeconds).longValue() != seconds) {
+      BasicDBObject command =
+          new BasicDBObject("collMod", dbCollection.getName())
+              .append(
+                  "index",
+                  new BasicDBObject("keyPattern", keys).append("expireAfterSeconds", seconds));
+      dbCollection.getDB().command(command).throwOnError();
+    }
+  }
+
   public void rename(String newName) {
     getDBCollection().rename(newName);
   }
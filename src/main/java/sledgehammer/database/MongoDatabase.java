@@ -20,8 +20,11 @@
 
 package sledgehammer.database;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -59,16 +62,27 @@ public abstract class MongoDatabase extends Printable {
 
   public static boolean DEBUG = true;
 
+  /** The maximum amount of queued transactions before callers are made to wait. */
+  public static final int TRANSACTION_QUEUE_CAPACITY = 65536;
+  /** The time in milliseconds to wait for queued transactions to flush when shutting down. */
+  public static final long SHUTDOWN_FLUSH_TIMEOUT = 30000L;
+
   private volatile boolean shutdown = false;
 
   private DB db;
   private MongoClient client = null;
-  private List<MongoDocumentTransaction> listTransactions;
+  /** The lock-free queue of transactions waiting to be flushed. */
+  private Queue<MongoDocumentTransaction> queueTransactions;
+  /** The amount of transactions in the queue. */
+  private AtomicInteger queueSize = new AtomicInteger(0);
+  /** The amount of times a caller waited due to the queue being full. */
+  private AtomicLong backpressureWaits = new AtomicLong(0L);
 
   private MongoDatabaseTransactionWorker worker;
+  private Thread threadWorker;
 
   public MongoDatabase() {
-    listTransactions = new ArrayList<>();
+    queueTransactions = new ConcurrentLinkedQueue<>();
     worker = new MongoDatabaseTransactionWorker(this);
   }
 
@@ -87,7 +101,8 @@ public abstract class MongoDatabase extends Printable {
       client = new MongoClient(new MongoClientURI(url));
       onConnection(client);
       // Start the worker thread.
-      (new Thread(worker)).start();
+      threadWorker = new Thread(worker, "Sledgehammer-MongoWriter");
+      threadWorker.start();
     }
   }
 
@@ -95,24 +110,57 @@ public abstract class MongoDatabase extends Printable {
     return this.client;
   }
 
-  public void addTransaction(final MongoDocumentTransaction transaction) {
-    // Run this operation outside of the main thread.
-    (new Thread(
-            new Runnable() {
-              @Override
-              public void run() {
-                synchronized (listTransactions) {
-                  listTransactions.add(transaction);
-                }
-              }
-            }))
-        .start();
+  /**
+   * Queues a transaction to be flushed by the worker. If the queue is full, the caller waits until
+   * the worker has made room. If the database is shut down, the transaction is executed
+   * immediately.
+   *
+   * @param transaction The MongoDocumentTransaction to queue.
+   */
+  public void addTransaction(MongoDocumentTransaction transaction) {
+    if (isShutDown() && !worker.isRunning()) {
+      transaction.run();
+      return;
+    }
+    if (queueSize.get() >= TRANSACTION_QUEUE_CAPACITY) {
+      backpressureWaits.incrementAndGet();
+      while (queueSize.get() >= TRANSACTION_QUEUE_CAPACITY && worker.isRunning()) {
+        worker.wake();
+        LockSupport.parkNanos(1000000L);
+      }
+    }
+    queueTransactions.offer(transaction);
+    // Wake the worker early if the queue is half full.
+    if (queueSize.incrementAndGet() >= TRANSACTION_QUEUE_CAPACITY / 2) {
+      worker.wake();
+    }
+  }
+
+  /**
+   * Removes the next queued transaction. This is used by the worker.
+   *
+   * @return Returns the next MongoDocumentTransaction. If the queue is empty, null is returned.
+   */
+  public MongoDocumentTransaction pollTransaction() {
+    MongoDocumentTransaction transaction = queueTransactions.poll();
+    if (transaction != null) {
+      queueSize.decrementAndGet();
+    }
+    return transaction;
   }
 
   public int getTransactionQueueSize() {
-    synchronized (listTransactions) {
-      return listTransactions.size();
-    }
+    return queueSize.get();
+  }
+
+  /** @return Returns the amount of times a caller waited due to the queue being full. */
+  public long getBackpressureWaits() {
+    return backpressureWaits.get();
+  }
+
+  /** @return Returns the worker flushing queued transactions. */
+  public MongoDatabaseTransactionWorker getTransactionWorker() {
+    return this.worker;
   }
 
   public MongoCollection createMongoCollection(String name) {
@@ -122,6 +170,27 @@ public abstract class MongoDatabase extends Printable {
   public void shutDown() {
     reset();
     setShutDown(true);
+    // Make sure every queued transaction is flushed before returning.
+    if (threadWorker != null) {
+      worker.wake();
+      try {
+        threadWorker.join(SHUTDOWN_FLUSH_TIMEOUT);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (threadWorker.isAlive()) {
+        errln(
+            "Timed out flushing transactions. ("
+                + getTransactionQueueSize()
+                + " transaction(s) remaining)");
+        return;
+      }
+    }
+    // Execute any transactions queued while the worker was exiting.
+    MongoDocumentTransaction transaction;
+    while ((transaction = pollTransaction()) != null) {
+      transaction.run();
+    }
   }
 
   public boolean isShutDown() {
@@ -132,10 +201,6 @@ public abstract class MongoDatabase extends Printable {
     this.shutdown = flag;
   }
 
-  public List<MongoDocumentTransaction> getTransactions() {
-    return this.listTransactions;
-  }
-
   public abstract void reset();
 
   public abstract void onConnection(MongoClient client);
@@ -21,7 +21,9 @@
 package sledgehammer.database.document;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
@@ -44,6 +46,17 @@ public abstract class MongoDocument {
 
   /** The String identifier for the document. */
   private String fieldId;
+  /**
+   * The values of the fields as they were last saved. This is used to only send fields that have
+   * changed since the last save.
+   */
+  private Map<String, Object> mapSavedFields;
+  /** The names of the entries that have changed since the last save. */
+  private Set<String> setDirtyEntries;
+  /** The names of the entries that have been removed since the last save. */
+  private Set<String> setRemovedEntries;
+  /** Flag for whether or not the document has been saved since being created or deleted. */
+  private boolean saved;
 
   /**
    * Main constructor.
@@ -55,6 +68,9 @@ public abstract class MongoDocument {
     setCollection(collection);
     setFieldId(fieldId);
     mapDocumentEntries = new HashMap<>();
+    mapSavedFields = new HashMap<>();
+    setDirtyEntries = new HashSet<>();
+    setRemovedEntries = new HashSet<>();
   }
 
   /**
@@ -66,7 +82,10 @@ public abstract class MongoDocument {
    * @param entry The MongoDocumentEntry being added to the document.
    */
   public void addEntry(MongoDocumentElement entry) {
-    mapDocumentEntries.put(entry.getEntryName(), entry);
+    String entryName = entry.getEntryName();
+    mapDocumentEntries.put(entryName, entry);
+    setDirtyEntries.add(entryName);
+    setRemovedEntries.remove(entryName);
   }
 
   /**
@@ -90,31 +109,10 @@ public abstract class MongoDocument {
     boolean result = this.mapDocumentEntries.remove(entryName) != null;
     // If the entry is contained, then process a save.
     if (result) {
-      // Create a new DBObject with the document's identifier.
-      DBObject object = new BasicDBObject(getFieldId(), getFieldValue());
-      // Populate the main document.
-      onSave(object);
-      // Go through each entry.
-      for (String key : mapDocumentEntries.keySet()) {
-        // Grab the next entry with the provided key.
-        MongoDocumentElement entry = mapDocumentEntries.get(key);
-        // If the entry is the one we are removing.
-        if (entry.getEntryName().equals(entryName)) {
-          // Set the field explicitly to null.
-          object.put(entryName, null);
-        }
-        // Else, Save it as normal.
-        else {
-          // Create a new DBObject to populate with the entry data.
-          DBObject objectEntry = new BasicDBObject();
-          // Populate the DBObject.
-          entry.onSave(objectEntry);
-          // Set the DBObject with the key into the main object.
-          object.put(key, objectEntry);
-        }
-      }
-      // Upsert the document.
-      getCollection().upsert(object, getFieldId(), this);
+      // Mark the entry to be removed from the stored document.
+      setDirtyEntries.remove(entryName);
+      setRemovedEntries.add(entryName);
+      save();
     }
     // If the entry is not in the document at the time of attempting to remove it,
     // then this is an illegal situation. Throw the error.
@@ -165,7 +163,10 @@ public abstract class MongoDocument {
     return this.collection;
   }
 
-  /** Saves the MongoDocument with a given field to identify the document, if it already exists. */
+  /**
+   * Saves the MongoDocument with a given field to identify the document, if it already exists. Only
+   * the fields and entries that have changed since the last save are sent.
+   */
   public void save() {
     // Create a new DBObject with the document's identifier.
     DBObject object = new BasicDBObject(getFieldId(), getFieldValue());
@@ -173,13 +174,23 @@ public abstract class MongoDocument {
     onSave(object);
     // Save the entries.
     saveEntries(object);
-    // Upsert the document.
-    getCollection().upsert(object, getFieldId(), this);
+    // Upsert the changes to the document.
+    saveChanges(object);
   }
 
+  /**
+   * Saves the entries that have changed since the last save. If the document has not been saved,
+   * all entries are saved.
+   *
+   * @param object The DBObject to save the entries to.
+   */
   public void saveEntries(DBObject object) {
     // Go through each entry.
     for (String key : mapDocumentEntries.keySet()) {
+      // Only serialize the entries that have changed.
+      if (saved && !setDirtyEntries.contains(key)) {
+        continue;
+      }
       // Grab the next entry with the provided key.
       MongoDocumentElement entry = mapDocumentEntries.get(key);
       // Create a new DBObject to populate with the entry data.
@@ -191,9 +202,100 @@ public abstract class MongoDocument {
     }
   }
 
+  /**
+   * Upserts the fields of the given DBObject that have changed since the last save, and unsets the
+   * entries that have been removed. If nothing has changed, nothing is sent.
+   *
+   * @param object The DBObject containing the current fields of the document.
+   */
+  protected void saveChanges(DBObject object) {
+    BasicDBObject objectSet = new BasicDBObject(getFieldId(), getFieldValue());
+    boolean changed = !saved;
+    for (String key : object.keySet()) {
+      Object value = object.get(key);
+      if (saved && mapSavedFields.containsKey(key) && isEqual(mapSavedFields.get(key), value)) {
+        continue;
+      }
+      objectSet.put(key, value);
+      mapSavedFields.put(key, value);
+      changed = true;
+    }
+    BasicDBObject objectUnset = new BasicDBObject();
+    for (String entryName : setRemovedEntries) {
+      objectUnset.put(entryName, "");
+      mapSavedFields.remove(entryName);
+      changed = true;
+    }
+    boolean insert = !saved && isInsertedOnFirstSave();
+    setDirtyEntries.clear();
+    setRemovedEntries.clear();
+    saved = true;
+    if (insert) {
+      // The document is new, so every field is sent and nothing needs to be unset.
+      getCollection().insert(objectSet, getFieldId(), this);
+    } else if (changed) {
+      getCollection().upsert(objectSet, objectUnset, getFieldId(), this);
+    }
+  }
+
+  /**
+   * Sub-classes of append-only documents that are written once should override this. Only return
+   * true for documents that are not stored in the database yet, as inserting a stored document
+   * duplicates it.
+   *
+   * @return Returns true if the first save of the document is sent as an insert instead of an
+   *     upsert.
+   */
+  protected boolean isInsertedOnFirstSave() {
+    return false;
+  }
+
+  /**
+   * Marks an element of the document as changed, so that it is sent with the next save.
+   *
+   * @param element The MongoDocumentElement that has changed.
+   */
+  public void markDirty(MongoDocumentElement element) {
+    String entryName = element.getEntryName();
+    if (mapDocumentEntries.get(entryName) == element) {
+      setDirtyEntries.add(entryName);
+    } else {
+      onElementDirty(element);
+    }
+  }
+
+  /**
+   * Executed when an element that is not an entry of the document is marked as changed. Sub-classes
+   * that store elements outside of the entries should override this.
+   *
+   * @param element The MongoDocumentElement that has changed.
+   */
+  protected void onElementDirty(MongoDocumentElement element) {}
+
+  /** @return Returns true if the document has been saved since being created or deleted. */
+  public boolean isSaved() {
+    return this.saved;
+  }
+
+  /**
+   * (Private Static Method)
+   *
+   * @param value1 The first value.
+   * @param value2 The second value.
+   * @return Returns true if the values are equal, or are both null.
+   */
+  private static boolean isEqual(Object value1, Object value2) {
+    return value1 == null ? value2 == null : value1.equals(value2);
+  }
+
   /** Deletes the document from the assigned DBCollection. */
   public void delete() {
     getCollection().delete(getFieldId(), getFieldValue());
+    // The next save must send the entire document.
+    saved = false;
+    mapSavedFields.clear();
+    setRemovedEntries.clear();
+    setDirtyEntries.addAll(mapDocumentEntries.keySet());
   }
 
   /**
@@ -93,7 +93,8 @@ public abstract class MongoDocumentElement {
               + " This can be due to a temporary object being called to save."
               + " use 'hasMongoDocument()' before calling this method.");
     }
-    // Save the document with the entry.
+    // Mark the entry as changed, and save the document with the entry.
+    getMongoDocument().markDirty(this);
     getMongoDocument().save();
   }
 
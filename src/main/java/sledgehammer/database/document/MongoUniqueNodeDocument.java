@@ -40,6 +40,8 @@ public abstract class MongoUniqueNodeDocument extends MongoUniqueDocument {
 
   /** The List of String nodes. */
   private List<MongoNode> listMongoNodes;
+  /** Flag for whether or not the nodes have changed since the last save. */
+  private boolean nodesDirty = true;
 
   /**
    * MongoDB constructor.
@@ -125,10 +127,20 @@ public abstract class MongoUniqueNodeDocument extends MongoUniqueDocument {
     onSave(object);
     // Save the entries.
     saveEntries(object);
-    // Save the nodes.
-    saveNodes(object);
-    // Upsert the document.
-    getCollection().upsert(object, getFieldId(), this);
+    // Save the nodes, only if they have changed.
+    if (nodesDirty || !isSaved()) {
+      saveNodes(object);
+      nodesDirty = false;
+    }
+    // Upsert the changes to the document.
+    saveChanges(object);
+  }
+
+  @Override
+  protected void onElementDirty(MongoDocumentElement element) {
+    if (element instanceof MongoNode) {
+      nodesDirty = true;
+    }
   }
 
   /**
@@ -157,6 +169,7 @@ public abstract class MongoUniqueNodeDocument extends MongoUniqueDocument {
     mongoNode.setMongoDocument(this);
     // Add the current instance.
     listMongoNodes.add(mongoNode);
+    nodesDirty = true;
     // If the argument to save is true
     if (save) {
       // Save the document.
@@ -181,6 +194,7 @@ public abstract class MongoUniqueNodeDocument extends MongoUniqueDocument {
     if (listMongoNodes.contains(mongoNode)) {
       // Remove from the list.
       listMongoNodes.remove(mongoNode);
+      nodesDirty = true;
       // Set the flag to true to return success.
       returned = true;
     }
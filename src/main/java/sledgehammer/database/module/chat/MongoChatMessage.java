@@ -20,6 +20,7 @@
 
 package sledgehammer.database.module.chat;
 
+import java.util.Date;
 import java.util.UUID;
 
 import com.mongodb.DBObject;
@@ -49,6 +50,8 @@ public class MongoChatMessage extends MongoUniqueDocument {
   private int type;
   private boolean edited = false;
   private boolean deleted = false;
+  /** Flag for if the document was loaded from the database. */
+  private boolean stored = false;
 
   /**
    * New constructor.
@@ -67,6 +70,7 @@ public class MongoChatMessage extends MongoUniqueDocument {
    */
   public MongoChatMessage(MongoCollection collection, DBObject object) {
     super(collection, object);
+    stored = true;
     onLoad(object);
   }
 
@@ -105,9 +109,17 @@ public class MongoChatMessage extends MongoUniqueDocument {
     object.put("type", getType());
     object.put("edited", isEdited());
     object.put("deleted", isDeleted());
+    // The date is stored for the TTL index of the chat log retention.
+    object.put("date", new Date(getTimestamp()));
     // @formatter:on
   }
 
+  @Override
+  protected boolean isInsertedOnFirstSave() {
+    // Chat messages are append-only, so new ones are inserted in bulk.
+    return !stored;
+  }
+
   public int getType() {
     return this.type;
   }
@@ -178,7 +178,7 @@ public class MongoPlayer extends MongoUniqueDocument {
     object.put("passwordEncrypted", getEncryptedPassword());
     object.put("admin", isAdministrator() ? "1" : "0");
     object.put("banned", isBanned() ? "1" : "0");
-    object.put("timeConnectedLast", getTimeConnectedLast() + "");
+    object.put("timeConnectedLast", getTimeConnectedLast());
     object.put("steamID", getSteamId() + "");
     object.put("steamIDOwner", getSteamOwnerId() + "");
     object.put("metadata", createMetadataDocument());
@@ -242,9 +242,8 @@ public class MongoPlayer extends MongoUniqueDocument {
   }
 
   private void saveMetadata() {
-    DBObject object = new BasicDBObject(getFieldId(), getFieldValue());
-    object.put("metadata", createMetadataDocument());
-    getCollection().upsert(object, getFieldId(), this);
+    // Only the changed metadata field is sent.
+    save();
   }
 
   private String getNickname() {
@@ -0,0 +1,462 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+package sledgehammer.database.module.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of MongoPlayer documents.
+ *
+ * <p>Each cached MongoPlayer has one canonical entry, reachable by user-name, Unique ID and Steam
+ * ID. Entries expire after being idle for the time-to-live, and the least-recently accessed entries
+ * are evicted when the cache grows past its maximum size. Pinned entries (Players that are online)
+ * are never evicted. User-names that are not in the database are remembered for a short time so
+ * that repeated lookups for unknown names do not query the database.
+ *
+ * @author Jab
+ */
+public class MongoPlayerCache {
+
+  /** The default maximum amount of MongoPlayers to cache. */
+  public static final int DEFAULT_MAXIMUM_SIZE = 2048;
+  /** The default time in milliseconds that an idle MongoPlayer stays cached. */
+  public static final long DEFAULT_TIME_TO_LIVE = 30L * 60L * 1000L;
+  /** The default time in milliseconds that an unknown user-name is remembered. */
+  public static final long DEFAULT_NEGATIVE_TIME_TO_LIVE = 30L * 1000L;
+
+  /** The Map of cached entries, identified by the Unique ID of the MongoPlayer. */
+  private final Map<UUID, Entry> mapEntriesByUniqueId = new ConcurrentHashMap<>();
+  /** The Map of cached entries, identified by the user-name of the MongoPlayer. */
+  private final Map<String, Entry> mapEntriesByUsername = new ConcurrentHashMap<>();
+  /** The Map of cached entries, identified by the Steam ID of the MongoPlayer. */
+  private final Map<Long, Entry> mapEntriesBySteamId = new ConcurrentHashMap<>();
+  /** The Map of unknown user-names, with the time that they expire. */
+  private final Map<String, Long> mapMissingUsernames = new ConcurrentHashMap<>();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong negativeHits = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong expirations = new AtomicLong();
+
+  private volatile int maximumSize;
+  private volatile long timeToLive;
+  private volatile long negativeTimeToLive;
+
+  /** Main constructor. */
+  public MongoPlayerCache() {
+    this(DEFAULT_MAXIMUM_SIZE, DEFAULT_TIME_TO_LIVE, DEFAULT_NEGATIVE_TIME_TO_LIVE);
+  }
+
+  /**
+   * @param maximumSize The maximum amount of MongoPlayers to cache.
+   * @param timeToLive The time in milliseconds that an idle MongoPlayer stays cached.
+   * @param negativeTimeToLive The time in milliseconds that an unknown user-name is remembered.
+   */
+  public MongoPlayerCache(int maximumSize, long timeToLive, long negativeTimeToLive) {
+    setMaximumSize(maximumSize);
+    setTimeToLive(timeToLive);
+    setNegativeTimeToLive(negativeTimeToLive);
+  }
+
+  /**
+   * @param username The user-name of the MongoPlayer.
+   * @return Returns the cached MongoPlayer. If the MongoPlayer is not cached, null is returned.
+   */
+  public MongoPlayer get(String username) {
+    Entry entry = mapEntriesByUsername.get(username);
+    // The user-name may have changed since the MongoPlayer was indexed.
+    if (entry != null && !username.equals(entry.player.getUsername())) {
+      mapEntriesByUsername.remove(username, entry);
+      entry = null;
+    }
+    return access(entry);
+  }
+
+  /**
+   * @param uniqueId The Unique ID of the MongoPlayer.
+   * @return Returns the cached MongoPlayer. If the MongoPlayer is not cached, null is returned.
+   */
+  public MongoPlayer get(UUID uniqueId) {
+    return access(mapEntriesByUniqueId.get(uniqueId));
+  }
+
+  /**
+   * @param steamId The Steam ID of the MongoPlayer.
+   * @return Returns the cached MongoPlayer. If the MongoPlayer is not cached, null is returned.
+   */
+  public MongoPlayer get(long steamId) {
+    Entry entry = mapEntriesBySteamId.get(steamId);
+    // The Steam ID may have changed since the MongoPlayer was indexed.
+    if (entry != null && entry.player.getSteamId() != steamId) {
+      mapEntriesBySteamId.remove(steamId, entry);
+      entry = null;
+    }
+    return access(entry);
+  }
+
+  /**
+   * Touches a cached entry, and counts the lookup as a hit or miss.
+   *
+   * @param entry The entry being accessed. This can be null.
+   * @return Returns the MongoPlayer of the entry. If the entry is null or has expired, null is
+   *     returned.
+   */
+  private MongoPlayer access(Entry entry) {
+    if (entry == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    long timeNow = System.currentTimeMillis();
+    if (isExpired(entry, timeNow)) {
+      if (removeEntry(entry)) {
+        expirations.incrementAndGet();
+      }
+      misses.incrementAndGet();
+      return null;
+    }
+    entry.timeAccessed = timeNow;
+    hits.incrementAndGet();
+    return entry.player;
+  }
+
+  /**
+   * Adds a MongoPlayer to the cache. If a MongoPlayer with the same Unique ID is already cached,
+   * the cached MongoPlayer is kept, re-indexed and returned so that only one instance of a player
+   * document is in use.
+   *
+   * @param player The MongoPlayer to cache.
+   * @return Returns the canonical cached MongoPlayer.
+   */
+  public MongoPlayer put(MongoPlayer player) {
+    if (player == null) {
+      throw new IllegalArgumentException("MongoPlayerCache: Player is null!");
+    }
+    Entry entry;
+    synchronized (this) {
+      entry = mapEntriesByUniqueId.get(player.getUniqueId());
+      if (entry == null) {
+        entry = new Entry(player);
+        mapEntriesByUniqueId.put(player.getUniqueId(), entry);
+      }
+      entry.timeAccessed = System.currentTimeMillis();
+      index(entry);
+    }
+    if (mapEntriesByUniqueId.size() > maximumSize) {
+      evict();
+    }
+    return entry.player;
+  }
+
+  /**
+   * (Re-)Indexes an entry by the current user-name and Steam ID of its MongoPlayer.
+   *
+   * @param entry The entry to index.
+   */
+  private void index(Entry entry) {
+    MongoPlayer player = entry.player;
+    String username = player.getUsername();
+    if (entry.username != null && !entry.username.equals(username)) {
+      mapEntriesByUsername.remove(entry.username, entry);
+    }
+    entry.username = username;
+    if (username != null) {
+      mapEntriesByUsername.put(username, entry);
+      mapMissingUsernames.remove(username);
+    }
+    long steamId = player.getSteamId();
+    if (entry.steamId != -1L && entry.steamId != steamId) {
+      mapEntriesBySteamId.remove(entry.steamId, entry);
+    }
+    entry.steamId = steamId;
+    if (steamId != -1L) {
+      mapEntriesBySteamId.put(steamId, entry);
+    }
+  }
+
+  /**
+   * Pins a MongoPlayer in the cache, so that it is not evicted while the Player is online. If the
+   * MongoPlayer is not cached, it is added.
+   *
+   * @param player The MongoPlayer to pin.
+   * @return Returns the canonical cached MongoPlayer.
+   */
+  public MongoPlayer pin(MongoPlayer player) {
+    player = put(player);
+    Entry entry = mapEntriesByUniqueId.get(player.getUniqueId());
+    if (entry != null) {
+      entry.pinned = true;
+    }
+    return player;
+  }
+
+  /**
+   * Releases a pinned MongoPlayer. The MongoPlayer stays cached until it expires or is evicted.
+   *
+   * @param player The MongoPlayer to release.
+   */
+  public void unpin(MongoPlayer player) {
+    Entry entry = mapEntriesByUniqueId.get(player.getUniqueId());
+    if (entry != null) {
+      entry.timeAccessed = System.currentTimeMillis();
+      entry.pinned = false;
+    }
+  }
+
+  /**
+   * Removes a MongoPlayer from the cache.
+   *
+   * @param player The MongoPlayer to remove.
+   */
+  public void remove(MongoPlayer player) {
+    Entry entry = mapEntriesByUniqueId.get(player.getUniqueId());
+    if (entry != null) {
+      removeEntry(entry);
+    }
+  }
+
+  /**
+   * @param entry The entry to remove from all indexes.
+   * @return Returns true if the entry was still cached.
+   */
+  private synchronized boolean removeEntry(Entry entry) {
+    if (!mapEntriesByUniqueId.remove(entry.player.getUniqueId(), entry)) {
+      return false;
+    }
+    if (entry.username != null) {
+      mapEntriesByUsername.remove(entry.username, entry);
+    }
+    if (entry.steamId != -1L) {
+      mapEntriesBySteamId.remove(entry.steamId, entry);
+    }
+    return true;
+  }
+
+  /**
+   * Removes expired entries, then evicts the least-recently accessed entries that are not pinned
+   * until the cache is an eighth below its maximum size. Evicting past the maximum keeps the cost
+   * of sorting the entries from being paid on every insert.
+   */
+  private synchronized void evict() {
+    int size = mapEntriesByUniqueId.size();
+    if (size <= maximumSize) {
+      return;
+    }
+    long timeNow = System.currentTimeMillis();
+    // The access times are copied, as other threads keep updating them while the entries sort.
+    List<Candidate> listCandidates = new ArrayList<>(size);
+    for (Entry entry : mapEntriesByUniqueId.values()) {
+      if (entry.pinned) {
+        continue;
+      }
+      if (isExpired(entry, timeNow)) {
+        if (removeEntry(entry)) {
+          expirations.incrementAndGet();
+        }
+      } else {
+        listCandidates.add(new Candidate(entry, entry.timeAccessed));
+      }
+    }
+    int target = maximumSize - (maximumSize / 8);
+    int excess = mapEntriesByUniqueId.size() - target;
+    if (excess <= 0) {
+      return;
+    }
+    Collections.sort(listCandidates, OLDEST_FIRST);
+    for (int index = 0; index < excess && index < listCandidates.size(); index++) {
+      if (removeEntry(listCandidates.get(index).entry)) {
+        evictions.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * @param username The user-name to test.
+   * @return Returns true if the user-name was recently looked up and is not in the database.
+   */
+  public boolean isMissing(String username) {
+    Long timeExpires = mapMissingUsernames.get(username);
+    if (timeExpires == null) {
+      return false;
+    }
+    if (timeExpires < System.currentTimeMillis()) {
+      mapMissingUsernames.remove(username, timeExpires);
+      return false;
+    }
+    negativeHits.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Remembers a user-name that is not in the database.
+   *
+   * @param username The user-name that is not in the database.
+   */
+  public void putMissing(String username) {
+    long timeNow = System.currentTimeMillis();
+    if (mapMissingUsernames.size() >= maximumSize) {
+      Iterator<Long> iterator = mapMissingUsernames.values().iterator();
+      while (iterator.hasNext()) {
+        if (iterator.next() < timeNow) {
+          iterator.remove();
+        }
+      }
+      if (mapMissingUsernames.size() >= maximumSize) {
+        mapMissingUsernames.clear();
+      }
+    }
+    mapMissingUsernames.put(username, timeNow + negativeTimeToLive);
+  }
+
+  /**
+   * Forgets that a user-name is not in the database.
+   *
+   * @param username The user-name to forget.
+   */
+  public void removeMissing(String username) {
+    mapMissingUsernames.remove(username);
+  }
+
+  /** Removes all MongoPlayers and unknown user-names from the cache. */
+  public synchronized void clear() {
+    mapEntriesByUniqueId.clear();
+    mapEntriesByUsername.clear();
+    mapEntriesBySteamId.clear();
+    mapMissingUsernames.clear();
+  }
+
+  private boolean isExpired(Entry entry, long timeNow) {
+    return !entry.pinned && timeNow - entry.timeAccessed > timeToLive;
+  }
+
+  /** @return Returns the amount of MongoPlayers cached. */
+  public int size() {
+    return mapEntriesByUniqueId.size();
+  }
+
+  /** @return Returns the amount of lookups that found a cached MongoPlayer. */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /** @return Returns the amount of lookups that did not find a cached MongoPlayer. */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /** @return Returns the amount of lookups answered by a remembered unknown user-name. */
+  public long getNegativeHitCount() {
+    return negativeHits.get();
+  }
+
+  /** @return Returns the amount of MongoPlayers evicted to keep the cache under its maximum size. */
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  /** @return Returns the amount of MongoPlayers removed after being idle for the time-to-live. */
+  public long getExpirationCount() {
+    return expirations.get();
+  }
+
+  /** @return Returns the ratio of lookups that found a cached MongoPlayer. */
+  public double getHitRatio() {
+    long hits = getHitCount();
+    long total = hits + getMissCount();
+    return total == 0L ? 0.0 : (double) hits / (double) total;
+  }
+
+  /** @return Returns the maximum amount of MongoPlayers to cache. */
+  public int getMaximumSize() {
+    return this.maximumSize;
+  }
+
+  /** @param maximumSize The maximum amount of MongoPlayers to cache. */
+  public void setMaximumSize(int maximumSize) {
+    if (maximumSize < 1) {
+      throw new IllegalArgumentException(
+          "MongoPlayerCache: Maximum size must be positive: " + maximumSize);
+    }
+    this.maximumSize = maximumSize;
+  }
+
+  /** @return Returns the time in milliseconds that an idle MongoPlayer stays cached. */
+  public long getTimeToLive() {
+    return this.timeToLive;
+  }
+
+  /** @param timeToLive The time in milliseconds that an idle MongoPlayer stays cached. */
+  public void setTimeToLive(long timeToLive) {
+    this.timeToLive = timeToLive;
+  }
+
+  /** @return Returns the time in milliseconds that an unknown user-name is remembered. */
+  public long getNegativeTimeToLive() {
+    return this.negativeTimeToLive;
+  }
+
+  /** @param negativeTimeToLive The time in milliseconds that an unknown user-name is remembered. */
+  public void setNegativeTimeToLive(long negativeTimeToLive) {
+    this.negativeTimeToLive = negativeTimeToLive;
+  }
+
+  private static final Comparator<Candidate> OLDEST_FIRST =
+      new Comparator<Candidate>() {
+        @Override
+        public int compare(Candidate candidate1, Candidate candidate2) {
+          return Long.compare(candidate1.timeAccessed, candidate2.timeAccessed);
+        }
+      };
+
+  /** A snapshot of the access time of an entry, taken to sort the entries for eviction. */
+  private static class Candidate {
+    final Entry entry;
+    final long timeAccessed;
+
+    Candidate(Entry entry, long timeAccessed) {
+      this.entry = entry;
+      this.timeAccessed = timeAccessed;
+    }
+  }
+
+  /** The canonical cache entry for a MongoPlayer. */
+  private static class Entry {
+    final MongoPlayer player;
+    /** The user-name the entry is indexed by. */
+    String username;
+    /** The Steam ID the entry is indexed by. */
+    long steamId = -1L;
+
+    volatile long timeAccessed;
+    volatile boolean pinned;
+
+    Entry(MongoPlayer player) {
+      this.player = player;
+    }
+  }
+}
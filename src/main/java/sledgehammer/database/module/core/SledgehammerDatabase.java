@@ -21,11 +21,17 @@
 package sledgehammer.database.module.core;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
 import com.mongodb.DB;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
@@ -36,7 +42,6 @@ import sledgehammer.Settings;
 import sledgehammer.database.MongoCollection;
 import sledgehammer.database.MongoDatabase;
 import sledgehammer.lua.core.Player;
-import zombie.core.znet.SteamUtils;
 import zombie.sledgehammer.util.MD5;
 
 public class SledgehammerDatabase extends MongoDatabase {
@@ -48,17 +53,12 @@ public class SledgehammerDatabase extends MongoDatabase {
   private MongoCollection collectionPlayers;
   private MongoCollection collectionBans;
 
-  private Map<String, MongoPlayer> mapPlayersByUsername;
-  private Map<UUID, MongoPlayer> mapPlayersByUUID;
-  private Map<Long, MongoPlayer> mapPlayersBySteamID;
+  /** The bounded cache of MongoPlayers, reachable by user-name, Unique ID and Steam ID. */
+  private MongoPlayerCache cachePlayers;
 
   public SledgehammerDatabase() {
     super();
-    // @formatter: off
-    mapPlayersByUsername = new HashMap<>();
-    mapPlayersByUUID = new HashMap<>();
-    mapPlayersBySteamID = new HashMap<>();
-    // @formatter: on
+    cachePlayers = new MongoPlayerCache();
   }
 
   @Override
@@ -73,10 +73,18 @@ public class SledgehammerDatabase extends MongoDatabase {
     setDatabase(dbSledgehammer);
     collectionPlayers = createMongoCollection("sledgehammer_players");
     collectionBans = createMongoCollection("sledgehammer_bans");
+    // Index the fields that players are looked up by.
+    collectionPlayers.createIndex("username");
+    collectionPlayers.createIndex("id");
+    collectionPlayers.createIndex("steamID");
+    collectionPlayers.createIndex("timeConnectedLast");
+    collectionBans.createIndex("id");
   }
 
   @Override
-  public void reset() {}
+  public void reset() {
+    cachePlayers.clear();
+  }
 
   /**
    * Checks to see if a Player exists.
@@ -88,12 +96,16 @@ public class SledgehammerDatabase extends MongoDatabase {
     if (username == null || username.isEmpty()) {
       throw new IllegalArgumentException("SledgehammerDatabase: Username given is null or empty!");
     }
-    boolean returned;
-    returned = mapPlayersByUsername.containsKey(username);
+    if (cachePlayers.get(username) != null) {
+      return true;
+    } else if (cachePlayers.isMissing(username)) {
+      return false;
+    }
+    DBCursor cursor = collectionPlayers.find(new BasicDBObject("username", username)).limit(1);
+    boolean returned = cursor.hasNext();
+    cursor.close();
     if (!returned) {
-      DBCursor cursor = collectionPlayers.find(new BasicDBObject("username", username));
-      returned = cursor.hasNext();
-      cursor.close();
+      cachePlayers.putMissing(username);
     }
     return returned;
   }
@@ -108,10 +120,10 @@ public class SledgehammerDatabase extends MongoDatabase {
     if (uniqueId == null) {
       throw new IllegalArgumentException("SledgehammerDatabase: uniqueId given is null!");
     }
-    boolean returned;
-    returned = mapPlayersByUUID.containsKey(uniqueId);
+    boolean returned = cachePlayers.get(uniqueId) != null;
     if (!returned) {
-      DBCursor cursor = collectionPlayers.find(new BasicDBObject("uuid", uniqueId.toString()));
+      // MongoPlayer stores the Unique ID as a UUID, not as a String.
+      DBCursor cursor = collectionPlayers.find(new BasicDBObject("id", uniqueId)).limit(1);
       returned = cursor.hasNext();
       cursor.close();
     }
@@ -122,13 +134,11 @@ public class SledgehammerDatabase extends MongoDatabase {
     if (uniqueId == null) {
       throw new IllegalArgumentException("SledgehammerDatabase: uniqueId given is null!");
     }
-    MongoPlayer player;
-    player = mapPlayersByUUID.get(uniqueId);
+    MongoPlayer player = cachePlayers.get(uniqueId);
     if (player == null) {
-      DBCursor cursor = collectionPlayers.find(new BasicDBObject("uuid", uniqueId.toString()));
+      DBCursor cursor = collectionPlayers.find(new BasicDBObject("id", uniqueId));
       if (cursor.hasNext()) {
-        player = new MongoPlayer(collectionPlayers, cursor.next());
-        registerPlayer(player);
+        player = registerPlayer(new MongoPlayer(collectionPlayers, cursor.next()));
       }
       cursor.close();
     }
@@ -139,13 +149,13 @@ public class SledgehammerDatabase extends MongoDatabase {
     if (username == null || username.isEmpty()) {
       throw new IllegalArgumentException("SledgehammerDatabase: Username given is null or empty!");
     }
-    MongoPlayer player;
-    player = mapPlayersByUsername.get(username);
-    if (player == null) {
+    MongoPlayer player = cachePlayers.get(username);
+    if (player == null && !cachePlayers.isMissing(username)) {
       DBCursor cursor = collectionPlayers.find(new BasicDBObject("username", username));
       if (cursor.hasNext()) {
-        player = new MongoPlayer(collectionPlayers, cursor.next());
-        registerPlayer(player);
+        player = registerPlayer(new MongoPlayer(collectionPlayers, cursor.next()));
+      } else {
+        cachePlayers.putMissing(username);
       }
       cursor.close();
     }
@@ -156,18 +166,16 @@ public class SledgehammerDatabase extends MongoDatabase {
     if (username == null || username.isEmpty()) {
       throw new IllegalArgumentException("SledgehammerDatabase: Username given is null or empty!");
     }
-    MongoPlayer player;
-    player = mapPlayersByUsername.get(username);
-    if (player != null && !player.passwordsMatch(password)) {
-      player = null;
+    MongoPlayer player = cachePlayers.get(username);
+    if (player != null) {
+      return player.passwordsMatch(password) ? player : null;
     }
-    if (player == null) {
+    if (!cachePlayers.isMissing(username)) {
       DBCursor cursor =
           collectionPlayers.find(
               new BasicDBObject("username", username).append("password", MD5.encrypt(password)));
       if (cursor.hasNext()) {
-        player = new MongoPlayer(collectionPlayers, cursor.next());
-        registerPlayer(player);
+        player = registerPlayer(new MongoPlayer(collectionPlayers, cursor.next()));
       }
       cursor.close();
     }
@@ -178,13 +186,14 @@ public class SledgehammerDatabase extends MongoDatabase {
     if (steamID == -1L) {
       throw new IllegalArgumentException("SledgehammerDatabase: Steam ID is invalid: " + steamID);
     }
-    MongoPlayer player = null;
-    DBCursor cursor = collectionPlayers.find(new BasicDBObject("steamID", "" + steamID));
-    if (cursor.hasNext()) {
-      player = new MongoPlayer(collectionPlayers, cursor.next());
-      registerPlayer(player);
+    MongoPlayer player = cachePlayers.get(steamID);
+    if (player == null) {
+      DBCursor cursor = collectionPlayers.find(new BasicDBObject("steamID", "" + steamID));
+      if (cursor.hasNext()) {
+        player = registerPlayer(new MongoPlayer(collectionPlayers, cursor.next()));
+      }
+      cursor.close();
     }
-    cursor.close();
     return player;
   }
 
@@ -206,8 +215,7 @@ public class SledgehammerDatabase extends MongoDatabase {
     }
     MongoPlayer player = new MongoPlayer(collectionPlayers, user, pass);
     player.save();
-    registerPlayer(player);
-    return player;
+    return registerPlayer(player);
   }
 
   public MongoBan getBan(String id) {
@@ -232,10 +240,9 @@ public class SledgehammerDatabase extends MongoDatabase {
     if (steamID == -1L) {
       throw new IllegalArgumentException("SledgehammerDatabase: Steam ID is invalid: " + steamID);
     }
-    DBCursor cursor = collectionPlayers.find(new BasicDBObject("steamID", "" + steamID));
-    int size = cursor.size();
-    cursor.close();
-    return size;
+    // Counted on the server using the steamID index, rather than iterating a cursor.
+    DBObject query = new BasicDBObject("steamID", "" + steamID);
+    return (int) collectionPlayers.getDBCollection().count(query);
   }
 
   /**
@@ -278,32 +285,220 @@ public class SledgehammerDatabase extends MongoDatabase {
     return this.getDatabase().getCollection(collectionName);
   }
 
-  private void registerPlayer(MongoPlayer player) {
+  /**
+   * Adds a loaded MongoPlayer to the cache.
+   *
+   * @param player The MongoPlayer loaded.
+   * @return Returns the canonical MongoPlayer. If the player document is already cached, the cached
+   *     instance is returned instead of the one given.
+   */
+  private MongoPlayer registerPlayer(MongoPlayer player) {
     if (player == null) {
       throw new IllegalArgumentException("SledgehammerDatabase: Player is null!");
     }
-    this.mapPlayersByUsername.put(player.getUsername(), player);
-    this.mapPlayersByUUID.put(player.getUniqueId(), player);
-    if (SteamUtils.isSteamModeEnabled()) {
-      this.mapPlayersBySteamID.put(player.getSteamId(), player);
-    }
+    return cachePlayers.put(player);
   }
 
-  public Map<String, Long> getAllMongoPlayers() {
-    Map<String, Long> returned = new HashMap<>();
-    DBCursor cursor = collectionPlayers.find();
-    while (cursor.hasNext()) {
-      DBObject object = cursor.next();
-      String username = object.get("username").toString();
-      long time = Long.parseLong(object.get("timeConnectedLast").toString());
-      if (time > -1L) {
-        returned.put(username, time);
+  /**
+   * Loads the MongoPlayers for a roster of user-names with one query, and pins them in the cache.
+   * User-names that are already cached are not queried again.
+   *
+   * @param usernames The user-names of the online Players.
+   * @return Returns the amount of MongoPlayers loaded from the database.
+   */
+  public int preloadMongoPlayers(Collection<String> usernames) {
+    List<String> listUsernames = new ArrayList<>();
+    for (String username : usernames) {
+      MongoPlayer player = cachePlayers.get(username);
+      if (player != null) {
+        cachePlayers.pin(player);
+      } else if (username != null && !username.isEmpty()) {
+        listUsernames.add(username);
       }
     }
+    if (listUsernames.isEmpty()) {
+      return 0;
+    }
+    int loaded = 0;
+    Set<String> setMissing = new HashSet<>(listUsernames);
+    DBCursor cursor =
+        collectionPlayers.find(
+            new BasicDBObject("username", new BasicDBObject("$in", listUsernames)));
+    while (cursor.hasNext()) {
+      MongoPlayer player = new MongoPlayer(collectionPlayers, cursor.next());
+      cachePlayers.pin(player);
+      setMissing.remove(player.getUsername());
+      loaded++;
+    }
     cursor.close();
+    for (String username : setMissing) {
+      cachePlayers.putMissing(username);
+    }
+    return loaded;
+  }
+
+  /**
+   * Pins a MongoPlayer in the cache while the Player is online.
+   *
+   * @param player The MongoPlayer of the online Player.
+   */
+  public void pinMongoPlayer(MongoPlayer player) {
+    if (player == null) {
+      throw new IllegalArgumentException("SledgehammerDatabase: Player is null!");
+    }
+    cachePlayers.pin(player);
+  }
+
+  /**
+   * Releases the MongoPlayer of a Player that has gone offline. The MongoPlayer stays cached until
+   * it expires or is evicted, so a Player reconnecting shortly after does not query the database.
+   *
+   * @param player The MongoPlayer of the Player that has gone offline.
+   */
+  public void releaseMongoPlayer(MongoPlayer player) {
+    if (player == null) {
+      return;
+    }
+    cachePlayers.unpin(player);
+  }
+
+  /** @return Returns the bounded cache of MongoPlayers. */
+  public MongoPlayerCache getPlayerCache() {
+    return this.cachePlayers;
+  }
+
+  /**
+   * Finds the user-names of players who last connected within a window of time. The query is a range
+   * on the indexed 'timeConnectedLast' field, so only the matching documents are read.
+   *
+   * <p>(Note: 'timeConnectedLast' was stored as a String in older documents, and still is by the
+   * SQLite conversion tool. These are converted to numbers first, through
+   * normalizeTimesConnectedLast(), so that a single numeric range matches every document)
+   *
+   * @param timeFrom The earliest time of the window, in milliseconds. (Inclusive)
+   * @param timeTo The latest time of the window, in milliseconds. (Exclusive)
+   * @return Returns a Map of the times each player last connected, by their user-names.
+   */
+  public Map<String, Long> getMongoPlayersConnectedBetween(long timeFrom, long timeTo) {
+    Map<String, Long> returned = new HashMap<>();
+    timeFrom = Math.max(timeFrom, 0L);
+    if (timeTo <= timeFrom) {
+      return returned;
+    }
+    normalizeTimesConnectedLast();
+    BasicDBObject query =
+        new BasicDBObject(
+            "timeConnectedLast", new BasicDBObject("$gte", timeFrom).append("$lt", timeTo));
+    readTimesConnectedLast(query, returned);
     return returned;
   }
 
+  /**
+   * Reads the times players last connected, straight from the database. This is used to confirm
+   * that a player has not connected since a query, before acting on it.
+   *
+   * @param usernames The user-names of the players.
+   * @return Returns a Map of the times each player last connected, by their user-names. Players
+   *     without a document, or without a valid time, are not included.
+   */
+  public Map<String, Long> getTimesConnectedLast(Collection<String> usernames) {
+    Map<String, Long> returned = new HashMap<>();
+    if (usernames.isEmpty()) {
+      return returned;
+    }
+    BasicDBObject query =
+        new BasicDBObject("username", new BasicDBObject("$in", new ArrayList<>(usernames)));
+    readTimesConnectedLast(query, returned);
+    return returned;
+  }
+
+  /**
+   * Converts the 'timeConnectedLast' fields stored as Strings to numbers. Strings of any length
+   * are converted, including legacy values like "0" and "-1". Strings that are not numbers are left
+   * as they are. Each document is only updated if the field still holds the String read, so a
+   * concurrent save is never overwritten.
+   *
+   * @return Returns the amount of documents converted.
+   */
+  public int normalizeTimesConnectedLast() {
+    DBCollection collection = collectionPlayers.getDBCollection();
+    // BSON type 2 is a String. The index on the field bounds this to the String values.
+    BasicDBObject query = new BasicDBObject("timeConnectedLast", new BasicDBObject("$type", 2));
+    BasicDBObject fields = new BasicDBObject("timeConnectedLast", 1);
+    BulkWriteOperation bulk = null;
+    int converted = 0;
+    DBCursor cursor = collection.find(query, fields);
+    try {
+      while (cursor.hasNext()) {
+        DBObject object = cursor.next();
+        Object oTime = object.get("timeConnectedLast");
+        Long time = parseTime(oTime);
+        if (time == null) {
+          continue;
+        }
+        if (bulk == null) {
+          bulk = collection.initializeUnorderedBulkOperation();
+        }
+        bulk.find(new BasicDBObject("_id", object.get("_id")).append("timeConnectedLast", oTime))
+            .updateOne(new BasicDBObject("$set", new BasicDBObject("timeConnectedLast", time)));
+        converted++;
+      }
+    } finally {
+      cursor.close();
+    }
+    if (bulk != null) {
+      bulk.execute();
+    }
+    return converted;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Reads the user-names and the times the players matching a query last connected.
+   *
+   * @param query The query to match.
+   * @param map The Map to put the times in, by user-name.
+   */
+  private void readTimesConnectedLast(DBObject query, Map<String, Long> map) {
+    BasicDBObject fields = new BasicDBObject("username", 1).append("timeConnectedLast", 1);
+    DBCursor cursor = collectionPlayers.getDBCollection().find(query, fields);
+    try {
+      while (cursor.hasNext()) {
+        DBObject object = cursor.next();
+        Object oUsername = object.get("username");
+        Long time = parseTime(object.get("timeConnectedLast"));
+        if (oUsername == null || time == null) {
+          continue;
+        }
+        map.put(oUsername.toString(), time);
+      }
+    } finally {
+      cursor.close();
+    }
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param oTime The time stored, either as a number or as a String.
+   * @return Returns the time as a Long. If the time is missing or is not a number, null is
+   *     returned.
+   */
+  private static Long parseTime(Object oTime) {
+    if (oTime instanceof Number) {
+      return ((Number) oTime).longValue();
+    }
+    if (oTime == null) {
+      return null;
+    }
+    try {
+      return Long.parseLong(oTime.toString().trim());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
   public static String getConnectionURL() {
     Settings settings = Settings.getInstance();
     String username = settings.getDatabaseUsername();
@@ -314,11 +509,6 @@ public class SledgehammerDatabase extends MongoDatabase {
   }
 
   public void removeMongoPlayer(MongoPlayer player) {
-    long steamId = player.getSteamId();
-    if (steamId > -1L) {
-      mapPlayersBySteamID.remove(steamId);
-    }
-    mapPlayersByUsername.remove(player.getUsername());
-    mapPlayersByUUID.remove(player.getUniqueId());
+    cachePlayers.remove(player);
   }
 }
@@ -21,21 +21,57 @@
 package sledgehammer.database.transaction;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+
+import sledgehammer.Settings;
+import sledgehammer.database.MongoCollection;
 import sledgehammer.database.MongoDatabase;
 
 /**
- * Runnable interface that handles ordered transactions for MongoDocuments.
+ * Runnable interface that handles the write-behind of transactions for MongoDocuments.
+ *
+ * <p>Transactions queued on the MongoDatabase are drained once per flush window. Transactions for
+ * the same document (collection, field, and id) within a window are coalesced into one write, and
+ * the writes for each collection are sent as one unordered bulk operation. When the database shuts
+ * down, the worker flushes every queued transaction before exiting.
  *
  * @author Jab
  */
 public class MongoDatabaseTransactionWorker implements Runnable {
 
-  /** The amount of time to sleep when idle. */
-  private long sleepTimer = 10L;
+  /** The default time in milliseconds to collect transactions before flushing them. */
+  public static final long DEFAULT_FLUSH_WINDOW = 50L;
+  /** The maximum amount of transactions to drain into one flush. */
+  public static final int MAXIMUM_BATCH_SIZE = 4096;
+
   /** The MongoDatabase using the worker to execute transactions. */
   private MongoDatabase database;
+  /** The thread running the worker. */
+  private volatile Thread thread;
+  /** The time in nanoseconds to collect transactions before flushing them. */
+  private long flushWindow = DEFAULT_FLUSH_WINDOW * 1000000L;
+  /** The total amount of flushes. */
+  private AtomicLong flushes = new AtomicLong(0L);
+  /** The total amount of transactions flushed. */
+  private AtomicLong transactionsFlushed = new AtomicLong(0L);
+  /** The total amount of document writes sent after coalescing. */
+  private AtomicLong writesFlushed = new AtomicLong(0L);
+  /** The total amount of nanoseconds spent flushing. */
+  private AtomicLong timeFlushed = new AtomicLong(0L);
+  /** The amount of transactions in the last flush. */
+  private volatile int lastBatchSize;
+  /** The nanoseconds spent on the last flush. */
+  private volatile long lastFlushTime;
+  /** The longest nanoseconds spent on a flush. */
+  private volatile long maximumFlushTime;
 
   /**
    * Main constructor.
@@ -49,42 +85,172 @@ public class MongoDatabaseTransactionWorker implements Runnable {
 
   @Override
   public void run() {
+    thread = Thread.currentThread();
     // The database to work with.
     MongoDatabase database = getMongoDatabase();
-    // The list to work with outside of the main list from the database.
+    // The list to work with outside of the queue of the database.
     List<MongoDocumentTransaction> listToTransact = new ArrayList<>();
     // Loop through until the database is flagged to shut down. If there are queued
     // transactions waiting to be processed during a shutdown, those will be ran
     // first before exiting the loop.
-    while (!database.isShutDown()
-        || (database.isShutDown() && database.getTransactionQueueSize() > 0)) {
-      // Clear the local list.
+    while (true) {
+      boolean shutdown = database.isShutDown();
+      // Collect transactions for the flush window. The database wakes the worker early if the
+      // queue is filling up, or if the database is shutting down.
+      if (!shutdown) {
+        LockSupport.parkNanos(this, flushWindow);
+      }
       listToTransact.clear();
-      // Grab the current list of transactions.
-      List<MongoDocumentTransaction> listTransactions = database.getTransactions();
-      // Ensure that no transactions are added during the transfer of transactions to
-      // the local list.
-      synchronized (listTransactions) {
-        // Add every transaction currently on the database list to the local list.
-        listToTransact.addAll(listTransactions);
-        // Clear the database list.
-        listTransactions.clear();
+      MongoDocumentTransaction transaction;
+      while (listToTransact.size() < MAXIMUM_BATCH_SIZE
+          && (transaction = database.pollTransaction()) != null) {
+        listToTransact.add(transaction);
       }
-      // Make sure we have transactions to process.
-      if (listToTransact.size() > 0) {
-        // Go through each transaction.
-        for (MongoDocumentTransaction transaction : listToTransact) {
-          // Dispatch the transaction method to handle the operation.
-          transaction.run();
+      if (listToTransact.isEmpty()) {
+        if (shutdown) {
+          break;
         }
+        continue;
+      }
+      try {
+        flush(listToTransact);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+    thread = null;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Coalesces the transactions given by document, and writes them with one unordered bulk
+   * operation for each collection.
+   *
+   * @param listTransactions The List of transactions to flush, in the order they were queued.
+   */
+  private void flush(List<MongoDocumentTransaction> listTransactions) {
+    long timeStarted = System.nanoTime();
+    Map<MongoCollection, Map<List<Object>, MongoDocumentWrite>> mapWrites = new LinkedHashMap<>();
+    for (MongoDocumentTransaction transaction : listTransactions) {
+      MongoCollection collection = transaction.getMongoCollection();
+      Map<List<Object>, MongoDocumentWrite> mapCollectionWrites = mapWrites.get(collection);
+      if (mapCollectionWrites == null) {
+        mapCollectionWrites = new LinkedHashMap<>();
+        mapWrites.put(collection, mapCollectionWrites);
+      }
+      String field = transaction.getField();
+      Object id = transaction.getId();
+      List<Object> key = Arrays.asList(field, id);
+      MongoDocumentWrite write = mapCollectionWrites.get(key);
+      if (write == null) {
+        write = new MongoDocumentWrite(field, id);
+        mapCollectionWrites.put(key, write);
+      }
+      write.merge(transaction);
+    }
+    int writes = 0;
+    for (Map.Entry<MongoCollection, Map<List<Object>, MongoDocumentWrite>> entry :
+        mapWrites.entrySet()) {
+      DBCollection dbCollection = entry.getKey().getDBCollection();
+      Map<List<Object>, MongoDocumentWrite> mapCollectionWrites = entry.getValue();
+      if (Settings.getInstance().isDebug()) {
+        System.out.println(
+            "("
+                + dbCollection.getName()
+                + "): Flushing "
+                + mapCollectionWrites.size()
+                + " document write(s).");
+      }
+      BulkWriteOperation bulk = dbCollection.initializeUnorderedBulkOperation();
+      for (MongoDocumentWrite write : mapCollectionWrites.values()) {
+        write.addTo(bulk);
       }
-      // Sleep to ensure not to start process resources.
       try {
-        Thread.sleep(sleepTimer);
-      } catch (InterruptedException e) {
+        bulk.execute();
+        writes += mapCollectionWrites.size();
+      } catch (Exception e) {
+        System.err.println("(" + dbCollection.getName() + "): Failed to flush documents.");
         e.printStackTrace();
       }
     }
+    long timeElapsed = System.nanoTime() - timeStarted;
+    flushes.incrementAndGet();
+    transactionsFlushed.addAndGet(listTransactions.size());
+    writesFlushed.addAndGet(writes);
+    timeFlushed.addAndGet(timeElapsed);
+    lastBatchSize = listTransactions.size();
+    lastFlushTime = timeElapsed;
+    if (timeElapsed > maximumFlushTime) {
+      maximumFlushTime = timeElapsed;
+    }
+  }
+
+  /** Wakes the worker to flush queued transactions before the flush window ends. */
+  public void wake() {
+    Thread thread = this.thread;
+    if (thread != null) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  /** @return Returns true if the worker is running. */
+  public boolean isRunning() {
+    return this.thread != null;
+  }
+
+  /**
+   * Sets the time to collect transactions before flushing them.
+   *
+   * @param flushWindow The time in milliseconds to set.
+   */
+  public void setFlushWindow(long flushWindow) {
+    if (flushWindow < 1L) {
+      throw new IllegalArgumentException("Flush window must be at least 1 ms: " + flushWindow);
+    }
+    this.flushWindow = flushWindow * 1000000L;
+  }
+
+  /** @return Returns the total amount of flushes. */
+  public long getFlushCount() {
+    return flushes.get();
+  }
+
+  /** @return Returns the total amount of transactions flushed. */
+  public long getTransactionsFlushed() {
+    return transactionsFlushed.get();
+  }
+
+  /** @return Returns the total amount of document writes sent after coalescing transactions. */
+  public long getWritesFlushed() {
+    return writesFlushed.get();
+  }
+
+  /** @return Returns the amount of transactions in the last flush. */
+  public int getLastBatchSize() {
+    return this.lastBatchSize;
+  }
+
+  /** @return Returns the average amount of transactions in a flush. */
+  public double getAverageBatchSize() {
+    long count = flushes.get();
+    return count > 0 ? (double) transactionsFlushed.get() / count : 0D;
+  }
+
+  /** @return Returns the nanoseconds spent on the last flush. */
+  public long getLastFlushTime() {
+    return this.lastFlushTime;
+  }
+
+  /** @return Returns the average nanoseconds spent on a flush. */
+  public long getAverageFlushTime() {
+    long count = flushes.get();
+    return count > 0 ? timeFlushed.get() / count : 0L;
+  }
+
+  /** @return Returns the longest nanoseconds spent on a flush. */
+  public long getMaximumFlushTime() {
+    return this.maximumFlushTime;
   }
 
   /** @return Returns the MongoDatabase using the worker. */
@@ -38,5 +38,12 @@ public abstract class MongoDocumentTransaction {
     this.mongoCollection = mongoCollection;
   }
 
+  /** Executes the transaction immediately, as a single operation. */
   public abstract void run();
+
+  /** @return Returns the String field identifying the document of the transaction. */
+  public abstract String getField();
+
+  /** @return Returns the value of the field identifying the document of the transaction. */
+  public abstract Object getId();
 }
@@ -56,6 +56,12 @@ public class MongoDocumentTransactionDelete extends MongoDocumentTransaction {
     dbCollection.remove(new BasicDBObject(field, value));
   }
 
+  @Override
+  public Object getId() {
+    return getValue();
+  }
+
+  @Override
   public String getField() {
     return this.field;
   }
@@ -0,0 +1,95 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+
+package sledgehammer.database.transaction;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+
+import sledgehammer.Settings;
+import sledgehammer.database.MongoCollection;
+
+/**
+ * Transaction to insert a new document. This is used for append-only documents that are written
+ * once, so that the worker can send them as plain inserts instead of upserts.
+ *
+ * @author Jab
+ */
+public class MongoDocumentTransactionInsert extends MongoDocumentTransaction {
+
+  private DBObject object;
+  private String field;
+  private Object lock;
+
+  public MongoDocumentTransactionInsert(
+      MongoCollection collection, DBObject object, String field, Object lock) {
+    super(collection);
+    setObject(object);
+    setField(field);
+    setLock(lock);
+  }
+
+  @Override
+  public void run() {
+    MongoCollection collection = getMongoCollection();
+    DBCollection dbCollection = collection.getDBCollection();
+    if (Settings.getInstance().isDebug()) {
+      System.out.println(
+          "("
+              + dbCollection.getName()
+              + "): Inserting document: (field:"
+              + getField()
+              + " id:"
+              + getId()
+              + ")");
+    }
+    dbCollection.insert(getObject());
+  }
+
+  public Object getLock() {
+    return this.lock;
+  }
+
+  private void setLock(Object lock) {
+    this.lock = lock;
+  }
+
+  public DBObject getObject() {
+    return this.object;
+  }
+
+  private void setObject(DBObject object) {
+    this.object = object;
+  }
+
+  @Override
+  public Object getId() {
+    return getObject().get(getField());
+  }
+
+  @Override
+  public String getField() {
+    return this.field;
+  }
+
+  private void setField(String field) {
+    this.field = field;
+  }
+}
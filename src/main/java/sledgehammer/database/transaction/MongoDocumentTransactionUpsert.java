@@ -30,13 +30,24 @@ import sledgehammer.database.MongoCollection;
 public class MongoDocumentTransactionUpsert extends MongoDocumentTransaction {
 
   private DBObject object;
+  private DBObject objectUnset;
   private String field;
   private Object lock;
 
   public MongoDocumentTransactionUpsert(
       MongoCollection collection, DBObject object, String field, Object lock) {
+    this(collection, object, null, field, lock);
+  }
+
+  public MongoDocumentTransactionUpsert(
+      MongoCollection collection,
+      DBObject object,
+      DBObject objectUnset,
+      String field,
+      Object lock) {
     super(collection);
     setObject(object);
+    setUnsetObject(objectUnset);
     setField(field);
     setLock(lock);
   }
@@ -49,6 +60,10 @@ public class MongoDocumentTransactionUpsert extends MongoDocumentTransaction {
     DBObject object = getObject();
     BasicDBObject append = new BasicDBObject();
     append.append("$set", object);
+    DBObject objectUnset = getUnsetObject();
+    if (objectUnset != null && !objectUnset.keySet().isEmpty()) {
+      append.append("$unset", objectUnset);
+    }
     Object id = object.get(field);
     if (Settings.getInstance().isDebug()) {
       System.out.println(
@@ -79,6 +94,21 @@ public class MongoDocumentTransactionUpsert extends MongoDocumentTransaction {
     this.object = object;
   }
 
+  @Override
+  public Object getId() {
+    return getObject().get(getField());
+  }
+
+  /** @return Returns the DBObject containing the fields to unset. This can be null. */
+  public DBObject getUnsetObject() {
+    return this.objectUnset;
+  }
+
+  private void setUnsetObject(DBObject objectUnset) {
+    this.objectUnset = objectUnset;
+  }
+
+  @Override
   public String getField() {
     return this.field;
   }
@@ -0,0 +1,153 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+
+package sledgehammer.database.transaction;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBObject;
+
+/**
+ * MongoDocumentWrite is the coalesced result of the MongoDocumentTransactions queued for one
+ * document within a flush window. Repeated upserts are merged into one $set, a delete replaces any
+ * prior upserts, fields unset by a later upsert are removed from the $set, and an upsert following
+ * a delete becomes a replacement of the document. Upserts following an insert are merged into the
+ * inserted document. This keeps the result the same as executing the transactions in order, while
+ * allowing the write to be sent in an unordered bulk operation.
+ *
+ * @author Jab
+ */
+class MongoDocumentWrite {
+
+  /** The String field identifying the document. */
+  private final String field;
+  /** The value of the field identifying the document. */
+  private final Object id;
+  /** The merged fields to set. */
+  private BasicDBObject set;
+  /** The merged fields to unset. */
+  private BasicDBObject unset;
+  /** Flag for deleting the document. */
+  private boolean delete;
+  /** Flag for replacing the document with the merged fields. */
+  private boolean replace;
+  /** Flag for inserting the document with the merged fields. */
+  private boolean insert;
+  /** The amount of transactions merged into the write. */
+  private int transactions;
+
+  /**
+   * Main constructor.
+   *
+   * @param field The String field identifying the document.
+   * @param id The value of the field identifying the document.
+   */
+  MongoDocumentWrite(String field, Object id) {
+    this.field = field;
+    this.id = id;
+  }
+
+  /**
+   * Merges a transaction into the write.
+   *
+   * @param transaction The MongoDocumentTransaction to merge.
+   */
+  void merge(MongoDocumentTransaction transaction) {
+    transactions++;
+    if (transaction instanceof MongoDocumentTransactionDelete) {
+      delete = true;
+      replace = false;
+      insert = false;
+      set = null;
+      unset = null;
+    } else if (transaction instanceof MongoDocumentTransactionInsert) {
+      DBObject object = ((MongoDocumentTransactionInsert) transaction).getObject();
+      if (delete || set != null) {
+        // The document is written before the insert, so the insert replaces the document.
+        delete = false;
+        replace = true;
+      } else {
+        insert = true;
+      }
+      set = new BasicDBObject();
+      unset = null;
+      for (String key : object.keySet()) {
+        set.put(key, object.get(key));
+      }
+    } else if (transaction instanceof MongoDocumentTransactionUpsert) {
+      MongoDocumentTransactionUpsert upsert = (MongoDocumentTransactionUpsert) transaction;
+      DBObject object = upsert.getObject();
+      DBObject objectUnset = upsert.getUnsetObject();
+      if (delete) {
+        // The document is deleted before the upsert, so the upsert replaces the document.
+        delete = false;
+        replace = true;
+      }
+      if (set == null) {
+        set = new BasicDBObject();
+      }
+      for (String key : object.keySet()) {
+        set.put(key, object.get(key));
+        if (unset != null) {
+          unset.remove(key);
+        }
+      }
+      if (objectUnset != null) {
+        for (String key : objectUnset.keySet()) {
+          set.remove(key);
+          // A replaced or inserted document does not contain the field to begin with.
+          if (!replace && !insert) {
+            if (unset == null) {
+              unset = new BasicDBObject();
+            }
+            unset.put(key, "");
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds the write to a bulk operation.
+   *
+   * @param bulk The BulkWriteOperation to add to.
+   */
+  void addTo(BulkWriteOperation bulk) {
+    BasicDBObject query = new BasicDBObject(field, id);
+    if (delete) {
+      bulk.find(query).remove();
+    } else if (insert) {
+      bulk.insert(set);
+    } else if (replace) {
+      bulk.find(query).upsert().replaceOne(set);
+    } else if (set != null) {
+      BasicDBObject update = new BasicDBObject("$set", set);
+      if (unset != null && !unset.isEmpty()) {
+        update.append("$unset", unset);
+      }
+      bulk.find(query).upsert().updateOne(update);
+    }
+  }
+
+  /** @return Returns the amount of transactions merged into the write. */
+  int getTransactionCount() {
+    return this.transactions;
+  }
+}
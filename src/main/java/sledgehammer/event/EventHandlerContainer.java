@@ -31,6 +31,7 @@ import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * CommandHandlerContainer is a container class for the event handler Annotation. This is to help
@@ -65,12 +66,28 @@ public class EventHandlerContainer {
   private MethodHandle methodHandle;
   private MethodType methodType;
   private Listener container;
-  private Object[] methodArgumentsCache;
+  /**
+   * The MethodHandle adapted to the exact type (Event)void, with the container bound for virtual
+   * methods. This is invoked with invokeExact(), which avoids boxing the arguments into an array
+   * and holds no mutable state, making dispatch safe from multiple threads.
+   */
+  private MethodHandle invoker;
   private String methodName;
   private boolean isStatic;
+  private boolean isAsync;
   private boolean isEnabled;
   private Class<? extends Event> classEvent;
   private long timeCreated;
+  /** The amount of times the event handler is invoked asynchronously. */
+  private AtomicLong invocations = new AtomicLong(0L);
+  /** The total nanoseconds spent invoking the event handler asynchronously. */
+  private AtomicLong timeInvoked = new AtomicLong(0L);
+  /** The longest nanoseconds spent invoking the event handler asynchronously. */
+  private AtomicLong timeInvokedMaximum = new AtomicLong(0L);
+  /** The total nanoseconds asynchronous invocations spent queued. */
+  private AtomicLong timeQueued = new AtomicLong(0L);
+  /** The amount of asynchronous invocations rejected due to the queue being full. */
+  private AtomicLong rejected = new AtomicLong(0L);
 
   /**
    * Main constructor.
@@ -86,6 +103,7 @@ public class EventHandlerContainer {
     setContainer(container);
     setMethod(method);
     setAnnotation(annotation);
+    isAsync = annotation.async();
     // Setup the MethodHandle.
     createMethodHandler();
   }
@@ -145,24 +163,15 @@ public class EventHandlerContainer {
       methodHandle = lookup.unreflect(method);
     } catch (IllegalAccessException e) {
       e.printStackTrace();
+      return;
     }
-    // If the event handler method is static, the parameter cache does not require an instance
-    // of the declaring class or anonymous class to invoke.
-    if (isStatic) {
-      // In this case, the event handler will require only 1 parameter:
-      // [1] -> Event
-      methodArgumentsCache = new Object[1];
-    }
-    // We will setup the parameter cache for a non-static (invokeVirtual) method. These
-    // methods are what is expected to be used as event handlers.
-    else {
-      // In this case, the event handler will require 2 parameters:
-      // [0] -> self
-      // [1] -> Event
-      methodArgumentsCache = new Object[2];
-      // Set the self instance as the Container.
-      methodArgumentsCache[0] = getContainer();
-    }
+    // If the event handler method is not static, bind the declaring class instance so that the
+    // handle only requires the Event to invoke.
+    MethodHandle handle = isStatic ? methodHandle : methodHandle.bindTo(getContainer());
+    // Adapt the handle to the exact type used by handleEvent() so that it can be invoked with
+    // invokeExact(). The Event is cast to the parameter type of the method, and any return value
+    // is dropped.
+    invoker = handle.asType(MethodType.methodType(void.class, Event.class));
     // We are now good to start invoking the event handler. Let the EventManagerOld know this.
     setEnabled(true);
   }
@@ -187,25 +196,9 @@ public class EventHandlerContainer {
         && ((Cancellable) event).isCancelled()) {
       return;
     }
-    // If the method is static, we do not need to reference the instance of the declaring class.
-    if (isStatic()) {
-      // The method is static, so we need to only pass the Event instance being handled.
-      methodArgumentsCache[0] = event;
-      // Finally, invoke the method.
-      methodHandle.invokeWithArguments(methodArgumentsCache);
-      // Clear the cache of references to the arguments given.
-      methodArgumentsCache[0] = null;
-    }
-    // The method is dynamic, so we need to pass the instance of the declaring class.
-    else {
-      // The declaring class instance is already defined in the first index of the
-      // parameter array. All we need to do is assign the Event instance being handled.
-      methodArgumentsCache[1] = event;
-      // Finally, invoke the method.
-      methodHandle.invokeWithArguments(methodArgumentsCache);
-      // Clear the cache of references to the arguments given.
-      methodArgumentsCache[1] = null;
-    }
+    // Invoke the method. The declaring class instance is already bound to the handle for
+    // non-static methods.
+    invoker.invokeExact(event);
   }
 
   /** @return Returns the Method that is the event handler being invocated when handling Events. */
@@ -277,6 +270,64 @@ public class EventHandlerContainer {
     return getAnnotation().id();
   }
 
+  /**
+   * @return Returns true if the event handler is invoked asynchronously, off of the game server
+   *     thread.
+   */
+  public boolean isAsync() {
+    return this.isAsync;
+  }
+
+  /**
+   * Records an asynchronous invocation of the event handler.
+   *
+   * @param nanosQueued The nanoseconds the invocation spent queued.
+   * @param nanosInvoked The nanoseconds the invocation took.
+   */
+  void recordInvocation(long nanosQueued, long nanosInvoked) {
+    invocations.incrementAndGet();
+    timeQueued.addAndGet(nanosQueued);
+    timeInvoked.addAndGet(nanosInvoked);
+    long maximum;
+    do {
+      maximum = timeInvokedMaximum.get();
+    } while (nanosInvoked > maximum && !timeInvokedMaximum.compareAndSet(maximum, nanosInvoked));
+  }
+
+  /** Records an asynchronous invocation rejected due to the queue being full. */
+  void onRejected() {
+    rejected.incrementAndGet();
+  }
+
+  /** @return Returns the amount of times the event handler is invoked asynchronously. */
+  public long getInvocationCount() {
+    return invocations.get();
+  }
+
+  /** @return Returns the average nanoseconds spent invoking the event handler asynchronously. */
+  public long getAverageInvocationTime() {
+    long count = invocations.get();
+    return count > 0 ? timeInvoked.get() / count : 0L;
+  }
+
+  /** @return Returns the longest nanoseconds spent invoking the event handler asynchronously. */
+  public long getMaximumInvocationTime() {
+    return timeInvokedMaximum.get();
+  }
+
+  /** @return Returns the average nanoseconds asynchronous invocations spent queued. */
+  public long getAverageQueuedTime() {
+    long count = invocations.get();
+    return count > 0 ? timeQueued.get() / count : 0L;
+  }
+
+  /**
+   * @return Returns the amount of asynchronous invocations rejected due to the queue being full.
+   */
+  public long getRejectedCount() {
+    return rejected.get();
+  }
+
   /** @return Returns true if the event handler is declared as a static method. */
   public boolean isStatic() {
     return this.isStatic;
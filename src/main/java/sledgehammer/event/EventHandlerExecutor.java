@@ -0,0 +1,330 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+
+package sledgehammer.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import sledgehammer.interfaces.Listener;
+
+/**
+ * EventHandlerExecutor handles the invocation of asynchronous EventHandlers off of the game server
+ * thread. Invocations are queued in a lane for each Listener, and each lane is drained by one
+ * worker at a time, so the EventHandlers of a Listener handle Events in the order they were fired.
+ * Lanes of different Listeners are drained concurrently on a bounded pool of worker threads.
+ *
+ * <p>The amount of queued invocations is bounded. When the limit is reached, further invocations
+ * are rejected and counted.
+ *
+ * <p>EventHandlers that fail are queued, and their Callbacks are only notified when {@link
+ * #dispatchFailures()} is called on the game server thread.
+ *
+ * @author Jab
+ */
+public class EventHandlerExecutor {
+
+  /** The default amount of worker threads. */
+  public static final int DEFAULT_THREADS = 2;
+  /** The default maximum amount of queued invocations. */
+  public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+
+  /** The Map of lanes for each Listener. */
+  private Map<Listener, Lane> mapLanes = new ConcurrentHashMap<>();
+  /** The pool of worker threads draining the lanes. */
+  private ExecutorService executor;
+  /** The total amount of invocations queued in all lanes. */
+  private AtomicInteger queueDepth = new AtomicInteger(0);
+  /** The total amount of invocations rejected due to the queue being full. */
+  private AtomicLong rejected = new AtomicLong(0L);
+  /** The maximum amount of queued invocations. */
+  private int queueCapacity;
+  /** The queue of failed invocations waiting to be dispatched on the game server thread. */
+  private Queue<Failure> queueFailures = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Main constructor.
+   *
+   * @param threads The amount of worker threads to invoke EventHandlers on.
+   * @param queueCapacity The maximum amount of queued invocations.
+   */
+  public EventHandlerExecutor(int threads, int queueCapacity) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Thread count must be at least 1: " + threads);
+    }
+    if (queueCapacity < 1) {
+      throw new IllegalArgumentException("Queue capacity must be at least 1: " + queueCapacity);
+    }
+    this.queueCapacity = queueCapacity;
+    this.executor =
+        Executors.newFixedThreadPool(
+            threads,
+            new ThreadFactory() {
+              private AtomicInteger count = new AtomicInteger(0);
+
+              @Override
+              public Thread newThread(Runnable runnable) {
+                Thread thread =
+                    new Thread(runnable, "Sledgehammer-AsyncEvent-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              }
+            });
+  }
+
+  /**
+   * Queues an Event to be handled by an asynchronous EventHandler.
+   *
+   * @param container The EventHandlerContainer to invoke.
+   * @param event The Event to handle.
+   * @param callback The Callback to notify if the EventHandler fails.
+   * @return Returns true if the invocation is queued. Returns false if the queue is full, or the
+   *     executor is shut down.
+   */
+  public boolean submit(EventHandlerContainer container, Event event, Callback callback) {
+    if (executor.isShutdown()) {
+      rejected.incrementAndGet();
+      return false;
+    }
+    // Reserve a slot in the queue.
+    if (queueDepth.incrementAndGet() > queueCapacity) {
+      queueDepth.decrementAndGet();
+      rejected.incrementAndGet();
+      container.onRejected();
+      return false;
+    }
+    Lane lane = getLane(container.getContainer());
+    lane.queue.offer(new Invocation(container, event, callback, System.nanoTime()));
+    lane.schedule();
+    return true;
+  }
+
+  /**
+   * Removes the lane of a Listener. Invocations already queued for the Listener are still drained.
+   * This is to be called when the Listener is unregistered.
+   *
+   * @param listener The Listener to remove the lane for.
+   */
+  public void removeLane(Listener listener) {
+    synchronized (mapLanes) {
+      mapLanes.remove(listener);
+    }
+  }
+
+  /**
+   * Notifies the Callbacks of EventHandlers that failed since the last call. This is to be called
+   * on the game server thread.
+   */
+  public void dispatchFailures() {
+    Failure failure;
+    while ((failure = queueFailures.poll()) != null) {
+      failure.callback.onThrown(failure.container, failure.throwable);
+    }
+  }
+
+  /**
+   * Stops accepting invocations, and waits for queued invocations to complete.
+   *
+   * @param timeout The time to wait for queued invocations.
+   * @param unit The TimeUnit of the timeout.
+   * @return Returns true if all queued invocations completed before the timeout.
+   */
+  public boolean shutdown(long timeout, TimeUnit unit) {
+    executor.shutdown();
+    try {
+      return executor.awaitTermination(timeout, unit);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /** @return Returns the total amount of invocations queued. */
+  public int getQueueDepth() {
+    return queueDepth.get();
+  }
+
+  /**
+   * @param listener The Listener to check.
+   * @return Returns the amount of invocations queued for the Listener.
+   */
+  public int getQueueDepth(Listener listener) {
+    Lane lane = mapLanes.get(listener);
+    return lane != null ? lane.depth.get() : 0;
+  }
+
+  /** @return Returns the total amount of invocations rejected due to the queue being full. */
+  public long getRejectedCount() {
+    return rejected.get();
+  }
+
+  /** @return Returns the maximum amount of queued invocations. */
+  public int getQueueCapacity() {
+    return this.queueCapacity;
+  }
+
+  /** @return Returns a List of the Listeners with asynchronous EventHandlers. */
+  public List<Listener> getListeners() {
+    return new ArrayList<>(mapLanes.keySet());
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param listener The Listener to grab the lane for.
+   * @return Returns the lane for the Listener. If one does not exist, it is created.
+   */
+  private Lane getLane(Listener listener) {
+    Lane lane = mapLanes.get(listener);
+    if (lane == null) {
+      synchronized (mapLanes) {
+        lane = mapLanes.get(listener);
+        if (lane == null) {
+          lane = new Lane();
+          mapLanes.put(listener, lane);
+        }
+      }
+    }
+    return lane;
+  }
+
+  /**
+   * Callback for EventHandlers that fail when invoked asynchronously.
+   *
+   * @author Jab
+   */
+  public interface Callback {
+
+    /**
+     * Executed on the game server thread when an asynchronous EventHandler has thrown.
+     *
+     * @param container The EventHandlerContainer that failed.
+     * @param throwable The Throwable thrown.
+     */
+    void onThrown(EventHandlerContainer container, Throwable throwable);
+  }
+
+  /**
+   * (Private Class)
+   *
+   * <p>A queued invocation of an EventHandler.
+   */
+  private static class Invocation {
+    final EventHandlerContainer container;
+    final Event event;
+    final Callback callback;
+    final long timeQueued;
+
+    Invocation(EventHandlerContainer container, Event event, Callback callback, long timeQueued) {
+      this.container = container;
+      this.event = event;
+      this.callback = callback;
+      this.timeQueued = timeQueued;
+    }
+  }
+
+  /**
+   * (Private Class)
+   *
+   * <p>A failed invocation of an EventHandler, waiting to be dispatched to its Callback.
+   */
+  private static class Failure {
+    final EventHandlerContainer container;
+    final Throwable throwable;
+    final Callback callback;
+
+    Failure(EventHandlerContainer container, Throwable throwable, Callback callback) {
+      this.container = container;
+      this.throwable = throwable;
+      this.callback = callback;
+    }
+  }
+
+  /**
+   * (Private Class)
+   *
+   * <p>The ordered queue of invocations for a Listener. Only one worker drains a lane at a time.
+   */
+  private class Lane implements Runnable {
+    final Queue<Invocation> queue = new ConcurrentLinkedQueue<>();
+    final AtomicInteger depth = new AtomicInteger(0);
+    final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    /** Schedules the lane to be drained, if it is not already. */
+    void schedule() {
+      depth.incrementAndGet();
+      if (scheduled.compareAndSet(false, true)) {
+        try {
+          executor.execute(this);
+        } catch (RejectedExecutionException e) {
+          // The executor is shut down. Drain the lane on the calling thread so that the queued
+          // invocations are not lost.
+          run();
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      do {
+        drain();
+        scheduled.set(false);
+        // An invocation may have been queued after the queue was drained, but before the lane was
+        // marked as not scheduled. If so, continue draining.
+      } while (!queue.isEmpty() && scheduled.compareAndSet(false, true));
+    }
+
+    /** Invokes all queued invocations in order. */
+    private void drain() {
+      Invocation invocation;
+      while ((invocation = queue.poll()) != null) {
+        depth.decrementAndGet();
+        queueDepth.decrementAndGet();
+        EventHandlerContainer container = invocation.container;
+        if (!container.isEnabled()) {
+          continue;
+        }
+        long timeStarted = System.nanoTime();
+        try {
+          container.handleEvent(invocation.event);
+        } catch (Throwable throwable) {
+          container.setEnabled(false);
+          if (invocation.callback != null) {
+            queueFailures.offer(new Failure(container, throwable, invocation.callback));
+          }
+        }
+        long timeFinished = System.nanoTime();
+        container.recordInvocation(timeStarted - invocation.timeQueued, timeFinished - timeStarted);
+      }
+    }
+  }
+}
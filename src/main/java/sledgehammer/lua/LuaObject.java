@@ -20,9 +20,9 @@
 
 package sledgehammer.lua;
 
+import se.krka.kahlua.j2se.KahluaTableImpl;
 import se.krka.kahlua.vm.KahluaTable;
 import sledgehammer.util.Printable;
-import zombie.Lua.LuaManager;
 
 /**
  * An abstract utility Class that allows proper organization and export of KahluaTables for complex
@@ -101,10 +101,12 @@ public abstract class LuaObject extends Printable {
   }
 
   /**
-   * @return Returns a new KahluaTable instance, generated by the J2SEPlatform instance for KahLua
-   *     in the ProjectZomboid LuaManager.
+   * Creates a KahluaTable for the calling thread to build. It is stored without the concurrent Map
+   * used by the tables of the Lua runtime, and must not be written by other threads once it is sent.
+   *
+   * @return Returns a new KahluaTable instance.
    */
   public static KahluaTable newTable() {
-    return LuaManager.platform.newTable();
+    return new KahluaTableImpl();
   }
 }
@@ -22,6 +22,7 @@ package sledgehammer.lua;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import se.krka.kahlua.vm.KahluaTable;
 
@@ -48,6 +49,26 @@ public abstract class LuaTable extends LuaObject {
   /** Non-converted data */
   private Map<Object, Object> data;
 
+  /**
+   * The generation of each recipient of delta exports. Resetting a recipient invalidates what every
+   * LuaTable recorded as sent to it.
+   */
+  private static final Map<Object, Integer> mapRecipientGenerations = new WeakHashMap<>();
+
+  /** The version of the data, incremented every time a field changes. */
+  private int version = 0;
+  /**
+   * The version the data was last replaced at as a whole. Recipients that received an older version
+   * are sent the full table.
+   */
+  private int versionFull = 0;
+  /** The version each field last changed at. Removed fields are kept to be sent as removals. */
+  private Map<Object, Integer> mapFieldVersions;
+  /** The last version seen of each nested LuaTable, to detect changes made inside of them. */
+  private Map<Object, Integer> mapNestedVersions;
+  /** The state of each recipient of delta exports. */
+  private Map<Object, DeltaState> mapDeltaStates;
+
   /**
    * Main constructor.
    *
@@ -75,10 +96,99 @@ public abstract class LuaTable extends LuaObject {
 
   /** Exports the LuaObject as a KahluaTable. */
   public KahluaTable export() {
-    KahluaTable outTable;
     // Call 'onExport()' to make sure the data is accurate.
     onExport();
-    outTable = newTable();
+    KahluaTable outTable = exportData();
+    // Mark clean as last table is assigned for any further exports
+    // without changes.
+    markClean();
+    // Return the table.
+    return outTable;
+  }
+
+  /**
+   * Exports only the fields that changed since the last export to the given recipient. The first
+   * export to a recipient, or an export after the data was replaced, is a full table.
+   *
+   * <p>Deltas are flagged with '__delta', and carry the version they were computed against as
+   * '__base'. Removed fields are listed in '__removed'. Every export carries the current version
+   * as '__version', so the recipient can apply a delta only on top of the version it holds.
+   *
+   * <p>(Note: If the LuaTable is not flagged for delta exports, a full table is always exported)
+   *
+   * @param recipient The Object recipient of the export, usually a Player.
+   * @return Returns the exported KahluaTable. If the recipient already has the current version,
+   *     null is returned.
+   */
+  public KahluaTable exportDelta(Object recipient) {
+    if (!isDeltaExport()) {
+      return export();
+    }
+    onExport();
+    updateNestedVersions();
+    DeltaState state = getDeltaState(recipient);
+    KahluaTable outTable;
+    if (state.version < versionFull) {
+      // The recipient does not have a base to patch. Send everything.
+      outTable = exportData();
+    } else if (state.version == version) {
+      return null;
+    } else {
+      outTable = newTable();
+      KahluaTable tableRemoved = null;
+      int removed = 0;
+      for (Map.Entry<Object, Integer> entry : mapFieldVersions.entrySet()) {
+        if (entry.getValue() <= state.version) {
+          continue;
+        }
+        Object key = entry.getKey();
+        Object value = processValue(this.data.get(key));
+        if (value != null) {
+          outTable.rawset(key, value);
+        } else {
+          if (tableRemoved == null) {
+            tableRemoved = newTable();
+          }
+          tableRemoved.rawset((double) ++removed, key);
+        }
+      }
+      exportIdentity(outTable);
+      if (tableRemoved != null) {
+        outTable.rawset("__removed", tableRemoved);
+      }
+      outTable.rawset("__delta", true);
+      outTable.rawset("__base", (double) state.version);
+    }
+    state.version = version;
+    outTable.rawset("__version", (double) version);
+    markClean();
+    return outTable;
+  }
+
+  /**
+   * Exports an empty delta for the LuaTable, carrying only the identity fields. This is used to
+   * reference the LuaTable on the recipient's side when nothing in it has changed.
+   *
+   * @return Returns the exported KahluaTable.
+   */
+  public KahluaTable exportDeltaIdentity() {
+    KahluaTable outTable = newTable();
+    exportIdentity(outTable);
+    outTable.rawset("__delta", true);
+    outTable.rawset("__base", (double) version);
+    outTable.rawset("__version", (double) version);
+    return outTable;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Exports all fields of the data as a KahluaTable.
+   *
+   * @return Returns the exported KahluaTable.
+   */
+  private KahluaTable exportData() {
+    KahluaTable outTable = newTable();
     for (Object key : this.data.keySet()) {
       Object value = this.data.get(key);
       value = processValue(value);
@@ -86,15 +196,113 @@ public abstract class LuaTable extends LuaObject {
         outTable.rawset(key, value);
       }
     }
-    // Mark clean as last table is assigned for any further exports
-    // without changes.
-    markClean();
     // Set the name of the object.
     outTable.rawset("__name", getName());
-    // Return the table.
     return outTable;
   }
 
+  /**
+   * (Private Method)
+   *
+   * <p>Sets the identity fields, and the name of the LuaTable, in a delta.
+   *
+   * @param outTable The KahluaTable being exported.
+   */
+  private void exportIdentity(KahluaTable outTable) {
+    for (Object key : this.data.keySet()) {
+      if (isDeltaIdentity(key)) {
+        Object value = processValue(this.data.get(key));
+        if (value != null) {
+          outTable.rawset(key, value);
+        }
+      }
+    }
+    outTable.rawset("__name", getName());
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Refreshes nested LuaTables, and marks the fields holding them as changed if anything
+   * changed inside of them since the last check.
+   */
+  private void updateNestedVersions() {
+    for (Object key : this.data.keySet()) {
+      Object value = this.data.get(key);
+      if (value instanceof LuaTable) {
+        if (value == this) {
+          continue;
+        }
+        LuaTable table = (LuaTable) value;
+        table.onExport();
+        table.updateNestedVersions();
+        if (mapNestedVersions == null) {
+          mapNestedVersions = new HashMap<>();
+        }
+        Integer versionNested = mapNestedVersions.put(key, table.version);
+        if (versionNested != null && versionNested != table.version) {
+          onFieldChanged(key);
+        }
+      } else if (value instanceof LuaObject || value instanceof KahluaTable) {
+        // Changes cannot be detected for other tables. Always send them.
+        onFieldChanged(key);
+      }
+    }
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param recipient The Object recipient of delta exports.
+   * @return Returns the DeltaState for the recipient. If none is stored, or the recipient was reset
+   *     since, a new DeltaState is returned that requires a full export.
+   */
+  private DeltaState getDeltaState(Object recipient) {
+    int generation = getGeneration(recipient);
+    if (mapDeltaStates == null) {
+      mapDeltaStates = new WeakHashMap<>();
+    }
+    DeltaState state = mapDeltaStates.get(recipient);
+    if (state == null || state.generation != generation) {
+      state = new DeltaState(generation);
+      mapDeltaStates.put(recipient, state);
+    }
+    return state;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Records a changed field.
+   *
+   * @param field The Object field that changed.
+   */
+  private void onFieldChanged(Object field) {
+    this.version++;
+    if (isDeltaExport()) {
+      if (mapFieldVersions == null) {
+        mapFieldVersions = new HashMap<>();
+      }
+      mapFieldVersions.put(field, this.version);
+    }
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Records that the data was replaced as a whole. Every recipient of delta exports receives
+   * the full table next.
+   */
+  private void onDataReplaced() {
+    this.versionFull = ++this.version;
+    if (mapFieldVersions != null) {
+      mapFieldVersions.clear();
+    }
+    if (mapNestedVersions != null) {
+      mapNestedVersions.clear();
+    }
+  }
+
   /**
    * Copies data from another LuaObject
    *
@@ -127,6 +335,7 @@ public abstract class LuaTable extends LuaObject {
         }
       }
     }
+    onDataReplaced();
   }
 
   /**
@@ -136,15 +345,20 @@ public abstract class LuaTable extends LuaObject {
    * @param value The Object value to set.
    */
   public void set(String field, Object value) {
+    Object valueOld;
     // All Lua values must be Doubles.
     if (value instanceof Number) {
       // Set the double version of the value;
-      this.data.put(field, ((Number) value).doubleValue());
+      value = ((Number) value).doubleValue();
+      valueOld = this.data.put(field, value);
     } else if (value != null) {
       // Set the raw data.
-      this.data.put(field, value);
+      valueOld = this.data.put(field, value);
     } else {
-      this.data.remove(field);
+      valueOld = this.data.remove(field);
+    }
+    if (valueOld == null ? value != null : !valueOld.equals(value)) {
+      onFieldChanged(field);
     }
   }
 
@@ -155,13 +369,18 @@ public abstract class LuaTable extends LuaObject {
    * @param value The Object value to set.
    */
   public void set(int index, Object value) {
+    Object valueOld;
     // All Lua values must be Doubles.
     if (value instanceof Number) {
       // Set the raw data.
-      this.data.put(index, ((Number) value).doubleValue());
+      value = ((Number) value).doubleValue();
+      valueOld = this.data.put(index, value);
     } else {
       // Set the raw data.
-      this.data.put(index, value);
+      valueOld = this.data.put(index, value);
+    }
+    if (valueOld == null ? value != null : !valueOld.equals(value)) {
+      onFieldChanged(index);
     }
     this.markDirty();
   }
@@ -192,6 +411,7 @@ public abstract class LuaTable extends LuaObject {
   public void wipe() {
     // Initialize the raw data Map.
     data = new HashMap<>();
+    onDataReplaced();
   }
 
   /**
@@ -235,7 +455,73 @@ public abstract class LuaTable extends LuaObject {
     return (String) table.rawget(key);
   }
 
+  /**
+   * @return Returns true if the LuaTable tracks its changed fields to be exported as deltas. By
+   *     default, LuaTables are always exported in full.
+   */
+  public boolean isDeltaExport() {
+    return false;
+  }
+
+  /**
+   * @param key The Object key of a field.
+   * @return Returns true if the field identifies the LuaTable on the recipient's side, and should
+   *     be sent with every delta.
+   */
+  protected boolean isDeltaIdentity(Object key) {
+    return false;
+  }
+
   public void onLoad(KahluaTable table) {}
 
   public void onExport() {}
+
+  /**
+   * Resets what was recorded as sent to a recipient by delta exports. Every LuaTable is sent in
+   * full to the recipient next. This is used when the recipient lost its copies, like after a Lua
+   * reload.
+   *
+   * @param recipient The Object recipient of delta exports.
+   */
+  public static void resetDelta(Object recipient) {
+    synchronized (mapRecipientGenerations) {
+      Integer generation = mapRecipientGenerations.get(recipient);
+      mapRecipientGenerations.put(recipient, generation == null ? 1 : generation + 1);
+    }
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param recipient The Object recipient of delta exports.
+   * @return Returns the current generation of the recipient.
+   */
+  private static int getGeneration(Object recipient) {
+    synchronized (mapRecipientGenerations) {
+      Integer generation = mapRecipientGenerations.get(recipient);
+      return generation == null ? 0 : generation;
+    }
+  }
+
+  /**
+   * Tracks the last version of a LuaTable exported to a recipient.
+   *
+   * @author Jab
+   */
+  private static class DeltaState {
+
+    /** The generation of the recipient the state was created for. */
+    final int generation;
+    /** The last version exported to the recipient. -1 if nothing was exported yet. */
+    int version = -1;
+
+    /**
+     * Main constructor.
+     *
+     * @param generation The generation of the recipient.
+     */
+    DeltaState(int generation) {
+      this.generation = generation;
+    }
+  }
 }
@@ -20,6 +20,8 @@
 
 package sledgehammer.lua;
 
+import java.util.Map;
+
 import se.krka.kahlua.vm.KahluaTable;
 
 /**
@@ -75,6 +77,52 @@ public abstract class Send extends LuaTable {
     return getName();
   }
 
+  /**
+   * Exports the Send for a recipient. The Send itself is always exported in full, as it only
+   * carries the LuaTables being sent. Nested LuaTables that support delta exports are exported as
+   * deltas for the recipient.
+   *
+   * @param recipient The Object recipient of the export, usually a Player.
+   * @return Returns the exported KahluaTable. If the Send carries LuaTables exported as deltas,
+   *     and the recipient already has the current version of all of them, null is returned.
+   */
+  @Override
+  public KahluaTable exportDelta(Object recipient) {
+    if (!isDeltaExport()) {
+      return export();
+    }
+    onExport();
+    Map<Object, Object> data = getData();
+    KahluaTable outTable = newTable();
+    boolean delta = false;
+    boolean changed = false;
+    for (Object key : data.keySet()) {
+      Object value = data.get(key);
+      if (value instanceof LuaTable && ((LuaTable) value).isDeltaExport()) {
+        LuaTable table = (LuaTable) value;
+        delta = true;
+        KahluaTable tableDelta = table.exportDelta(recipient);
+        if (tableDelta != null) {
+          changed = true;
+        } else {
+          tableDelta = table.exportDeltaIdentity();
+        }
+        outTable.rawset(key, tableDelta);
+      } else {
+        value = processValue(value);
+        if (value != null) {
+          outTable.rawset(key, value);
+        }
+      }
+    }
+    // Nothing to send if every LuaTable carried is up to date.
+    if (delta && !changed) {
+      return null;
+    }
+    outTable.rawset("__name", getName());
+    return outTable;
+  }
+
   /**
    * Loads a sent LuaObject as a KahluaTable.
    *
@@ -22,8 +22,11 @@ package sledgehammer.lua.chat;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 import sledgehammer.SledgeHammer;
 import sledgehammer.lua.LuaArray;
@@ -34,14 +37,24 @@ import sledgehammer.lua.core.Player;
 /**
  * Chat LuaTable designed to store ChatMessage entries for a ChatChannel.
  *
+ * <p>The ChatMessages are stored in a fixed-capacity ring buffer, indexed by their unique ID. Once
+ * the history is full, each new ChatMessage replaces the oldest one. Older ChatMessages are served
+ * from the database in pages.
+ *
  * @author Jab
  */
 public class ChatHistory extends LuaTable {
 
-  /** The Maximum amount of messages stored in the ChatChannel's history. */
+  /** The default maximum amount of messages stored in the ChatChannel's history. */
   public static final int MAX_SIZE = 10;
-  /** The LinkedList to store the ChatMessages. */
-  private LinkedList<ChatMessage> listMessages;
+  /** The ring buffer storing the ChatMessages. */
+  private ChatMessage[] messages;
+  /** The Map of the ChatMessages in the ring buffer by their unique ID. */
+  private Map<UUID, ChatMessage> mapMessages;
+  /** The index of the oldest ChatMessage in the ring buffer. */
+  private int head;
+  /** The amount of ChatMessages in the ring buffer. */
+  private int size;
   /** The ChatChannel using this ChatHistory. */
   private ChatChannel chatChannel;
   /** The Send Object to send the ChatMessages. */
@@ -53,17 +66,31 @@ public class ChatHistory extends LuaTable {
    * @param chatChannel The ChatChannel using the history.
    */
   public ChatHistory(ChatChannel chatChannel) {
+    this(chatChannel, MAX_SIZE);
+  }
+
+  /**
+   * Sized constructor.
+   *
+   * @param chatChannel The ChatChannel using the history.
+   * @param maxSize The maximum amount of messages to store in the history.
+   */
+  public ChatHistory(ChatChannel chatChannel, int maxSize) {
     super("ChatHistory");
+    if (maxSize < 0) {
+      throw new IllegalArgumentException("History size cannot be negative: " + maxSize);
+    }
     setChatChannel(chatChannel);
     sendChatMessages = new SendChatMessages(chatChannel.getUniqueId());
-    listMessages = new LinkedList<>();
+    messages = new ChatMessage[maxSize];
+    mapMessages = new HashMap<>();
   }
 
   @Override
   public void onExport() {
     LuaArray<ChatMessage> listChatMessages = new LuaArray<>();
-    for (ChatMessage chatMessage : listMessages) {
-      listChatMessages.add(chatMessage);
+    for (int offset = 0; offset < size; offset++) {
+      listChatMessages.add(getAt(offset));
     }
     String channelIdAsString = getChatChannel().getUniqueId().toString();
     // @formatter:off
@@ -96,21 +123,22 @@ public class ChatHistory extends LuaTable {
    */
   public void addChatMessage(ChatMessage chatMessage, boolean send) {
     if (chatChannel.saveHistory()) {
-      // Make sure the history doesn't already contain the ChatMessage.
-      if (!listMessages.contains(chatMessage)) {
-        // Add the ChatMessage to the history.
-        listMessages.add(chatMessage);
-        // Check if the history is at message capacity.
-        if (listMessages.size() > MAX_SIZE) {
-          // If it is, grab the oldest ChatMessage to the list and delete it.
-          listMessages.removeFirst();
-          // chatMessageRemoved.delete();
-        }
-      }
       // If the ChatMessage is already stored, it does not need to be sent again.
-      else {
+      if (mapMessages.containsKey(chatMessage.getUniqueId())) {
         return;
       }
+      if (messages.length > 0) {
+        if (size == messages.length) {
+          // The history is at message capacity, so the oldest ChatMessage is replaced.
+          mapMessages.remove(messages[head].getUniqueId());
+          messages[head] = chatMessage;
+          head = (head + 1) % messages.length;
+        } else {
+          messages[(head + size) % messages.length] = chatMessage;
+          size++;
+        }
+        mapMessages.put(chatMessage.getUniqueId(), chatMessage);
+      }
     }
     if (send) {
       sendChatMessage(chatMessage);
@@ -126,8 +154,13 @@ public class ChatHistory extends LuaTable {
       Player chatMessagePlayer = chatMessage.getPlayer();
       List<Player> listPlayers = new ArrayList<>();
       if (chatMessagePlayer != null) {
-        for (Player player : chatChannel.getPlayers()) {
-          if (player.isWithinLocalRange(chatMessagePlayer)) {
+        // Only the Players near the sender are tested, using the grid of online Players.
+        List<Player> listPlayersInRange = new ArrayList<>();
+        SledgeHammer.instance
+            .getPlayerManager()
+            .getPlayersInLocalRange(chatMessagePlayer, listPlayersInRange);
+        for (Player player : listPlayersInRange) {
+          if (chatChannel.hasPlayer(player)) {
             listPlayers.add(player);
           }
         }
@@ -138,12 +171,72 @@ public class ChatHistory extends LuaTable {
     }
   }
 
+  /**
+   * @param uniqueId The unique ID of the ChatMessage.
+   * @return Returns the ChatMessage in the history with the unique ID. If the ChatMessage is not in
+   *     the history, null is returned.
+   */
+  public ChatMessage getChatMessage(UUID uniqueId) {
+    return mapMessages.get(uniqueId);
+  }
+
+  /** @return Returns a List of the ChatMessages in the history, from oldest to newest. */
+  public List<ChatMessage> getChatMessages() {
+    List<ChatMessage> listChatMessages = new ArrayList<>(size);
+    for (int offset = 0; offset < size; offset++) {
+      listChatMessages.add(getAt(offset));
+    }
+    return listChatMessages;
+  }
+
+  /**
+   * @param timestamp The timestamp that the ChatMessages are older than.
+   * @param limit The maximum amount of ChatMessages to return.
+   * @return Returns a List of the newest ChatMessages in the history older than the timestamp, from
+   *     oldest to newest.
+   */
+  public List<ChatMessage> getChatMessagesBefore(long timestamp, int limit) {
+    LinkedList<ChatMessage> listChatMessages = new LinkedList<>();
+    for (int offset = size - 1; offset >= 0 && listChatMessages.size() < limit; offset--) {
+      ChatMessage chatMessage = getAt(offset);
+      if (chatMessage.getTimestamp() < timestamp) {
+        listChatMessages.addFirst(chatMessage);
+      }
+    }
+    return listChatMessages;
+  }
+
   /** Clears the history, removing and deleting all the ChatMessages from the database. */
   public void clear() {
-    for (ChatMessage chatMessage : listMessages) {
-      chatMessage.delete();
+    for (int offset = 0; offset < size; offset++) {
+      getAt(offset).delete();
     }
-    listMessages.clear();
+    for (int index = 0; index < messages.length; index++) {
+      messages[index] = null;
+    }
+    mapMessages.clear();
+    head = 0;
+    size = 0;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param offset The offset from the oldest ChatMessage in the ring buffer.
+   * @return Returns the ChatMessage at the offset.
+   */
+  private ChatMessage getAt(int offset) {
+    return messages[(head + offset) % messages.length];
+  }
+
+  /** @return Returns the amount of ChatMessages in the history. */
+  public int size() {
+    return this.size;
+  }
+
+  /** @return Returns the maximum amount of messages stored in the history. */
+  public int getMaxSize() {
+    return this.messages.length;
   }
 
   /** @return Returns the ChatChannel using the ChatHistory. */
@@ -0,0 +1,99 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+
+package sledgehammer.lua.chat.request;
+
+import java.util.Collection;
+import java.util.UUID;
+
+import sledgehammer.lua.LuaArray;
+import sledgehammer.lua.LuaTable;
+import sledgehammer.lua.chat.ChatMessage;
+
+/**
+ * Request LuaTable for a page of older ChatMessages of a ChatChannel.
+ *
+ * <p>Exports a LuaTable: { - "channel_id": (String) The Unique ID of the ChatChannel. - "messages":
+ * (LuaArray) The ChatMessages, from oldest to newest. - "has_more": (Boolean) True if there are
+ * older ChatMessages to request. }
+ *
+ * @author Jab
+ */
+public class RequestChatHistoryPage extends LuaTable {
+
+  /** The LuaArray of ChatMessages in the page. */
+  private LuaArray<ChatMessage> listChatMessages;
+  /** The Unique ID of the ChatChannel of the page. */
+  private UUID channelId;
+  /** Flag for if there are older ChatMessages than the page. */
+  private boolean hasMore;
+
+  /**
+   * Main constructor.
+   *
+   * @param channelId The Unique ID of the ChatChannel of the page. Null if the requested Unique ID
+   *     is not valid.
+   */
+  public RequestChatHistoryPage(UUID channelId) {
+    super("RequestChatHistoryPage");
+    this.channelId = channelId;
+    listChatMessages = new LuaArray<>();
+  }
+
+  @Override
+  public void onExport() {
+    UUID channelId = getChannelId();
+    if (channelId != null) {
+      set("channel_id", channelId.toString());
+    }
+    set("messages", listChatMessages);
+    set("has_more", hasMore());
+  }
+
+  /**
+   * Adds ChatMessages to the page. The ChatMessages are to be added from oldest to newest.
+   *
+   * @param collectionChatMessages The Collection of ChatMessages to add.
+   */
+  public void addChatMessages(Collection<ChatMessage> collectionChatMessages) {
+    for (ChatMessage chatMessage : collectionChatMessages) {
+      listChatMessages.add(chatMessage);
+    }
+  }
+
+  /** @return Returns the Unique ID of the ChatChannel of the page. */
+  public UUID getChannelId() {
+    return this.channelId;
+  }
+
+  /** @return Returns true if there are older ChatMessages than the page. */
+  public boolean hasMore() {
+    return this.hasMore;
+  }
+
+  /**
+   * Sets the flag for if there are older ChatMessages than the page.
+   *
+   * @param hasMore The flag to set.
+   */
+  public void setHasMore(boolean hasMore) {
+    this.hasMore = hasMore;
+  }
+}
@@ -38,6 +38,7 @@ import sledgehammer.lua.chat.ChatChannel;
 import sledgehammer.lua.chat.ChatMessage;
 import sledgehammer.lua.permissions.PermissionGroup;
 import sledgehammer.lua.permissions.PermissionUser;
+import sledgehammer.manager.PlayerManager;
 import sledgehammer.module.chat.ModuleChat;
 import zombie.characters.IsoPlayer;
 import zombie.core.raknet.UdpConnection;
@@ -141,16 +142,7 @@ public class Player extends MongoLuaObject<MongoPlayer> {
     setUsername(username);
     // Tries to get a Player instance. Returns null if invalid.
     setIso(SledgeHammer.instance.getIsoPlayerDirty(username));
-    // Go through each connection.
-    for (UdpConnection conn : SledgeHammer.instance.getConnections()) {
-      // If the user-name on the UdpConnection instance matches,
-      if (conn.username != null && conn.username.equalsIgnoreCase(username)) {
-        // Set this connection as the instance of the Player.
-        setConnection(conn);
-        // Break out of the loop to save computation time.
-        break;
-      }
-    }
+    setConnection(findConnection(username));
     setPosition(new Vector3f(0, 0, 0));
     setMetaPosition(new Vector2f(0, 0));
   }
@@ -189,6 +181,16 @@ public class Player extends MongoLuaObject<MongoPlayer> {
     // @formatter:on
   }
 
+  @Override
+  public boolean isDeltaExport() {
+    return true;
+  }
+
+  @Override
+  protected boolean isDeltaIdentity(Object key) {
+    return "id".equals(key);
+  }
+
   @Override
   public void setMongoDocument(MongoPlayer mongoPlayer) {
     if (mongoPlayer == null) return;
@@ -754,7 +756,12 @@ public class Player extends MongoLuaObject<MongoPlayer> {
    * @param nickname The String nickname to set.
    */
   public void setNickname(String nickname) {
+    String nicknameOld = getNickname();
     this.nickname = nickname;
+    PlayerManager managerPlayer = SledgeHammer.instance.getPlayerManager();
+    if (managerPlayer != null) {
+      managerPlayer.updateNickname(this, nicknameOld);
+    }
   }
 
   /** @return Returns the String account user-name the Player registered for the PZ server. */
@@ -806,7 +813,15 @@ public class Player extends MongoLuaObject<MongoPlayer> {
    * @param connection The native UdpConnection Object to set.
    */
   public void setConnection(UdpConnection connection) {
+    UdpConnection connectionOld = this.connection;
     this.connection = connection;
+    if (connectionOld == connection || SledgeHammer.instance == null) {
+      return;
+    }
+    PlayerManager managerPlayer = SledgeHammer.instance.getPlayerManager();
+    if (managerPlayer != null) {
+      managerPlayer.updateConnection(this, connectionOld, connection);
+    }
   }
 
   /**
@@ -841,9 +856,15 @@ public class Player extends MongoLuaObject<MongoPlayer> {
    *     given String user-name, null is returned.
    */
   public static UdpConnection findConnection(String username) {
+    // Online Players already know their connection.
+    PlayerManager managerPlayer = SledgeHammer.instance.getPlayerManager();
+    Player player = managerPlayer != null ? managerPlayer.getPlayer(username) : null;
+    if (player != null && player.connection != null) {
+      return player.connection;
+    }
     UdpConnection returned = null;
     for (UdpConnection connectionNext : SledgeHammer.instance.getConnections()) {
-      if (connectionNext.username.equalsIgnoreCase(username)) {
+      if (username.equalsIgnoreCase(connectionNext.username)) {
         returned = connectionNext;
         break;
       }
@@ -0,0 +1,86 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+
+package sledgehammer.lua.core.request;
+
+import java.util.List;
+
+import se.krka.kahlua.vm.KahluaTable;
+import sledgehammer.lua.LuaArray;
+import sledgehammer.lua.LuaTable;
+
+/**
+ * LuaTable that handles the ModuleCore client-request for completing a partial command.
+ *
+ * @author Jab
+ */
+public class RequestCommandCompletions extends LuaTable {
+
+  /** The String partial command to complete. */
+  private String prefix;
+  /** The List of completed command paths. */
+  private List<String> listCompletions;
+
+  /** Main constructor. */
+  public RequestCommandCompletions() {
+    super("requestCommandCompletions");
+  }
+
+  @Override
+  public void onLoad(KahluaTable table) {
+    // (Note: Completions will only be authored by the server.)
+    throw new IllegalStateException(
+        "RequestCommandCompletions objects cannot be loaded from Lua.");
+  }
+
+  @Override
+  public void onExport() {
+    set("prefix", getPrefix());
+    set("completions", new LuaArray<>(getCompletions()));
+  }
+
+  /** @return Returns the String partial command to complete. */
+  public String getPrefix() {
+    return this.prefix;
+  }
+
+  /**
+   * Sets the String partial command to complete.
+   *
+   * @param prefix The String to set.
+   */
+  public void setPrefix(String prefix) {
+    this.prefix = prefix;
+  }
+
+  /** @return Returns the List of completed command paths. */
+  public List<String> getCompletions() {
+    return this.listCompletions;
+  }
+
+  /**
+   * Sets the List of completed command paths.
+   *
+   * @param listCompletions The List to set.
+   */
+  public void setCompletions(List<String> listCompletions) {
+    this.listCompletions = listCompletions;
+  }
+}
@@ -38,6 +38,13 @@ public class SendLua extends Send {
 
   /** The string of the lua code to send to the Player. */
   private String luaString;
+  /**
+   * The StringBuilder holding appended Lua code, until the String is requested. This avoids
+   * copying the whole String for every append.
+   */
+  private StringBuilder luaBuilder;
+  /** The String hash identifying the version of the Lua code. (Optional) */
+  private String luaHash;
   /** The Player to associate with the SendLua instance. (Optional) */
   private Player player;
 
@@ -77,6 +84,7 @@ public class SendLua extends Send {
   public void onExport() {
     // @formatter:off
     set("lua", getLuaString());
+    set("hash", getLuaHash());
     set("player", getPlayer());
     // @formatter:on
   }
@@ -89,7 +97,7 @@ public class SendLua extends Send {
    * @param luaFiles The Lua Files to digest.
    */
   public void setLuaFiles(File... luaFiles) {
-    this.luaString = packageLuaFiles(luaFiles);
+    setLuaString(packageLuaFiles(luaFiles));
   }
 
   /**
@@ -98,12 +106,7 @@ public class SendLua extends Send {
    * @param luaFiles The Lua Files to digest.
    */
   public void appendLuaFiles(File... luaFiles) {
-    String lua = packageLuaFiles(luaFiles);
-    if (luaString == null || luaString.isEmpty()) {
-      luaString = lua;
-    } else {
-      luaString += " " + lua;
-    }
+    appendLuaString(packageLuaFiles(luaFiles));
   }
 
   /**
@@ -120,16 +123,33 @@ public class SendLua extends Send {
       System.err.println("SendLua provided is empty and cannot be appended.");
       return;
     }
-    if (this.luaString == null || this.luaString.isEmpty()) {
-      this.luaString = luaString;
-    } else {
-      this.luaString += " " + luaString;
+    appendLuaString(luaString);
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Appends raw Lua code, separated from the current Lua code with a space.
+   *
+   * @param lua The String of Lua code to append.
+   */
+  private void appendLuaString(String lua) {
+    if (luaBuilder == null) {
+      luaBuilder = new StringBuilder();
+      if (luaString != null) {
+        luaBuilder.append(luaString);
+      }
+    }
+    if (luaBuilder.length() > 0) {
+      luaBuilder.append(' ');
     }
+    luaBuilder.append(lua);
+    this.luaString = null;
   }
 
   /** Resets the SendLua Object to have no Lua code. */
   public void reset() {
-    this.luaString = "";
+    setLuaString("");
   }
 
   /** Sends the Lua code to the Player set. */
@@ -144,6 +164,10 @@ public class SendLua extends Send {
 
   /** @return Returns the raw Lua String of the LuaSend Object. */
   public String getLuaString() {
+    if (luaBuilder != null) {
+      this.luaString = luaBuilder.toString();
+      this.luaBuilder = null;
+    }
     return this.luaString;
   }
 
@@ -153,9 +177,25 @@ public class SendLua extends Send {
    * @param luaString The String to set.
    */
   public void setLuaString(String luaString) {
+    this.luaBuilder = null;
     this.luaString = luaString;
   }
 
+  /** @return Returns the String hash identifying the version of the Lua code, if one is set. */
+  public String getLuaHash() {
+    return this.luaHash;
+  }
+
+  /**
+   * Sets the String hash identifying the version of the Lua code. If the Lua code is not set, the
+   * client runs the Lua code it already has for this hash.
+   *
+   * @param luaHash The String hash to set.
+   */
+  public void setLuaHash(String luaHash) {
+    this.luaHash = luaHash;
+  }
+
   /**
    * @return Returns the Player Object set to pass and reference when building Lua Strings. (Note:
    *     This is optional, and null can be returned. Make sure to set null checks)
@@ -195,15 +235,16 @@ public class SendLua extends Send {
           // Remove lines with only comments.
           if (line.startsWith("--")) continue;
           // If the line has a leading comment, remove it.
-          if (line.contains("--")) {
-            line = line.split("--")[0].trim();
+          int indexComment = line.indexOf("--");
+          if (indexComment != -1) {
+            line = line.substring(0, indexComment).trim();
           }
           // Append everything with spaces to separate lines without
           // semi-colons.
           sb.append(" ");
-          char[] chars = line.toCharArray();
           boolean space = false;
-          for (char charCurrent : chars) {
+          for (int index = 0; index < line.length(); index++) {
+            char charCurrent = line.charAt(index);
             if (!space) {
               if (charCurrent == ' ') {
                 space = true;
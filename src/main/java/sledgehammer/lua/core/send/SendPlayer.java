@@ -29,6 +29,8 @@ import sledgehammer.lua.core.Player;
  *
  * <p>Exports a LuaTable: { - "player": (LuaTable) The Player being sent. }
  *
+ * <p>The Player is exported as a delta of what the recipient last received of the Player.
+ *
  * @author Jab
  */
 // @formatter:on
@@ -56,6 +58,11 @@ public class SendPlayer extends Send {
     set("player", getPlayer());
   }
 
+  @Override
+  public boolean isDeltaExport() {
+    return true;
+  }
+
   /** @return Returns the Player Object to send. */
   public Player getPlayer() {
     return this.player;
@@ -33,6 +33,8 @@ public class Node extends LuaTable {
 
   /** The MongoDocumentEntry to store the data. */
   private MongoNode mongoNode;
+  /** The PermissionObject the Node is assigned to, if any. */
+  private PermissionObject<?> permissionObject;
 
   /**
    * MongoDB constructor.
@@ -223,6 +225,27 @@ public class Node extends LuaTable {
    */
   public void setFlag(boolean flag, boolean save) {
     getMongoDocument().setFlag(flag, save);
+    // Invalidate the compiled permissions and cached decisions of the owner.
+    if (permissionObject != null) {
+      permissionObject.onPermissionsChanged();
+    }
+  }
+
+  /** @return Returns the PermissionObject the Node is assigned to. */
+  public PermissionObject<?> getPermissionObject() {
+    return this.permissionObject;
+  }
+
+  /**
+   * (Package Method)
+   *
+   * <p>Sets the PermissionObject the Node is assigned to. This is handled by the PermissionObject
+   * when adding or removing the Node.
+   *
+   * @param permissionObject The PermissionObject to set.
+   */
+  void setPermissionObject(PermissionObject<?> permissionObject) {
+    this.permissionObject = permissionObject;
   }
 
   /** @return Returns the MongoNode document. */
@@ -42,6 +42,13 @@ public class PermissionGroup extends PermissionObject<MongoPermissionGroup> {
 
   private PermissionGroup parentTemporary;
 
+  /** The compiled permissions of the group, with its parents flattened in. */
+  private volatile PermissionTrie trieCompiled;
+  /** The inheritance chain of the group when the permissions were compiled, starting with itself. */
+  private PermissionGroup[] chainCompiled;
+  /** The modification counts of the chain when the permissions were compiled. */
+  private int[] modificationCountsCompiled;
+
   /**
    * Load constructor.
    *
@@ -65,69 +72,93 @@ public class PermissionGroup extends PermissionObject<MongoPermissionGroup> {
 
   @Override
   public boolean hasPermission(String node) {
-    // The flag to return. (If no Nodes are defined from the parent and the group,
-    // the permission is denied)
-    boolean returned = false;
-    // The node to get from the parent, if the group has a parent.
-    Node parentNodeSpecific = null;
-    // The node to get directly from the group, if the node is defined.
-    Node nodeSpecific;
-    // If the group has a parent, grab this one first.
-    if (hasParent()) {
-      // Grab the most specific node that exists from the parent.
-      parentNodeSpecific = getParent().getPermissionNode(node);
-      // If the parent has a node that implicitly defines the node being tested, or
-      // contains an explicit definition, use this first.
-      if (parentNodeSpecific != null) {
-        // Set the value to the flag defined by the node.
-        returned = parentNodeSpecific.getFlag();
-      }
+    return getCompiledPermissions().hasPermission(node);
+  }
+
+  /**
+   * Resolves a node against the compiled permissions of the group, with its parents flattened in.
+   *
+   * @param node The String node to resolve.
+   * @return Returns the resolution of the node. (See {@link PermissionTrie#resolve(String)})
+   */
+  public int resolvePermission(String node) {
+    return getCompiledPermissions().resolve(node);
+  }
+
+  /**
+   * Returns the permissions of the group compiled into a PermissionTrie, with the nodes of every
+   * parent flattened in. Nodes defined by the group override the same nodes defined by a parent.
+   * The trie is compiled again only when the group or one of its parents has changed.
+   *
+   * @return Returns the compiled PermissionTrie.
+   */
+  public PermissionTrie getCompiledPermissions() {
+    PermissionTrie trie = this.trieCompiled;
+    if (trie == null || !isCompiledCurrent()) {
+      trie = compilePermissions();
     }
-    // Next, grab the definition for the group.
-    nodeSpecific = getPermissionNode(node);
-    if (nodeSpecific != null) {
-      // If the parent also defines this permission.
-      if (parentNodeSpecific != null) {
-        // If both the group node and the parent node are the same, then use the group
-        // as this is a more explicit definition to override the group definition.
-        // | OR |
-        // If the group node is a super-node of the group node, this means that the node
-        // for the group overrides the super-node, and also uses the group definition.
-        if (parentNodeSpecific.equals(nodeSpecific)
-            || parentNodeSpecific.isSuperNode(nodeSpecific)) {
-          // Set the group flag as the returned variable.
-          returned = nodeSpecific.getFlag();
-        }
-        // The group node will only be subjected to the parents definition at this point
-        // because the group node is a super-node to the parent, which is more
-        // explicitly defined.
-        else {
-          returned = parentNodeSpecific.getFlag();
-        }
-      }
-      // If the parent does not define it, but the group defines it.
-      else {
-        // Assign the value directly.
-        returned = nodeSpecific.getFlag();
+    return trie;
+  }
+
+  /**
+   * @return Returns true if the inheritance chain of the group, and the permissions of each group
+   *     in it, are the same as when the permissions were last compiled.
+   */
+  private boolean isCompiledCurrent() {
+    PermissionGroup[] chain = this.chainCompiled;
+    int[] modificationCounts = this.modificationCountsCompiled;
+    PermissionGroup group = this;
+    int index = 0;
+    while (group != null && index < chain.length) {
+      if (chain[index] != group
+          || modificationCounts[index] != group.getModificationCount()) {
+        return false;
       }
-    } else {
-      List<Node> listAllPermissionNodes = getAllPermissionNodes();
-      if (listAllPermissionNodes.size() > 0) {
-        Node superNode = null;
-        for (Node permissionNodeNext : listAllPermissionNodes) {
-          if (permissionNodeNext.isSubNode(node)) {
-            if (superNode == null || superNode.isSubNode(permissionNodeNext)) {
-              superNode = permissionNodeNext;
-            }
-          }
-        }
-        if (superNode != null) {
-          returned = superNode.getFlag();
-        }
+      group = group.getParent();
+      index++;
+    }
+    if (index != chain.length) {
+      return false;
+    } else if (group == null) {
+      return true;
+    }
+    // The parents loop back on themselves. This is current if the loop is the same.
+    for (PermissionGroup groupNext : chain) {
+      if (groupNext == group) {
+        return true;
       }
     }
-    // Return the result.
-    return returned;
+    return false;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Compiles the permissions of the group and its parents.
+   *
+   * @return Returns the compiled PermissionTrie.
+   */
+  private synchronized PermissionTrie compilePermissions() {
+    List<PermissionGroup> listChain = new ArrayList<>();
+    PermissionGroup group = this;
+    // Walk up to the root, stopping if the parents loop back on themselves.
+    while (group != null && !listChain.contains(group)) {
+      listChain.add(group);
+      group = group.getParent();
+    }
+    PermissionGroup[] chain = listChain.toArray(new PermissionGroup[listChain.size()]);
+    int[] modificationCounts = new int[chain.length];
+    PermissionTrie.Builder builder = new PermissionTrie.Builder();
+    // Put the root first, so that each child overrides the nodes of its parents.
+    for (int index = chain.length - 1; index >= 0; index--) {
+      modificationCounts[index] = chain[index].getModificationCount();
+      builder.putAll(chain[index]);
+    }
+    PermissionTrie trie = builder.build();
+    this.chainCompiled = chain;
+    this.modificationCountsCompiled = modificationCounts;
+    this.trieCompiled = trie;
+    return trie;
   }
 
   /**
@@ -262,6 +293,7 @@ public class PermissionGroup extends PermissionObject<MongoPermissionGroup> {
    */
   public void setParent(PermissionGroup group, boolean save) {
     this.parent = group;
+    onPermissionsChanged();
     UUID parentId = group != null ? group.getUniqueId() : null;
     getMongoDocument().setParentId(parentId, save);
   }
@@ -273,6 +305,7 @@ public class PermissionGroup extends PermissionObject<MongoPermissionGroup> {
    */
   public void setTemporaryParent(PermissionGroup group) {
     this.parentTemporary = group;
+    onPermissionsChanged();
   }
 
   /** @return Returns true if the PermissionGroup has a parent PermissionGroup. */
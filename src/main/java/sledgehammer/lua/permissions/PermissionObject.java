@@ -42,6 +42,8 @@ public abstract class PermissionObject<M extends MongoUniqueNodeDocument>
 
   /** The Map containing the context permissions. */
   private Map<String, Node> mapPermissionNodes = new HashMap<>();
+  /** Incremented every time the permissions of the object change. Used to invalidate caches. */
+  private volatile int modificationCount;
 
   /**
    * Main constructor.
@@ -351,11 +353,14 @@ public abstract class PermissionObject<M extends MongoUniqueNodeDocument>
     if (mapPermissionNodes.containsKey(node.getNode())) {
       Node nodePrevious = mapPermissionNodes.get(node.getNode());
       nodePrevious.getMongoDocument().setMongoDocument(null);
+      nodePrevious.setPermissionObject(null);
       nodePrevious.setFlag(node.getFlag(), false);
     }
     node.getMongoDocument().setMongoDocument(getMongoDocument());
+    node.setPermissionObject(this);
     getMongoDocument().addNode(node.getMongoDocument(), false);
     mapPermissionNodes.put(node.getNode(), node);
+    onPermissionsChanged();
     if (save) {
       getMongoDocument().save();
     }
@@ -380,10 +385,12 @@ public abstract class PermissionObject<M extends MongoUniqueNodeDocument>
     }
     // If so, remove it from the map first.
     mapPermissionNodes.remove(nodeAsString);
+    onPermissionsChanged();
     // Remove the node formally on the document layer, and save it if the parameter
     // flag to save is passed as true.
     getMongoDocument().removeNode(node.getMongoDocument(), save);
     node.setMongoDocument(null);
+    node.setPermissionObject(null);
   }
 
   /**
@@ -404,9 +411,24 @@ public abstract class PermissionObject<M extends MongoUniqueNodeDocument>
     for (MongoNode mongoNode : mongoDocument.getMongoNodes()) {
       // Create a node container.
       Node node = new Node(mongoNode);
+      node.setPermissionObject(this);
       // Add it to the node map.
       mapPermissionNodes.put(node.getNode(), node);
     }
+    onPermissionsChanged();
+  }
+
+  /**
+   * Marks the permissions of the object as changed, invalidating any compiled permissions or cached
+   * decisions depending on them.
+   */
+  protected void onPermissionsChanged() {
+    modificationCount++;
+  }
+
+  /** @return Returns the amount of times the permissions of the object have changed. */
+  public int getModificationCount() {
+    return this.modificationCount;
   }
 
   /** Saves the MongoDocument for the PermissionObject. */
@@ -0,0 +1,259 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+package sledgehammer.lua.permissions;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compiled, immutable trie of permission nodes, split on their '.' segments.
+ *
+ * <p>A node resolves to the most specific defined node on its path. For example, with the nodes
+ * "core.chat:true" and "core.chat.global:false", the node "core.chat.local" resolves to true, and
+ * "core.chat.global.send" resolves to false. Resolving a node does not allocate, and is O(depth)
+ * of the node being resolved.
+ *
+ * @author Jab
+ */
+public class PermissionTrie {
+
+  /** The resolution returned when no node on the path is defined. */
+  public static final int UNDEFINED = -1;
+
+  /** The empty PermissionTrie. */
+  public static final PermissionTrie EMPTY = new Builder().build();
+
+  /** The root Entry of the trie. */
+  private final Entry root;
+  /** The amount of defined nodes in the trie. */
+  private final int size;
+
+  private PermissionTrie(Entry root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  /**
+   * Resolves a node to the most specific defined node on its path.
+   *
+   * @param node The String node to resolve. The node is matched case-insensitively.
+   * @return Returns the resolution, holding the depth and flag of the most specific defined node.
+   *     If no node is defined on the path, {@link #UNDEFINED} is returned.
+   */
+  public int resolve(String node) {
+    int start = 0;
+    int end = node.length();
+    while (start < end && node.charAt(start) <= ' ') {
+      start++;
+    }
+    while (end > start && node.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    int returned = UNDEFINED;
+    int depth = 0;
+    Entry entry = root;
+    int segmentStart = start;
+    while (segmentStart <= end) {
+      int segmentEnd = node.indexOf('.', segmentStart);
+      if (segmentEnd == -1 || segmentEnd > end) {
+        segmentEnd = end;
+      }
+      entry = entry.get(node, segmentStart, segmentEnd);
+      if (entry == null) {
+        break;
+      }
+      depth++;
+      if (entry.flag != UNDEFINED) {
+        returned = (depth << 1) | entry.flag;
+      }
+      segmentStart = segmentEnd + 1;
+    }
+    return returned;
+  }
+
+  /**
+   * @param node The String node to test.
+   * @return Returns true if the most specific defined node on the path is granted.
+   */
+  public boolean hasPermission(String node) {
+    return isGranted(resolve(node));
+  }
+
+  /** @return Returns the amount of defined nodes in the trie. */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * @param resolution The resolution returned by {@link #resolve(String)}.
+   * @return Returns true if the resolution is defined and granted.
+   */
+  public static boolean isGranted(int resolution) {
+    return resolution != UNDEFINED && (resolution & 1) == 1;
+  }
+
+  /**
+   * @param resolution The resolution returned by {@link #resolve(String)}.
+   * @return Returns the amount of segments of the defined node. If the resolution is undefined, 0
+   *     is returned.
+   */
+  public static int getDepth(int resolution) {
+    return resolution == UNDEFINED ? 0 : resolution >>> 1;
+  }
+
+  /**
+   * Builder for PermissionTries. Nodes that are put later override nodes put earlier, so parents
+   * should be put before their children.
+   *
+   * @author Jab
+   */
+  public static class Builder {
+
+    /** The root of the mutable trie. */
+    private final BuilderEntry root = new BuilderEntry();
+    /** The amount of defined nodes. */
+    private int size;
+
+    /**
+     * Defines a node in the trie. A trailing ".*" is ignored, since a defined node already applies
+     * to every node beneath it.
+     *
+     * @param node The String node to define.
+     * @param flag The flag of the node.
+     * @return Returns the Builder.
+     */
+    public Builder put(String node, boolean flag) {
+      node = node.toLowerCase(Locale.ROOT).trim();
+      if (node.endsWith(".*")) {
+        node = node.substring(0, node.length() - 2);
+      }
+      if (node.isEmpty()) {
+        return this;
+      }
+      BuilderEntry entry = root;
+      int segmentStart = 0;
+      while (segmentStart <= node.length()) {
+        int segmentEnd = node.indexOf('.', segmentStart);
+        if (segmentEnd == -1) {
+          segmentEnd = node.length();
+        }
+        String segment = node.substring(segmentStart, segmentEnd);
+        BuilderEntry child = entry.children.get(segment);
+        if (child == null) {
+          child = new BuilderEntry();
+          entry.children.put(segment, child);
+        }
+        entry = child;
+        segmentStart = segmentEnd + 1;
+      }
+      if (entry.flag == UNDEFINED) {
+        size++;
+      }
+      entry.flag = flag ? 1 : 0;
+      return this;
+    }
+
+    /**
+     * Defines every node of a PermissionObject in the trie.
+     *
+     * @param permissionObject The PermissionObject to define the nodes of.
+     * @return Returns the Builder.
+     */
+    public Builder putAll(PermissionObject<?> permissionObject) {
+      for (Node node : permissionObject.getPermissionNodes()) {
+        put(node.getNode(), node.getFlag());
+      }
+      return this;
+    }
+
+    /** @return Returns the compiled PermissionTrie. */
+    public PermissionTrie build() {
+      return new PermissionTrie(root.compile(), size);
+    }
+  }
+
+  /** Mutable trie entry used while building. */
+  private static class BuilderEntry {
+    final Map<String, BuilderEntry> children = new HashMap<>();
+    int flag = UNDEFINED;
+
+    Entry compile() {
+      int capacity = 2;
+      while (capacity < children.size() * 2) {
+        capacity <<= 1;
+      }
+      String[] keys = new String[capacity];
+      Entry[] entries = new Entry[capacity];
+      for (Map.Entry<String, BuilderEntry> child : children.entrySet()) {
+        String key = child.getKey();
+        int index = spread(key.hashCode()) & (capacity - 1);
+        while (keys[index] != null) {
+          index = (index + 1) & (capacity - 1);
+        }
+        keys[index] = key;
+        entries[index] = child.getValue().compile();
+      }
+      return new Entry(keys, entries, flag);
+    }
+  }
+
+  /** Immutable trie entry, with its children in an open-addressed table. */
+  private static class Entry {
+    final String[] keys;
+    final Entry[] children;
+    final int flag;
+
+    Entry(String[] keys, Entry[] children, int flag) {
+      this.keys = keys;
+      this.children = children;
+      this.flag = flag;
+    }
+
+    /**
+     * @param node The String node containing the segment.
+     * @param start The index of the first character of the segment.
+     * @param end The index after the last character of the segment.
+     * @return Returns the child Entry for the segment. If no child exists, null is returned.
+     */
+    Entry get(String node, int start, int end) {
+      // Hash the segment the same way String.hashCode() hashes the lower-case key.
+      int hash = 0;
+      for (int index = start; index < end; index++) {
+        hash = 31 * hash + Character.toLowerCase(node.charAt(index));
+      }
+      int length = end - start;
+      int mask = keys.length - 1;
+      int index = spread(hash) & mask;
+      String key;
+      while ((key = keys[index]) != null) {
+        if (key.length() == length && key.regionMatches(true, 0, node, start, length)) {
+          return children[index];
+        }
+        index = (index + 1) & mask;
+      }
+      return null;
+    }
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -20,6 +20,8 @@
 
 package sledgehammer.lua.permissions;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
 import se.krka.kahlua.vm.KahluaTable;
@@ -34,6 +36,9 @@ import sledgehammer.lua.core.Player;
  */
 public class PermissionUser extends PermissionObject<MongoPermissionUser> {
 
+  /** The maximum amount of decisions to cache before the cache is cleared. */
+  public static final int MAXIMUM_DECISIONS = 1024;
+
   /**
    * The PermissionGroup that the user is assigned to, if any. If not, the reference will be null.
    */
@@ -41,6 +46,17 @@ public class PermissionUser extends PermissionObject<MongoPermissionUser> {
 
   private PermissionGroup permissionGroupTemporary;
 
+  /** The Map of cached decisions, identified by the String node tested. */
+  private final Map<String, Boolean> mapDecisions = new HashMap<>();
+  /** The compiled permissions of the user, when the decisions were cached. */
+  private PermissionTrie trieDecisions;
+  /** The PermissionGroup of the user, when the decisions were cached. */
+  private PermissionGroup groupDecisions;
+  /** The compiled permissions of the group, when the decisions were cached. */
+  private PermissionTrie trieGroupDecisions;
+  /** The modification count of the user, when the decisions were cached. */
+  private int modificationCountDecisions;
+
   /**
    * Main constructor.
    *
@@ -52,63 +68,66 @@ public class PermissionUser extends PermissionObject<MongoPermissionUser> {
   }
 
   @Override
-  public boolean hasPermission(String node) {
-    // Our returning flag result.
-    boolean returned = false;
-    // This will be the group's returned node for the one requested, if one is
-    // defined.
-    Node nodeGroup = null;
-    // This will be the user's returned node for the one requested, if one is
-    // defined.
-    Node nodeUser;
-    // Get the PermissionGroup associated with the user.
-    PermissionGroup group = getPermissionGroup();
-    // Check and see if the group exists.
+  public synchronized boolean hasPermission(String node) {
+    Map<String, Boolean> mapDecisions = getDecisions();
+    Boolean decision = mapDecisions.get(node);
+    if (decision == null) {
+      decision = resolvePermission(node);
+      if (mapDecisions.size() >= MAXIMUM_DECISIONS) {
+        mapDecisions.clear();
+      }
+      mapDecisions.put(node, decision);
+    }
+    return decision;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Resolves a node against the user and the group the user is assigned to. The most specific
+   * definition has authority. If the user and the group define the same node, the user definition
+   * has authority over the group definition.
+   *
+   * @param node The String node to resolve.
+   * @return Returns true if the node is granted.
+   */
+  private boolean resolvePermission(String node) {
+    int resolutionUser = trieDecisions.resolve(node);
+    int resolutionGroup = PermissionTrie.UNDEFINED;
+    PermissionGroup group = groupDecisions;
     if (group != null) {
-      // If so, then Grab the flag from the group.
-      nodeGroup = group.getClosestPermissionNode(node);
+      resolutionGroup = group.resolvePermission(node);
     }
-    // After the group comes any user-specific settings. This means that if a group
-    // has a true flag for the node in question, and the user has a false flag, then
-    // this means that the user overrides the group flag.
-    //
-    // Grab the closest permission for the user, if one exists.
-    nodeUser = getClosestPermissionNode(node);
-    // If the user has a Node definition affecting the one given
-    if (nodeUser != null) {
-      // If the group also has a definition for this node.
-      if (nodeGroup != null) {
-        // If they are equal, the user has authority over the group definition.
-        // If the user is a sub-node of the most specific node defined for the group,
-        // The user definition also has authority.
-        if (nodeGroup.equals(nodeUser) || nodeUser.isSubNode(nodeGroup)) {
-          // Set the user node's flag as the returned value.
-          returned = nodeUser.getFlag();
-        }
-        // In this situation, the group definition is the most specific, being the
-        // sub-node to the user, so the group node definition has the authority.
-        else {
-          // Set the group node's flag as the returned value.
-          returned = nodeGroup.getFlag();
-        }
-      } else {
-        // Set the user node's flag as the returned value.
-        returned = nodeUser.getFlag();
-      }
+    if (PermissionTrie.getDepth(resolutionGroup) > PermissionTrie.getDepth(resolutionUser)) {
+      return PermissionTrie.isGranted(resolutionGroup);
     }
-    // In this situation, the user has no node defined for the one requested.
-    else {
-      // If the group has a definition for the node, while the user does not.
-      // This should be the most common result, as user-specific permissions
-      // are not the best practice for permissions, although it is reserved for
-      // special instances or rare occasions.
-      if (nodeGroup != null) {
-        // Set the group node's flag as the returned value.
-        returned = nodeGroup.getFlag();
-      }
+    return PermissionTrie.isGranted(resolutionUser);
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Returns the cached decisions for the user. The cache is cleared when the permissions of the
+   * user change, when the user is assigned a different group, or when the compiled permissions of
+   * the group change.
+   *
+   * @return Returns the Map of cached decisions, identified by the String node tested.
+   */
+  private Map<String, Boolean> getDecisions() {
+    PermissionGroup group = getPermissionGroup();
+    PermissionTrie trieGroup = group != null ? group.getCompiledPermissions() : null;
+    int modificationCount = getModificationCount();
+    if (trieDecisions == null
+        || group != groupDecisions
+        || trieGroup != trieGroupDecisions
+        || modificationCount != modificationCountDecisions) {
+      mapDecisions.clear();
+      trieDecisions = new PermissionTrie.Builder().putAll(this).build();
+      groupDecisions = group;
+      trieGroupDecisions = trieGroup;
+      modificationCountDecisions = modificationCount;
     }
-    // Return the result flag.
-    return returned;
+    return mapDecisions;
   }
 
   @Override
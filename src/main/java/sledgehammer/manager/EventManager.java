@@ -29,6 +29,7 @@ import sledgehammer.event.CommandEvent;
 import sledgehammer.event.ThrowableEvent;
 import sledgehammer.command.CommandHandlerComparator;
 import sledgehammer.command.CommandHandlerContainer;
+import sledgehammer.command.CommandTrie;
 import sledgehammer.interfaces.Cancellable;
 import sledgehammer.lua.core.Player;
 import sledgehammer.util.ClassUtil;
@@ -39,6 +40,8 @@ import zombie.core.raknet.UdpConnection;
 
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This manager handles the Events fired in the Sledgehammer Engine, and Craftboid.
@@ -50,8 +53,27 @@ public class EventManager extends Manager {
   private EventHandlerComparator comparatorEventHandlers;
   private CommandHandlerComparator comparatorCommandHandlers;
 
+  /** The empty dispatch table, returned for Events with no registered EventHandlers. */
+  private static final EventHandlerContainer[] EMPTY_DISPATCH = new EventHandlerContainer[0];
+
   private Map<Class<? extends Event>, LinkedList<EventHandlerContainer>> mapEventHandlers;
+  /**
+   * The resolved, priority-sorted dispatch tables for each concrete Event class. Each table merges
+   * the EventHandlers registered for the class with those registered for its super-classes and
+   * interfaces. Tables are resolved lazily on the first dispatch of an Event class and are cleared
+   * when EventHandlers are registered or unregistered. Event classes without any EventHandlers are
+   * stored with an empty table, so that they are not resolved again. The arrays stored are never
+   * modified, allowing handleEvent() to walk the table without copying or locking.
+   */
+  private Map<Class<? extends Event>, EventHandlerContainer[]> mapEventDispatch;
+
   private Map<String, LinkedList<CommandHandlerContainer>> mapCommandHandlers;
+  /** The trie of registered command paths, used to route commands. */
+  private CommandTrie commandTrie;
+  /** The executor invoking asynchronous EventHandlers. */
+  private EventHandlerExecutor eventHandlerExecutor;
+  /** The callback for asynchronous EventHandlers that fail. */
+  private EventHandlerExecutor.Callback callbackAsync;
 
   @Override
   public void onLoad(boolean debug) {
@@ -59,8 +81,24 @@ public class EventManager extends Manager {
     comparatorCommandHandlers = new CommandHandlerComparator();
     // Create Handler Maps. @formatter:off
     mapEventHandlers = new HashMap<>();
+    mapEventDispatch = new ConcurrentHashMap<>();
     mapCommandHandlers = new HashMap<>();
+    commandTrie = new CommandTrie(comparatorCommandHandlers);
     // @formatter:on
+    eventHandlerExecutor =
+        new EventHandlerExecutor(
+            EventHandlerExecutor.DEFAULT_THREADS, EventHandlerExecutor.DEFAULT_QUEUE_CAPACITY);
+    callbackAsync =
+        new EventHandlerExecutor.Callback() {
+          @Override
+          public void onThrown(EventHandlerContainer container, Throwable throwable) {
+            if (Settings.getInstance().isDebug()) {
+              errln("The asynchronous EventHandler failed to execute: " + container.toString());
+              errln("The EventHandler is now disabled.");
+            }
+            handleThrown(throwable);
+          }
+        };
   }
 
   @Override
@@ -70,8 +108,22 @@ public class EventManager extends Manager {
     }
   }
 
+  @Override
+  public void onUpdate() {
+    // Handle the asynchronous EventHandlers that failed on the game thread.
+    eventHandlerExecutor.dispatchFailures();
+  }
+
   @Override
   public void onShutDown() {
+    // Give queued asynchronous EventHandlers the chance to complete.
+    if (!eventHandlerExecutor.shutdown(5L, TimeUnit.SECONDS)) {
+      errln(
+          "Asynchronous EventHandlers did not complete in time. ("
+              + eventHandlerExecutor.getQueueDepth()
+              + " queued)");
+    }
+    eventHandlerExecutor.dispatchFailures();
     reset();
   }
 
@@ -92,15 +144,25 @@ public class EventManager extends Manager {
     if (event == null) {
       throw new IllegalArgumentException("Event given is null.");
     }
-    LinkedList<EventHandlerContainer> listContainers = getEventHandlers(event);
-    if (listContainers != null) {
-      // Copy the array to prevent ConcurrentModificationExceptions.
-      listContainers = new LinkedList<>(listContainers);
-      for (EventHandlerContainer container : listContainers) {
+    // The dispatch table is immutable, so registrations during the handling of the Event will not
+    // cause ConcurrentModificationExceptions.
+    EventHandlerContainer[] containers = getEventDispatchTable(event.getClass());
+    // If nothing listens to the Event, and the Event would not be logged, return immediately.
+    if (containers.length == 0 && (!log || !hasEventHandlers(LogEvent.class))) {
+      return event;
+    }
+    if (containers.length > 0) {
+      boolean hasAsync = false;
+      for (EventHandlerContainer container : containers) {
         // Make sure the EventHandler is enabled to handle events.
         if (!container.isEnabled()) {
           continue;
         }
+        // Asynchronous EventHandlers are queued after all synchronous EventHandlers are invoked.
+        if (container.isAsync()) {
+          hasAsync = true;
+          continue;
+        }
         // If the Event is cancelled and the EventHandler does not handle cancelled
         // events, do
         // not invoke it.
@@ -125,10 +187,15 @@ public class EventManager extends Manager {
           handleThrown(throwable);
         }
       }
+      if (hasAsync) {
+        dispatchAsync(event, containers);
+      }
     }
     // Make sure that we do not try to Log a ThrowableEvent or Log a LogEvent. Make sure that
-    // a logged message is present, and that the event is not cancelled.
+    // a logged message is present, and that the event is not cancelled. If nothing listens to
+    // LogEvents, the LogEvent is not created.
     if (log
+        && hasEventHandlers(LogEvent.class)
         && !(event instanceof LogEvent)
         && !(event instanceof ThrowableEvent)
         && (!(event instanceof Cancellable) || !((Cancellable) event).isCancelled())
@@ -140,6 +207,32 @@ public class EventManager extends Manager {
     return event;
   }
 
+  /**
+   * (Private Method)
+   *
+   * <p>Queues the Event for the asynchronous EventHandlers in the dispatch table given. The
+   * cancelled state of the Event is checked after all synchronous EventHandlers are invoked.
+   *
+   * @param event The Event to handle.
+   * @param containers The dispatch table for the Event.
+   */
+  private void dispatchAsync(Event event, EventHandlerContainer[] containers) {
+    for (EventHandlerContainer container : containers) {
+      if (!container.isAsync() || !container.isEnabled()) {
+        continue;
+      }
+      if (!container.ignoreCancelled() && (event instanceof Cancellable)) {
+        if (((Cancellable) event).isCancelled()) {
+          continue;
+        }
+      }
+      if (!eventHandlerExecutor.submit(container, event, callbackAsync)
+          && Settings.getInstance().isDebug()) {
+        errln("Asynchronous EventHandler queue is full. Event dropped for: " + container);
+      }
+    }
+  }
+
   /**
    * Handles a Command by packaging it as a CommandEvent and handling the Event, then logging it.
    *
@@ -182,52 +275,44 @@ public class EventManager extends Manager {
     }
     boolean deniedOnce = false;
     boolean handledOnce = false;
-    String raw = command.getRaw().toLowerCase().trim();
-    String[] split = raw.split(" ");
-    for (int index = split.length - 1; index >= 0; index--) {
-      StringBuilder stringBuilder = new StringBuilder();
-      int subIndex = 0;
-      do {
-        stringBuilder.append(" ").append(split[subIndex++]);
-      } while (subIndex <= index);
-      String commandSearch = stringBuilder.toString().trim().replace("\"", "");
-      LinkedList<CommandHandlerContainer> listContainers = mapCommandHandlers.get(commandSearch);
+    String raw = command.getRaw();
+    // Route the command to the longest registered command path. If none of the handlers of the
+    // path are enabled, fall back to the next shorter path.
+    CommandTrie.Node node = commandTrie.match(raw);
+    while (node != null) {
       boolean found = false;
-      if (listContainers != null) {
-        // Copy the array to prevent ConcurrentModificationExceptions.
-        listContainers = new LinkedList<>(listContainers);
-        for (CommandHandlerContainer container : listContainers) {
-          if (!container.isEnabled()) {
-            continue;
-          }
-          found = true;
-          String[] permissionNodes = container.getPermissionNodes();
-          // If the commanding player has permission to the handler, invoke it.
-          if (commander.hasPermission(permissionNodes)) {
-            try {
-              handledOnce = true;
-              container.handleCommand(command, response);
-            } catch (Throwable throwable) {
-              if (Settings.getInstance().isDebug()) {
-                errln("The CommandHandler failed to execute: " + container.toString());
-                errln("The CommandHandler is now disabled.");
-              }
-              container.setEnabled(false);
-              handleThrown(throwable);
+      for (CommandHandlerContainer container : node.getContainers()) {
+        if (!container.isEnabled()) {
+          continue;
+        }
+        found = true;
+        String[] permissionNodes = container.getPermissionNodes();
+        // If the commanding player has permission to the handler, invoke it.
+        if (commander.hasPermission(permissionNodes)) {
+          try {
+            handledOnce = true;
+            container.handleCommand(command, response);
+          } catch (Throwable throwable) {
+            if (Settings.getInstance().isDebug()) {
+              errln("The CommandHandler failed to execute: " + container.toString());
+              errln("The CommandHandler is now disabled.");
             }
-          } else {
-            deniedOnce = true;
-          }
-          // If the command is denied and not handled, then this is due to permission nodes not
-          // being granted. Set the response message to the permission denied message.
-          if (deniedOnce && !handledOnce) {
-            response.deny();
+            container.setEnabled(false);
+            handleThrown(throwable);
           }
+        } else {
+          deniedOnce = true;
         }
-        if(found) {
-          break;
+        // If the command is denied and not handled, then this is due to permission nodes not
+        // being granted. Set the response message to the permission denied message.
+        if (deniedOnce && !handledOnce) {
+          response.deny();
         }
       }
+      if (found) {
+        break;
+      }
+      node = commandTrie.match(raw, node.getDepth() - 1);
     }
     if (isHelp) {
       String responseText = response.getResponse();
@@ -276,7 +361,7 @@ public class EventManager extends Manager {
     Player p =
         connection == null
             ? SledgeHammer.getAdministrator()
-            : SledgeHammer.instance.getPlayer(connection.username);
+            : SledgeHammer.instance.getPlayerByConnection(connection);
     // Create a CommandEvent.
     Command command = new Command(input);
     command.setPlayer(p);
@@ -342,7 +427,7 @@ public class EventManager extends Manager {
    *
    * @param container The CommandHandlerContainer to register.
    */
-  private void register(EventHandlerContainer container) {
+  private synchronized void register(EventHandlerContainer container) {
     // Make sure that the event class is fully registered.
     if (!container.isEnabled()) {
       println("EventHandler is not enabled: " + container.toString());
@@ -368,13 +453,102 @@ public class EventManager extends Manager {
       println("Registered EventHandler: " + container.toString());
     }
     // At this point we know that the handler is valid, and is not already in the list for the
-    // event, so we add it to the list.
-    listContainers.add(container);
-    // In order to maintain priority of event handlers, each addition must follow with a sort.
-    Collections.sort(listContainers, comparatorEventHandlers);
+    // event, so we insert it after every handler with the same or a higher priority. This keeps the
+    // list ordered without re-sorting it on each registration.
+    ListIterator<EventHandlerContainer> iterator = listContainers.listIterator();
+    while (iterator.hasNext()) {
+      if (comparatorEventHandlers.compare(iterator.next(), container) > 0) {
+        iterator.previous();
+        break;
+      }
+    }
+    iterator.add(container);
+    // The EventHandler may handle sub-classes of the Event, so all resolved tables are cleared.
+    mapEventDispatch.clear();
   }
 
-  private void register(CommandHandlerContainer container) {
+  /**
+   * @param classEvent The Class of the Event to handle.
+   * @return Returns the resolved, priority-sorted array of EventHandlers for the Event, including
+   *     EventHandlers registered for super-classes and interfaces of the Event. If no EventHandlers
+   *     are registered, an empty array is returned. The array returned must not be modified.
+   */
+  private EventHandlerContainer[] getEventDispatchTable(Class<? extends Event> classEvent) {
+    EventHandlerContainer[] containers = mapEventDispatch.get(classEvent);
+    if (containers == null) {
+      containers = resolveEventDispatchTable(classEvent);
+    }
+    return containers;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Resolves and caches the dispatch table for the Class of the Event given by merging the
+   * EventHandlers registered for the class, its super-classes, and its interfaces.
+   *
+   * @param classEvent The Class of the Event to resolve.
+   * @return Returns the resolved dispatch table.
+   */
+  private synchronized EventHandlerContainer[] resolveEventDispatchTable(
+      Class<? extends Event> classEvent) {
+    // Another thread may have resolved the table while waiting for the lock.
+    EventHandlerContainer[] containers = mapEventDispatch.get(classEvent);
+    if (containers != null) {
+      return containers;
+    }
+    List<EventHandlerContainer> listContainers = new ArrayList<>();
+    Set<Class<?>> setVisited = new HashSet<>();
+    Class<?> classCurrent = classEvent;
+    while (classCurrent != null && !classCurrent.equals(Object.class)) {
+      addEventHandlers(classCurrent, listContainers, setVisited);
+      classCurrent = classCurrent.getSuperclass();
+    }
+    if (listContainers.isEmpty()) {
+      containers = EMPTY_DISPATCH;
+    } else {
+      // The sort is stable, so EventHandlers of the same priority are invoked starting with the
+      // most specific Event class.
+      Collections.sort(listContainers, comparatorEventHandlers);
+      containers = listContainers.toArray(new EventHandlerContainer[listContainers.size()]);
+    }
+    mapEventDispatch.put(classEvent, containers);
+    return containers;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Adds the EventHandlers registered for the class given and the interfaces it declares.
+   *
+   * @param clazz The Class to add.
+   * @param listContainers The List to add the EventHandlers to.
+   * @param setVisited The Set of classes already added.
+   */
+  private void addEventHandlers(
+      Class<?> clazz, List<EventHandlerContainer> listContainers, Set<Class<?>> setVisited) {
+    if (!setVisited.add(clazz)) {
+      return;
+    }
+    LinkedList<EventHandlerContainer> listRegistered = mapEventHandlers.get(clazz);
+    if (listRegistered != null) {
+      listContainers.addAll(listRegistered);
+    }
+    for (Class<?> classInterface : clazz.getInterfaces()) {
+      addEventHandlers(classInterface, listContainers, setVisited);
+    }
+  }
+
+  /**
+   * @param classEvent The Class of the Event.
+   * @return Returns true if any EventHandlers handle the Event, including EventHandlers registered
+   *     for super-classes and interfaces of the Event.
+   */
+  public boolean hasEventHandlers(Class<? extends Event> classEvent) {
+    return getEventDispatchTable(classEvent).length > 0;
+  }
+
+  private synchronized void register(CommandHandlerContainer container) {
     // Make sure that the event class is fully registered.
     if (!container.isEnabled()) {
       println("CommandHandler is not enabled: " + container.toString());
@@ -406,7 +580,34 @@ public class EventManager extends Manager {
       listContainers.add(container);
       // In order to maintain priority of event handlers, each addition must follow with a sort.
       Collections.sort(listContainers, comparatorCommandHandlers);
+      // Add the command path to the trie used to route commands.
+      commandTrie.add(commandLower, container);
+    }
+  }
+
+  /**
+   * Completes a partial command for a Player. Only commands that the Player has permission to use
+   * are returned.
+   *
+   * @param player The Player completing the command.
+   * @param prefix The String partial command.
+   * @param limit The maximum amount of completions to return.
+   * @return Returns a sorted List of the command paths starting with the prefix given.
+   */
+  public List<String> completeCommand(Player player, String prefix, int limit) {
+    List<String> listCompletions = new ArrayList<>();
+    for (String command : commandTrie.complete(prefix, Integer.MAX_VALUE)) {
+      if (listCompletions.size() >= limit) {
+        break;
+      }
+      for (CommandHandlerContainer container : commandTrie.getContainers(command)) {
+        if (container.isEnabled() && player.hasPermission(container.getPermissionNodes())) {
+          listCompletions.add(command);
+          break;
+        }
+      }
     }
+    return listCompletions;
   }
 
   /**
@@ -415,7 +616,7 @@ public class EventManager extends Manager {
    * @param Listener The listener instance to unregister all handlers registered that identify with
    *     the listener instance.
    */
-  public void unregister(Listener Listener) {
+  public synchronized void unregister(Listener Listener) {
     // Go through all registered Event Classes.
     for (Class<? extends Event> classEvent : new ArrayList<>(mapEventHandlers.keySet())) {
       // Grab the EventHandlers that handle the current Event.
@@ -425,6 +626,7 @@ public class EventManager extends Manager {
         continue;
       }
       // Iterate through all entries for the Event.
+      boolean removed = false;
       Iterator<EventHandlerContainer> iterator = listContainers.iterator();
       while (iterator.hasNext()) {
         EventHandlerContainer container = iterator.next();
@@ -432,13 +634,19 @@ public class EventManager extends Manager {
         // be unregistered from the EventManager.
         if (container.getContainer().equals(Listener)) {
           iterator.remove();
+          removed = true;
         }
       }
       // If the list no longer contains any EventHandlers, then unregister the list.
       if (listContainers.size() == 0) {
         mapEventHandlers.remove(classEvent);
       }
+      // Clear the resolved dispatch tables if any EventHandlers were removed.
+      if (removed) {
+        mapEventDispatch.clear();
+      }
     }
+    eventHandlerExecutor.removeLane(Listener);
   }
 
   /**
@@ -523,7 +731,7 @@ public class EventManager extends Manager {
   }
 
   /** Resets the EventManager by removing all EventHandlers from the registry. */
-  public void reset() {
+  public synchronized void reset() {
     for (Class<? extends Event> classEvent : mapEventHandlers.keySet()) {
       LinkedList<EventHandlerContainer> listContainers = mapEventHandlers.get(classEvent);
       if (listContainers != null) {
@@ -536,10 +744,77 @@ public class EventManager extends Manager {
       }
     }
     mapEventHandlers.clear();
+    mapEventDispatch.clear();
+    mapCommandHandlers.clear();
+    commandTrie.clear();
   }
 
   public String printRegisteredHandlers() {
-    return "EventManager diagnostics:\n" + printEventHandlers("") + printCommandHandlers("") + "\n";
+    return "EventManager diagnostics:\n"
+        + printEventHandlers("")
+        + printCommandHandlers("")
+        + printAsyncEventHandlers("")
+        + "\n";
+  }
+
+  /**
+   * @param prefix The String prefix to print before each line.
+   * @return Returns the queue depth, rejections, and latency of the asynchronous EventHandlers.
+   */
+  public String printAsyncEventHandlers(String prefix) {
+    StringBuilder stringBuilder = new StringBuilder();
+    stringBuilder.append(prefix).append("[Asynchronous EventHandlers]");
+    stringBuilder.append(" queued = ").append(eventHandlerExecutor.getQueueDepth());
+    stringBuilder.append("/").append(eventHandlerExecutor.getQueueCapacity());
+    stringBuilder.append(" rejected = ").append(eventHandlerExecutor.getRejectedCount());
+    stringBuilder.append("\n");
+    String sListener = "Listener";
+    String sMethod = "Method";
+    String sQueued = "Queued";
+    String sInvoked = "Invoked";
+    String sRejected = "Rejected";
+    String sAverage = "Avg (ms)";
+    String sMaximum = "Max (ms)";
+    String sWait = "Wait (ms)";
+    stringBuilder.append(prefix).append("| ");
+    stringBuilder.append(sListener).append(space(sListener, 32));
+    stringBuilder.append(sMethod).append(space(sMethod, 40));
+    stringBuilder.append(sQueued).append(space(sQueued, 12));
+    stringBuilder.append(sInvoked).append(space(sInvoked, 12));
+    stringBuilder.append(sRejected).append(space(sRejected, 12));
+    stringBuilder.append(sAverage).append(space(sAverage, 12));
+    stringBuilder.append(sMaximum).append(space(sMaximum, 12));
+    stringBuilder.append(sWait).append("\n");
+    for (LinkedList<EventHandlerContainer> listContainers : mapEventHandlers.values()) {
+      for (EventHandlerContainer container : listContainers) {
+        if (!container.isAsync()) {
+          continue;
+        }
+        String sContainer = ClassUtil.getClassName(container.getContainer());
+        String sMethodName = container.getMethod().getName();
+        String sQueuedCount = "" + eventHandlerExecutor.getQueueDepth(container.getContainer());
+        String sInvokedCount = "" + container.getInvocationCount();
+        String sRejectedCount = "" + container.getRejectedCount();
+        String sAverageTime = toMillis(container.getAverageInvocationTime());
+        String sMaximumTime = toMillis(container.getMaximumInvocationTime());
+        String sWaitTime = toMillis(container.getAverageQueuedTime());
+        stringBuilder.append(prefix).append("| ");
+        stringBuilder.append(sContainer).append(space(sContainer, 32));
+        stringBuilder.append(sMethodName).append(space(sMethodName, 40));
+        stringBuilder.append(sQueuedCount).append(space(sQueuedCount, 12));
+        stringBuilder.append(sInvokedCount).append(space(sInvokedCount, 12));
+        stringBuilder.append(sRejectedCount).append(space(sRejectedCount, 12));
+        stringBuilder.append(sAverageTime).append(space(sAverageTime, 12));
+        stringBuilder.append(sMaximumTime).append(space(sMaximumTime, 12));
+        stringBuilder.append(sWaitTime).append("\n");
+      }
+    }
+    return stringBuilder.toString();
+  }
+
+  /** @return Returns the executor invoking asynchronous EventHandlers. */
+  public EventHandlerExecutor getEventHandlerExecutor() {
+    return this.eventHandlerExecutor;
   }
 
   public String printEventHandlers(String prefix) {
@@ -689,6 +964,10 @@ public class EventManager extends Manager {
     return stringBuilder.toString();
   }
 
+  private static String toMillis(long nanos) {
+    return String.format("%.3f", nanos / 1000000D);
+  }
+
   private static String createBar(char c, int size) {
     StringBuilder stringBuilder = new StringBuilder();
     for (int index = 0; index < size; index++) {
@@ -21,13 +21,18 @@
 package sledgehammer.manager;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
-import org.lwjgl.input.Mouse;
 import sledgehammer.lua.core.Player;
+import sledgehammer.util.SpatialGrid;
+import sledgehammer.util.SubstringIndex;
+import zombie.characters.IsoPlayer;
+import zombie.core.raknet.UdpConnection;
 
 /**
  * Manager to handle Player data and operations for the Sledgehammer engine.
@@ -38,13 +43,43 @@ public class PlayerManager extends Manager {
 
   /** The String name of the Manager. */
   public static final String NAME = "PlayerManager";
+  /**
+   * The range in tiles, on each axis, used to gather candidates for local chat. The exact check,
+   * UdpConnection.ReleventTo(), accepts positions inside the chunks loaded for the connection: a
+   * grid of IsoChunkMap.ChunkGridWidth (13) chunks of IsoChunkMap.ChunksPerWidth (10) tiles,
+   * centered on the Player, which reaches about 65 tiles on each axis. The range is kept above that
+   * so that the grid never drops a Player that the exact check would accept. If a game build
+   * widens the chunk grid, this value must be raised with it.
+   */
+  public static final float LOCAL_RANGE = 100F;
 
   /** The Map of Players identified by their Unique IDs. */
-  public Map<UUID, Player> mapPlayersByID = new HashMap<>();
-  /** The Map of Players identified by their user-names. */
-  public Map<String, Player> mapPlayersByUsername = new HashMap<>();
+  public ConcurrentMap<UUID, Player> mapPlayersByID = new ConcurrentHashMap<>();
+  /** The Map of Players identified by their user-names, in lower-case. */
+  public ConcurrentMap<String, Player> mapPlayersByUsername = new ConcurrentHashMap<>();
+  /**
+   * The Map of Players identified by their nicknames, in lower-case. When Players share a nickname,
+   * the Player that joined first is mapped.
+   */
+  private ConcurrentMap<String, Player> mapPlayersByNickname = new ConcurrentHashMap<>();
+  /** The Map of Players identified by their native UdpConnection Objects. */
+  private ConcurrentMap<UdpConnection, Player> mapPlayersByConnection = new ConcurrentHashMap<>();
   /** A List of Players online. */
-  public List<Player> listPlayers = new ArrayList<>();
+  public List<Player> listPlayers = new CopyOnWriteArrayList<>();
+  /** The index of online Players by their user-names, for finding user-name fragments. */
+  private SubstringIndex<Player> indexUsernames = new SubstringIndex<>();
+  /** The index of online Players by their nicknames, for finding nickname fragments. */
+  private SubstringIndex<Player> indexNicknames = new SubstringIndex<>();
+  /** The grid of online Players, positioned by their last known location. */
+  private SpatialGrid<Player> gridPlayers = new SpatialGrid<>();
+
+  @Override
+  public void onUpdate() {
+    // The game moves Players without notifying Sledgehammer, so refresh the grid every tick.
+    for (Player player : listPlayers) {
+      updatePosition(player);
+    }
+  }
 
   @Override
   public String getName() {
@@ -62,7 +97,7 @@ public class PlayerManager extends Manager {
    *     String user-name, then null is returned.
    */
   public Player getPlayer(String username) {
-    return mapPlayersByUsername.get(username.toLowerCase());
+    return username != null ? mapPlayersByUsername.get(username.toLowerCase()) : null;
   }
 
   /**
@@ -74,21 +109,75 @@ public class PlayerManager extends Manager {
     return mapPlayersByID.get(uniqueId);
   }
 
+  /**
+   * @param connection The native UdpConnection of the Player.
+   * @return Returns a Player with the given UdpConnection. If no Player identifies with the
+   *     UdpConnection, then null is returned.
+   */
+  public Player getPlayerByConnection(UdpConnection connection) {
+    return connection != null ? mapPlayersByConnection.get(connection) : null;
+  }
+
+  /**
+   * @param nickname The String nickname of the Player. (Non-Case-Sensitive)
+   * @return Returns a Player with the given String nickname. If more than one Player has the
+   *     nickname, the Player that joined first is returned. If no Player has the nickname, then
+   *     null is returned.
+   */
+  public Player getPlayerByNickname(String nickname) {
+    return nickname != null ? mapPlayersByNickname.get(nickname.toLowerCase()) : null;
+  }
+
+  /**
+   * Returns a Player with a given nickname or user-name, or a fragment of that name. User-names are
+   * checked before nicknames. When more than one Player contains the fragment, the Player that
+   * joined first is returned.
+   *
+   * @param nameFragment The String name or fragment of the user-name or nickname of the Player.
+   * @return Returns a Player. If a Player is not identified with the given String fragment, null is
+   *     returned.
+   */
+  public Player getPlayerDirty(String nameFragment) {
+    Player player = getPlayer(nameFragment);
+    if (player == null) {
+      player = getPlayerByNickname(nameFragment);
+    }
+    if (player == null) {
+      player = indexUsernames.find(nameFragment);
+    }
+    if (player == null) {
+      player = indexNicknames.find(nameFragment);
+    }
+    return player;
+  }
+
   /**
    * Adds a Player to the PlayerManager.
    *
    * @param player The Player to add.
    */
-  public void addPlayer(Player player) {
-    if (!listPlayers.contains(player)) {
+  public synchronized void addPlayer(Player player) {
+    if (!indexUsernames.contains(player)) {
       listPlayers.add(player);
     }
     if (!mapPlayersByID.containsKey(player.getUniqueId())) {
       mapPlayersByID.put(player.getUniqueId(), player);
     }
-    if (!mapPlayersByUsername.containsKey(player.getUsername().toLowerCase())) {
-      mapPlayersByUsername.put(player.getUsername().toLowerCase(), player);
+    String username = player.getUsername();
+    if (!mapPlayersByUsername.containsKey(username.toLowerCase())) {
+      mapPlayersByUsername.put(username.toLowerCase(), player);
     }
+    indexUsernames.put(player, username);
+    String nickname = player.getNickname();
+    if (!mapPlayersByNickname.containsKey(nickname.toLowerCase())) {
+      mapPlayersByNickname.put(nickname.toLowerCase(), player);
+    }
+    indexNicknames.put(player, nickname);
+    UdpConnection connection = player.getConnection();
+    if (connection != null) {
+      mapPlayersByConnection.put(connection, player);
+    }
+    updatePosition(player);
   }
 
   /**
@@ -96,15 +185,118 @@ public class PlayerManager extends Manager {
    *
    * @param player The Player to remove.
    */
-  public void removePlayer(Player player) {
-    if (listPlayers.contains(player)) {
-      listPlayers.remove(player);
+  public synchronized void removePlayer(Player player) {
+    listPlayers.remove(player);
+    mapPlayersByID.remove(player.getUniqueId(), player);
+    mapPlayersByUsername.remove(player.getUsername().toLowerCase(), player);
+    if (mapPlayersByNickname.remove(player.getNickname().toLowerCase(), player)) {
+      remapNickname(player.getNickname().toLowerCase());
+    }
+    // The connection may have been cleared, so remove by value.
+    mapPlayersByConnection.values().remove(player);
+    indexUsernames.remove(player);
+    indexNicknames.remove(player);
+    gridPlayers.remove(player);
+  }
+
+  /**
+   * Updates the nickname of a Player in the PlayerManager. This is called when the nickname of the
+   * Player changes. Players not in the PlayerManager are ignored.
+   *
+   * @param player The Player to update.
+   * @param nicknameOld The String nickname the Player had before.
+   */
+  public synchronized void updateNickname(Player player, String nicknameOld) {
+    if (!indexNicknames.contains(player)) {
+      return;
     }
-    if (mapPlayersByID.containsKey(player.getUniqueId())) {
-      mapPlayersByID.remove(player.getUniqueId());
+    if (nicknameOld != null && mapPlayersByNickname.remove(nicknameOld.toLowerCase(), player)) {
+      remapNickname(nicknameOld.toLowerCase());
     }
-    if (mapPlayersByUsername.containsKey(player.getUsername().toLowerCase())) {
-      mapPlayersByUsername.remove(player.getUsername().toLowerCase());
+    String nickname = player.getNickname();
+    if (!mapPlayersByNickname.containsKey(nickname.toLowerCase())) {
+      mapPlayersByNickname.put(nickname.toLowerCase(), player);
     }
+    indexNicknames.put(player, nickname);
+  }
+
+  /**
+   * Updates the connection of a Player in the PlayerManager. This is called when the connection of
+   * the Player is assigned or changed. Players not in the PlayerManager are ignored.
+   *
+   * @param player The Player to update.
+   * @param connectionOld The UdpConnection the Player had before. This can be null.
+   * @param connection The UdpConnection the Player has now. This can be null.
+   */
+  public synchronized void updateConnection(
+      Player player, UdpConnection connectionOld, UdpConnection connection) {
+    if (!indexUsernames.contains(player)) {
+      return;
+    }
+    if (connectionOld != null) {
+      mapPlayersByConnection.remove(connectionOld, player);
+    }
+    if (connection != null) {
+      mapPlayersByConnection.put(connection, player);
+    }
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Maps a nickname to the next online Player that has it, after the Player mapped to it has
+   * left or changed nicknames. Players are checked in the order that they joined.
+   *
+   * @param key The String nickname, in lower-case.
+   */
+  private void remapNickname(String key) {
+    for (Player other : listPlayers) {
+      if (other.getNickname().toLowerCase().equals(key)) {
+        mapPlayersByNickname.putIfAbsent(key, other);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Updates the position of a Player in the grid of online Players. This is called for every
+   * online Player on each update tick, and when the game reports the position of the Player.
+   *
+   * @param player The Player to update.
+   */
+  public void updatePosition(Player player) {
+    IsoPlayer iso = player.getIso();
+    if (iso != null) {
+      gridPlayers.update(player, iso.x, iso.y);
+    }
+  }
+
+  /**
+   * Collects the online Players in local range of a Player. The Player given is included.
+   *
+   * @param player The Player at the center of the range.
+   * @param collection The Collection to add the Players in range to.
+   */
+  public void getPlayersInLocalRange(Player player, Collection<Player> collection) {
+    IsoPlayer iso = player.getIso();
+    if (iso == null) {
+      return;
+    }
+    // Keep the position of the center exact, as it may have moved since the last tick.
+    gridPlayers.update(player, iso.x, iso.y);
+    List<Player> listCandidates = new ArrayList<>();
+    gridPlayers.getInRange(iso.x, iso.y, LOCAL_RANGE, listCandidates);
+    for (Player candidate : listCandidates) {
+      if (candidate.isWithinLocalRange(player)) {
+        collection.add(candidate);
+      }
+    }
+  }
+
+  /**
+   * @return Returns the grid of online Players. Modules can use this for their own range queries.
+   */
+  public SpatialGrid<Player> getPlayerGrid() {
+    return this.gridPlayers;
   }
 }
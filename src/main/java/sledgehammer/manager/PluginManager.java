@@ -21,6 +21,9 @@
 package sledgehammer.manager;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -76,6 +79,14 @@ public class PluginManager extends Manager {
   private File directory;
   /** A <Long> value to store the last time the Plug-in's were updated. */
   private long timeThen;
+  /** The <String> Lua code compiled from every started Module, sent to Players on handshake. */
+  private String luaBundle;
+  /** The <String> hash identifying the version of the compiled Lua code. */
+  private String luaBundleHash;
+  /** The <List> of started Modules that the compiled Lua code was built from, in order. */
+  private List<Module> listLuaBundleModules;
+  /** The <Integer> version of the compiled Lua code. Incremented every time it is rebuilt. */
+  private int luaBundleVersion;
 
   // @formatter:off
   @Override
@@ -105,6 +116,7 @@ public class PluginManager extends Manager {
       listPluginsToStart.add(plugin);
     }
     listPluginsToLoad.clear();
+    invalidateLua();
   }
 
   @Override
@@ -116,6 +128,7 @@ public class PluginManager extends Manager {
       mapPlugins.put(plugin.getPluginName(), plugin);
     }
     listPluginsToStart.clear();
+    invalidateLua();
   }
 
   @Override
@@ -146,6 +159,7 @@ public class PluginManager extends Manager {
       plugin.unloadModules();
     }
     listPluginsToUnload.clear();
+    invalidateLua();
   }
 
   @Override
@@ -271,8 +285,49 @@ public class PluginManager extends Manager {
    * @return Returns a SendLua containing the Lua code in a String format for all started Plug-ins.
    */
   public SendLua getLua(Player player) {
+    return getLua(player, null);
+  }
+
+  /**
+   * Sends a SendLua Object storing the Lua code compiled. If the client already has the current
+   * version of the Lua code, only the hash of the version is sent.
+   *
+   * @param player The Player being sent the Lua code.
+   * @param luaHashClient The String hash of the Lua code the client already has. This can be null.
+   * @return Returns a SendLua containing the Lua code in a String format for all started Plug-ins.
+   */
+  public SendLua getLua(Player player, String luaHashClient) {
     SendLua sendLua = new SendLua(player);
+    synchronized (this) {
+      validateLuaBundle();
+      if (!luaBundleHash.equals(luaHashClient)) {
+        sendLua.setLuaString(luaBundle);
+      }
+      sendLua.setLuaHash(luaBundleHash);
+    }
+    return sendLua;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Compiles the Lua code from every started Module once, and rebuilds it only when it is
+   * invalidated or the started Modules have changed.
+   */
+  private void validateLuaBundle() {
+    List<Module> listModules = new ArrayList<>();
     Plugin pluginSledgehammer = getSledgehammerPlugin();
+    addStartedModules(pluginSledgehammer, listModules);
+    for (Plugin plugin : getPlugins()) {
+      if (!plugin.equals(pluginSledgehammer)) {
+        addStartedModules(plugin, listModules);
+      }
+    }
+    if (luaBundle != null && listModules.equals(listLuaBundleModules)) {
+      return;
+    }
+    long timeStarted = System.nanoTime();
+    SendLua sendLua = new SendLua((Player) null);
     pluginSledgehammer.getLua(sendLua);
     for (Plugin plugin : getPlugins()) {
       if (plugin.equals(pluginSledgehammer)) {
@@ -280,7 +335,67 @@ public class PluginManager extends Manager {
       }
       plugin.getLua(sendLua);
     }
-    return sendLua;
+    String lua = sendLua.getLuaString();
+    luaBundle = lua != null ? lua : "";
+    luaBundleHash = hash(luaBundle);
+    listLuaBundleModules = listModules;
+    luaBundleVersion++;
+    if (DEBUG) {
+      long timeElapsed = (System.nanoTime() - timeStarted) / 1000000L;
+      println(
+          "Compiled Lua bundle version "
+              + luaBundleVersion
+              + " ("
+              + luaBundle.length()
+              + " characters, hash: "
+              + luaBundleHash
+              + ") in "
+              + timeElapsed
+              + " ms.");
+    }
+  }
+
+  private static void addStartedModules(Plugin plugin, List<Module> listModules) {
+    for (Module module : plugin.getStartedModules()) {
+      if (module.isStarted()) {
+        listModules.add(module);
+      }
+    }
+  }
+
+  /**
+   * Invalidates the compiled Lua code, so that it is rebuilt on the next handshake. This is called
+   * when Plug-ins are loaded, started, or stopped.
+   */
+  public synchronized void invalidateLua() {
+    this.luaBundle = null;
+    this.luaBundleHash = null;
+    this.listLuaBundleModules = null;
+  }
+
+  /** @return Returns the version of the compiled Lua code. */
+  public int getLuaBundleVersion() {
+    return this.luaBundleVersion;
+  }
+
+  /**
+   * @param lua The String Lua code to hash.
+   * @return Returns the SHA-1 hash of the Lua code, as a hexadecimal String.
+   */
+  private static String hash(String lua) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      byte[] bytes = digest.digest(lua.getBytes(StandardCharsets.UTF_8));
+      StringBuilder builder = new StringBuilder(bytes.length * 2);
+      for (byte b : bytes) {
+        builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+        builder.append(Character.forDigit(b & 0xF, 16));
+      }
+      return builder.toString();
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-1. Fall back to the String hash.
+      return Integer.toHexString(lua.hashCode()) + ":" + lua.length();
+    }
   }
 
   /** @return Returns the File Object for the directory that Plug-in's are installed. */
@@ -20,75 +20,123 @@
 
 package sledgehammer.manager;
 
-import sledgehammer.SledgeHammer;
 import sledgehammer.plugin.Module;
+import sledgehammer.util.AsyncTask;
 import sledgehammer.util.TickTask;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-/** */
+/**
+ * Manager to schedule and execute TickTasks and AsyncTasks for Modules.
+ *
+ * <p>TickTasks are stored in a hashed timing wheel, by the tick they are due. Each tick only visits
+ * the bucket of the current tick, so TickTasks waiting on a delay cost nothing until they are due.
+ * TickTasks due more than one revolution of the wheel ahead stay in their bucket, and are skipped
+ * until the revolution they are due.
+ *
+ * <p>AsyncTasks run on a pool of background threads. Their results are handed back to the game
+ * thread on the next tick.
+ *
+ * @author Jab
+ */
 public class TaskManager extends Manager {
 
-  private Map<Module, List<TickTask>> mapTickTasks;
-  Map<Module, List<TickTask>> mapTickTasksTemporary;
-  private List<TickTask> listTasksRemove;
+  /** The amount of buckets in the timing wheel. This must be a power of two. */
+  private static final int WHEEL_SIZE = 256;
+  /** The mask to convert a tick to the index of its bucket. */
+  private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+  /** The Map of TickTasks registered to each Module. */
+  private Map<Module, Set<TickTask>> mapTickTasks;
+  /** The Map of the scheduled entries of TickTasks, identified by the TickTask. */
+  private Map<TickTask, Entry> mapEntries;
+  /** The Map of task timings, identified by the Module owning the tasks. */
+  private ConcurrentMap<Module, Timings> mapTimings;
+  /** The AsyncTasks that have finished running, and are waiting to complete on the game thread. */
+  private Queue<AsyncEntry<?>> queueAsyncCompleted;
+  /** The pool of threads running AsyncTasks. */
+  private ExecutorService executorAsync;
+  /** The buckets of the timing wheel. */
+  private List<Entry>[] wheel;
+  /** The empty bucket swapped in for the bucket being executed. */
+  private List<Entry> listBucketSpare;
+  /** The current tick. */
+  private long tick;
 
   @Override
+  @SuppressWarnings("unchecked")
   public void onLoad(boolean bDebug) {
     mapTickTasks = new HashMap<>();
-    mapTickTasksTemporary = new HashMap<>();
-    listTasksRemove = new ArrayList<>();
+    mapEntries = new HashMap<>();
+    mapTimings = new ConcurrentHashMap<>();
+    queueAsyncCompleted = new ConcurrentLinkedQueue<>();
+    wheel = new List[WHEEL_SIZE];
+    for (int index = 0; index < WHEEL_SIZE; index++) {
+      wheel[index] = new ArrayList<>();
+    }
+    listBucketSpare = new ArrayList<>();
+    tick = 0L;
+    int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    executorAsync = Executors.newFixedThreadPool(threads, new AsyncThreadFactory());
   }
 
   @Override
   public void onUpdate() {
-    if (mapTickTasks.size() > 0) {
-      // Copy the current map to avoid concurrence.
-      mapTickTasksTemporary.putAll(mapTickTasks);
-      // Go through each Module List.
-      for (Module module : mapTickTasksTemporary.keySet()) {
-        List<TickTask> listTasks = mapTickTasksTemporary.get(module);
-        // Check if the Module has any registered TickTasks.
-        if (listTasks != null) {
-          // Create a temporary list to avoid concurrence.
-          List<TickTask> listTasksTemporary = new ArrayList<>(listTasks);
-          for (TickTask tickTask : listTasksTemporary) {
-            // If the result of 'runTask()' is false, the TickTask is complete, and needs to be
-            // removed.
-            boolean remove;
-            try {
-              remove = !tickTask.runTask();
-            } catch (Exception e) {
-              remove = true;
-              stackTrace(e);
-            }
-            if (remove) {
-              listTasksRemove.add(tickTask);
-            }
-          }
-          // Remove any TickTasks that are flagged for removal.
-          if (listTasksRemove.size() > 0) {
-            listTasks.removeAll(listTasksRemove);
-            listTasksRemove.clear();
-          }
-          if (listTasks.isEmpty()) {
-            mapTickTasks.remove(module);
-          }
-        }
+    tick++;
+    // Complete the AsyncTasks that finished since the last tick.
+    AsyncEntry<?> asyncEntry;
+    while ((asyncEntry = queueAsyncCompleted.poll()) != null) {
+      asyncEntry.complete();
+    }
+    int index = (int) (tick & WHEEL_MASK);
+    List<Entry> bucket = wheel[index];
+    if (bucket.isEmpty()) {
+      return;
+    }
+    // Swap the bucket out, so TickTasks scheduled while executing do not modify it.
+    wheel[index] = listBucketSpare;
+    for (Entry entry : bucket) {
+      if (entry.cancelled) {
+        continue;
       }
-      mapTickTasksTemporary.clear();
+      // The TickTask is due on a later revolution of the wheel.
+      if (entry.tickDue > tick) {
+        wheel[index].add(entry);
+        continue;
+      }
+      execute(entry);
     }
+    bucket.clear();
+    listBucketSpare = bucket;
   }
 
   @Override
   public void onShutDown() {
-    for (Module module : mapTickTasks.keySet()) {
+    for (Module module : new ArrayList<>(mapTickTasks.keySet())) {
       unregister(module);
     }
     mapTickTasks.clear();
+    mapEntries.clear();
+    for (List<Entry> bucket : wheel) {
+      bucket.clear();
+    }
+    executorAsync.shutdownNow();
+    queueAsyncCompleted.clear();
   }
 
   @Override
@@ -96,13 +144,41 @@ public class TaskManager extends Manager {
     return "TaskManager";
   }
 
+  /**
+   * Cancels all TickTasks registered to a Module.
+   *
+   * @param module The Module to unregister the TickTasks of.
+   */
   public void unregister(Module module) {
-    List<TickTask> listTickTasks = mapTickTasks.get(module);
-    if (listTickTasks != null) {
-      for (TickTask tickTask : listTickTasks) {
-        tickTask.cancel();
+    Set<TickTask> setTickTasks = mapTickTasks.remove(module);
+    if (setTickTasks != null) {
+      for (TickTask tickTask : setTickTasks) {
+        if (tickTask.isAlive()) {
+          tickTask.cancel();
+        }
+        unregister(tickTask);
+      }
+    }
+  }
+
+  /**
+   * Unregisters a TickTask from the TaskManager. This is called when a TickTask is cancelled.
+   *
+   * @param tickTask The TickTask to unregister.
+   */
+  public void unregister(TickTask tickTask) {
+    Entry entry = mapEntries.remove(tickTask);
+    if (entry == null) {
+      return;
+    }
+    // The entry is removed from its bucket when the bucket is next executed.
+    entry.cancelled = true;
+    Set<TickTask> setTickTasks = mapTickTasks.get(entry.module);
+    if (setTickTasks != null) {
+      setTickTasks.remove(tickTask);
+      if (setTickTasks.isEmpty()) {
+        mapTickTasks.remove(entry.module);
       }
-      listTickTasks.clear();
     }
   }
 
@@ -114,13 +190,235 @@ public class TaskManager extends Manager {
    * @param tickTask The TickTask to register.
    */
   public void register(Module module, TickTask tickTask) {
-    List<TickTask> list = mapTickTasks.get(module);
-    if (list == null) {
-      list = new ArrayList<>();
-      mapTickTasks.put(module, list);
+    if (mapEntries.containsKey(tickTask)) {
+      return;
+    }
+    Set<TickTask> set = mapTickTasks.get(module);
+    if (set == null) {
+      set = new LinkedHashSet<>();
+      mapTickTasks.put(module, set);
     }
-    if (!list.contains(tickTask)) {
-      list.add(tickTask);
+    set.add(tickTask);
+    Entry entry = new Entry(module, tickTask);
+    mapEntries.put(tickTask, entry);
+    schedule(entry, tickTask.getDelayTicks());
+  }
+
+  /**
+   * Registers an AsyncTask to run on a background thread.
+   *
+   * @param module The Module to register the AsyncTask.
+   * @param asyncTask The AsyncTask to register.
+   * @param <T> The type of result of the AsyncTask.
+   */
+  public <T> void register(Module module, AsyncTask<T> asyncTask) {
+    executorAsync.execute(new AsyncEntry<>(module, asyncTask));
+  }
+
+  /**
+   * @param module The Module owning the tasks.
+   * @return Returns the timings of the tasks owned by the Module. If the Module has not ran any
+   *     tasks, null is returned.
+   */
+  public Timings getTimings(Module module) {
+    return mapTimings.get(module);
+  }
+
+  /** @return Returns a Map of the timings of tasks, identified by the Module owning the tasks. */
+  public Map<Module, Timings> getTimings() {
+    return Collections.unmodifiableMap(mapTimings);
+  }
+
+  /** @return Returns the amount of TickTasks registered. */
+  public int getTickTaskCount() {
+    return mapEntries.size();
+  }
+
+  /** @return Returns the current tick of the TaskManager. */
+  public long getTick() {
+    return this.tick;
+  }
+
+  private void schedule(Entry entry, int delayTicks) {
+    // A delay of 0 executes on the next tick.
+    entry.tickDue = tick + Math.max(0, delayTicks) + 1L;
+    wheel[(int) (entry.tickDue & WHEEL_MASK)].add(entry);
+  }
+
+  private void execute(Entry entry) {
+    TickTask tickTask = entry.tickTask;
+    long timeStarted = System.nanoTime();
+    boolean again;
+    try {
+      again = tickTask.runTaskDue();
+    } catch (Exception e) {
+      again = false;
+      stackTrace(e);
+    }
+    getOrCreateTimings(entry.module).addTick(System.nanoTime() - timeStarted);
+    // The TickTask may have been cancelled, or registered again, while running.
+    if (entry.cancelled) {
+      return;
+    }
+    if (again) {
+      schedule(entry, tickTask.getDelayTicksTimer());
+    } else {
+      unregister(tickTask);
+    }
+  }
+
+  private Timings getOrCreateTimings(Module module) {
+    Timings timings = mapTimings.get(module);
+    if (timings == null) {
+      timings = new Timings();
+      Timings timingsExisting = mapTimings.putIfAbsent(module, timings);
+      if (timingsExisting != null) {
+        timings = timingsExisting;
+      }
+    }
+    return timings;
+  }
+
+  /**
+   * Accumulates the time spent running the tasks of a Module.
+   *
+   * @author Jab
+   */
+  public static class Timings {
+
+    private final AtomicLong tickTaskRuns = new AtomicLong();
+    private final AtomicLong tickTaskNanos = new AtomicLong();
+    private final AtomicLong asyncTaskRuns = new AtomicLong();
+    private final AtomicLong asyncTaskNanos = new AtomicLong();
+    private final AtomicLong asyncCompleteNanos = new AtomicLong();
+
+    private void addTick(long nanos) {
+      tickTaskRuns.incrementAndGet();
+      tickTaskNanos.addAndGet(nanos);
+    }
+
+    private void addAsync(long nanos) {
+      asyncTaskRuns.incrementAndGet();
+      asyncTaskNanos.addAndGet(nanos);
+    }
+
+    private void addAsyncComplete(long nanos) {
+      asyncCompleteNanos.addAndGet(nanos);
+    }
+
+    /** @return Returns the amount of times TickTasks of the Module ran. */
+    public long getTickTaskRuns() {
+      return tickTaskRuns.get();
+    }
+
+    /** @return Returns the time in nanoseconds spent running TickTasks of the Module. */
+    public long getTickTaskNanos() {
+      return tickTaskNanos.get();
+    }
+
+    /** @return Returns the amount of AsyncTasks of the Module that ran. */
+    public long getAsyncTaskRuns() {
+      return asyncTaskRuns.get();
+    }
+
+    /** @return Returns the time in nanoseconds spent running AsyncTasks on background threads. */
+    public long getAsyncTaskNanos() {
+      return asyncTaskNanos.get();
+    }
+
+    /**
+     * @return Returns the time in nanoseconds spent completing AsyncTasks of the Module on the game
+     *     thread.
+     */
+    public long getAsyncCompleteNanos() {
+      return asyncCompleteNanos.get();
+    }
+
+    /** @return Returns the time in nanoseconds the tasks of the Module spent on the game thread. */
+    public long getGameThreadNanos() {
+      return tickTaskNanos.get() + asyncCompleteNanos.get();
+    }
+
+    @Override
+    public String toString() {
+      return "Timings{tickTasks="
+          + getTickTaskRuns()
+          + " ("
+          + (getTickTaskNanos() / 1000000L)
+          + " ms), asyncTasks="
+          + getAsyncTaskRuns()
+          + " ("
+          + (getAsyncTaskNanos() / 1000000L)
+          + " ms async, "
+          + (getAsyncCompleteNanos() / 1000000L)
+          + " ms completing)}";
+    }
+  }
+
+  /** Schedules a TickTask in the timing wheel. */
+  private static class Entry {
+    final Module module;
+    final TickTask tickTask;
+    long tickDue;
+    boolean cancelled;
+
+    Entry(Module module, TickTask tickTask) {
+      this.module = module;
+      this.tickTask = tickTask;
+    }
+  }
+
+  /** Runs an AsyncTask on a background thread, and completes it on the game thread. */
+  private class AsyncEntry<T> implements Runnable {
+    final Module module;
+    final AsyncTask<T> asyncTask;
+    T result;
+    Exception exception;
+
+    AsyncEntry(Module module, AsyncTask<T> asyncTask) {
+      this.module = module;
+      this.asyncTask = asyncTask;
+    }
+
+    @Override
+    public void run() {
+      if (!asyncTask.isAlive()) {
+        return;
+      }
+      long timeStarted = System.nanoTime();
+      try {
+        result = asyncTask.runAsync();
+      } catch (Exception e) {
+        exception = e;
+      }
+      getOrCreateTimings(module).addAsync(System.nanoTime() - timeStarted);
+      queueAsyncCompleted.add(this);
+    }
+
+    /** Completes the AsyncTask. This is called on the game thread. */
+    void complete() {
+      // Do not hand results to Modules that have unloaded since.
+      if (!module.isLoaded()) {
+        if (asyncTask.isAlive()) {
+          asyncTask.cancel();
+        }
+        return;
+      }
+      long timeStarted = System.nanoTime();
+      asyncTask.complete(result, exception);
+      getOrCreateTimings(module).addAsyncComplete(System.nanoTime() - timeStarted);
+    }
+  }
+
+  /** Creates the daemon threads running AsyncTasks. */
+  private static class AsyncThreadFactory implements ThreadFactory {
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "Sledgehammer-Async-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
     }
   }
 }
@@ -44,7 +44,7 @@ public class ChatEventListener implements Listener {
         channel.removePlayer(player, false);
       }
       SledgehammerDatabase database = SledgeHammer.instance.getDatabase();
-      database.removeMongoPlayer(player.getMongoDocument());
+      database.releaseMongoPlayer(player.getMongoDocument());
     }
   }
 
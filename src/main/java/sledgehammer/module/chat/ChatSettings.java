@@ -22,6 +22,7 @@ package sledgehammer.module.chat;
 
 import sledgehammer.Settings;
 import sledgehammer.event.ThrowableEvent;
+import sledgehammer.lua.chat.ChatHistory;
 import sledgehammer.util.YamlUtil;
 
 import java.io.File;
@@ -36,6 +37,8 @@ public class ChatSettings {
   private Map map;
   private File file;
   private List<ChannelDefinition> listChannelDefinitions;
+  private int historySize = ChatHistory.MAX_SIZE;
+  private int retentionDays = 0;
 
   ChatSettings(ModuleChat module) {
     setModule(module);
@@ -58,6 +61,14 @@ public class ChatSettings {
     if (map.isEmpty()) {
       return;
     }
+    Object oHistorySize = map.get("history-size");
+    if (oHistorySize instanceof Number) {
+      historySize = Math.max(0, ((Number) oHistorySize).intValue());
+    }
+    Object oRetentionDays = map.get("retention-days");
+    if (oRetentionDays instanceof Number) {
+      retentionDays = Math.max(0, ((Number) oRetentionDays).intValue());
+    }
     Map channels = (Map) map.get("channels");
     if (channels != null) {
       try {
@@ -98,14 +109,39 @@ public class ChatSettings {
     saveHistory = saveHistory != null ? saveHistory : false;
     Boolean canSpeak = (Boolean) mapChannel.get("speak");
     canSpeak = canSpeak != null ? canSpeak : true;
+    Number oHistorySize = (Number) mapChannel.get("history-size");
+    int historySize =
+        oHistorySize != null ? Math.max(0, oHistorySize.intValue()) : this.historySize;
     return new ChannelDefinition(
-        channelName, permission, isPublic, isGlobal, saveHistory, canSpeak);
+        channelName, permission, isPublic, isGlobal, saveHistory, canSpeak, historySize);
   }
 
   List<ChannelDefinition> getChannelDefinitions() {
     return this.listChannelDefinitions;
   }
 
+  /**
+   * @param channelName The String name of the ChatChannel.
+   * @return Returns the amount of ChatMessages to keep in the history of the ChatChannel. If the
+   *     ChatChannel is not defined, or does not define a size, the default size is returned.
+   */
+  int getHistorySize(String channelName) {
+    for (ChannelDefinition channelDefinition : listChannelDefinitions) {
+      if (channelDefinition.getName().equalsIgnoreCase(channelName)) {
+        return channelDefinition.getHistorySize();
+      }
+    }
+    return this.historySize;
+  }
+
+  /**
+   * @return Returns the amount of days to keep ChatMessages in the database. If this is 0,
+   *     ChatMessages are kept forever.
+   */
+  int getRetentionDays() {
+    return this.retentionDays;
+  }
+
   ModuleChat getModule() {
     return this.module;
   }
@@ -122,6 +158,7 @@ class ChannelDefinition {
   private boolean isGlobal;
   private boolean saveHistory;
   private boolean canSpeak;
+  private int historySize;
 
   ChannelDefinition(
       String name,
@@ -129,13 +166,15 @@ class ChannelDefinition {
       boolean isPublic,
       boolean isGlobal,
       boolean saveHistory,
-      boolean canSpeak) {
+      boolean canSpeak,
+      int historySize) {
     setName(name);
     setPermission(permission);
     setPublic(isPublic);
     setGlobal(isGlobal);
     setHistory(saveHistory);
     setSpeak(canSpeak);
+    setHistorySize(historySize);
   }
 
   String getName() {
@@ -178,6 +217,14 @@ class ChannelDefinition {
     this.canSpeak = canSpeak;
   }
 
+  int getHistorySize() {
+    return this.historySize;
+  }
+
+  private void setHistorySize(int historySize) {
+    this.historySize = historySize;
+  }
+
   String getPermission() {
     return this.permission;
   }
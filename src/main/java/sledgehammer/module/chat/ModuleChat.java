@@ -23,9 +23,12 @@ package sledgehammer.module.chat;
 import java.io.File;
 import java.util.*;
 
+import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
+import com.mongodb.Cursor;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
+import com.mongodb.MongoException;
 
 import se.krka.kahlua.vm.KahluaTable;
 import sledgehammer.Settings;
@@ -44,6 +47,7 @@ import sledgehammer.lua.chat.ChatHistory;
 import sledgehammer.lua.chat.ChatMessage;
 import sledgehammer.lua.chat.request.RequestChatChannels;
 import sledgehammer.lua.chat.request.RequestChatHistory;
+import sledgehammer.lua.chat.request.RequestChatHistoryPage;
 import sledgehammer.lua.core.Player;
 import sledgehammer.lua.core.send.SendLua;
 import sledgehammer.plugin.MongoModule;
@@ -55,6 +59,11 @@ import sledgehammer.plugin.MongoModule;
  */
 public class ModuleChat extends MongoModule {
 
+  /** The maximum amount of ChatMessages sent in one page of history. */
+  public static final int MAX_HISTORY_PAGE_SIZE = 50;
+  /** The span of time, in milliseconds, of the first window of ChatMessages preloaded. */
+  private static final long HISTORY_WINDOW = 3600000L;
+
   private Map<UUID, ChatChannel> mapChatChannels;
   private LinkedList<ChatChannel> listOrderedChatChannels;
   private LinkedList<ChatChannel> listOrderedDefinedChatChannels;
@@ -87,6 +96,8 @@ public class ModuleChat extends MongoModule {
     SledgehammerDatabase database = getSledgehammerDatabase();
     collectionChannels = database.createMongoCollection("sledgehammer_chat_channels");
     collectionMessages = database.createMongoCollection("sledgehammer_chat_messages");
+    collectionMessages.createIndex(new BasicDBObject("channel_id", 1).append("timestamp", -1));
+    loadRetention();
     loadMongoDocuments();
     verifyCoreChannels();
     loadChannelDefinitions();
@@ -164,6 +175,36 @@ public class ModuleChat extends MongoModule {
       event.respond(request);
       // Let the module know that the player is ready to be sent messages.
       SledgeHammer.instance.handle(new PlayerChatReadyEvent(player));
+    } else if (command.equalsIgnoreCase("requestChatHistoryPage")) {
+      KahluaTable table = event.getTable();
+      Object oChannelId = table.rawget("channel_id");
+      UUID channelId = null;
+      ChatChannel chatChannel = null;
+      try {
+        if (oChannelId != null) {
+          channelId = UUID.fromString(oChannelId.toString());
+          chatChannel = getChatChannel(channelId);
+        }
+      } catch (IllegalArgumentException e) {
+        // Handled below as an unknown ChatChannel.
+      }
+      if (chatChannel == null || !chatChannel.hasAccess(player)) {
+        errln(
+            "Player "
+                + player.getUsername()
+                + " requested the history of an unknown ChatChannel: "
+                + oChannelId);
+        // Respond with an empty page so the client does not wait on the request.
+        event.respond(new RequestChatHistoryPage(channelId));
+        return;
+      }
+      // Without a timestamp, the page starts from the newest ChatMessage.
+      Object oBefore = table.rawget("before");
+      long before = oBefore instanceof Number ? ((Number) oBefore).longValue() : Long.MAX_VALUE;
+      Object oLimit = table.rawget("limit");
+      int limit = oLimit instanceof Number ? ((Number) oLimit).intValue() : MAX_HISTORY_PAGE_SIZE;
+      limit = Math.max(1, Math.min(limit, MAX_HISTORY_PAGE_SIZE));
+      event.respond(getChatHistoryPage(chatChannel, before, limit));
     } else if (command.equalsIgnoreCase("sendChatMessage")) {
       MongoChatMessage mongoChatMessage = new MongoChatMessage(collectionMessages);
       KahluaTable table = (KahluaTable) event.getTable().rawget("message");
@@ -230,6 +271,7 @@ public class ModuleChat extends MongoModule {
               canSpeak);
     }
     chatChannel = new ChatChannel(mongoChatChannel);
+    chatChannel.setHistory(createChatHistory(chatChannel));
     mapChatChannels.put(chatChannel.getUniqueId(), chatChannel);
     listOrderedChatChannels.add(chatChannel);
     mongoChatChannel.save();
@@ -294,6 +336,22 @@ public class ModuleChat extends MongoModule {
     settings.load();
   }
 
+  /**
+   * (Private Method)
+   *
+   * <p>Applies the retention of the chat log in the settings, with a TTL index on the date of the
+   * ChatMessages. ChatMessages saved before the date was stored are kept.
+   */
+  private void loadRetention() {
+    long seconds = settings.getRetentionDays() * 86400L;
+    try {
+      collectionMessages.setTimeToLive("date", seconds);
+    } catch (MongoException e) {
+      errln("Failed to set the retention of chat messages.");
+      stackTrace(e);
+    }
+  }
+
   private void loadMongoDocuments() {
     loadMongoChatChannels();
     loadMongoChatHistories();
@@ -311,18 +369,76 @@ public class ModuleChat extends MongoModule {
     cursor.close();
   }
 
+  /**
+   * (Private Method)
+   *
+   * <p>Loads the latest ChatMessages of every ChatChannel that saves history, in bulk over the
+   * (channel_id, timestamp) index. Each aggregation only reads a window of time, starting from the
+   * newest ChatMessage. ChatChannels with full histories are dropped, and the next window reaches
+   * back twice as far for the rest. The ChatMessages read stay close to the amount kept, and there
+   * is one aggregation for each doubling of the age of the chat log rather than one query for each
+   * ChatChannel.
+   */
   private void loadMongoChatHistories() {
+    Map<UUID, ChatHistory> mapChatHistories = new HashMap<>();
+    // The ChatMessages loaded for each ChatChannel, newest first.
+    Map<UUID, List<ChatMessage>> mapChatMessages = new HashMap<>();
     for (ChatChannel chatChannel : mapChatChannels.values()) {
       // Create the History container.
-      ChatHistory chatHistory = new ChatHistory(chatChannel);
+      ChatHistory chatHistory = createChatHistory(chatChannel);
       chatChannel.setHistory(chatHistory);
-      if (!chatChannel.saveHistory()) {
+      if (!chatChannel.saveHistory() || chatHistory.getMaxSize() == 0) {
         continue;
       }
-      // Grab the chat messages from the message collection for this history.
-      List<ChatMessage> listChatMessages =
-          getChatMessages(chatChannel.getUniqueId(), ChatHistory.MAX_SIZE);
-      chatHistory.addChatMessages(listChatMessages, false);
+      mapChatHistories.put(chatChannel.getUniqueId(), chatHistory);
+      mapChatMessages.put(chatChannel.getUniqueId(), new ArrayList<ChatMessage>());
+    }
+    if (mapChatHistories.isEmpty()) {
+      return;
+    }
+    Set<UUID> setPending = new HashSet<>(mapChatHistories.keySet());
+    Long newest = getChatMessageTimestamp(setPending, -1);
+    Long oldest = getChatMessageTimestamp(setPending, 1);
+    // No ChatMessages to load.
+    if (newest == null || oldest == null) {
+      return;
+    }
+    long before = newest + 1L;
+    long window = HISTORY_WINDOW;
+    while (!setPending.isEmpty()) {
+      long after = before - window;
+      int limit = 0;
+      for (UUID channelId : setPending) {
+        int maxSize = mapChatHistories.get(channelId).getMaxSize();
+        limit = Math.max(limit, maxSize - mapChatMessages.get(channelId).size());
+      }
+      Map<UUID, List<ChatMessage>> mapWindow =
+          getLatestChatMessages(setPending, after, before, limit);
+      for (UUID channelId : mapWindow.keySet()) {
+        List<ChatMessage> listChatMessages = mapChatMessages.get(channelId);
+        int maxSize = mapChatHistories.get(channelId).getMaxSize();
+        for (ChatMessage chatMessage : mapWindow.get(channelId)) {
+          if (listChatMessages.size() >= maxSize) {
+            break;
+          }
+          listChatMessages.add(chatMessage);
+        }
+        if (listChatMessages.size() >= maxSize) {
+          setPending.remove(channelId);
+        }
+      }
+      // The window reached the oldest ChatMessage, so there is nothing left to load.
+      if (after <= oldest) {
+        break;
+      }
+      before = after;
+      window *= 2L;
+    }
+    for (UUID channelId : mapChatHistories.keySet()) {
+      List<ChatMessage> listChatMessages = mapChatMessages.get(channelId);
+      // The ChatMessages are newest first, so add them in reverse.
+      Collections.reverse(listChatMessages);
+      mapChatHistories.get(channelId).addChatMessages(listChatMessages, false);
     }
   }
 
@@ -368,6 +484,7 @@ public class ModuleChat extends MongoModule {
           mongoChatChannel.save();
         }
         chatChannel = new ChatChannel(mongoChatChannel);
+        chatChannel.setHistory(createChatHistory(chatChannel));
       }
       mapChatChannels.put(chatChannel.getUniqueId(), chatChannel);
       listOrderedChatChannels.add(chatChannel);
@@ -401,37 +518,158 @@ public class ModuleChat extends MongoModule {
     return listChatChannels;
   }
 
+  /**
+   * Returns a page of the ChatMessages of a ChatChannel older than a timestamp. The page is served
+   * from the ChatHistory if it holds enough ChatMessages, and from the database otherwise.
+   *
+   * @param chatChannel The ChatChannel to page.
+   * @param before The timestamp that the ChatMessages in the page are older than.
+   * @param limit The maximum amount of ChatMessages in the page.
+   * @return Returns the page of ChatMessages.
+   */
+  public RequestChatHistoryPage getChatHistoryPage(
+      ChatChannel chatChannel, long before, int limit) {
+    RequestChatHistoryPage page = new RequestChatHistoryPage(chatChannel.getUniqueId());
+    if (!chatChannel.saveHistory()) {
+      return page;
+    }
+    // One more ChatMessage than the limit is grabbed to know if there is an older page.
+    List<ChatMessage> listChatMessages =
+        chatChannel.getHistory().getChatMessagesBefore(before, limit + 1);
+    if (listChatMessages.size() <= limit) {
+      listChatMessages = getChatMessages(chatChannel.getUniqueId(), before, limit + 1);
+    }
+    boolean hasMore = listChatMessages.size() > limit;
+    if (hasMore) {
+      listChatMessages = listChatMessages.subList(1, listChatMessages.size());
+    }
+    page.addChatMessages(listChatMessages);
+    page.setHasMore(hasMore);
+    return page;
+  }
+
   /**
    * @param channelId The unique ID of the channel.
+   * @param before The timestamp that the ChatMessages are older than.
    * @param limit The Integer limit of ChatMessages to load.
-   * @return Returns a List of ChatMessages for the ChatChannel.
+   * @return Returns a List of the newest ChatMessages for the ChatChannel older than the
+   *     timestamp, from oldest to newest.
    */
-  private List<ChatMessage> getChatMessages(UUID channelId, int limit) {
-    List<ChatMessage> listChatMessages = new LinkedList<>();
-    // Grab all the messages with the channel_id set to the one provided.
-    DBObject query = new BasicDBObject("channel_id", channelId);
+  private List<ChatMessage> getChatMessages(UUID channelId, long before, int limit) {
+    LinkedList<ChatMessage> listChatMessages = new LinkedList<>();
+    // Grab the messages with the channel_id set to the one provided, older than the timestamp.
+    DBObject query =
+        new BasicDBObject("channel_id", channelId)
+            .append("timestamp", new BasicDBObject("$lt", before));
     DBCursor cursor = collectionMessages.find(query);
     // Sort the list by timestamp so that the last messages appear first.
-    cursor.sort(new BasicDBObject("timestamp", -1));
+    cursor.sort(new BasicDBObject("channel_id", 1).append("timestamp", -1));
     cursor.limit(limit);
-    if (cursor.size() > 0) {
-      List<DBObject> listObjects = cursor.toArray();
-      Collections.reverse(listObjects);
-      for (DBObject object : listObjects) {
+    try {
+      while (cursor.hasNext()) {
         // Create the MongoDocument.
-        MongoChatMessage mongoChatMessage = new MongoChatMessage(collectionMessages, object);
-        // Create the container for the document.
-        ChatMessage chatMessage = new ChatMessage(mongoChatMessage);
-        // Add this to the list to return.
-        listChatMessages.add(chatMessage);
+        MongoChatMessage mongoChatMessage = new MongoChatMessage(collectionMessages, cursor.next());
+        // The messages are newest first, so add them in reverse.
+        listChatMessages.addFirst(new ChatMessage(mongoChatMessage));
       }
+    } finally {
+      // Close the cursor to release resources.
+      cursor.close();
     }
-    // Close the cursor to release resources.
-    cursor.close();
     // Return the result list of messages for the channel.
     return listChatMessages;
   }
 
+  /**
+   * (Private Method)
+   *
+   * <p>Loads the latest ChatMessages in a window of time for a set of ChatChannels in one
+   * aggregation. The ChatMessages are sorted with the (channel_id, timestamp) index, grouped by
+   * ChatChannel, and sliced to the limit.
+   *
+   * @param channelIds The Collection of unique IDs of the ChatChannels.
+   * @param after The timestamp that the ChatMessages are at or newer than.
+   * @param before The timestamp that the ChatMessages are older than.
+   * @param limit The Integer limit of ChatMessages to load for each ChatChannel.
+   * @return Returns a Map of Lists of ChatMessages, from newest to oldest, by the unique ID of
+   *     their ChatChannel. ChatChannels with no ChatMessages in the window are not in the Map.
+   */
+  private Map<UUID, List<ChatMessage>> getLatestChatMessages(
+      Collection<UUID> channelIds, long after, long before, int limit) {
+    Map<UUID, List<ChatMessage>> mapChatMessages = new HashMap<>();
+    BasicDBList listChannelIds = new BasicDBList();
+    listChannelIds.addAll(channelIds);
+    BasicDBList listSlice = new BasicDBList();
+    listSlice.add("$messages");
+    listSlice.add(limit);
+    List<DBObject> pipeline = new ArrayList<>();
+    // @formatter:off
+    pipeline.add(new BasicDBObject("$match",
+        new BasicDBObject("channel_id", new BasicDBObject("$in", listChannelIds))
+            .append("timestamp", new BasicDBObject("$gte", after).append("$lt", before))));
+    pipeline.add(new BasicDBObject("$sort",
+        new BasicDBObject("channel_id", 1).append("timestamp", -1)));
+    pipeline.add(new BasicDBObject("$group",
+        new BasicDBObject("_id", "$channel_id")
+            .append("messages", new BasicDBObject("$push", "$$ROOT"))));
+    pipeline.add(new BasicDBObject("$project",
+        new BasicDBObject("messages", new BasicDBObject("$slice", listSlice))));
+    // @formatter:on
+    Cursor cursor = collectionMessages.aggregate(pipeline);
+    try {
+      while (cursor.hasNext()) {
+        DBObject object = cursor.next();
+        UUID channelId = (UUID) object.get("_id");
+        List<?> listObjects = (List<?>) object.get("messages");
+        List<ChatMessage> listChatMessages = new ArrayList<>();
+        for (Object o : listObjects) {
+          MongoChatMessage mongoChatMessage =
+              new MongoChatMessage(collectionMessages, (DBObject) o);
+          listChatMessages.add(new ChatMessage(mongoChatMessage));
+        }
+        mapChatMessages.put(channelId, listChatMessages);
+      }
+    } finally {
+      cursor.close();
+    }
+    return mapChatMessages;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>The $in on channel_id lets the (channel_id, timestamp) index serve the sort, so only the
+   * first entry of each ChatChannel is read.
+   *
+   * @param channelIds The Collection of unique IDs of the ChatChannels.
+   * @param order 1 for the oldest ChatMessage, -1 for the newest.
+   * @return Returns the timestamp of the oldest or newest ChatMessage of the ChatChannels. If the
+   *     ChatChannels have no ChatMessages, null is returned.
+   */
+  private Long getChatMessageTimestamp(Collection<UUID> channelIds, int order) {
+    BasicDBList listChannelIds = new BasicDBList();
+    listChannelIds.addAll(channelIds);
+    DBObject query = new BasicDBObject("channel_id", new BasicDBObject("$in", listChannelIds));
+    DBCursor cursor = collectionMessages.find(query);
+    cursor.sort(new BasicDBObject("timestamp", order));
+    cursor.limit(1);
+    try {
+      return cursor.hasNext() ? (Long) cursor.next().get("timestamp") : null;
+    } finally {
+      cursor.close();
+    }
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param chatChannel The ChatChannel to create the ChatHistory for.
+   * @return Returns a new ChatHistory for the ChatChannel, sized by the chat settings.
+   */
+  private ChatHistory createChatHistory(ChatChannel chatChannel) {
+    return new ChatHistory(chatChannel, settings.getHistorySize(chatChannel.getChannelName()));
+  }
+
   /**
    * (Private Method)
    *
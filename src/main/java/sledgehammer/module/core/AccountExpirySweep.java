@@ -0,0 +1,236 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+package sledgehammer.module.core;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import sledgehammer.SledgeHammer;
+import sledgehammer.database.module.core.MongoPlayer;
+import sledgehammer.database.module.core.SledgehammerDatabase;
+import sledgehammer.util.Printable;
+import zombie.network.ServerWorldDatabase;
+
+/**
+ * Sweep removing the accounts of players who have not connected for longer than the idle expire
+ * time.
+ *
+ * <p>The expired accounts are found off of the game thread, with a range query on the indexed
+ * 'timeConnectedLast' field. Only the accounts that expired since the previous sweep are queried.
+ * The removals are applied on the game thread in batches, through applyRemovals(). Since players
+ * can connect between the query and the removal, each account of a batch is checked again before
+ * it is removed.
+ *
+ * @author Jab
+ */
+class AccountExpirySweep extends Printable implements Runnable {
+
+  /** The database to query. */
+  private final SledgehammerDatabase database;
+  /** The user-names excluded from expiring, in lower-case. */
+  private final Set<String> setExclusions = new HashSet<>();
+  /** The expired accounts waiting to be removed, with the times they last connected. */
+  private final Queue<Map.Entry<String, Long>> queueExpired = new ConcurrentLinkedQueue<>();
+  /** The time in milliseconds the sweep started. */
+  private final long timeStarted;
+  /** The earliest last connection time to sweep. (Inclusive) */
+  private final long timeFrom;
+  /** The latest last connection time to sweep. (Exclusive) */
+  private final long timeTo;
+  /** The time in milliseconds it took to query the expired accounts. */
+  private volatile long timeQuery = -1L;
+  /** The amount of expired accounts found, excluding exclusions. */
+  private volatile int found;
+  /** The amount of expired accounts skipped, due to being excluded. */
+  private volatile int excluded;
+  /** The amount of expired accounts removed. */
+  private int removed;
+  /** The amount of expired accounts skipped, due to the player connecting since the query. */
+  private int skipped;
+  /** Flag for the query being finished. */
+  private volatile boolean queried;
+  /** Flag for the query having failed. */
+  private volatile boolean failed;
+
+  /**
+   * Main constructor.
+   *
+   * @param database The database to query.
+   * @param exclusions The user-names excluded from expiring. This can be null.
+   * @param timeFrom The earliest last connection time to sweep. (Inclusive)
+   * @param timeTo The latest last connection time to sweep. (Exclusive)
+   */
+  AccountExpirySweep(
+      SledgehammerDatabase database, Collection<String> exclusions, long timeFrom, long timeTo) {
+    this.database = database;
+    this.timeFrom = timeFrom;
+    this.timeTo = timeTo;
+    this.timeStarted = System.currentTimeMillis();
+    if (exclusions != null) {
+      for (String exclusion : exclusions) {
+        if (exclusion != null) {
+          setExclusions.add(exclusion.toLowerCase(Locale.ROOT));
+        }
+      }
+    }
+  }
+
+  @Override
+  public void run() {
+    try {
+      long timeNow = System.currentTimeMillis();
+      Map<String, Long> mapPlayers = database.getMongoPlayersConnectedBetween(timeFrom, timeTo);
+      int found = 0;
+      int excluded = 0;
+      for (Map.Entry<String, Long> entry : mapPlayers.entrySet()) {
+        if (setExclusions.contains(entry.getKey().toLowerCase(Locale.ROOT))) {
+          excluded++;
+          continue;
+        }
+        queueExpired.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+        found++;
+      }
+      this.found = found;
+      this.excluded = excluded;
+      this.timeQuery = System.currentTimeMillis() - timeNow;
+      println(
+          "Found "
+              + found
+              + " expired account(s) in "
+              + timeQuery
+              + " ms. ("
+              + excluded
+              + " excluded)");
+    } catch (Exception e) {
+      failed = true;
+      errln("Failed to query expired accounts.");
+      stackTrace(e);
+    } finally {
+      queried = true;
+    }
+  }
+
+  /**
+   * Removes a batch of expired accounts. This is to be invoked on the game thread.
+   *
+   * @param batch The maximum amount of accounts to remove.
+   * @return Returns true if the sweep is finished.
+   */
+  boolean applyRemovals(int batch) {
+    // Check the flag before polling, so that no account queued before it was set is missed.
+    boolean queried = this.queried;
+    long timeNow = System.currentTimeMillis();
+    List<Map.Entry<String, Long>> listBatch = new ArrayList<>();
+    Map.Entry<String, Long> entry;
+    while (listBatch.size() < batch && (entry = queueExpired.poll()) != null) {
+      listBatch.add(entry);
+    }
+    if (!listBatch.isEmpty()) {
+      List<String> listUsernames = new ArrayList<>(listBatch.size());
+      for (Map.Entry<String, Long> next : listBatch) {
+        listUsernames.add(next.getKey());
+      }
+      // Re-read the times in a single query, as the players may have connected since.
+      Map<String, Long> mapTimes = database.getTimesConnectedLast(listUsernames);
+      int count = 0;
+      for (Map.Entry<String, Long> next : listBatch) {
+        String username = next.getKey();
+        if (!isStillExpired(username, mapTimes.get(username))) {
+          skipped++;
+          continue;
+        }
+        long days = (timeNow - next.getValue()) / ModuleCore.LONG_DAY;
+        println("Account: \"" + username + "\" has an expired account. (" + days + " days)");
+        ServerWorldDatabase.instance.removePlayer(username);
+        count++;
+      }
+      removed += count;
+      println(
+          "Removed "
+              + removed
+              + "/"
+              + (queried ? found : "?")
+              + " expired account(s). ("
+              + skipped
+              + " reconnected)");
+    }
+    if (queried && queueExpired.isEmpty()) {
+      if (!failed) {
+        println(
+            "Expired account sweep finished in "
+                + (System.currentTimeMillis() - timeStarted)
+                + " ms. (Query: "
+                + timeQuery
+                + " ms, Removed: "
+                + removed
+                + ", Skipped: "
+                + skipped
+                + ")");
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Checks an expired account again before removing it.
+   *
+   * @param username The user-name of the account.
+   * @param timeConnectedLast The time the player last connected, read again from the database. This
+   *     is null if the document is gone, or holds no valid time.
+   * @return Returns true if the player is offline, and has not connected since the query.
+   */
+  private boolean isStillExpired(String username, Long timeConnectedLast) {
+    if (timeConnectedLast == null || timeConnectedLast < 0L || timeConnectedLast >= timeTo) {
+      return false;
+    }
+    if (SledgeHammer.instance.getPlayerManager().getPlayer(username) != null) {
+      return false;
+    }
+    // The cached document can be newer than the database, if it has not been saved yet.
+    MongoPlayer mongoPlayer = database.getPlayerCache().get(username);
+    return mongoPlayer == null || mongoPlayer.getTimeConnectedLast() < timeTo;
+  }
+
+  /** @return Returns true if the query failed. */
+  boolean hasFailed() {
+    return this.failed;
+  }
+
+  /** @return Returns the latest last connection time swept. (Exclusive) */
+  long getTimeTo() {
+    return this.timeTo;
+  }
+
+  @Override
+  public String getName() {
+    return "ModuleCore";
+  }
+}
@@ -24,6 +24,7 @@ import sledgehammer.SledgeHammer;
 import sledgehammer.annotations.EventHandler;
 import sledgehammer.event.player.DeathEvent;
 import sledgehammer.event.player.DisconnectEvent;
+import sledgehammer.event.player.PlayerInfoEvent;
 import sledgehammer.event.player.PlayerJoinEvent;
 import sledgehammer.event.player.PlayerQuitEvent;
 import sledgehammer.event.player.pvp.PVPKillEvent;
@@ -64,6 +65,14 @@ public class CoreEventListener implements Listener {
     }
   }
 
+  @EventHandler(id = "core.event.info", priority = 1)
+  private void on(PlayerInfoEvent event) {
+    Player player = event.getPlayer();
+    if (player != null) {
+      SledgeHammer.instance.getPlayerManager().updatePosition(player);
+    }
+  }
+
   @EventHandler(id = "core.event.death", priority = 1)
   private void on(DeathEvent event) {
     module.sendGlobalMessage(COLOR_RED + " " + event.getLogMessage());
@@ -41,9 +41,11 @@ import sledgehammer.event.player.HandShakeEvent;
 import sledgehammer.event.player.PlayerJoinEvent;
 import sledgehammer.language.LanguagePackage;
 import sledgehammer.lua.LuaObject;
+import sledgehammer.lua.LuaTable;
 import sledgehammer.lua.chat.ChatChannel;
 import sledgehammer.lua.chat.ChatMessage;
 import sledgehammer.lua.core.Player;
+import sledgehammer.lua.core.request.RequestCommandCompletions;
 import sledgehammer.lua.core.request.RequestInfo;
 import sledgehammer.lua.core.send.SendLua;
 import sledgehammer.lua.core.send.SendPlayer;
@@ -51,7 +53,6 @@ import sledgehammer.module.chat.ModuleChat;
 import sledgehammer.plugin.Module;
 import sledgehammer.command.Command;
 import sledgehammer.util.TickTask;
-import zombie.network.ServerWorldDatabase;
 
 /**
  * TODO: Document.
@@ -66,6 +67,10 @@ public class ModuleCore extends Module {
   public static long LONG_HOUR = LONG_MINUTE * 60L;
   public static long LONG_DAY = LONG_HOUR * 24L;
   // @formatter:on
+  /** The maximum amount of command completions sent to a client for a request. */
+  public static final int MAXIMUM_COMMAND_COMPLETIONS = 32;
+  /** The maximum amount of expired accounts to remove on each update. */
+  private static final int SWEEP_BATCH_SIZE = 50;
 
   private Map<String, MongoPeriodicMessage> mapPeriodicMessages;
   private List<MongoPeriodicMessage> listPeriodicMessages;
@@ -78,6 +83,8 @@ public class ModuleCore extends Module {
   private long timeThenPeriodicMessages = 0L;
   private long timeThenCheckAccountExpire = 0L;
   private long delayCheckAccountExpire = LONG_DAY;
+  private long timeAccountsSweptUntil = Long.MIN_VALUE;
+  private AccountExpirySweep sweepAccounts;
   private SendLua sendLuaCore;
   private File fileCoreModule;
 
@@ -113,38 +120,30 @@ public class ModuleCore extends Module {
       // Set the time to reset the delta.
       timeThenPeriodicMessages = timeNow;
     }
+    if (sweepAccounts != null) {
+      // Apply the removals of the active sweep in batches, to not stall the game thread.
+      if (sweepAccounts.applyRemovals(SWEEP_BATCH_SIZE)) {
+        if (!sweepAccounts.hasFailed()) {
+          timeAccountsSweptUntil = sweepAccounts.getTimeTo();
+        }
+        sweepAccounts = null;
+      }
+      return;
+    }
     int days = SledgeHammer.instance.getSettings().getAccountIdleExpireTime();
     if (days > 0) {
       if (timeNow - timeThenCheckAccountExpire > delayCheckAccountExpire) {
         println("Checking for expired accounts (Inactive for over " + days + " days)");
         List<String> exclusions = SledgeHammer.instance.getSettings().getExcludedIdleAccounts();
-        Map<String, Long> mapPlayers = SledgeHammer.instance.getDatabase().getAllMongoPlayers();
-        for (String username : mapPlayers.keySet()) {
-          boolean skip = false;
-          if (exclusions != null) {
-            for (String ex : exclusions) {
-              if (username.equalsIgnoreCase(ex)) {
-                skip = true;
-                break;
-              }
-            }
-          }
-          if (skip) {
-            continue;
-          }
-          long lastConnection = mapPlayers.get(username);
-          long d = timeNow - lastConnection;
-          if (d > (LONG_DAY * days)) {
-            // delete account.
-            println(
-                "Account: \""
-                    + username
-                    + "\" has an expired account. ("
-                    + (d / LONG_DAY)
-                    + " days)");
-            ServerWorldDatabase.instance.removePlayer(username);
-          }
-        }
+        // Only the accounts that expired since the last sweep need to be queried.
+        long cutoff = timeNow - (LONG_DAY * days);
+        long timeFrom = Math.min(timeAccountsSweptUntil, cutoff);
+        sweepAccounts =
+            new AccountExpirySweep(
+                SledgeHammer.instance.getDatabase(), exclusions, timeFrom, cutoff);
+        Thread thread = new Thread(sweepAccounts, "Sledgehammer-AccountExpirySweep");
+        thread.setDaemon(true);
+        thread.start();
         // Set the time to reset the delta.
         timeThenCheckAccountExpire = timeNow;
       }
@@ -183,8 +182,17 @@ public class ModuleCore extends Module {
       KahluaTable table = LuaObject.newTable();
       table.rawset("debug", Settings.getInstance().isDebug());
       SledgeHammer.instance.sendServerCommand(player, "sledgehammer.module.core", "debug", table);
+      // The client sends the hash of the Lua code it already has, if any.
+      String luaHash = null;
+      KahluaTable tableArguments = event.getTable();
+      if (tableArguments != null) {
+        Object oLuaHash = tableArguments.rawget("lua_hash");
+        if (oLuaHash != null) {
+          luaHash = oLuaHash.toString();
+        }
+      }
       // Grab the Lua code from all Modules and send it to the Player.
-      SendLua sendLua = getPluginManager().getLua(player);
+      SendLua sendLua = getPluginManager().getLua(player, luaHash);
       sendLua.send();
       // We just want to ping back to the client saying we received the request.
       event.respond();
@@ -192,6 +200,8 @@ public class ModuleCore extends Module {
       HandShakeEvent handshakeEvent = new HandShakeEvent(player);
       // Handle the event.
       SledgeHammer.instance.handle(handshakeEvent);
+      // The client starts over with no copies of LuaTables sent before.
+      LuaTable.resetDelta(player);
       SendPlayer sendPlayer = new SendPlayer(true);
       sendPlayer.setPlayer(player);
       SledgeHammer.instance.send(sendPlayer, player);
@@ -206,10 +216,25 @@ public class ModuleCore extends Module {
           })
           .runTask(this);
 
+    } else if (clientCommand.equalsIgnoreCase("resync")) {
+      // The client received a delta it could not apply. Send all Players in full.
+      LuaTable.resetDelta(player);
+      for (Player nextPlayer : SledgeHammer.instance.getPlayers()) {
+        sendPlayer.setPlayer(nextPlayer);
+        SledgeHammer.instance.send(sendPlayer, player);
+      }
     } else if (clientCommand.equalsIgnoreCase("requestInfo")) {
       RequestInfo info = new RequestInfo();
       info.setSelf(player);
       event.respond(info);
+    } else if (clientCommand.equalsIgnoreCase("requestCommandCompletions")) {
+      Object oPrefix = event.getTable().rawget("prefix");
+      String prefix = oPrefix != null ? oPrefix.toString() : "";
+      RequestCommandCompletions request = new RequestCommandCompletions();
+      request.setPrefix(prefix);
+      request.setCompletions(
+          getEventManager().completeCommand(player, prefix, MAXIMUM_COMMAND_COMPLETIONS));
+      event.respond(request);
     } else if (clientCommand.equalsIgnoreCase("sendCommand")) {
       KahluaTable command_table = (KahluaTable) event.getTable().rawget("command");
       Object oRaw = command_table.rawget("raw");
@@ -23,9 +23,7 @@ package sledgehammer.module.discord;
 import java.text.Normalizer;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.regex.Pattern;
 
@@ -69,8 +67,7 @@ public class DiscordBot extends Printable
   /** API instance for JavaCord. */
   private DiscordAPI api;
 
-  private DiscordMessageDispatcher dispatcher;
-  private Map<Channel, List<String>> mapMessageQueue;
+  private volatile DiscordMessageDispatcher dispatcher;
   private List<Channel> listPublicChannels;
   private Channel channelConsole;
   /** Flag for noting whether or not the bot connected using a stored token. */
@@ -207,8 +204,6 @@ public class DiscordBot extends Printable
     if (ModuleDiscord.DEBUG) {
       println("Dispatcher started.");
     }
-    // Initialize the Message queue map.
-    mapMessageQueue = new HashMap<>();
     discoverChannels();
     for (ChatChannel channel : module.getChatModule().getChatChannels()) {
       if (channel.isPublicChannel() && channel.isGlobalChannel() && channel.canSpeak()) {
@@ -216,9 +211,6 @@ public class DiscordBot extends Printable
         createChannelIfNotExists(name);
       }
     }
-    if (ModuleDiscord.DEBUG) {
-      println("MessageQueue created.");
-    }
     // Set connection flag to true.
     connected = true;
     // Initialize and run the Dispatcher.
@@ -269,25 +261,19 @@ public class DiscordBot extends Printable
         "[STAFF][" + staffMember + "]: " + string);
   }
 
-  public synchronized void say(String channelName, boolean alert, String... messages) {
-    if (server == null) {
+  public void say(String channelName, boolean alert, String... messages) {
+    DiscordMessageDispatcher dispatcher = this.dispatcher;
+    if (server == null || dispatcher == null) {
       return;
     }
-    if (mapMessageQueue == null) {
-      mapMessageQueue = new HashMap<>();
-    }
     Channel channel = getChannel(channelName);
     if (channel == null) {
       if (ModuleDiscord.DEBUG) {
         println("Channel given is null!");
-        return;
       }
+      return;
     }
-    List<String> channelQueue = mapMessageQueue.get(channel);
-    if (channelQueue == null) {
-      channelQueue = new ArrayList<>();
-      mapMessageQueue.put(channel, channelQueue);
-    }
+    String channelId = channel.getId();
     String timeInternal = "[" + ZUtil.getHourMinuteSeconds() + "]";
     StringBuilder builtString = new StringBuilder();
     for (String message : messages) {
@@ -295,7 +281,7 @@ public class DiscordBot extends Printable
         continue;
       }
       if (builtString.length() + timeInternal.length() + message.length() > 2000) {
-        channelQueue.add(timeInternal + " " + builtString);
+        dispatcher.queue(channelId, timeInternal + " " + builtString);
         builtString = new StringBuilder(message);
       } else {
         if (builtString.length() == 0) {
@@ -313,11 +299,8 @@ public class DiscordBot extends Printable
               + builtString
               + MONOSPACE_END
               + (alert ? " @here" : "");
-      channelQueue.add(s);
-    }
-    // Compact the list to prevent local chat flooding.
-    if (channelQueue.size() > 5) {
-      ZUtil.compactList(channelQueue);
+      // The dispatcher merges queued lines, and drops repeated lines to prevent flooding.
+      dispatcher.queue(channelId, s);
     }
   }
 
@@ -436,10 +419,6 @@ public class DiscordBot extends Printable
     return connected;
   }
 
-  public Map<Channel, List<String>> getQueue() {
-    return mapMessageQueue;
-  }
-
   public Channel getConsoleChannel() {
     return channelConsole;
   }
@@ -60,7 +60,7 @@ public class DiscordEventListener implements Listener {
     setModule(module);
   }
 
-  @EventHandler(id = "core.discord.event.chatmessage")
+  @EventHandler(id = "core.discord.event.chatmessage", async = true)
   private void on(ChatMessageEvent event) {
     ChatMessage message = event.getMessage();
     ChatChannel chatChannel = event.getChatChannel();
@@ -100,7 +100,7 @@ public class DiscordEventListener implements Listener {
     }
   }
 
-  @EventHandler(id = "core.discord.event.log")
+  @EventHandler(id = "core.discord.event.log", async = true)
   public void on(LogEvent logEntry) {
     Player player;
     Event event = logEntry.getEvent();
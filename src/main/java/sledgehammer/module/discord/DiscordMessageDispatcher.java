@@ -17,26 +17,84 @@
  *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
  *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
  */
-
 package sledgehammer.module.discord;
 
-import java.util.List;
-import java.util.Map;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
-import de.btobastian.javacord.entities.Channel;
+import sledgehammer.util.TokenBucket;
 
 /**
- * Class designed to manage and dispatch the message queue for the IRC-Bot plug-in.
+ * Class designed to manage and dispatch the outbound message queue of the Discord bot.
+ *
+ * <p>Lines are queued in a lane for each channel. When a lane may send, its queued lines are merged
+ * into messages of up to 2000 characters. Each lane has one send in flight at a time, so messages
+ * arrive in order, and sends complete asynchronously through the DiscordMessageSender.
+ *
+ * <p>Sends are rate limited with token buckets matching Discord's limits: 5 messages per 5 seconds
+ * for each channel, and 50 requests per second globally. A failed send is retried after a backoff,
+ * or after the time Discord asked to wait.
+ *
+ * <p>The amount of queued lines for each channel is bounded. When the limit is reached, the oldest
+ * lines are dropped and counted. Lanes are removed once idle, or when their channel no longer
+ * exists.
  *
  * @author Jab
  */
-class DiscordMessageDispatcher extends Thread {
+public class DiscordMessageDispatcher extends Thread {
 
-  /** The Module using this dispatcher. */
-  private DiscordBot bot;
+  /** The maximum length of a Discord message. */
+  public static final int MAXIMUM_MESSAGE_LENGTH = 2000;
+  /** The default amount of messages a channel can send at once. */
+  public static final int DEFAULT_CHANNEL_BURST = 5;
+  /** The default time in milliseconds for a channel to regain a message. */
+  public static final long DEFAULT_CHANNEL_REFILL = 1000L;
+  /** The amount of requests that can be sent at once, across all channels. */
+  public static final int GLOBAL_BURST = 50;
+  /** The time in milliseconds to regain a request, across all channels. */
+  public static final long GLOBAL_REFILL = 20L;
+  /** The default maximum amount of queued lines for each channel. */
+  public static final int DEFAULT_MAXIMUM_BACKLOG = 256;
+  /** The amount of attempts to send a message before dropping it. */
+  public static final int MAXIMUM_ATTEMPTS = 3;
+  /** The time in milliseconds to back off after the first failed attempt. Doubles every attempt. */
+  private static final long BACKOFF = 1000L;
+  /** The longest time to wait for work, in nanoseconds. */
+  private static final long MAXIMUM_WAIT = TimeUnit.SECONDS.toNanos(1L);
+  /** The time in nanoseconds a lane is kept without anything to send, before it is removed. */
+  private static final long LANE_TIMEOUT = TimeUnit.MINUTES.toNanos(5L);
 
-  private long minimumMessageDelay = 350L;
-  private long maximumMessageDelay = 2000L;
+  /** The Map of lanes for each channel, identified by the channel ID. */
+  private final ConcurrentMap<String, Lane> mapLanes = new ConcurrentHashMap<>();
+  /** The token bucket shared by all channels. */
+  private final TokenBucket bucketGlobal = new TokenBucket(GLOBAL_BURST, GLOBAL_REFILL);
+  /** The sender used to send messages. */
+  private final DiscordMessageSender sender;
+  /** The DiscordBot instance, used for logging. Null when used without a bot. */
+  private final DiscordBot bot;
+  /** The amount of messages a channel can send at once. */
+  private final int channelBurst;
+  /** The time in milliseconds for a channel to regain a message. */
+  private final long channelRefill;
+  /** The maximum amount of queued lines for each channel. */
+  private final int maximumBacklog;
+  /** The total amount of queued lines in all lanes. */
+  private final AtomicInteger backlog = new AtomicInteger(0);
+  /** The total amount of lines dropped, either to a full lane or to failing to send. */
+  private final AtomicLong dropped = new AtomicLong(0L);
+  /** The total amount of messages sent. */
+  private final AtomicLong sent = new AtomicLong(0L);
+  /** The total amount of lines sent, merged into messages. */
+  private final AtomicLong sentLines = new AtomicLong(0L);
+  /** The total amount of failed send attempts. */
+  private final AtomicLong failed = new AtomicLong(0L);
 
   /** Flag for the Dispatcher's while loop. */
   private volatile boolean active = false;
@@ -47,8 +105,48 @@ class DiscordMessageDispatcher extends Thread {
    * @param bot The DiscordBot instance.
    */
   DiscordMessageDispatcher(DiscordBot bot) {
-    // Assign the Module instance to the dispatcher field object.
+    this(
+        new JavacordMessageSender(bot.getAPI()),
+        bot,
+        DEFAULT_CHANNEL_BURST,
+        DEFAULT_CHANNEL_REFILL,
+        DEFAULT_MAXIMUM_BACKLOG);
+  }
+
+  /**
+   * Constructor for using a dispatcher without a DiscordBot, like with a stub sender.
+   *
+   * @param sender The DiscordMessageSender used to send messages.
+   * @param channelBurst The amount of messages a channel can send at once.
+   * @param channelRefill The time in milliseconds for a channel to regain a message.
+   * @param maximumBacklog The maximum amount of queued lines for each channel.
+   */
+  public DiscordMessageDispatcher(
+      DiscordMessageSender sender, int channelBurst, long channelRefill, int maximumBacklog) {
+    this(sender, null, channelBurst, channelRefill, maximumBacklog);
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Full constructor.
+   */
+  private DiscordMessageDispatcher(
+      DiscordMessageSender sender,
+      DiscordBot bot,
+      int channelBurst,
+      long channelRefill,
+      int maximumBacklog) {
+    super("Sledgehammer-Discord-Dispatcher");
+    if (maximumBacklog < 1) {
+      throw new IllegalArgumentException("Maximum backlog must be at least 1: " + maximumBacklog);
+    }
+    this.sender = sender;
     this.bot = bot;
+    this.channelBurst = channelBurst;
+    this.channelRefill = channelRefill;
+    this.maximumBacklog = maximumBacklog;
+    setDaemon(true);
   }
 
   public void run() {
@@ -57,64 +155,329 @@ class DiscordMessageDispatcher extends Thread {
     active = true;
     // Run indefinitely until active is set to false.
     while (active) {
-      try {
-        if (bot.isConnected()) {
-          Map<Channel, List<String>> mapQueue = bot.getQueue();
-          int totalCount = 0;
-          for (Channel channel : mapQueue.keySet()) {
-            try {
-              List<String> channelQueue = mapQueue.get(channel);
-              if (channelQueue.size() > 0) {
-                totalCount += channelQueue.size();
-                // Grab the next message in the queue.
-                String message = channelQueue.remove(0);
-                // Make sure the message is not null.
-                if (message != null) {
-                  channel.sendMessage(message).get();
-                  Thread.sleep(1L);
-                }
-              }
-            } catch (Exception e) {
-              if (ModuleDiscord.DEBUG) {
-                bot.getModule().stackTrace(e);
-              }
-            }
-          }
-          try {
-            // If the message list is big, the delay between
-            // messages grows, to help prevent excess flooding.
-            long delay = 250L * totalCount;
-            // The maximum message delay cap check is applied.
-            delay = delay > maximumMessageDelay ? maximumMessageDelay : delay;
-            // The minimum message delay cap check is applied.
-            delay = delay <= minimumMessageDelay ? minimumMessageDelay : delay;
-            Thread.sleep(delay);
-          } catch (InterruptedException e) {
-            if (ModuleDiscord.DEBUG) {
-              bot.getModule().stackTrace(e);
-            }
-          }
-        } else {
-          try {
-            // Try to sleep for minimum sleep time.
-            Thread.sleep(minimumMessageDelay);
-          } catch (InterruptedException e) {
-            //
+      long now = System.nanoTime();
+      long wait = MAXIMUM_WAIT;
+      for (Lane lane : mapLanes.values()) {
+        if (lane.inFlight) {
+          continue;
+        }
+        if (!lane.hasMessage()) {
+          if (now - lane.getTimeActive() > LANE_TIMEOUT) {
+            removeLane(lane, false);
           }
+          continue;
+        }
+        long waitLane = Math.max(lane.bucket.getWaitNanos(now), bucketGlobal.getWaitNanos(now));
+        if (waitLane > 0L) {
+          wait = Math.min(wait, waitLane);
+          continue;
+        }
+        lane.bucket.tryAcquire(now);
+        bucketGlobal.tryAcquire(now);
+        send(lane);
+      }
+      // Sleep until a token is regained, or until woken by a queued line or a completed send.
+      LockSupport.parkNanos(this, wait);
+    }
+  }
+
+  /**
+   * Queues a line to send to a channel. Duplicates of lines still queued are dropped.
+   *
+   * @param channelId The String ID of the Discord channel.
+   * @param line The String line to send.
+   */
+  public void queue(String channelId, String line) {
+    if (line == null || line.isEmpty()) {
+      return;
+    }
+    while (true) {
+      Lane lane = mapLanes.get(channelId);
+      if (lane == null) {
+        Lane laneNew = new Lane(channelId);
+        lane = mapLanes.putIfAbsent(channelId, laneNew);
+        if (lane == null) {
+          lane = laneNew;
+        }
+      }
+      synchronized (lane) {
+        // The lane was removed after it was looked up. Look up its replacement.
+        if (lane.removed) {
+          continue;
+        }
+        // Prevent flooding the channel with repeated lines.
+        if (lane.setLines.contains(line)) {
+          dropped.incrementAndGet();
+          return;
         }
-      } catch (IndexOutOfBoundsException e) {
-        try {
-          // Try to sleep for minimum sleep time.
-          Thread.sleep(minimumMessageDelay);
-        } catch (InterruptedException e1) {
-          e1.printStackTrace();
+        if (lane.lines.size() >= maximumBacklog && lane.pollLine()) {
+          dropped.incrementAndGet();
+        }
+        lane.lines.addLast(line);
+        lane.setLines.add(line);
+        lane.timeActive = System.nanoTime();
+        backlog.incrementAndGet();
+      }
+      break;
+    }
+    LockSupport.unpark(this);
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Removes a lane from the dispatcher. Lines queued afterwards for the channel go to a new
+   * lane.
+   *
+   * @param lane The Lane to remove.
+   * @param force Flag to remove the lane even if lines are queued. The queued lines are dropped.
+   */
+  private void removeLane(Lane lane, boolean force) {
+    synchronized (lane) {
+      if (!force && (lane.inFlight || lane.hasMessage())) {
+        return;
+      }
+      while (!lane.lines.isEmpty()) {
+        if (lane.pollLine()) {
+          dropped.incrementAndGet();
         }
       }
+      lane.removed = true;
+    }
+    mapLanes.remove(lane.channelId, lane);
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Sends the next message of a lane.
+   *
+   * @param lane The Lane to send from.
+   */
+  private void send(final Lane lane) {
+    final String message = lane.nextMessage();
+    if (message == null) {
+      return;
+    }
+    lane.inFlight = true;
+    DiscordMessageSender.Callback callback =
+        new DiscordMessageSender.Callback() {
+          @Override
+          public void onSent() {
+            sent.incrementAndGet();
+            sentLines.addAndGet(lane.onSent());
+            lane.inFlight = false;
+            LockSupport.unpark(DiscordMessageDispatcher.this);
+          }
+
+          @Override
+          public void onFailed(Throwable throwable, long retryAfter) {
+            failed.incrementAndGet();
+            if (ModuleDiscord.DEBUG && bot != null) {
+              bot.getModule().stackTrace(throwable);
+            }
+            int attempts = lane.onFailed();
+            if (attempts >= MAXIMUM_ATTEMPTS) {
+              dropped.addAndGet(lane.onDropped());
+            }
+            lane.bucket.pause(retryAfter > 0L ? retryAfter : BACKOFF << (attempts - 1));
+            lane.inFlight = false;
+            LockSupport.unpark(DiscordMessageDispatcher.this);
+          }
+
+          @Override
+          public void onUnknownChannel() {
+            failed.incrementAndGet();
+            dropped.addAndGet(lane.onDropped());
+            lane.inFlight = false;
+            removeLane(lane, true);
+          }
+        };
+    try {
+      sender.send(lane.channelId, message, callback);
+    } catch (Exception e) {
+      callback.onFailed(e, 0L);
     }
   }
 
   /** Sets the active flag to false on the dispatcher. This stops the Thread. */
   public void setInactive() {
     active = false;
+    LockSupport.unpark(this);
+  }
+
+  /** @return Returns the total amount of queued lines in all channels. */
+  public int getBacklog() {
+    return this.backlog.get();
+  }
+
+  /**
+   * @param channelId The String ID of the Discord channel.
+   * @return Returns the amount of queued lines for the channel.
+   */
+  public int getBacklog(String channelId) {
+    Lane lane = mapLanes.get(channelId);
+    if (lane == null) {
+      return 0;
+    }
+    synchronized (lane) {
+      return lane.lines.size();
+    }
+  }
+
+  /** @return Returns the total amount of lines dropped. */
+  public long getDropped() {
+    return this.dropped.get();
+  }
+
+  /** @return Returns the total amount of messages sent. */
+  public long getSent() {
+    return this.sent.get();
+  }
+
+  /** @return Returns the total amount of lines sent, merged into messages. */
+  public long getSentLines() {
+    return this.sentLines.get();
+  }
+
+  /** @return Returns the total amount of failed send attempts. */
+  public long getFailed() {
+    return this.failed.get();
+  }
+
+  /**
+   * Queue of lines for a single channel, with its own token bucket.
+   *
+   * @author Jab
+   */
+  private class Lane {
+
+    /** The String ID of the Discord channel. */
+    final String channelId;
+    /** The queued lines. */
+    final ArrayDeque<String> lines = new ArrayDeque<>();
+    /** The queued lines, to look up duplicates. */
+    final Set<String> setLines = new HashSet<>();
+    /** The token bucket of the channel. */
+    final TokenBucket bucket;
+    /** Flag for a send in flight. Only one message is sent at a time to keep them in order. */
+    volatile boolean inFlight;
+    /** The message being sent, kept until sent to retry it. */
+    private String pending;
+    /** The amount of lines merged into the pending message. */
+    private int pendingLines;
+    /** The amount of failed attempts to send the pending message. */
+    private int attempts;
+    /**
+     * The queued rest of a line split across messages, compared by identity. The line is counted
+     * with its first message, so the rest is not counted again.
+     */
+    private String continuation;
+    /** The time in nanoseconds a line was last queued or sent. */
+    private long timeActive = System.nanoTime();
+    /** Flag for a lane removed from the dispatcher. Lines are no longer queued to it. */
+    private boolean removed;
+
+    /** @param channelId The String ID of the Discord channel. */
+    Lane(String channelId) {
+      this.channelId = channelId;
+      this.bucket = new TokenBucket(channelBurst, channelRefill);
+    }
+
+    synchronized boolean hasMessage() {
+      return pending != null || !lines.isEmpty();
+    }
+
+    /** @return Returns the time in nanoseconds a line was last queued or sent. */
+    synchronized long getTimeActive() {
+      return this.timeActive;
+    }
+
+    /**
+     * (Private Method)
+     *
+     * <p>Removes the oldest queued line. The lane must be locked.
+     *
+     * @return Returns true if the line removed counts as a line, and false if it was the rest of a
+     *     line already counted.
+     */
+    private boolean pollLine() {
+      String line = lines.pollFirst();
+      backlog.decrementAndGet();
+      if (line == continuation) {
+        continuation = null;
+        return false;
+      }
+      setLines.remove(line);
+      return true;
+    }
+
+    /**
+     * @return Returns the pending message if it is being retried. Otherwise, merges queued lines
+     *     into the next message. Returns null if nothing is queued.
+     */
+    synchronized String nextMessage() {
+      if (pending != null) {
+        return pending;
+      }
+      String line = lines.peekFirst();
+      if (line == null) {
+        return null;
+      }
+      int merged = pollLine() ? 1 : 0;
+      if (line.length() > MAXIMUM_MESSAGE_LENGTH) {
+        // Split lines that do not fit into a single message. The rest goes back to the front of
+        // the queue, within the backlog limit like any other line.
+        String remainder = line.substring(MAXIMUM_MESSAGE_LENGTH);
+        if (lines.size() < maximumBacklog) {
+          lines.addFirst(remainder);
+          continuation = remainder;
+          backlog.incrementAndGet();
+        }
+        pending = line.substring(0, MAXIMUM_MESSAGE_LENGTH);
+        pendingLines = merged;
+        return pending;
+      }
+      StringBuilder builder = new StringBuilder(line);
+      String next;
+      while ((next = lines.peekFirst()) != null
+          && builder.length() + 1 + next.length() <= MAXIMUM_MESSAGE_LENGTH) {
+        if (pollLine()) {
+          merged++;
+        }
+        builder.append('\n').append(next);
+      }
+      pending = builder.toString();
+      pendingLines = merged;
+      return pending;
+    }
+
+    /** @return Returns the amount of lines in the message sent. */
+    synchronized int onSent() {
+      int sentLines = pendingLines;
+      pending = null;
+      pendingLines = 0;
+      attempts = 0;
+      timeActive = System.nanoTime();
+      return sentLines;
+    }
+
+    /**
+     * Drops the pending message, along with the queued rest of its line if it was split.
+     *
+     * @return Returns the amount of lines dropped.
+     */
+    synchronized int onDropped() {
+      int droppedLines = onSent();
+      if (continuation != null && lines.peekFirst() == continuation) {
+        pollLine();
+      }
+      return droppedLines;
+    }
+
+    /** @return Returns the amount of failed attempts to send the pending message. */
+    synchronized int onFailed() {
+      return ++attempts;
+    }
   }
 }
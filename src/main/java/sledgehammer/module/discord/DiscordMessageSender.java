@@ -0,0 +1,64 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+package sledgehammer.module.discord;
+
+/**
+ * Sends messages to Discord channels for the DiscordMessageDispatcher. Sends complete
+ * asynchronously through a Callback, so the dispatcher never blocks on a send.
+ *
+ * @author Jab
+ */
+public interface DiscordMessageSender {
+
+  /**
+   * Sends a message to a channel.
+   *
+   * @param channelId The String ID of the Discord channel.
+   * @param content The String content of the message. At most 2000 characters.
+   * @param callback The Callback to notify once the send completes.
+   */
+  void send(String channelId, String content, Callback callback);
+
+  /**
+   * Notified once a send completes. May be invoked on any thread.
+   *
+   * @author Jab
+   */
+  interface Callback {
+
+    /** Invoked when the message is sent. */
+    void onSent();
+
+    /**
+     * Invoked when the message failed to send.
+     *
+     * @param throwable The cause of the failure.
+     * @param retryAfter The time in milliseconds Discord asked to wait before sending again. 0 if
+     *     Discord did not ask to wait.
+     */
+    void onFailed(Throwable throwable, long retryAfter);
+
+    /**
+     * Invoked when the channel does not exist, or is no longer visible to the bot. The message is
+     * not retried.
+     */
+    void onUnknownChannel();
+  }
+}
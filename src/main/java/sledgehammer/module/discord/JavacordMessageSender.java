@@ -0,0 +1,89 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+package sledgehammer.module.discord;
+
+import com.google.common.util.concurrent.FutureCallback;
+
+import de.btobastian.javacord.DiscordAPI;
+import de.btobastian.javacord.entities.Channel;
+import de.btobastian.javacord.entities.message.Message;
+import de.btobastian.javacord.exceptions.RateLimitedException;
+
+/**
+ * DiscordMessageSender that sends messages through JavaCord.
+ *
+ * @author Jab
+ */
+class JavacordMessageSender implements DiscordMessageSender {
+
+  /** API instance for JavaCord. */
+  private DiscordAPI api;
+
+  /**
+   * Main constructor.
+   *
+   * @param api The connected DiscordAPI instance.
+   */
+  JavacordMessageSender(DiscordAPI api) {
+    this.api = api;
+  }
+
+  @Override
+  public void send(String channelId, String content, final Callback callback) {
+    Channel channel = api.getChannelById(channelId);
+    if (channel == null) {
+      callback.onUnknownChannel();
+      return;
+    }
+    channel.sendMessage(
+        content,
+        new FutureCallback<Message>() {
+          @Override
+          public void onSuccess(Message message) {
+            callback.onSent();
+          }
+
+          @Override
+          public void onFailure(Throwable throwable) {
+            callback.onFailed(throwable, getRetryAfter(throwable));
+          }
+        });
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param throwable The cause of a failed send.
+   * @return Returns the time in milliseconds Discord asked to wait, if the send was rate limited.
+   *     Otherwise, 0 is returned.
+   */
+  private static long getRetryAfter(Throwable throwable) {
+    // JavaCord can wrap the exception, like in an ExecutionException.
+    for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+      if (cause instanceof RateLimitedException) {
+        return Math.max(0L, ((RateLimitedException) cause).getRetryAfter());
+      }
+      if (cause.getCause() == cause) {
+        break;
+      }
+    }
+    return 0L;
+  }
+}
@@ -23,7 +23,9 @@ package sledgehammer.module.permissions;
 import java.io.File;
 import java.util.*;
 
+import com.mongodb.BasicDBObject;
 import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
 
 import sledgehammer.SledgeHammer;
 import sledgehammer.database.MongoCollection;
@@ -48,6 +50,11 @@ import sledgehammer.util.Response;
  */
 public class ModulePermissions extends MongoModule {
 
+  /** The time in milliseconds a PermissionUser stays loaded after its Player goes offline. */
+  private static final long DELAY_EVICT_PERMISSION_USER = 600000L;
+  /** The time in milliseconds between checks for PermissionUsers to evict. */
+  private static final long DELAY_CHECK_EVICTIONS = 60000L;
+
   /** The MongoCollection storing the MongoPermissionGroup documents. */
   private MongoCollection collectionGroups;
   /** The MongoCollection storing the MongoPermissionUser documents. */
@@ -60,8 +67,17 @@ public class ModulePermissions extends MongoModule {
   private Map<UUID, PermissionGroup> mapPermissionGroups;
   /** The Map storing the PermissionUser containers. */
   private Map<UUID, PermissionUser> mapPermissionUsers;
+  /** The Unique IDs of Players known to not have a PermissionUser. */
+  private Set<UUID> setPermissionUsersAbsent;
+  /**
+   * The times in milliseconds to evict the loaded PermissionUsers of offline Players, identified by
+   * the Unique IDs of the Players.
+   */
+  private Map<UUID, Long> mapPermissionUserEvictions;
 
   private PermissionsCommandListener permissionsCommandListener;
+  private PermissionsEventListener permissionsEventListener;
+  private long timeThenCheckEvictions = 0L;
   /** The default PermissionGroup to base decisions for players not assigned to groups. */
   private PermissionGroup permissionGroupDefault;
   /** The LanguagePackage for the Permissions Module. */
@@ -83,23 +99,35 @@ public class ModulePermissions extends MongoModule {
     collectionUsers = database.createMongoCollection("sledgehammer_permission_users");
     // Load the Permission groups first.
     loadPermissionGroups();
-    // Load the Permission users next.
-    loadPermissionUsers();
-    // Connect the data from groups to users.
+    // Connect the groups to their parents.
     assignObjects();
+    // Prepare the Permission users to load on demand.
+    loadPermissionUsers();
     PermissionsListener permissionsListener = new PermissionsListener(this);
     setPermissionListener(permissionsListener);
     permissionsCommandListener = new PermissionsCommandListener(this);
+    permissionsEventListener = new PermissionsEventListener(this);
   }
 
   @Override
   public void onStart() {
     register(permissionsCommandListener);
+    register(permissionsEventListener);
+  }
+
+  @Override
+  public void onUpdate(long delta) {
+    long timeNow = System.currentTimeMillis();
+    if (timeNow - timeThenCheckEvictions > DELAY_CHECK_EVICTIONS) {
+      evictPermissionUsers(timeNow);
+      timeThenCheckEvictions = timeNow;
+    }
   }
 
   @Override
   public void onStop() {
     unregister(permissionsCommandListener);
+    unregister(permissionsEventListener);
   }
 
   @Override
@@ -109,9 +137,12 @@ public class ModulePermissions extends MongoModule {
     mapMongoPermissionUsers.clear();
     mapPermissionGroups.clear();
     mapPermissionUsers.clear();
+    setPermissionUsersAbsent.clear();
+    mapPermissionUserEvictions.clear();
     collectionGroups = null;
     collectionUsers = null;
     permissionsCommandListener = null;
+    permissionsEventListener = null;
   }
 
   private void loadLanguagePackage() {
@@ -165,38 +196,29 @@ public class ModulePermissions extends MongoModule {
   /**
    * (Private Method)
    *
-   * <p>Loads the MongoDocuments, and the Lua containers for permission users.
+   * <p>Prepares the permission users to load on demand. Only the permission users of online Players
+   * are loaded.
    */
   private void loadPermissionUsers() {
     // Create the map to sore the MongoDB documents for users.
     mapMongoPermissionUsers = new HashMap<>();
     // Create the Map to store the Lua container objects.
     mapPermissionUsers = new HashMap<>();
-    // Create a query for all documents in the users collection.
-    DBCursor cursor = collectionUsers.find();
-    // Go through all available documents.
-    while (cursor.hasNext()) {
-      // Wrap the document in the proper container object.
-      MongoPermissionUser mongoPermissionUser =
-          new MongoPermissionUser(collectionUsers, cursor.next());
-      // Assign it to the map for later reference.
-      mapMongoPermissionUsers.put(mongoPermissionUser.getUniqueId(), mongoPermissionUser);
-    }
-    // We are done here with the query so we close to free resources and memory.
-    cursor.close();
-    // Go through each loaded MongoDB document.
-    for (MongoPermissionUser mongoPermissionUser : mapMongoPermissionUsers.values()) {
-      // Create a new Lua container with the MongoDB document.
-      PermissionUser permissionUser = new PermissionUser(mongoPermissionUser);
-      // Assign it to the map for later reference.
-      mapPermissionUsers.put(permissionUser.getUniqueId(), permissionUser);
+    setPermissionUsersAbsent = new HashSet<>();
+    mapPermissionUserEvictions = new HashMap<>();
+    // Users are looked up by their Unique ID, and listed by their group.
+    collectionUsers.createIndex("id");
+    collectionUsers.createIndex("groupId");
+    // Load the users of Players that are already online. (If the module is reloaded)
+    for (Player player : SledgeHammer.instance.getPlayers()) {
+      getPermissionUser(player.getUniqueId());
     }
   }
 
   /**
    * (Private Method)
    *
-   * <p>Pairs up PermissionUser to PermissionGroup and vice versa.
+   * <p>Pairs up PermissionGroups to their parents.
    */
   private void assignObjects() {
     PermissionGroup permissionGroupDefault = getDefaultPermissionGroup();
@@ -213,38 +235,241 @@ public class ModulePermissions extends MongoModule {
       }
       permissionGroup.setTemporaryParent(permissionGroupDefault);
     }
-    // Go through each PermissionUser.
-    for (PermissionUser permissionUser : mapPermissionUsers.values()) {
-      // Grab the Group ID for the group that needs to be linked to.
-      UUID groupId = permissionUser.getGroupId();
-      // If the group is defined.
-      if (groupId != null) {
-        // Grab the permission Group.
-        PermissionGroup group = getPermissionGroup(groupId);
-        // If we have a UUID, but the UUID fails to return a result, this is a database
-        // inconsistency,
-        // and this is likely do to a bug in the code.
-        if (group == null) {
-          errln(
-              "PermissionUser \""
-                  + permissionUser.getUniqueId().toString()
-                  + "\""
-                  + "is assigned to a group that does not exist: \""
-                  + groupId.toString()
-                  + "\".");
-          errln("Setting groupId for the PermissionUser to null.");
-          // Set the group UUID to null.
-          permissionUser.setPermissionGroup(null, true);
-          permissionUser.setTemporaryPermissionGroup(permissionGroupDefault);
-          // Continue to the next user.
-          continue;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Loads the MongoDocument, and the Lua container for a permission user.
+   *
+   * @param playerId The Unique ID of the Player.
+   * @return Returns the loaded PermissionUser. If the Player does not have a PermissionUser, null is
+   *     returned.
+   */
+  private PermissionUser loadPermissionUser(UUID playerId) {
+    // The Unique ID is stored as a UUID, not as a String.
+    DBCursor cursor = collectionUsers.find(new BasicDBObject("id", playerId));
+    try {
+      if (!cursor.hasNext()) {
+        // Remember the miss, so that permission checks do not query again.
+        setPermissionUsersAbsent.add(playerId);
+        return null;
+      }
+      // Wrap the document in the proper container object.
+      MongoPermissionUser mongoPermissionUser = new MongoPermissionUser(collectionUsers, cursor.next());
+      // Create a new Lua container with the MongoDB document.
+      PermissionUser permissionUser = new PermissionUser(mongoPermissionUser);
+      registerPermissionUser(mongoPermissionUser, permissionUser);
+      assignPermissionGroup(permissionUser);
+      return permissionUser;
+    } finally {
+      cursor.close();
+    }
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Adds a PermissionUser to the loaded PermissionUsers.
+   *
+   * @param mongoPermissionUser The MongoDocument of the PermissionUser.
+   * @param permissionUser The PermissionUser.
+   */
+  private void registerPermissionUser(
+      MongoPermissionUser mongoPermissionUser, PermissionUser permissionUser) {
+    UUID playerId = mongoPermissionUser.getUniqueId();
+    // Put the document in the map.
+    mapMongoPermissionUsers.put(playerId, mongoPermissionUser);
+    // Put the container in the map.
+    mapPermissionUsers.put(playerId, permissionUser);
+    setPermissionUsersAbsent.remove(playerId);
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Removes a PermissionUser from the loaded PermissionUsers, after it is deleted.
+   *
+   * @param playerId The Unique ID of the PermissionUser.
+   */
+  private void unregisterPermissionUser(UUID playerId) {
+    // Remove the document from the map.
+    mapMongoPermissionUsers.remove(playerId);
+    // Remove the container from the map.
+    mapPermissionUsers.remove(playerId);
+    // The deletion may not have reached the database yet, so do not look the user up again.
+    setPermissionUsersAbsent.add(playerId);
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Pairs up a loaded PermissionUser to its PermissionGroup.
+   *
+   * @param permissionUser The PermissionUser to pair up.
+   */
+  private void assignPermissionGroup(PermissionUser permissionUser) {
+    // Grab the Group ID for the group that needs to be linked to.
+    UUID groupId = permissionUser.getGroupId();
+    // If the group is not defined, there is nothing to link.
+    if (groupId == null) {
+      return;
+    }
+    // Grab the permission Group.
+    PermissionGroup group = getPermissionGroup(groupId);
+    // If we have a UUID, but the UUID fails to return a result, this is a database inconsistency,
+    // and this is likely do to a bug in the code.
+    if (group == null) {
+      errln(
+          "PermissionUser \""
+              + permissionUser.getUniqueId().toString()
+              + "\""
+              + "is assigned to a group that does not exist: \""
+              + groupId.toString()
+              + "\".");
+      errln("Setting groupId for the PermissionUser to null.");
+      // Set the group UUID to null.
+      permissionUser.setPermissionGroup(null, true);
+      permissionUser.setTemporaryPermissionGroup(getDefaultPermissionGroup());
+      return;
+    }
+    // Set the member to the group. (This also sets the member's group object.
+    // Note: We do not save this action because we are setting the data during loading the user.
+    group.addMember(permissionUser, false);
+  }
+
+  /**
+   * Loads the PermissionUser of a Player that joined, and keeps it loaded while the Player is
+   * online.
+   *
+   * @param player The Player that joined.
+   */
+  synchronized void onPlayerJoin(Player player) {
+    UUID playerId = player.getUniqueId();
+    getPermissionUser(playerId);
+    mapPermissionUserEvictions.remove(playerId);
+  }
+
+  /**
+   * Schedules the PermissionUser of a Player that left to be evicted.
+   *
+   * @param player The Player that left.
+   */
+  synchronized void onPlayerLeave(Player player) {
+    scheduleEviction(player.getUniqueId());
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Schedules the PermissionUser of a Player to be evicted after DELAY_EVICT_PERMISSION_USER.
+   *
+   * @param playerId The Unique ID of the Player.
+   */
+  private void scheduleEviction(UUID playerId) {
+    mapPermissionUserEvictions.put(
+        playerId, System.currentTimeMillis() + DELAY_EVICT_PERMISSION_USER);
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Evicts the PermissionUsers of offline Players that are due to be evicted.
+   *
+   * @param timeNow The current time in milliseconds.
+   */
+  private synchronized void evictPermissionUsers(long timeNow) {
+    Iterator<Map.Entry<UUID, Long>> iterator = mapPermissionUserEvictions.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<UUID, Long> entry = iterator.next();
+      if (entry.getValue() > timeNow) {
+        continue;
+      }
+      iterator.remove();
+      UUID playerId = entry.getKey();
+      // The Player may have come back online since.
+      if (SledgeHammer.instance.getPlayer(playerId) != null) {
+        continue;
+      }
+      removePermissionUser(playerId);
+    }
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Removes a PermissionUser from the loaded PermissionUsers, without changing its document.
+   *
+   * @param playerId The Unique ID of the PermissionUser.
+   */
+  private void removePermissionUser(UUID playerId) {
+    setPermissionUsersAbsent.remove(playerId);
+    mapMongoPermissionUsers.remove(playerId);
+    PermissionUser permissionUser = mapPermissionUsers.remove(playerId);
+    // Unlink the user from the members of its group, without changing its document.
+    if (permissionUser != null && permissionUser.hasPermissionGroup()) {
+      permissionUser.getPermissionGroup().getMembers().remove(permissionUser);
+    }
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Finds the Unique IDs of every PermissionUser assigned to a PermissionGroup, including the
+   * PermissionUsers that are not loaded.
+   *
+   * @param permissionGroup The PermissionGroup.
+   * @return Returns a Set of the Unique IDs of the PermissionUsers in the PermissionGroup.
+   */
+  private synchronized Set<UUID> getPermissionUserIds(PermissionGroup permissionGroup) {
+    Set<UUID> setIds = new LinkedHashSet<>();
+    DBObject query = new BasicDBObject("groupId", permissionGroup.getUniqueId().toString());
+    DBCursor cursor = collectionUsers.getDBCollection().find(query, new BasicDBObject("id", 1));
+    try {
+      while (cursor.hasNext()) {
+        Object oId = cursor.next().get("id");
+        if (oId != null) {
+          setIds.add(UUID.fromString(oId.toString()));
         }
-        // Set the member to the group. (This also sets the member's group object.
-        // Note: We do not save this action because we are setting the data during
-        // initializing the module.
-        group.addMember(permissionUser, false);
       }
+    } finally {
+      cursor.close();
+    }
+    // Loaded users may have changes not yet saved, so they are checked in memory instead.
+    setIds.removeAll(mapPermissionUsers.keySet());
+    setIds.removeAll(setPermissionUsersAbsent);
+    for (PermissionUser member : permissionGroup.getMembers()) {
+      setIds.add(member.getUniqueId());
     }
+    return setIds;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Assigns the members of a deleted PermissionGroup to another PermissionGroup, including the
+   * members that are not loaded.
+   *
+   * @param permissionGroup The PermissionGroup being deleted.
+   * @param parent The PermissionGroup to assign the members to.
+   */
+  private synchronized void reassignPermissionUsers(
+      PermissionGroup permissionGroup, PermissionGroup parent) {
+    // Sets the loaded Users to the parent group.
+    for (PermissionUser member : new ArrayList<>(permissionGroup.getMembers())) {
+      member.setPermissionGroup(parent, true);
+    }
+    // Update the documents of the users that are not loaded directly.
+    String parentId = null;
+    if (parent != null && mapPermissionGroups.containsKey(parent.getUniqueId())) {
+      parentId = parent.getUniqueId().toString();
+    }
+    List<UUID> listIdsLoaded = new ArrayList<>(mapPermissionUsers.keySet());
+    DBObject query =
+        new BasicDBObject("groupId", permissionGroup.getUniqueId().toString())
+            .append("id", new BasicDBObject("$nin", listIdsLoaded));
+    DBObject update = new BasicDBObject("$set", new BasicDBObject("groupId", parentId));
+    collectionUsers.getDBCollection().updateMulti(query, update);
   }
 
   /**
@@ -299,10 +524,7 @@ public class ModulePermissions extends MongoModule {
       MongoPermissionUser mongoPermissionUser = new MongoPermissionUser(collectionUsers, playerId);
       // Create the container for the document.
       permissionUser = new PermissionUser(mongoPermissionUser);
-      // Put the document in the map.
-      mapMongoPermissionUsers.put(playerId, mongoPermissionUser);
-      // Put the container in the map.
-      mapPermissionUsers.put(playerId, permissionUser);
+      registerPermissionUser(mongoPermissionUser, permissionUser);
       // Save the document.
       mongoPermissionUser.save();
       // Set the response to success.
@@ -367,10 +589,7 @@ public class ModulePermissions extends MongoModule {
       return response;
     }
     try {
-      // Remove the document from the map.
-      mapMongoPermissionUsers.remove(playerId);
-      // Remove the container from the map.
-      mapPermissionUsers.remove(playerId);
+      unregisterPermissionUser(playerId);
       // Delete the document properly.
       permissionUser.getMongoDocument().delete();
       // Grab the group of the user.
@@ -731,10 +950,8 @@ public class ModulePermissions extends MongoModule {
           permissionGroupNext.setParent(parent, true);
         }
       }
-      // Sets the User to the parent group.
-      for (PermissionUser member : permissionGroup.getMembers()) {
-        member.setPermissionGroup(parent, true);
-      }
+      // Sets the Users to the parent group.
+      reassignPermissionUsers(permissionGroup, parent);
       // Set the Response successful.
       response.set(
           Result.SUCCESS,
@@ -1000,10 +1217,9 @@ public class ModulePermissions extends MongoModule {
     }
     String users = "None";
     StringBuilder builder = new StringBuilder();
-    List<PermissionUser> listUsers = permissionGroup.getMembers();
-    if (listUsers.size() > 0) {
-      for (PermissionUser user : listUsers) {
-        UUID playerId = user.getUniqueId();
+    Set<UUID> setUserIds = getPermissionUserIds(permissionGroup);
+    if (setUserIds.size() > 0) {
+      for (UUID playerId : setUserIds) {
         Player player = SledgeHammer.instance.getPlayer(playerId);
         if (player == null) {
           player = SledgeHammer.instance.getOfflinePlayer(playerId);
@@ -1160,9 +1376,9 @@ public class ModulePermissions extends MongoModule {
    * @param userId The Unique ID identifier assigned to the PermissionUser.
    * @return Returns a new PermissionUser.
    */
-  public PermissionUser createPermissionUser(UUID userId) {
+  public synchronized PermissionUser createPermissionUser(UUID userId) {
     // Validate UUID argument.
-    if (mapMongoPermissionUsers.containsKey(userId) || mapPermissionUsers.containsKey(userId)) {
+    if (getPermissionUser(userId) != null) {
       throw new IllegalArgumentException("UUID already in use: \"" + userId.toString() + "\".");
     }
     // Create the document.
@@ -1170,10 +1386,7 @@ public class ModulePermissions extends MongoModule {
     // Create the container for the document.
     PermissionUser permissionUser = new PermissionUser(mongoPermissionUser);
     permissionUser.setTemporaryPermissionGroup(getDefaultPermissionGroup());
-    // Put the document in the map.
-    mapMongoPermissionUsers.put(userId, mongoPermissionUser);
-    // Put the container in the map.
-    mapPermissionUsers.put(userId, permissionUser);
+    registerPermissionUser(mongoPermissionUser, permissionUser);
     // Save the document.
     mongoPermissionUser.save();
     // Return the new container.
@@ -1187,7 +1400,7 @@ public class ModulePermissions extends MongoModule {
    * @param permissionUser The PermissionUser to delete. If it is null, IllegalArgumentException is
    *     thrown. If the PermissionUser isn't registered properly, a IllegalStateException is thrown.
    */
-  public void deletePermissionUser(PermissionUser permissionUser) {
+  public synchronized void deletePermissionUser(PermissionUser permissionUser) {
     // Validate the PermissionUser argument.
     if (permissionUser == null) {
       throw new IllegalArgumentException("PermissionUser given is null.");
@@ -1199,10 +1412,7 @@ public class ModulePermissions extends MongoModule {
       throw new IllegalStateException(
           "PermissionUser is not registered with UUID: \"" + userId.toString() + "\".");
     }
-    // Remove the document from the map.
-    mapMongoPermissionUsers.remove(userId);
-    // Remove the container from the map.
-    mapPermissionUsers.remove(userId);
+    unregisterPermissionUser(userId);
     // Delete the document properly.
     permissionUser.getMongoDocument().delete();
     // Grab the group of the user.
@@ -1287,10 +1497,8 @@ public class ModulePermissions extends MongoModule {
         permissionGroupNext.setParent(parent, true);
       }
     }
-    // Sets the User to the parent group.
-    for (PermissionUser member : permissionGroup.getMembers()) {
-      member.setPermissionGroup(parent, true);
-    }
+    // Sets the Users to the parent group.
+    reassignPermissionUsers(permissionGroup, parent);
   }
 
   /**
@@ -1337,12 +1545,34 @@ public class ModulePermissions extends MongoModule {
   }
 
   /**
+   * Unloads a PermissionUser without changing its document. The PermissionUser is loaded again
+   * from the database the next time it is needed.
+   *
+   * @param playerId The Unique ID of the Player linked to the PermissionUser.
+   */
+  public synchronized void unloadPermissionUser(UUID playerId) {
+    mapPermissionUserEvictions.remove(playerId);
+    removePermissionUser(playerId);
+  }
+
+  /**
+   * Returns the PermissionUser of a Player. If the PermissionUser is not loaded, it is looked up in
+   * the database. The PermissionUsers of offline Players are evicted again after a delay.
+   *
    * @param playerId The Unique ID of a Player linked to the PermissionUser being retrieved.
    * @return Returns a PermissionUser associated with the given Unique ID for a Player, if
    *     registered in Permissions as a PermissionUser.
    */
-  private PermissionUser getPermissionUser(UUID playerId) {
-    return this.mapPermissionUsers.get(playerId);
+  public synchronized PermissionUser getPermissionUser(UUID playerId) {
+    PermissionUser permissionUser = this.mapPermissionUsers.get(playerId);
+    if (permissionUser != null || setPermissionUsersAbsent.contains(playerId)) {
+      return permissionUser;
+    }
+    permissionUser = loadPermissionUser(playerId);
+    if (SledgeHammer.instance.getPlayer(playerId) == null) {
+      scheduleEviction(playerId);
+    }
+    return permissionUser;
   }
 
   /** @return Returns the default PermissionGroup instance. */
@@ -0,0 +1,89 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+
+package sledgehammer.module.permissions;
+
+import sledgehammer.annotations.EventHandler;
+import sledgehammer.event.player.DisconnectEvent;
+import sledgehammer.event.player.PlayerJoinEvent;
+import sledgehammer.event.player.PlayerQuitEvent;
+import sledgehammer.interfaces.Listener;
+import sledgehammer.lua.core.Player;
+
+/**
+ * Listener for the Permissions Module, loading the PermissionUsers of Players when they join, and
+ * evicting them after they leave.
+ *
+ * @author Jab
+ */
+public class PermissionsEventListener implements Listener {
+
+  /** The ModulePermissions using the listener. */
+  private ModulePermissions module;
+
+  /**
+   * Main constructor.
+   *
+   * @param module The ModulePermissions using the listener.
+   */
+  PermissionsEventListener(ModulePermissions module) {
+    setModule(module);
+  }
+
+  @EventHandler(id = "core.permissions.event.join")
+  private void on(PlayerJoinEvent event) {
+    Player player = event.getPlayer();
+    if (player != null) {
+      getModule().onPlayerJoin(player);
+    }
+  }
+
+  @EventHandler(id = "core.permissions.event.quit")
+  private void on(PlayerQuitEvent event) {
+    Player player = event.getPlayer();
+    if (player != null) {
+      getModule().onPlayerLeave(player);
+    }
+  }
+
+  @EventHandler(id = "core.permissions.event.disconnect")
+  private void on(DisconnectEvent event) {
+    Player player = event.getPlayer();
+    if (player != null) {
+      getModule().onPlayerLeave(player);
+    }
+  }
+
+  /** @return Returns the ModulePermissions instance using the listener. */
+  public ModulePermissions getModule() {
+    return this.module;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Sets the ModulePermissions instance using the listener.
+   *
+   * @param module The ModulePermissions instance to set.
+   */
+  private void setModule(ModulePermissions module) {
+    this.module = module;
+  }
+}
@@ -100,7 +100,7 @@ public class PermissionsListener implements PermissionListener {
   }
 
   @Override
-  public void addDefaultPermission(String node, boolean flag) {
+  public synchronized void addDefaultPermission(String node, boolean flag) {
     PermissionGroup permissionGroupDefault = module.getDefaultPermissionGroup();
     permissionGroupDefault.setPermission(node, flag, false);
   }
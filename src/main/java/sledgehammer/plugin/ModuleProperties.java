@@ -20,6 +20,8 @@
 
 package sledgehammer.plugin;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -50,6 +52,10 @@ public class ModuleProperties extends LuaTable {
   private String clientModuleId;
 
   private List<String> defaultPermissions;
+  /** The List of String names of the Modules that have to load before the Module. */
+  private List<String> dependencies = Collections.emptyList();
+  /** Flag for the Module being safe to load at the same time as other Modules. */
+  private boolean parallelLoad;
 
   /**
    * Used for core module, or test-cases.
@@ -103,6 +109,7 @@ public class ModuleProperties extends LuaTable {
     String moduleLocation = "unknown";
     String clientModuleId = name.toLowerCase().trim();
     List<String> listPermissionNodes = new LinkedList<>();
+    List<String> listDependencies = new ArrayList<>();
     // Grab the version.
     Object oVersion = map.get("version");
     // If it exists, set it.
@@ -131,6 +138,21 @@ public class ModuleProperties extends LuaTable {
         listPermissionNodes.add((String) o);
       }
     }
+    // Grab the dependencies. This can be a single name or a list of names.
+    Object oDependencies = map.get("depends");
+    if (oDependencies instanceof List) {
+      for (Object o : (List) oDependencies) {
+        listDependencies.add(o.toString().trim());
+      }
+    } else if (oDependencies != null) {
+      listDependencies.add(oDependencies.toString().trim());
+    }
+    // Modules load one at a time, unless they opt in to loading at the same time as others.
+    boolean parallelLoad = false;
+    Object oParallelLoad = map.get("parallel-load");
+    if (oParallelLoad != null) {
+      parallelLoad = oParallelLoad.toString().trim().equalsIgnoreCase("true");
+    }
     if (Settings.getInstance().isDebug()) {
       System.out.println("Name: " + name);
       System.out.println("Version: " + version);
@@ -141,6 +163,8 @@ public class ModuleProperties extends LuaTable {
       for (String permissionNode : listPermissionNodes) {
         System.out.println("\t" + permissionNode);
       }
+      System.out.println("Depends: " + listDependencies);
+      System.out.println("Parallel-Load: " + parallelLoad);
     }
     // Set the result properties.
     setModuleVersion(version);
@@ -148,6 +172,8 @@ public class ModuleProperties extends LuaTable {
     setModuleDescription(description);
     setClientModuleId(clientModuleId);
     setDefaultPermissions(listPermissionNodes);
+    setDependencies(listDependencies);
+    setParallelLoad(parallelLoad);
   }
 
   /** @return Returns the client ID of the Module for Lua communication. */
@@ -257,4 +283,44 @@ public class ModuleProperties extends LuaTable {
   public void setDefaultPermissions(List<String> defaultPermissions) {
     this.defaultPermissions = defaultPermissions;
   }
+
+  /**
+   * @return Returns the List of String names of the Modules that have to load before the Module.
+   *     Modules of other plug-ins are loaded by the order of the plug-ins, with the core plug-in
+   *     first.
+   */
+  public List<String> getDependencies() {
+    return this.dependencies;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Sets the List of String names of the Modules that have to load before the Module.
+   *
+   * @param dependencies The List to set.
+   */
+  private void setDependencies(List<String> dependencies) {
+    this.dependencies = dependencies;
+  }
+
+  /**
+   * @return Returns true if the Module is safe to load at the same time as other Modules. This is
+   *     set with 'parallel-load: true', and should only be set if 'onLoad()' of the Module only
+   *     touches thread-safe state. Modules are loaded one at a time by default.
+   */
+  public boolean isParallelLoad() {
+    return this.parallelLoad;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Sets the flag for the Module being safe to load at the same time as other Modules.
+   *
+   * @param parallelLoad The flag to set.
+   */
+  private void setParallelLoad(boolean parallelLoad) {
+    this.parallelLoad = parallelLoad;
+  }
 }
@@ -29,11 +29,21 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
@@ -50,11 +60,15 @@ public class Plugin extends Printable {
 
   /** Debug flag for debugging the Plugin class. */
   private static final boolean DEBUG = false;
+  /** The maximum amount of threads to load independent Modules on at the same time. */
+  public static final int MAX_LOAD_THREADS = 4;
 
   /** The Map storing the Modules by name. */
   private Map<String, Module> mapModules;
   /** The List of Modules to load. */
   private List<Module> listModulesToLoad;
+  /** The pool of threads loading Modules at the same time. Only set while loading Modules. */
+  private ExecutorService executorLoad;
   /** The List of Modules already loaded. */
   private List<Module> listModulesLoaded;
   /** The List of Modules to start. */
@@ -194,17 +208,177 @@ public class Plugin extends Printable {
     return module;
   }
 
-  /** Processes 'onLoad()' for the plug-in's Modules. */
+  /**
+   * Processes 'onLoad()' for the plug-in's Modules.
+   *
+   * <p>Modules are loaded one at a time, in the order they are defined. Consecutive Modules that
+   * opt in with 'parallel-load: true' are loaded at the same time on a bounded pool of threads, and
+   * all of them finish loading before the next Module loads. A Module that depends on a Module in
+   * the same batch starts a new batch. Modules that depend on a Module that failed to load are
+   * skipped. Modules are queued to start in the order they are defined.
+   */
   public void loadModules() {
     synchronized (this) {
-      for (Module module : listModulesToLoad) {
-        if (loadModule(module)) {
-          listModulesToStart.add(module);
-          listModulesLoaded.add(module);
+      long timeStarted = System.currentTimeMillis();
+      Set<String> setModulesFailed = new HashSet<>();
+      List<Module> listBatch = new ArrayList<>();
+      Set<String> setBatch = new HashSet<>();
+      int loaded = 0;
+      try {
+        for (Module module : listModulesToLoad) {
+          boolean parallel = module.getProperties().isParallelLoad();
+          // Finish the batch before a Module that loads alone, or depends on the batch.
+          if (!listBatch.isEmpty() && (!parallel || dependsOnAny(module, setBatch))) {
+            loaded += loadBatch(listBatch, setModulesFailed);
+            listBatch.clear();
+            setBatch.clear();
+          }
+          String dependency = getFailedDependency(module, setModulesFailed);
+          if (dependency != null) {
+            errln(
+                "Module "
+                    + module.getModuleName()
+                    + " depends on "
+                    + dependency
+                    + ", which failed to load, and cannot be loaded.");
+            setModulesFailed.add(module.getModuleName().toLowerCase());
+            continue;
+          }
+          if (parallel) {
+            listBatch.add(module);
+            setBatch.add(module.getModuleName().toLowerCase());
+          } else {
+            loaded += loadBatch(Collections.singletonList(module), setModulesFailed);
+          }
+        }
+        loaded += loadBatch(listBatch, setModulesFailed);
+      } finally {
+        if (executorLoad != null) {
+          executorLoad.shutdown();
+          executorLoad = null;
         }
       }
       listModulesToLoad.clear();
+      long timeTaken = System.currentTimeMillis() - timeStarted;
+      println("Loaded " + loaded + " module(s) in " + timeTaken + " ms.");
+    }
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Loads a batch of Modules, and queues the Modules loaded to start. A batch of more than one
+   * Module is loaded at the same time.
+   *
+   * @param listBatch The List of Modules to load. The Modules cannot depend on each other.
+   * @param setModulesFailed The Set of lower-case String names of Modules that failed to load. The
+   *     Modules of the batch that fail are added to it.
+   * @return Returns the amount of Modules loaded.
+   */
+  private int loadBatch(List<Module> listBatch, Set<String> setModulesFailed) {
+    boolean[] results;
+    if (listBatch.size() > 1) {
+      if (executorLoad == null) {
+        int threads = Math.min(MAX_LOAD_THREADS, Runtime.getRuntime().availableProcessors());
+        executorLoad = Executors.newFixedThreadPool(threads, new LoadThreadFactory());
+      }
+      results = loadModules(executorLoad, listBatch);
+    } else {
+      results = new boolean[listBatch.size()];
+      for (int index = 0; index < results.length; index++) {
+        results[index] = loadModule(listBatch.get(index));
+      }
+    }
+    int loaded = 0;
+    for (int index = 0; index < results.length; index++) {
+      Module module = listBatch.get(index);
+      if (results[index]) {
+        listModulesToStart.add(module);
+        listModulesLoaded.add(module);
+        loaded++;
+      } else {
+        setModulesFailed.add(module.getModuleName().toLowerCase());
+      }
+    }
+    return loaded;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Loads Modules at the same time, and waits for all of them to finish loading.
+   *
+   * @param executor The ExecutorService to load the Modules on.
+   * @param listModules The List of Modules to load. The Modules cannot depend on each other.
+   * @return Returns an array of the results of loading each Module, in the order given.
+   */
+  private boolean[] loadModules(ExecutorService executor, List<Module> listModules) {
+    List<Future<Boolean>> listFutures = new ArrayList<>();
+    for (final Module module : listModules) {
+      listFutures.add(
+          executor.submit(
+              new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                  return loadModule(module);
+                }
+              }));
+    }
+    boolean[] results = new boolean[listModules.size()];
+    boolean interrupted = false;
+    for (int index = 0; index < results.length; index++) {
+      Future<Boolean> future = listFutures.get(index);
+      while (true) {
+        try {
+          results[index] = future.get();
+          break;
+        } catch (InterruptedException e) {
+          // The Modules are still loading. Finish waiting for them before giving up the thread.
+          interrupted = true;
+        } catch (ExecutionException e) {
+          errln("Failed to load Module: " + listModules.get(index).getModuleName());
+          stackTrace(e.getCause());
+          break;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    return results;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param module The Module to check.
+   * @param setModuleNames The Set of lower-case String names of Modules.
+   * @return Returns true if the Module depends on any of the Modules named.
+   */
+  private boolean dependsOnAny(Module module, Set<String> setModuleNames) {
+    for (String dependency : module.getProperties().getDependencies()) {
+      if (setModuleNames.contains(dependency.toLowerCase())) {
+        return true;
+      }
     }
+    return false;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param module The Module to check.
+   * @param setModulesFailed The Set of lower-case String names of Modules that failed to load.
+   * @return Returns the String name of the first dependency of the Module that failed to load. If
+   *     none of the dependencies failed, null is returned.
+   */
+  private String getFailedDependency(Module module, Set<String> setModulesFailed) {
+    for (String dependency : module.getProperties().getDependencies()) {
+      if (setModulesFailed.contains(dependency.toLowerCase())) {
+        return dependency;
+      }
+    }
+    return null;
   }
 
   /** Starts the plug-in's Modules. */
@@ -312,7 +486,13 @@ public class Plugin extends Printable {
     }
     try {
       println("Loading module " + module.getModuleName() + ".");
-      module.loadModule();
+      long timeStarted = System.nanoTime();
+      if (!module.loadModule()) {
+        errln("Failed to load Module: " + module.getModuleName());
+        return false;
+      }
+      long timeTaken = (System.nanoTime() - timeStarted) / 1000000L;
+      println("Loaded module " + module.getModuleName() + " in " + timeTaken + " ms.");
       return true;
     } catch (Exception e) {
       errln("Failed to load Module: " + module.getModuleName());
@@ -343,7 +523,10 @@ public class Plugin extends Printable {
     }
     try {
       println("Starting module " + module.getModuleName() + ".");
+      long timeStarted = System.nanoTime();
       module.startModule();
+      long timeTaken = (System.nanoTime() - timeStarted) / 1000000L;
+      println("Started module " + module.getModuleName() + " in " + timeTaken + " ms.");
       return true;
     } catch (Exception e) {
       errln("Failed to start Module: " + module.getModuleName());
@@ -600,7 +783,7 @@ public class Plugin extends Printable {
   }
 
   /** @return Returns a List of started Modules in the plug-in. */
-  private List<Module> getStartedModules() {
+  public List<Module> getStartedModules() {
     return listModulesStarted;
   }
 
@@ -726,4 +909,17 @@ public class Plugin extends Printable {
       listModulesStarted.removeAll(listModuleStopped);
     }
   }
+
+  /** Creates the daemon threads loading independent Modules at the same time. */
+  private static class LoadThreadFactory implements ThreadFactory {
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread =
+          new Thread(runnable, "Sledgehammer-ModuleLoader-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
 }
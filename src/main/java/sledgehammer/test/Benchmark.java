@@ -0,0 +1,106 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+
+package sledgehammer.test;
+
+import sledgehammer.util.Printable;
+
+/**
+ * Class designed to handle common operations for micro-benchmarking Sledgehammer internals. Each
+ * measurement is warmed up before it is timed so that the JIT has compiled the code being measured.
+ *
+ * @author Jab
+ */
+public abstract class Benchmark extends Printable {
+
+  /** The default amount of warm-up iterations to run before measuring. */
+  public static final int DEFAULT_WARMUP = 200000;
+  /** The default amount of measured iterations. */
+  public static final int DEFAULT_ITERATIONS = 2000000;
+
+  /** Used to keep the JIT from eliminating the work being measured. */
+  private long blackHole;
+
+  /**
+   * Measures the given operation and prints the throughput.
+   *
+   * @param label The String label to print with the result.
+   * @param warmup The amount of iterations to run before measuring.
+   * @param iterations The amount of iterations to measure.
+   * @param operation The Operation to measure.
+   * @return Returns the average time in nanoseconds for each iteration.
+   */
+  public double measure(String label, int warmup, int iterations, Operation operation) {
+    try {
+      for (int index = 0; index < warmup; index++) {
+        blackHole += operation.run(index);
+      }
+      long timeStarted = System.nanoTime();
+      for (int index = 0; index < iterations; index++) {
+        blackHole += operation.run(index);
+      }
+      long timeElapsed = System.nanoTime() - timeStarted;
+      double nanosPerOperation = (double) timeElapsed / (double) iterations;
+      double operationsPerSecond = 1000000000D / nanosPerOperation;
+      println(
+          String.format(
+              "%-48s %12.2f ns/op %16.0f ops/s", label, nanosPerOperation, operationsPerSecond));
+      return nanosPerOperation;
+    } catch (Throwable throwable) {
+      errln("Benchmark failed: " + label);
+      throwable.printStackTrace();
+      return -1D;
+    }
+  }
+
+  /**
+   * Measures the given operation with the default warm-up and iteration counts.
+   *
+   * @param label The String label to print with the result.
+   * @param operation The Operation to measure.
+   * @return Returns the average time in nanoseconds for each iteration.
+   */
+  public double measure(String label, Operation operation) {
+    return measure(label, DEFAULT_WARMUP, DEFAULT_ITERATIONS, operation);
+  }
+
+  /** @return Returns the accumulated results of the measured operations. */
+  public long getBlackHole() {
+    return this.blackHole;
+  }
+
+  /** This method executes the benchmark. */
+  public abstract void run();
+
+  /**
+   * A single unit of work to measure.
+   *
+   * @author Jab
+   */
+  public interface Operation {
+
+    /**
+     * @param iteration The index of the current iteration.
+     * @return Returns a value derived from the work performed, to prevent dead-code elimination.
+     * @throws Throwable Thrown if the operation fails.
+     */
+    long run(int iteration) throws Throwable;
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+
+package sledgehammer.test;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import sledgehammer.annotations.CommandHandler;
+import sledgehammer.command.Command;
+import sledgehammer.command.CommandHandlerComparator;
+import sledgehammer.command.CommandHandlerContainer;
+import sledgehammer.command.CommandTrie;
+import sledgehammer.interfaces.Listener;
+import sledgehammer.util.Response;
+
+/**
+ * Benchmark comparing the routing of commands through the previous split-and-scan lookup, and
+ * through the CommandTrie, with a few hundred registered command paths.
+ *
+ * @author Jab
+ */
+public class BenchmarkCommandRouter extends Benchmark {
+
+  private static final String[] ROOTS = {
+    "faction", "permissions", "chat", "discord", "ban", "kick", "warp", "home", "admin", "npc"
+  };
+  private static final String[] VERBS = {
+    "invite", "kick", "join", "leave", "create", "disband", "set", "get", "list", "info", "add",
+    "remove", "clear", "reload", "toggle", "show", "hide", "grant", "revoke", "rename"
+  };
+  private static final String[] OBJECTS = {"group", "user", "node"};
+
+  private static final String[] INPUTS = {
+    "faction invite Jab",
+    "permissions group set admin core.command true",
+    "/chat toggle",
+    "warp home \"my base\" now",
+    "unknown command here"
+  };
+
+  public static void main(String[] args) {
+    new BenchmarkCommandRouter().run();
+  }
+
+  @Override
+  public void run() {
+    try {
+      Method method =
+          BenchmarkListener.class.getMethod("onCommand", Command.class, Response.class);
+      CommandHandlerContainer container =
+          new CommandHandlerContainer(
+              new BenchmarkListener(), method, method.getAnnotation(CommandHandler.class));
+      final Map<String, LinkedList<CommandHandlerContainer>> mapCommandHandlers = new HashMap<>();
+      final CommandTrie commandTrie = new CommandTrie(new CommandHandlerComparator());
+      int count = 0;
+      for (String root : ROOTS) {
+        count += register(root, container, mapCommandHandlers, commandTrie);
+        for (String verb : VERBS) {
+          count += register(root + " " + verb, container, mapCommandHandlers, commandTrie);
+          for (String object : OBJECTS) {
+            String command = root + " " + object + " " + verb;
+            count += register(command, container, mapCommandHandlers, commandTrie);
+          }
+        }
+      }
+      println("Registered command paths: " + count);
+      measure(
+          "Split-and-scan routing",
+          new Operation() {
+            @Override
+            public long run(int iteration) {
+              String input = INPUTS[iteration % INPUTS.length];
+              return routeSplitAndScan(mapCommandHandlers, input);
+            }
+          });
+      measure(
+          "CommandTrie routing",
+          new Operation() {
+            @Override
+            public long run(int iteration) {
+              String input = INPUTS[iteration % INPUTS.length];
+              CommandTrie.Node node = commandTrie.match(input);
+              return node != null ? node.getDepth() : 0;
+            }
+          });
+      measure(
+          "CommandTrie completion",
+          new Operation() {
+            @Override
+            public long run(int iteration) {
+              return commandTrie.complete("permissions gr", 32).size();
+            }
+          });
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * (Private Static Method)
+   *
+   * <p>Routes a command the way EventManager previously did, by probing progressively shorter
+   * joined prefixes of the split input.
+   */
+  private static long routeSplitAndScan(
+      Map<String, LinkedList<CommandHandlerContainer>> mapCommandHandlers, String input) {
+    String raw = input.toLowerCase().trim();
+    String[] split = raw.split(" ");
+    for (int index = split.length - 1; index >= 0; index--) {
+      StringBuilder stringBuilder = new StringBuilder();
+      int subIndex = 0;
+      do {
+        stringBuilder.append(" ").append(split[subIndex++]);
+      } while (subIndex <= index);
+      String commandSearch = stringBuilder.toString().trim().replace("\"", "");
+      LinkedList<CommandHandlerContainer> listContainers = mapCommandHandlers.get(commandSearch);
+      if (listContainers != null) {
+        return index + 1;
+      }
+    }
+    return 0;
+  }
+
+  private static int register(
+      String command,
+      CommandHandlerContainer container,
+      Map<String, LinkedList<CommandHandlerContainer>> mapCommandHandlers,
+      CommandTrie commandTrie) {
+    LinkedList<CommandHandlerContainer> listContainers = new LinkedList<>();
+    listContainers.add(container);
+    mapCommandHandlers.put(command, listContainers);
+    return commandTrie.add(command, container) ? 1 : 0;
+  }
+
+  @Override
+  public String getName() {
+    return "BenchmarkCommandRouter";
+  }
+
+  /** Listener used to route commands. */
+  public static class BenchmarkListener implements Listener {
+
+    @CommandHandler(command = "benchmark")
+    public void onCommand(Command command, Response response) {}
+  }
+}
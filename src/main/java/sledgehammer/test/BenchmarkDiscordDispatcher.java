@@ -0,0 +1,88 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+package sledgehammer.test;
+
+import sledgehammer.module.discord.DiscordMessageDispatcher;
+
+/**
+ * Benchmark draining a burst of chat lines through the DiscordMessageDispatcher into a
+ * StubDiscordMessageSender, offline. The stub enforces Discord's per-channel limit of 5 messages per
+ * 5 seconds, scaled down 100 times so the benchmark completes quickly.
+ *
+ * @author Jab
+ */
+public class BenchmarkDiscordDispatcher extends Benchmark {
+
+  private static final int CHANNELS = 4;
+  private static final int LINES = 1000;
+  private static final int SCALE = 100;
+
+  public static void main(String[] args) {
+    new BenchmarkDiscordDispatcher().run();
+  }
+
+  @Override
+  public void run() {
+    StubDiscordMessageSender sender =
+        new StubDiscordMessageSender(
+            DiscordMessageDispatcher.DEFAULT_CHANNEL_BURST, 5000L / SCALE, 20L);
+    DiscordMessageDispatcher dispatcher =
+        new DiscordMessageDispatcher(
+            sender,
+            DiscordMessageDispatcher.DEFAULT_CHANNEL_BURST,
+            DiscordMessageDispatcher.DEFAULT_CHANNEL_REFILL / SCALE,
+            LINES);
+    dispatcher.start();
+    long timeStarted = System.nanoTime();
+    for (int index = 0; index < LINES; index++) {
+      for (int channel = 0; channel < CHANNELS; channel++) {
+        dispatcher.queue(
+            "channel" + channel,
+            "`\n[12:00:00] Player" + index + ": a typical line of chat sent to Discord.\n`");
+      }
+    }
+    long timeQueued = System.nanoTime() - timeStarted;
+    long lines = (long) LINES * CHANNELS;
+    while (dispatcher.getSentLines() + dispatcher.getDropped() < lines) {
+      try {
+        Thread.sleep(1L);
+      } catch (InterruptedException e) {
+        break;
+      }
+    }
+    long timeDrained = System.nanoTime() - timeStarted;
+    dispatcher.setInactive();
+    sender.shutdown();
+    println("Lines queued:            " + lines);
+    println("Queue time (ns/line):    " + (timeQueued / lines));
+    println("Drain time (ms):         " + (timeDrained / 1000000L));
+    println("Messages sent:           " + sender.getSent());
+    println("Lines per message:       " + ((double) dispatcher.getSentLines() / sender.getSent()));
+    println("Characters per message:  " + (sender.getSentCharacters() / sender.getSent()));
+    println("Rate limited sends:      " + sender.getRateLimited());
+    println("Dropped lines:           " + dispatcher.getDropped());
+    println("Backlog:                 " + dispatcher.getBacklog());
+  }
+
+  @Override
+  public String getName() {
+    return "BenchmarkDiscordDispatcher";
+  }
+}
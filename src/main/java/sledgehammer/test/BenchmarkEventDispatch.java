@@ -0,0 +1,83 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+
+package sledgehammer.test;
+
+import sledgehammer.annotations.EventHandler;
+import sledgehammer.event.Event;
+import sledgehammer.interfaces.Listener;
+import sledgehammer.manager.EventManager;
+
+/**
+ * Benchmark measuring the dispatch throughput of EventManager.handleEvent() with 1, 10, and 50
+ * registered EventHandlers.
+ *
+ * @author Jab
+ */
+public class BenchmarkEventDispatch extends Benchmark {
+
+  /** The handler counts to measure. */
+  private static final int[] HANDLER_COUNTS = new int[] {1, 10, 50};
+
+  public static void main(String[] args) {
+    new BenchmarkEventDispatch().run();
+  }
+
+  @Override
+  public void run() {
+    for (int handlerCount : HANDLER_COUNTS) {
+      final EventManager eventManager = new EventManager();
+      eventManager.onLoad(false);
+      for (int index = 0; index < handlerCount; index++) {
+        eventManager.register(new BenchmarkListener());
+      }
+      final BenchmarkEvent event = new BenchmarkEvent();
+      measure(
+          "handleEvent() with " + handlerCount + " handler(s)",
+          new Operation() {
+            @Override
+            public long run(int iteration) {
+              eventManager.handleEvent(event, false);
+              return event.count;
+            }
+          });
+      eventManager.onShutDown();
+    }
+  }
+
+  @Override
+  public String getName() {
+    return "BenchmarkEventDispatch";
+  }
+
+  /** Event used to measure dispatch. */
+  public static class BenchmarkEvent extends Event {
+    long count;
+  }
+
+  /** Listener used to measure dispatch. */
+  public static class BenchmarkListener implements Listener {
+
+    @EventHandler
+    public void on(BenchmarkEvent event) {
+      event.count++;
+    }
+  }
+}
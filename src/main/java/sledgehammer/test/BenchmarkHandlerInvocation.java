@@ -0,0 +1,138 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+
+package sledgehammer.test;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+
+import sledgehammer.annotations.EventHandler;
+import sledgehammer.event.EventHandlerContainer;
+import sledgehammer.interfaces.Listener;
+import sledgehammer.test.BenchmarkEventDispatch.BenchmarkEvent;
+
+/**
+ * Benchmark comparing the invocation of static and virtual EventHandlers through
+ * MethodHandle.invokeWithArguments() (the previous invocation path), and through the exact-typed
+ * invoker used by EventHandlerContainer.
+ *
+ * @author Jab
+ */
+public class BenchmarkHandlerInvocation extends Benchmark {
+
+  public static void main(String[] args) {
+    new BenchmarkHandlerInvocation().run();
+  }
+
+  @Override
+  public void run() {
+    try {
+      BenchmarkListener listener = new BenchmarkListener();
+      Method methodStatic = BenchmarkListener.class.getMethod("onStatic", BenchmarkEvent.class);
+      Method methodVirtual = BenchmarkListener.class.getMethod("onVirtual", BenchmarkEvent.class);
+      final BenchmarkEvent event = new BenchmarkEvent();
+      // The previous invocation path, using a shared argument array.
+      final MethodHandle handleStatic = MethodHandles.lookup().unreflect(methodStatic);
+      final MethodHandle handleVirtual = MethodHandles.lookup().unreflect(methodVirtual);
+      final Object[] argumentsStatic = new Object[1];
+      final Object[] argumentsVirtual = new Object[] {listener, null};
+      measure(
+          "invokeWithArguments() static",
+          new Operation() {
+            @Override
+            public long run(int iteration) throws Throwable {
+              argumentsStatic[0] = event;
+              handleStatic.invokeWithArguments(argumentsStatic);
+              argumentsStatic[0] = null;
+              return event.count;
+            }
+          });
+      measure(
+          "invokeWithArguments() virtual",
+          new Operation() {
+            @Override
+            public long run(int iteration) throws Throwable {
+              argumentsVirtual[1] = event;
+              handleVirtual.invokeWithArguments(argumentsVirtual);
+              argumentsVirtual[1] = null;
+              return event.count;
+            }
+          });
+      // The current invocation path.
+      final EventHandlerContainer containerStatic =
+          new EventHandlerContainer(
+              listener, methodStatic, methodStatic.getAnnotation(EventHandler.class));
+      final EventHandlerContainer containerVirtual =
+          new EventHandlerContainer(
+              listener, methodVirtual, methodVirtual.getAnnotation(EventHandler.class));
+      measure(
+          "EventHandlerContainer.handleEvent() static",
+          new Operation() {
+            @Override
+            public long run(int iteration) throws Throwable {
+              containerStatic.handleEvent(event);
+              return event.count;
+            }
+          });
+      measure(
+          "EventHandlerContainer.handleEvent() virtual",
+          new Operation() {
+            @Override
+            public long run(int iteration) throws Throwable {
+              containerVirtual.handleEvent(event);
+              return event.count;
+            }
+          });
+      // A direct call, as the lower bound.
+      final BenchmarkListener listenerDirect = listener;
+      measure(
+          "Direct call",
+          new Operation() {
+            @Override
+            public long run(int iteration) {
+              listenerDirect.onVirtual(event);
+              return event.count;
+            }
+          });
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  @Override
+  public String getName() {
+    return "BenchmarkHandlerInvocation";
+  }
+
+  /** Listener used to measure invocation. */
+  public static class BenchmarkListener implements Listener {
+
+    @EventHandler
+    public static void onStatic(BenchmarkEvent event) {
+      event.count++;
+    }
+
+    @EventHandler
+    public void onVirtual(BenchmarkEvent event) {
+      event.count++;
+    }
+  }
+}
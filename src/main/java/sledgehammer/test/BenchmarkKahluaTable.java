@@ -0,0 +1,221 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+package sledgehammer.test;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import se.krka.kahlua.j2se.KahluaTableImpl;
+import se.krka.kahlua.vm.KahluaUtil;
+
+/**
+ * Benchmark comparing the previous Map-backed KahluaTableImpl with the hybrid array and hash table.
+ * Measures sequential fills, random reads, len() and save(ByteBuffer) of 4096 indexed values, the
+ * shape of tables produced by LuaArray.export() and SledgeHammer.sendFile().
+ *
+ * @author Jab
+ */
+public class BenchmarkKahluaTable extends Benchmark {
+
+  private static final int SIZE = 4096;
+
+  public static void main(String[] args) {
+    new BenchmarkKahluaTable().run();
+  }
+
+  @Override
+  public void run() {
+    final int[] indices = new int[1024];
+    Random random = new Random(0L);
+    for (int index = 0; index < indices.length; index++) {
+      indices[index] = 1 + random.nextInt(SIZE);
+    }
+    final MapTable mapTable = new MapTable();
+    final KahluaTableImpl table = new KahluaTableImpl();
+    for (int index = 1; index <= SIZE; index++) {
+      mapTable.rawset(index, KahluaUtil.toDouble((long) index));
+      table.rawset(index, KahluaUtil.toDouble((long) index));
+    }
+    final ByteBuffer buffer = ByteBuffer.allocate(SIZE * 32);
+    int warmup = 200;
+    int iterations = 2000;
+    measure(
+        "sequential fill, map (previous)",
+        warmup,
+        iterations,
+        new Operation() {
+          @Override
+          public long run(int iteration) {
+            MapTable fill = new MapTable();
+            for (int index = 1; index <= SIZE; index++) {
+              fill.rawset(index, KahluaUtil.toDouble((long) index));
+            }
+            return fill.len();
+          }
+        });
+    measure(
+        "sequential fill, hybrid",
+        warmup,
+        iterations,
+        new Operation() {
+          @Override
+          public long run(int iteration) {
+            KahluaTableImpl fill = new KahluaTableImpl();
+            for (int index = 1; index <= SIZE; index++) {
+              fill.rawset(index, KahluaUtil.toDouble((long) index));
+            }
+            return fill.len();
+          }
+        });
+    warmup = 200000;
+    iterations = 2000000;
+    measure(
+        "random rawget, map (previous)",
+        warmup,
+        iterations,
+        new Operation() {
+          @Override
+          public long run(int iteration) {
+            return ((Double) mapTable.rawget(indices[iteration & 1023])).longValue();
+          }
+        });
+    measure(
+        "random rawget, hybrid",
+        warmup,
+        iterations,
+        new Operation() {
+          @Override
+          public long run(int iteration) {
+            return ((Double) table.rawget(indices[iteration & 1023])).longValue();
+          }
+        });
+    measure(
+        "len(), map (previous)",
+        warmup,
+        iterations,
+        new Operation() {
+          @Override
+          public long run(int iteration) {
+            return mapTable.len();
+          }
+        });
+    measure(
+        "len(), hybrid",
+        warmup,
+        iterations,
+        new Operation() {
+          @Override
+          public long run(int iteration) {
+            return table.len();
+          }
+        });
+    warmup = 200;
+    iterations = 2000;
+    measure(
+        "save(ByteBuffer), map (previous)",
+        warmup,
+        iterations,
+        new Operation() {
+          @Override
+          public long run(int iteration) {
+            buffer.clear();
+            mapTable.save(buffer);
+            return buffer.position();
+          }
+        });
+    measure(
+        "save(ByteBuffer), hybrid",
+        warmup,
+        iterations,
+        new Operation() {
+          @Override
+          public long run(int iteration) {
+            buffer.clear();
+            table.save(buffer);
+            return buffer.position();
+          }
+        });
+    println("(" + getBlackHole() + ")");
+  }
+
+  @Override
+  public String getName() {
+    return "BenchmarkKahluaTable";
+  }
+
+  /**
+   * The previous storage of KahluaTableImpl: every entry in one concurrent Map, with boxed Double
+   * keys. (A ConcurrentHashMap stands in for the NonBlockingHashMap previously used)
+   */
+  private static class MapTable {
+
+    private final Map<Object, Object> delegate = new ConcurrentHashMap<>();
+
+    void rawset(int key, Object value) {
+      Double keyDouble = KahluaUtil.toDouble((long) key);
+      if (value == null) {
+        delegate.remove(keyDouble);
+      } else {
+        delegate.put(keyDouble, value);
+      }
+    }
+
+    Object rawget(int key) {
+      Double keyDouble = KahluaUtil.toDouble((long) key);
+      return !delegate.containsKey(keyDouble) ? null : delegate.get(keyDouble);
+    }
+
+    int len() {
+      int low = 0;
+      int high = 2 * delegate.size();
+      while (low < high) {
+        int middle = high + low + 1 >> 1;
+        if (rawget(middle) == null) {
+          high = middle - 1;
+        } else {
+          low = middle;
+        }
+      }
+      while (rawget(low + 1) != null) {
+        ++low;
+      }
+      return low;
+    }
+
+    void save(ByteBuffer output) {
+      int count = 0;
+      for (Entry<Object, Object> entry : delegate.entrySet()) {
+        if (KahluaTableImpl.canSave(entry.getKey(), entry.getValue())) {
+          ++count;
+        }
+      }
+      output.putInt(count);
+      for (Entry<Object, Object> entry : delegate.entrySet()) {
+        output.put((byte) 1);
+        output.putDouble((Double) entry.getKey());
+        output.put((byte) 1);
+        output.putDouble((Double) entry.getValue());
+      }
+    }
+  }
+}
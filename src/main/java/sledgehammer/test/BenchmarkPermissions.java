@@ -0,0 +1,136 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+package sledgehammer.test;
+
+import java.util.UUID;
+
+import sledgehammer.database.module.permissions.MongoPermissionGroup;
+import sledgehammer.database.module.permissions.MongoPermissionUser;
+import sledgehammer.lua.permissions.Node;
+import sledgehammer.lua.permissions.PermissionGroup;
+import sledgehammer.lua.permissions.PermissionUser;
+
+/**
+ * Benchmark comparing permission checks through the previous linear node scan, and through the
+ * compiled PermissionTries and the decision cache of PermissionUser. The permissions are 500 nodes
+ * spread over 4 levels of group inheritance.
+ *
+ * @author Jab
+ */
+public class BenchmarkPermissions extends Benchmark {
+
+  private static final int NODES = 500;
+  private static final int LEVELS = 4;
+  private static final String[] MODULES = {"core", "chat", "faction", "npc", "discord"};
+
+  public static void main(String[] args) {
+    new BenchmarkPermissions().run();
+  }
+
+  @Override
+  public void run() {
+    PermissionGroup parent = null;
+    PermissionGroup group = null;
+    for (int level = 0; level < LEVELS; level++) {
+      group = new PermissionGroup(new MongoPermissionGroup(null, "level" + level));
+      if (parent != null) {
+        group.setParent(parent, false);
+      }
+      parent = group;
+    }
+    // Spread the nodes across the levels, so that each level overrides some of its parents.
+    PermissionGroup[] groups = new PermissionGroup[LEVELS];
+    for (PermissionGroup next = group; next != null; next = next.getParent()) {
+      groups[getLevel(next)] = next;
+    }
+    for (int index = 0; index < NODES; index++) {
+      String node = getNode(index);
+      groups[index % LEVELS].setPermission(node, index % 3 != 0, false);
+    }
+    final PermissionUser user =
+        new PermissionUser(new MongoPermissionUser(null, UUID.randomUUID()));
+    user.setPermission(getNode(7), false, false);
+    user.setTemporaryPermissionGroup(group);
+    // Test nodes beneath the defined nodes, so that both paths have to resolve super-nodes.
+    final String[] tests = new String[64];
+    for (int index = 0; index < tests.length; index++) {
+      tests[index] = getNode(index * 7) + ".use";
+    }
+    int warmup = 20000;
+    int iterations = 200000;
+    measure(
+        "linear scan (previous)",
+        warmup,
+        iterations,
+        new Operation() {
+          @Override
+          public long run(int iteration) {
+            return hasPermissionLinear(user, tests[iteration & 63]) ? 1L : 0L;
+          }
+        });
+    measure(
+        "compiled trie with decision cache",
+        warmup,
+        iterations,
+        new Operation() {
+          @Override
+          public long run(int iteration) {
+            return user.hasPermission(tests[iteration & 63]) ? 1L : 0L;
+          }
+        });
+    println("(" + getBlackHole() + ")");
+  }
+
+  /**
+   * The previous resolution of PermissionUser.hasPermission(), scanning every Node of the user and
+   * of the group.
+   */
+  private static boolean hasPermissionLinear(PermissionUser user, String node) {
+    Node nodeGroup = null;
+    PermissionGroup group = user.getPermissionGroup();
+    if (group != null) {
+      nodeGroup = group.getClosestPermissionNode(node);
+    }
+    Node nodeUser = user.getClosestPermissionNode(node);
+    if (nodeUser != null) {
+      if (nodeGroup != null) {
+        if (nodeGroup.equals(nodeUser) || nodeUser.isSubNode(nodeGroup)) {
+          return nodeUser.getFlag();
+        }
+        return nodeGroup.getFlag();
+      }
+      return nodeUser.getFlag();
+    }
+    return nodeGroup != null && nodeGroup.getFlag();
+  }
+
+  private static int getLevel(PermissionGroup group) {
+    return Integer.parseInt(group.getGroupName().substring("level".length()));
+  }
+
+  private static String getNode(int index) {
+    return MODULES[index % MODULES.length] + ".command" + (index / MODULES.length) + ".run";
+  }
+
+  @Override
+  public String getName() {
+    return "BenchmarkPermissions";
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+package sledgehammer.test;
+
+import java.util.UUID;
+
+import se.krka.kahlua.vm.KahluaTable;
+import sledgehammer.database.module.chat.MongoChatMessage;
+import sledgehammer.lua.chat.ChatMessage;
+import sledgehammer.lua.chat.send.SendChatMessages;
+import zombie.Lua.LuaManager;
+
+/**
+ * Benchmark of the fan-out done by ChatHistory.sendChatMessage(), comparing an export of the
+ * SendChatMessages for every recipient against one export shared by every recipient. The native
+ * packet write is left out, since it costs the same for both.
+ *
+ * @author Jab
+ */
+public class BenchmarkSendBroadcast extends Benchmark {
+
+  private static final int[] RECIPIENTS = {10, 50, 100};
+
+  public static void main(String[] args) {
+    LuaManager.init();
+    new BenchmarkSendBroadcast().run();
+  }
+
+  @Override
+  public void run() {
+    UUID channelId = UUID.randomUUID();
+    ChatMessage chatMessage =
+        new ChatMessage(
+            new MongoChatMessage(null),
+            channelId,
+            UUID.randomUUID(),
+            null,
+            null,
+            "client",
+            "Jab",
+            "Hello, world! This is a line of global chat.",
+            "Hello, world! This is a line of global chat.",
+            "12:00",
+            System.currentTimeMillis(),
+            -1L,
+            0);
+    final SendChatMessages send = new SendChatMessages(channelId);
+    send.addChatMessage(chatMessage);
+    int warmup = 2000;
+    int iterations = 20000;
+    for (final int recipients : RECIPIENTS) {
+      measure(
+          "export per recipient (" + recipients + " players)",
+          warmup,
+          iterations,
+          new Operation() {
+            @Override
+            public long run(int iteration) {
+              long result = 0L;
+              for (int index = 0; index < recipients; index++) {
+                result += write(send.export());
+              }
+              return result;
+            }
+          });
+      measure(
+          "export once (" + recipients + " players)",
+          warmup,
+          iterations,
+          new Operation() {
+            @Override
+            public long run(int iteration) {
+              long result = 0L;
+              KahluaTable table = send.export();
+              for (int index = 0; index < recipients; index++) {
+                result += write(table);
+              }
+              return result;
+            }
+          });
+    }
+    println("(" + getBlackHole() + ")");
+  }
+
+  @Override
+  public String getName() {
+    return "BenchmarkSendBroadcast";
+  }
+
+  /**
+   * Stands in for the packet write, reading the exported table the way a recipient would.
+   *
+   * @param table The exported KahluaTable.
+   * @return Returns a value derived from the table.
+   */
+  private static long write(KahluaTable table) {
+    return table.len() + table.rawget("__name").hashCode();
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+package sledgehammer.test;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import sledgehammer.module.discord.DiscordMessageSender;
+
+/**
+ * Offline DiscordMessageSender that completes sends after a simulated latency, and enforces a
+ * per-channel rate limit like Discord does, failing sends over the limit with a retry time.
+ *
+ * @author Jab
+ */
+public class StubDiscordMessageSender implements DiscordMessageSender {
+
+  /** The scheduler completing sends. */
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+  /** The send times in milliseconds within the current window, for each channel. */
+  private final Map<String, ArrayDeque<Long>> mapSendTimes = new HashMap<>();
+  /** The amount of messages allowed for each channel within a window. */
+  private final int limit;
+  /** The length of a window, in milliseconds. */
+  private final long window;
+  /** The simulated latency of a send, in milliseconds. */
+  private final long latency;
+  /** The total amount of messages sent. */
+  private final AtomicLong sent = new AtomicLong(0L);
+  /** The total amount of characters sent. */
+  private final AtomicLong sentCharacters = new AtomicLong(0L);
+  /** The total amount of sends refused for exceeding the rate limit. */
+  private final AtomicLong rateLimited = new AtomicLong(0L);
+
+  /**
+   * Main constructor.
+   *
+   * @param limit The amount of messages allowed for each channel within a window.
+   * @param window The length of a window, in milliseconds.
+   * @param latency The simulated latency of a send, in milliseconds.
+   */
+  public StubDiscordMessageSender(int limit, long window, long latency) {
+    this.limit = limit;
+    this.window = window;
+    this.latency = latency;
+  }
+
+  @Override
+  public void send(String channelId, final String content, final Callback callback) {
+    if (content.length() > 2000) {
+      callback.onFailed(new IllegalArgumentException("Message too long: " + content.length()), 0L);
+      return;
+    }
+    long now = System.currentTimeMillis();
+    long retryAfter = 0L;
+    synchronized (mapSendTimes) {
+      ArrayDeque<Long> sendTimes = mapSendTimes.get(channelId);
+      if (sendTimes == null) {
+        sendTimes = new ArrayDeque<>();
+        mapSendTimes.put(channelId, sendTimes);
+      }
+      while (!sendTimes.isEmpty() && now - sendTimes.peekFirst() >= window) {
+        sendTimes.pollFirst();
+      }
+      if (sendTimes.size() >= limit) {
+        retryAfter = window - (now - sendTimes.peekFirst());
+      } else {
+        sendTimes.addLast(now);
+      }
+    }
+    if (retryAfter > 0L) {
+      rateLimited.incrementAndGet();
+      final long retry = retryAfter;
+      scheduler.schedule(
+          new Runnable() {
+            @Override
+            public void run() {
+              callback.onFailed(new IllegalStateException("429: Too Many Requests"), retry);
+            }
+          },
+          latency,
+          TimeUnit.MILLISECONDS);
+      return;
+    }
+    scheduler.schedule(
+        new Runnable() {
+          @Override
+          public void run() {
+            sent.incrementAndGet();
+            sentCharacters.addAndGet(content.length());
+            callback.onSent();
+          }
+        },
+        latency,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /** Stops the scheduler completing sends. */
+  public void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+  /** @return Returns the total amount of messages sent. */
+  public long getSent() {
+    return this.sent.get();
+  }
+
+  /** @return Returns the total amount of characters sent. */
+  public long getSentCharacters() {
+    return this.sentCharacters.get();
+  }
+
+  /** @return Returns the total amount of sends refused for exceeding the rate limit. */
+  public long getRateLimited() {
+    return this.rateLimited.get();
+  }
+}
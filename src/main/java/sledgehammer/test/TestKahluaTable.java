@@ -0,0 +1,312 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+package sledgehammer.test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import se.krka.kahlua.j2se.KahluaTableImpl;
+import se.krka.kahlua.vm.KahluaTableIterator;
+import se.krka.kahlua.vm.KahluaUtil;
+import sledgehammer.util.Printable;
+
+/**
+ * Correctness tests for the hybrid array and hash KahluaTableImpl. Covers the migration of integer
+ * keys from the hash part when the array part grows, the reuse of removed hash entries, the
+ * borders returned by len(), assigning nil to fields while iterating, and tables stored in a
+ * concurrent Map.
+ *
+ * @author Jab
+ */
+public class TestKahluaTable extends Printable {
+
+  /** The amount of checks that failed. */
+  private int failures;
+
+  public static void main(String[] args) {
+    new TestKahluaTable().run();
+  }
+
+  public void run() {
+    println("Running Tests..");
+    test1();
+    test2();
+    test3();
+    test4();
+    test5();
+    if (failures == 0) {
+      println("Tests completed.");
+    } else {
+      errln("Tests completed with " + failures + " failure(s).");
+    }
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Integer keys stored in the hash part move to the array part once it grows to cover them.
+   */
+  private void test1() {
+    println("Running Test 1: Array growth migrates keys from the hash part.");
+    KahluaTableImpl table = new KahluaTableImpl();
+    // Keys past the end of the array part are stored in the hash part.
+    table.rawset(3, "c");
+    table.rawset(2, "b");
+    table.rawset(6, "f");
+    // Appending key 1 grows the array part, which now covers keys 2 and 3.
+    table.rawset(1, "a");
+    check("rawget(1)", "a".equals(table.rawget(1)));
+    check("rawget(2)", "b".equals(table.rawget(2)));
+    check("rawget(3)", "c".equals(table.rawget(3)));
+    check("rawget(Double 2)", "b".equals(table.rawget(KahluaUtil.toDouble(2L))));
+    check("rawget(6)", "f".equals(table.rawget(6)));
+    check("size() == 4", table.size() == 4);
+    check("len() == 3", table.len() == 3);
+    // Growing again covers key 6.
+    table.rawset(4, "d");
+    table.rawset(5, "e");
+    check("len() == 6", table.len() == 6);
+    check("rawget(6) after growth", "f".equals(table.rawget(6)));
+    check("size() == 6", table.size() == 6);
+    // Each key is iterated once.
+    Map<Object, Object> mapVisited = collect(table);
+    check("iterated 6 entries", mapVisited.size() == 6);
+    for (long key = 1; key <= 6; key++) {
+      check("iterated key " + key, mapVisited.containsKey(KahluaUtil.toDouble(key)));
+    }
+    println("Test 1 completed.");
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Removed hash entries are reused, and do not hide keys stored after them.
+   */
+  private void test2() {
+    println("Running Test 2: Tombstone reuse.");
+    KahluaTableImpl table = new KahluaTableImpl();
+    int count = 256;
+    for (int index = 0; index < count; index++) {
+      table.rawset("key" + index, KahluaUtil.toDouble((long) index));
+    }
+    // Remove every other key, leaving tombstones in probe sequences of the remaining keys.
+    for (int index = 0; index < count; index += 2) {
+      table.rawset("key" + index, null);
+    }
+    check("size() after removal", table.size() == count / 2);
+    boolean found = true;
+    for (int index = 0; index < count; index++) {
+      Object value = table.rawget("key" + index);
+      found &= index % 2 == 0 ? value == null : KahluaUtil.toDouble((long) index).equals(value);
+    }
+    check("remaining keys found past tombstones", found);
+    // Churn the same keys many times. Each key must keep a single entry.
+    for (int round = 0; round < 64; round++) {
+      for (int index = 0; index < count; index += 2) {
+        table.rawset("key" + index, KahluaUtil.toDouble((long) round));
+      }
+      for (int index = 0; index < count; index += 2) {
+        table.rawset("key" + index, null);
+      }
+    }
+    check("size() after churn", table.size() == count / 2);
+    check("iterated entries after churn", collect(table).size() == count / 2);
+    // Overwriting a present key does not add an entry.
+    table.rawset("key1", "overwritten");
+    check("overwrite keeps size()", table.size() == count / 2);
+    check("overwrite value", "overwritten".equals(table.rawget("key1")));
+    println("Test 2 completed.");
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>len() returns a border: a key n where t[n] is not nil (or n is 0), and t[n + 1] is nil.
+   */
+  private void test3() {
+    println("Running Test 3: len() borders.");
+    KahluaTableImpl table = new KahluaTableImpl();
+    check("empty len() == 0", table.len() == 0);
+    for (int index = 1; index <= 4; index++) {
+      table.rawset(index, "v");
+    }
+    check("full array len() == 4", table.len() == 4);
+    // Hole in the middle of the array part. Either side of the hole is a valid border.
+    table.rawset(3, null);
+    checkBorder("hole", table);
+    // Sequence continued in the hash part past a full array part.
+    table.rawset(3, "v");
+    table.rawset(6, "v");
+    table.rawset(7, "v");
+    check("hash part not counted without key 5", table.len() == 4);
+    table.rawset(5, "v");
+    check("sequence through migrated keys len() == 7", table.len() == 7);
+    // Trailing nils in the array part.
+    table.rawset(7, null);
+    table.rawset(6, null);
+    check("trailing nils len() == 5", table.len() == 5);
+    table.rawset(1, null);
+    checkBorder("nil at key 1", table);
+    // Non-integer keys are never part of the sequence.
+    KahluaTableImpl tableHash = new KahluaTableImpl();
+    tableHash.rawset("name", "v");
+    tableHash.rawset(KahluaUtil.toDouble(1.5D), "v");
+    check("hash keys only len() == 0", tableHash.len() == 0);
+    println("Test 3 completed.");
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Assigning nil to the current field during an iteration visits every other field once.
+   */
+  private void test4() {
+    println("Running Test 4: Assigning nil while iterating.");
+    KahluaTableImpl table = new KahluaTableImpl();
+    int count = 64;
+    for (int index = 1; index <= count; index++) {
+      table.rawset(index, "v");
+      table.rawset("key" + index, "v");
+    }
+    Map<Object, Integer> mapVisits = new HashMap<>();
+    KahluaTableIterator iterator = table.iterator();
+    while (iterator.advance()) {
+      Object key = iterator.getKey();
+      Integer visits = mapVisits.get(key);
+      mapVisits.put(key, visits == null ? 1 : visits + 1);
+      table.rawset(key, null);
+    }
+    boolean once = true;
+    for (Integer visits : mapVisits.values()) {
+      once &= visits == 1;
+    }
+    check("every field visited", mapVisits.size() == count * 2);
+    check("every field visited once", once);
+    check("table is empty", table.isEmpty() && table.size() == 0);
+    check("len() == 0", table.len() == 0);
+    // The table is usable after being emptied this way.
+    table.rawset(1, "v");
+    table.rawset("key", "v");
+    check("reused size() == 2", table.size() == 2);
+    check("reused len() == 1", table.len() == 1);
+    println("Test 4 completed.");
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>A table created with a Map stores every entry in it, and keeps every entry written by
+   * several threads at once when the Map is concurrent.
+   */
+  private void test5() {
+    println("Running Test 5: Tables stored in a concurrent Map.");
+    Map<Object, Object> map = new ConcurrentHashMap<>();
+    final KahluaTableImpl table = new KahluaTableImpl(map);
+    table.rawset(1, "a");
+    table.rawset(2, "b");
+    table.rawset("name", "v");
+    check("integer key stored as Double", "a".equals(map.get(KahluaUtil.toDouble(1L))));
+    check("rawget(2)", "b".equals(table.rawget(2)));
+    check("len() == 2", table.len() == 2);
+    check("iterated entries", collect(table).equals(map));
+    table.wipe();
+    check("wiped", map.isEmpty() && table.isEmpty());
+    final int threads = 4;
+    final int count = 10000;
+    Thread[] arrayThreads = new Thread[threads];
+    for (int index = 0; index < threads; index++) {
+      final int offset = index * count;
+      arrayThreads[index] =
+          new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  for (int key = 1; key <= count; key++) {
+                    table.rawset(offset + key, "v");
+                  }
+                }
+              });
+      arrayThreads[index].start();
+    }
+    for (Thread thread : arrayThreads) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    check("concurrent writes kept", table.size() == threads * count);
+    check("concurrent len()", table.len() == threads * count);
+    println("Test 5 completed.");
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param table The table to iterate.
+   * @return Returns a Map of the entries iterated from the table.
+   */
+  private Map<Object, Object> collect(KahluaTableImpl table) {
+    Map<Object, Object> map = new HashMap<>();
+    KahluaTableIterator iterator = table.iterator();
+    while (iterator.advance()) {
+      map.put(iterator.getKey(), iterator.getValue());
+    }
+    return map;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Checks that len() of a table is a border.
+   *
+   * @param label The String label of the check.
+   * @param table The table to test.
+   */
+  private void checkBorder(String label, KahluaTableImpl table) {
+    int border = table.len();
+    boolean valid =
+        (border == 0 || table.rawget(border) != null) && table.rawget(border + 1) == null;
+    check(label + " len() == " + border + " is a border", valid);
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Prints the result of a check, counting it if it failed.
+   *
+   * @param label The String label of the check.
+   * @param passed The result of the check.
+   */
+  private void check(String label, boolean passed) {
+    if (passed) {
+      println("  " + label + ": passed.");
+    } else {
+      failures++;
+      errln("  " + label + ": FAILED.");
+    }
+  }
+
+  @Override
+  public String getName() {
+    return "TestKahluaTable";
+  }
+}
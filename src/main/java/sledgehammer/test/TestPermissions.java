@@ -61,6 +61,8 @@ public class TestPermissions extends TestModule<ModulePermissions> {
      * test5(); pause();
      */
     test6();
+    pause();
+    test7();
     println("Tests completed. Cleaning up...");
     cleanUp();
   }
@@ -249,6 +251,50 @@ public class TestPermissions extends TestModule<ModulePermissions> {
     }
   }
 
+  /**
+   * (Private Method)
+   *
+   * <p>Saves a PermissionUser, unloads it, and loads it back from the database.
+   */
+  private void test7() {
+    try {
+      println("Running Test 7: Load a saved PermissionUser.");
+      createGroup1();
+      pause();
+      createUser1();
+      pause();
+      group1.addMember(user1, true);
+      user1.setPermission(node1String, true, true);
+      pause();
+      println("Unloading PermissionUser...");
+      getModule().unloadPermissionUser(uuidUser1);
+      PermissionUser loaded = getModule().getPermissionUser(uuidUser1);
+      if (loaded == null) {
+        errln("Test 7 failed: The saved PermissionUser did not load.");
+        cleanUp();
+        return;
+      }
+      println("Loaded a new container: " + (loaded != user1));
+      user1 = loaded;
+      println(
+          "User -> getGroupId() = "
+              + loaded.getGroupId()
+              + " (expected: "
+              + group1.getUniqueId()
+              + ")");
+      boolean flag = loaded.hasPermission(node1String);
+      println("User -> hasPermission(\"" + node1String + "\") = " + flag);
+      pause();
+      deleteUser1();
+      deleteGroup1();
+      println("Test 7 completed.");
+    } catch (Exception e) {
+      println("Test 7 failed.");
+      cleanUp();
+      e.printStackTrace();
+    }
+  }
+
   private void createUser1() {
     println("Creating PermissionUser 1...");
     println("UUID for PermissionUser 1: \"" + uuidUser1.toString() + "\".");
@@ -0,0 +1,138 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+
+package sledgehammer.util;
+
+import sledgehammer.SledgeHammer;
+import sledgehammer.plugin.Module;
+
+/**
+ * Class to handle the execution of Tasks that run on a background thread, and hand their result
+ * back to the game thread.
+ *
+ * <p>runAsync() must not touch game state, since it does not run on the game thread. The result
+ * is passed to onComplete(), which runs on the game thread on the tick after runAsync() finishes.
+ *
+ * @author Jab
+ * @param <T> The type of result of the AsyncTask.
+ */
+public abstract class AsyncTask<T> extends Printable {
+
+  private volatile boolean alive = false;
+
+  @Override
+  public String getName() {
+    String name = getClass().getSimpleName();
+    if (name.isEmpty()) {
+      name = "Anonymous AsyncTask";
+    }
+    return name;
+  }
+
+  /**
+   * Registers and runs the AsyncTask on a background thread.
+   *
+   * <p>Throws an IllegalArgumentException if the following occurs: - The Module provided is null or
+   * not loaded.
+   *
+   * <p>Throws an IllegalStateException if the following occurs: - The AsyncTask is already running.
+   *
+   * @param module The Module to register the AsyncTask to the TaskManager.
+   */
+  public void runTaskAsync(Module module) {
+    if (module == null || !module.isLoaded()) {
+      throw new IllegalArgumentException("Module provided is null or isn't loaded.");
+    }
+    if (isAlive()) {
+      throw new IllegalStateException("AsyncTask is already running.");
+    }
+    this.alive = true;
+    SledgeHammer.instance.getTaskManager().register(module, this);
+  }
+
+  /**
+   * Completes the AsyncTask with the result of runAsync(). This is called from the TaskManager on
+   * the game thread, and should not be ran by a third-party.
+   *
+   * @param result The result of runAsync().
+   * @param exception The Exception thrown by runAsync(), or null if none was thrown.
+   */
+  public void complete(T result, Exception exception) {
+    // If cancelled, the result is discarded.
+    if (!isAlive()) {
+      return;
+    }
+    this.alive = false;
+    try {
+      if (exception != null) {
+        onFailure(exception);
+      } else {
+        onComplete(result);
+      }
+    } catch (Exception e) {
+      stackTrace(e);
+      SledgeHammer.instance.handle(e);
+    }
+  }
+
+  /**
+   * Cancels the AsyncTask. If runAsync() has already started, it runs to the end, but the result is
+   * discarded.
+   *
+   * <p>The method throws an IllegalStateException if the AsyncTask is not running.
+   */
+  public void cancel() {
+    if (!this.alive) {
+      throw new IllegalStateException("The AsyncTask to cancel is not running.");
+    }
+    this.alive = false;
+  }
+
+  /** @return Returns true if the AsyncTask is waiting to run, running, or waiting to complete. */
+  public boolean isAlive() {
+    return this.alive;
+  }
+
+  /**
+   * The execution method for the AsyncTask implementation. This runs on a background thread.
+   *
+   * @return Returns the result to pass to onComplete().
+   * @throws Exception Thrown if the AsyncTask fails. The Exception is passed to onFailure().
+   */
+  public abstract T runAsync() throws Exception;
+
+  /**
+   * Executed on the game thread when runAsync() returns.
+   *
+   * @param result The result returned by runAsync().
+   */
+  public void onComplete(T result) {}
+
+  /**
+   * Executed on the game thread when runAsync() throws an Exception. By default the Exception is
+   * handled like the Exceptions of TickTasks.
+   *
+   * @param exception The Exception thrown by runAsync().
+   */
+  public void onFailure(Exception exception) {
+    stackTrace(exception);
+    SledgeHammer.instance.handle(exception);
+  }
+}
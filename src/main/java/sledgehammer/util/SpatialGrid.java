@@ -0,0 +1,248 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+package sledgehammer.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid of elements positioned in the world, keyed by cell. Range queries only visit the
+ * cells that overlap the range, instead of every element in the grid.
+ *
+ * <p>The grid is safe to use from multiple threads.
+ *
+ * @author Jab
+ * @param <E> The type of element positioned in the grid.
+ */
+public class SpatialGrid<E> {
+
+  /** The default width and height of a cell, in tiles. */
+  public static final int DEFAULT_CELL_SIZE = 50;
+
+  /** The Map of cells, identified by their packed cell coordinates. */
+  private final Map<Long, List<Node<E>>> mapCells = new HashMap<>();
+  /** The Map of nodes, identified by the element they position. */
+  private final Map<E, Node<E>> mapNodes = new HashMap<>();
+  /** The width and height of a cell, in tiles. */
+  private final int cellSize;
+
+  /** Main constructor. */
+  public SpatialGrid() {
+    this(DEFAULT_CELL_SIZE);
+  }
+
+  /** @param cellSize The width and height of a cell, in tiles. */
+  public SpatialGrid(int cellSize) {
+    if (cellSize < 1) {
+      throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+    }
+    this.cellSize = cellSize;
+  }
+
+  /**
+   * Adds an element to the grid, or moves it if it is already in the grid.
+   *
+   * @param element The element to position.
+   * @param x The x coordinate of the element.
+   * @param y The y coordinate of the element.
+   * @return Returns true if the element was added, or moved to a different cell.
+   */
+  public synchronized boolean update(E element, float x, float y) {
+    if (element == null) {
+      throw new IllegalArgumentException("Element given is null.");
+    }
+    long key = getKey(toCell(x), toCell(y));
+    Node<E> node = mapNodes.get(element);
+    if (node == null) {
+      node = new Node<>(element);
+      mapNodes.put(element, node);
+    } else if (node.key == key) {
+      node.x = x;
+      node.y = y;
+      return false;
+    } else {
+      removeFromCell(node);
+    }
+    node.x = x;
+    node.y = y;
+    node.key = key;
+    List<Node<E>> listNodes = mapCells.get(key);
+    if (listNodes == null) {
+      listNodes = new ArrayList<>();
+      mapCells.put(key, listNodes);
+    }
+    listNodes.add(node);
+    return true;
+  }
+
+  /**
+   * Removes an element from the grid.
+   *
+   * @param element The element to remove.
+   * @return Returns true if the element was in the grid.
+   */
+  public synchronized boolean remove(E element) {
+    Node<E> node = mapNodes.remove(element);
+    if (node == null) {
+      return false;
+    }
+    removeFromCell(node);
+    return true;
+  }
+
+  private void removeFromCell(Node<E> node) {
+    List<Node<E>> listNodes = mapCells.get(node.key);
+    if (listNodes == null) {
+      return;
+    }
+    // Swap with the last node, since the order of a cell does not matter.
+    int index = listNodes.indexOf(node);
+    int last = listNodes.size() - 1;
+    if (index != last) {
+      listNodes.set(index, listNodes.get(last));
+    }
+    listNodes.remove(last);
+    if (listNodes.isEmpty()) {
+      mapCells.remove(node.key);
+    }
+  }
+
+  /**
+   * Collects the elements inside a square range, where both axes are within the range of the
+   * center. This matches how the game decides if a position is relevant to a connection.
+   *
+   * @param x The x coordinate of the center.
+   * @param y The y coordinate of the center.
+   * @param range The range on each axis, in tiles.
+   * @param collection The Collection to add the elements to.
+   * @return Returns the amount of elements added.
+   */
+  public synchronized int getInRange(
+      float x, float y, float range, Collection<? super E> collection) {
+    int added = 0;
+    int cellXMin = toCell(x - range);
+    int cellXMax = toCell(x + range);
+    int cellYMin = toCell(y - range);
+    int cellYMax = toCell(y + range);
+    for (int cellX = cellXMin; cellX <= cellXMax; cellX++) {
+      for (int cellY = cellYMin; cellY <= cellYMax; cellY++) {
+        List<Node<E>> listNodes = mapCells.get(getKey(cellX, cellY));
+        if (listNodes == null) {
+          continue;
+        }
+        for (Node<E> node : listNodes) {
+          if (Math.abs(node.x - x) <= range && Math.abs(node.y - y) <= range) {
+            collection.add(node.element);
+            added++;
+          }
+        }
+      }
+    }
+    return added;
+  }
+
+  /**
+   * Collects the elements inside a circular radius.
+   *
+   * @param x The x coordinate of the center.
+   * @param y The y coordinate of the center.
+   * @param radius The radius, in tiles.
+   * @param collection The Collection to add the elements to.
+   * @return Returns the amount of elements added.
+   */
+  public synchronized int getInRadius(
+      float x, float y, float radius, Collection<? super E> collection) {
+    int added = 0;
+    float radiusSquared = radius * radius;
+    int cellXMin = toCell(x - radius);
+    int cellXMax = toCell(x + radius);
+    int cellYMin = toCell(y - radius);
+    int cellYMax = toCell(y + radius);
+    for (int cellX = cellXMin; cellX <= cellXMax; cellX++) {
+      for (int cellY = cellYMin; cellY <= cellYMax; cellY++) {
+        List<Node<E>> listNodes = mapCells.get(getKey(cellX, cellY));
+        if (listNodes == null) {
+          continue;
+        }
+        for (Node<E> node : listNodes) {
+          float deltaX = node.x - x;
+          float deltaY = node.y - y;
+          if (deltaX * deltaX + deltaY * deltaY <= radiusSquared) {
+            collection.add(node.element);
+            added++;
+          }
+        }
+      }
+    }
+    return added;
+  }
+
+  /**
+   * @param element The element to test.
+   * @return Returns true if the element is in the grid.
+   */
+  public synchronized boolean contains(E element) {
+    return mapNodes.containsKey(element);
+  }
+
+  /** @return Returns the amount of elements in the grid. */
+  public synchronized int size() {
+    return mapNodes.size();
+  }
+
+  /** @return Returns the amount of cells with at least one element. */
+  public synchronized int getCellCount() {
+    return mapCells.size();
+  }
+
+  /** Removes all elements from the grid. */
+  public synchronized void clear() {
+    mapCells.clear();
+    mapNodes.clear();
+  }
+
+  /** @return Returns the width and height of a cell, in tiles. */
+  public int getCellSize() {
+    return this.cellSize;
+  }
+
+  private int toCell(float coordinate) {
+    return (int) Math.floor(coordinate / cellSize);
+  }
+
+  private static long getKey(int cellX, int cellY) {
+    return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+  }
+
+  /** Positions an element in the grid. */
+  private static class Node<E> {
+    final E element;
+    float x;
+    float y;
+    long key;
+
+    Node(E element) {
+      this.element = element;
+    }
+  }
+}
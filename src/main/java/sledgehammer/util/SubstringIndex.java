@@ -0,0 +1,196 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+package sledgehammer.util;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of elements by a case-insensitive name, for finding the elements with names containing a
+ * fragment. Every substring of up to three characters of each name is indexed, so a fragment only
+ * checks the elements that share its rarest substring, instead of every element in the index.
+ *
+ * <p>When more than one element matches a fragment, the element added first is returned, matching
+ * the order of a List the elements are appended to.
+ *
+ * <p>The index is safe to use from multiple threads.
+ *
+ * @author Jab
+ * @param <E> The type of element indexed.
+ */
+public class SubstringIndex<E> {
+
+  /** The length of the longest substrings indexed. */
+  private static final int GRAM_LENGTH = 3;
+
+  /** The Map of elements containing each indexed substring, identified by the substring. */
+  private final Map<String, Set<Node<E>>> mapGrams = new HashMap<>();
+  /** The Map of nodes, identified by the element they index. */
+  private final Map<E, Node<E>> mapNodes = new HashMap<>();
+  /** The order to assign to the next element added. */
+  private long orderNext = 0L;
+
+  /**
+   * Adds an element to the index, or changes the name of the element if it is already in the
+   * index. An element keeps its order when its name changes.
+   *
+   * @param element The element to index.
+   * @param name The name to index the element by.
+   */
+  public synchronized void put(E element, String name) {
+    if (element == null) {
+      throw new IllegalArgumentException("Element given is null.");
+    }
+    if (name == null) {
+      throw new IllegalArgumentException("Name given is null.");
+    }
+    name = name.toLowerCase(Locale.ROOT);
+    Node<E> node = mapNodes.get(element);
+    if (node == null) {
+      node = new Node<>(element, orderNext++);
+      mapNodes.put(element, node);
+    } else if (node.name.equals(name)) {
+      return;
+    } else {
+      unlink(node);
+    }
+    node.name = name;
+    link(node);
+  }
+
+  /**
+   * Removes an element from the index.
+   *
+   * @param element The element to remove.
+   * @return Returns true if the element was in the index.
+   */
+  public synchronized boolean remove(E element) {
+    Node<E> node = mapNodes.remove(element);
+    if (node == null) {
+      return false;
+    }
+    unlink(node);
+    return true;
+  }
+
+  /**
+   * @param fragment The fragment to find. (Non-Case-Sensitive)
+   * @return Returns the first element added with a name containing the fragment. If no name
+   *     contains the fragment, null is returned.
+   */
+  public synchronized E find(String fragment) {
+    if (fragment == null) {
+      return null;
+    }
+    fragment = fragment.toLowerCase(Locale.ROOT);
+    Collection<Node<E>> setCandidates = null;
+    if (fragment.isEmpty()) {
+      setCandidates = mapNodes.values();
+    } else if (fragment.length() <= GRAM_LENGTH) {
+      setCandidates = mapGrams.get(fragment);
+    } else {
+      // Only the elements sharing the rarest substring of the fragment can contain it.
+      for (int index = 0; index + GRAM_LENGTH <= fragment.length(); index++) {
+        Set<Node<E>> set = mapGrams.get(fragment.substring(index, index + GRAM_LENGTH));
+        if (set == null) {
+          return null;
+        }
+        if (setCandidates == null || set.size() < setCandidates.size()) {
+          setCandidates = set;
+        }
+      }
+    }
+    if (setCandidates == null) {
+      return null;
+    }
+    Node<E> returned = null;
+    for (Node<E> node : setCandidates) {
+      if ((returned == null || node.order < returned.order) && node.name.contains(fragment)) {
+        returned = node;
+      }
+    }
+    return returned != null ? returned.element : null;
+  }
+
+  /**
+   * @param element The element to test.
+   * @return Returns true if the element is in the index.
+   */
+  public synchronized boolean contains(E element) {
+    return mapNodes.containsKey(element);
+  }
+
+  /** @return Returns the amount of elements in the index. */
+  public synchronized int size() {
+    return mapNodes.size();
+  }
+
+  /** Removes every element from the index. */
+  public synchronized void clear() {
+    mapGrams.clear();
+    mapNodes.clear();
+  }
+
+  private void link(Node<E> node) {
+    String name = node.name;
+    for (int start = 0; start < name.length(); start++) {
+      int end = Math.min(start + GRAM_LENGTH, name.length());
+      for (int index = start + 1; index <= end; index++) {
+        String gram = name.substring(start, index);
+        Set<Node<E>> set = mapGrams.get(gram);
+        if (set == null) {
+          set = new HashSet<>();
+          mapGrams.put(gram, set);
+        }
+        set.add(node);
+      }
+    }
+  }
+
+  private void unlink(Node<E> node) {
+    String name = node.name;
+    for (int start = 0; start < name.length(); start++) {
+      int end = Math.min(start + GRAM_LENGTH, name.length());
+      for (int index = start + 1; index <= end; index++) {
+        String gram = name.substring(start, index);
+        Set<Node<E>> set = mapGrams.get(gram);
+        if (set != null && set.remove(node) && set.isEmpty()) {
+          mapGrams.remove(gram);
+        }
+      }
+    }
+  }
+
+  /** Indexes an element by its name. */
+  private static class Node<E> {
+    final E element;
+    final long order;
+    String name;
+
+    Node(E element, long order) {
+      this.element = element;
+      this.order = order;
+    }
+  }
+}
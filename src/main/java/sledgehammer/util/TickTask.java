@@ -21,6 +21,7 @@
 package sledgehammer.util;
 
 import sledgehammer.SledgeHammer;
+import sledgehammer.manager.TaskManager;
 import sledgehammer.plugin.Module;
 
 /**
@@ -64,6 +65,22 @@ public abstract class TickTask extends Printable {
       delayTicks--;
       return true;
     }
+    return runTaskDue();
+  }
+
+  /**
+   * Executes a TickTask implementation whose delay has passed. This is called from the TaskManager,
+   * which keeps track of the delays of TickTasks itself, and should not be ran by a third-party.
+   *
+   * <p>If the TickTask is a timer-task and an Exception is thrown, then the TickTask is cancelled.
+   *
+   * @return Returns true if the task is a timer-task and has successfully ran. If false is
+   *     returned, the TickTask is unregistered from the TaskManager.
+   */
+  public boolean runTaskDue() {
+    if (!isAlive()) {
+      return false;
+    }
     // Initially set to return true if the task is a timer-task.
     boolean returned = type == TaskType.TIMER;
     try {
@@ -87,6 +104,10 @@ public abstract class TickTask extends Printable {
       stackTrace(e);
       SledgeHammer.instance.handle(e);
     }
+    // The TickTask may have been cancelled, or registered again, while running.
+    if (!this.alive) {
+      return false;
+    }
     // Set the flag for being alive. This flag is synonymous with the returned boolean value.
     this.alive = returned;
     // Return the result from the execution of the TickTask.
@@ -196,6 +217,20 @@ public abstract class TickTask extends Printable {
     this.delayTicks = 0;
     this.delayTicksTimer = 0;
     // @formatter:on
+    TaskManager managerTask = SledgeHammer.instance.getTaskManager();
+    if (managerTask != null) {
+      managerTask.unregister(this);
+    }
+  }
+
+  /** @return Returns the delay in ticks before the TickTask executes next. */
+  public int getDelayTicks() {
+    return this.delayTicks;
+  }
+
+  /** @return Returns the interval in ticks between executions of a timer-task. */
+  public int getDelayTicksTimer() {
+    return this.delayTicksTimer;
   }
 
   /** @return Returns true if the TickTask is used by the TaskManager. */
@@ -0,0 +1,140 @@
+/*
+ * This file is part of Sledgehammer.
+ *
+ *    Sledgehammer is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published by
+ *    the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    Sledgehammer is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with Sledgehammer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ *    Sledgehammer is free to use and modify, ONLY for non-official third-party servers
+ *    not affiliated with TheIndieStone, or it's immediate affiliates, or contractors.
+ */
+package sledgehammer.util;
+
+/**
+ * Token bucket rate limiter. The bucket holds up to a burst of tokens, and regains one token every
+ * refill interval. The bucket can also be paused, for when the remote end asks to back off.
+ *
+ * <p>The bucket is safe to use from multiple threads.
+ *
+ * @author Jab
+ */
+public class TokenBucket {
+
+  /** The maximum amount of tokens held. */
+  private final int burst;
+  /** The time in nanoseconds to regain one token. */
+  private final long refillNanos;
+  /** The amount of tokens held, as of the time last refilled. */
+  private int tokens;
+  /** The time in nanoseconds the tokens were last refilled. */
+  private long timeRefilled;
+  /** The time in nanoseconds until which no tokens are given. */
+  private long timePausedUntil;
+
+  /**
+   * Main constructor.
+   *
+   * @param burst The maximum amount of tokens held.
+   * @param refillMillis The time in milliseconds to regain one token.
+   */
+  public TokenBucket(int burst, long refillMillis) {
+    if (burst < 1) {
+      throw new IllegalArgumentException("Burst must be at least 1: " + burst);
+    }
+    if (refillMillis < 0L) {
+      throw new IllegalArgumentException("Refill time cannot be negative: " + refillMillis);
+    }
+    this.burst = burst;
+    this.refillNanos = refillMillis * 1000000L;
+    this.tokens = burst;
+    this.timeRefilled = System.nanoTime();
+    this.timePausedUntil = this.timeRefilled;
+  }
+
+  /**
+   * Takes a token if one is available.
+   *
+   * @param now The current time in nanoseconds.
+   * @return Returns true if a token was taken.
+   */
+  public synchronized boolean tryAcquire(long now) {
+    if (getWaitNanos(now) > 0L) {
+      return false;
+    }
+    tokens--;
+    return true;
+  }
+
+  /**
+   * @param now The current time in nanoseconds.
+   * @return Returns the time in nanoseconds until a token is available. 0 if one is available now.
+   */
+  public synchronized long getWaitNanos(long now) {
+    if (now - timePausedUntil < 0L) {
+      return timePausedUntil - now;
+    }
+    refill(now);
+    if (tokens > 0) {
+      return 0L;
+    }
+    return refillNanos - (now - timeRefilled);
+  }
+
+  /**
+   * Gives no tokens for the given time. Tokens are still regained while paused.
+   *
+   * @param millis The time in milliseconds to pause for.
+   */
+  public synchronized void pause(long millis) {
+    long now = System.nanoTime();
+    long until = now + millis * 1000000L;
+    if (until - timePausedUntil > 0L) {
+      timePausedUntil = until;
+    }
+  }
+
+  /** @return Returns the maximum amount of tokens held. */
+  public int getBurst() {
+    return this.burst;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Adds the tokens regained since the last refill.
+   *
+   * @param now The current time in nanoseconds.
+   */
+  private void refill(long now) {
+    if (tokens >= burst) {
+      timeRefilled = now;
+      return;
+    }
+    if (refillNanos == 0L) {
+      tokens = burst;
+      timeRefilled = now;
+      return;
+    }
+    long elapsed = now - timeRefilled;
+    if (elapsed < refillNanos) {
+      return;
+    }
+    long regained = elapsed / refillNanos;
+    if (regained >= burst - tokens) {
+      tokens = burst;
+      timeRefilled = now;
+    } else {
+      tokens += (int) regained;
+      timeRefilled += regained * refillNanos;
+    }
+  }
+}
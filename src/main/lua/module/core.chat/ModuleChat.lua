@@ -174,6 +174,36 @@ function Module_Chat:requestChannelsHistory()
     self:sendRequest("requestChatHistories", nil, success, failure);
 end
 
+----------------------------------------------------------------
+-- Requests a page of ChatMessages older than a timestamp.
+--
+-- @table chat_channel The ChatChannel to page.
+-- @number before The timestamp the ChatMessages are older than. (nil for the newest)
+-- @number limit The maximum amount of ChatMessages in the page.
+-- @function callback Called with the ChatMessages, from oldest
+--   to newest, and true if there are older ChatMessages.
+----------------------------------------------------------------
+function Module_Chat:requestChatHistoryPage(chat_channel, before, limit, callback)
+    local success = function(table, request)
+        local chat_messages = {};
+        local messages = table.messages;
+        local length = tLength(messages) - 1;
+        for index = 0, length, 1 do
+            local chat_message = ChatMessage();
+            chat_message:initialize(messages[index], chat_channel);
+            chat_message.history = true;
+            chat_messages[index] = chat_message;
+        end
+        callback(chat_messages, table.has_more);
+    end
+    local failure = function(error, request)
+        print("WARNING: Failed to retrieve chat history page.");
+        print(error);
+    end
+    local args = {channel_id = chat_channel.id, before = before, limit = limit};
+    self:sendRequest("requestChatHistoryPage", args, success, failure);
+end
+
 ----------------------------------------------------------------
 -- 
 ----------------------------------------------------------------
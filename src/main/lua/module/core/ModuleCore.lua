@@ -44,6 +44,18 @@ function Module_Core:handshake()
     self:sendRequest("requestInfo", nil, success, failure);
 end
 
+-- Requests the registered commands starting with the given partial command.
+-- The callback is given the table of completed command paths.
+function Module_Core:requestCommandCompletions(prefix, callback)
+	local success = function(table, request)
+		callback(table.completions);
+	end
+	local failure = function(error, request)
+		print("SledgeHammer: Failed to request command completions. ErrorCode: ".. tostring(error));
+	end
+	self:sendRequest("requestCommandCompletions", {prefix = prefix}, success, failure);
+end
+
 function Module_Core:updatePlayer(player)
 	if SledgeHammer.instance.self.id == player.id then
 		SledgeHammer.instance.self = player;